@@ -0,0 +1,116 @@
+package app.quantun.eb2c.benchmark;
+
+import app.quantun.eb2c.config.mapper.ModelMapperConfig;
+import app.quantun.eb2c.mapper.ProductMapper;
+import app.quantun.eb2c.mapper.ProductMapperImpl;
+import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective ModelMapper with the generated MapStruct ProductMapper on the product paths.
+ * <p>
+ * Run with {@code ./gradlew jmh}; the gc profiler configured in build.gradle adds {@code gc.alloc.rate.norm},
+ * the bytes allocated per operation. The list benchmarks map a page of {@code pageSize} products, as the list
+ * endpoints do, so the per-item cost is the score divided by the page size; the single-item benchmarks run once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ProductMappingBenchmark {
+
+    private ModelMapper modelMapper;
+
+    private ProductMapper productMapper;
+
+    private Product product;
+
+    private ProductRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapperConfig().modelMapper();
+        productMapper = new ProductMapperImpl();
+
+        request = ProductRequestDTO.builder()
+                .name("Ultra Phone X")
+                .description("Premium quality product designed for everyday use.")
+                .price(new BigDecimal("499.99"))
+                .inStock(true)
+                .stock(42)
+                .build();
+        product = product(0);
+    }
+
+    /**
+     * The page mapped by the list benchmarks, kept apart so only they are run once per page size.
+     */
+    @State(Scope.Benchmark)
+    public static class Page {
+
+        @Param({"1", "100"})
+        private int pageSize;
+
+        private List<Product> products;
+
+        @Setup
+        public void setUp() {
+            products = new ArrayList<>(pageSize);
+            for (long i = 0; i < pageSize; i++) {
+                products.add(product(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public ProductResponseDTO modelMapperToResponse() {
+        return modelMapper.map(product, ProductResponseDTO.class);
+    }
+
+    @Benchmark
+    public ProductResponseDTO mapStructToResponse() {
+        return productMapper.toProductResponseDTO(product);
+    }
+
+    @Benchmark
+    public Product modelMapperToEntity() {
+        return modelMapper.map(request, Product.class);
+    }
+
+    @Benchmark
+    public Product mapStructToEntity() {
+        return productMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public List<ProductResponseDTO> modelMapperPage(Page page) {
+        List<ProductResponseDTO> result = new ArrayList<>(page.products.size());
+        for (Product item : page.products) {
+            result.add(modelMapper.map(item, ProductResponseDTO.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<ProductResponseDTO> mapStructPage(Page page) {
+        return productMapper.toProductResponseDTOList(page.products);
+    }
+
+    private static Product product(long index) {
+        return Product.builder()
+                .id(index + 1)
+                .name("Ultra Phone X " + index)
+                .description("Premium quality product designed for everyday use.")
+                .price(new BigDecimal("499.99"))
+                .inStock(true)
+                .stock(42)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package app.quantun.eb2c.benchmark;
+
+import app.quantun.eb2c.repository.StockReservationRepository;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hammers a single hot product with concurrent reservations to measure throughput under row contention.
+ * <p>
+ * Needs a PostgreSQL database with the product and product_reservation tables, taken from the same
+ * SPRING_DATASOURCE_URL, SPRING_DATASOURCE_USERNAME and SPRING_DATASOURCE_PASSWORD variables as the application.
+ * Run with {@code ./gradlew jmh}. The stock is sized so part of
+ * the run exhausts it; the teardown fails the run if more units were held than the product ever had.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(32)
+public class StockReservationContentionBenchmark {
+
+    private static final int INITIAL_STOCK = 200_000;
+
+    private HikariDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private StockReservationRepository repository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private long productId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        config.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        config.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        config.setMaximumPoolSize(32);
+        dataSource = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new StockReservationRepository(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        productId = jdbcTemplate.queryForObject(
+                "INSERT INTO product (name, price, in_stock, stock, created_at, updated_at) "
+                        + "VALUES ('benchmark hot sku', 1, true, ?, now(), now()) RETURNING id",
+                Long.class, INITIAL_STOCK);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            Integer stock = jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, productId);
+            Integer held = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM product_reservation "
+                    + "WHERE product_id = ? AND status IN ('HELD', 'CONFIRMED')", Integer.class, productId);
+            if (stock == null || held == null || stock < 0 || stock + held != INITIAL_STOCK) {
+                throw new IllegalStateException("Oversold: stock " + stock + ", held " + held
+                        + ", initial " + INITIAL_STOCK);
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM product_reservation WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM product WHERE id = ?", productId);
+            dataSource.close();
+        }
+    }
+
+    /**
+     * One reservation of a single unit; false once the stock is exhausted.
+     */
+    @Benchmark
+    public boolean reserve() {
+        return repository.reserve(UUID.randomUUID(), productId, 1, LocalDateTime.now().plusMinutes(15));
+    }
+
+    /**
+     * A reservation immediately released, the checkout-abandoned path, which keeps the stock level constant.
+     */
+    @Benchmark
+    public boolean reserveAndRelease() {
+        UUID id = UUID.randomUUID();
+        if (!repository.reserve(id, productId, 1, LocalDateTime.now().plusMinutes(15))) {
+            return false;
+        }
+        return transactionTemplate.execute(status -> repository.release(id)).isPresent();
+    }
+}
@@ -1,13 +1,24 @@
 package app.quantun.eb2c.config;
 
+import app.quantun.eb2c.config.cognito.CognitoQuota;
+import app.quantun.eb2c.config.cognito.CognitoSimulator;
+import app.quantun.eb2c.config.cognito.ResilientCognitoClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClientBuilder;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 
 @Configuration
 public class AwsConfig {
@@ -21,6 +32,24 @@ public class AwsConfig {
     @Value("${aws.secretKey:#{null}}")
     private String secretKey;
 
+    @Value("${app.cognito.client.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${app.cognito.client.rate-limit.quota-share:1.0}")
+    private double quotaShare;
+
+    @Value("${app.cognito.client.rate-limit.max-wait:2s}")
+    private Duration maxWait;
+
+    @Value("${app.cognito.client.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.cognito.client.retry.base-delay:100ms}")
+    private Duration baseDelay;
+
+    @Value("${app.cognito.client.retry.max-delay:2s}")
+    private Duration maxDelay;
+
     /**
      * Creates a CognitoIdentityProviderClient bean.
      * 
@@ -28,26 +57,44 @@ public class AwsConfig {
      * If the access key and secret key are provided, it uses them to create a static credentials provider.
      * Otherwise, it falls back to the default credentials provider chain.
      * 
+     * The client is wrapped with per-quota rate limiting, retries and metrics, see {@link ResilientCognitoClient}.
+     * The SDK's own retries are turned off so that a throttled call is not retried by both layers. Each quota
+     * category runs at its default Cognito rate times {@code app.cognito.client.rate-limit.quota-share}, the
+     * share of the user pool quota given to one replica, unless {@code app.cognito.client.rate-limit.rate.<category>}
+     * sets its rate.
+     * 
+     * With the {@value CognitoSimulator#PROFILE} profile, the wrapped client calls the in-memory
+     * {@link CognitoSimulator} instead of AWS.
+     * 
+     * @param meterRegistry the registry of the client metrics
+     * @param environment   the environment holding the per-category rates
+     * @param simulator     the Cognito simulator, available with its profile only
      * @return CognitoIdentityProviderClient instance
      */
     @Bean
-    public CognitoIdentityProviderClient cognitoClient() {
+    public CognitoIdentityProviderClient cognitoClient(MeterRegistry meterRegistry, Environment environment,
+                                                       ObjectProvider<CognitoSimulator> simulator) {
+        CognitoIdentityProviderClientBuilder builder = CognitoIdentityProviderClient.builder()
+                .region(Region.of(awsRegion))
+                .overrideConfiguration(override -> override.retryStrategy(AwsRetryStrategy.doNotRetry()));
         if (accessKey != null && secretKey != null) {
-            // Create credentials provider
-            AwsCredentialsProvider credentialsProvider = StaticCredentialsProvider.create(
+            // Create client with credentials
+            builder.credentialsProvider(StaticCredentialsProvider.create(
                     AwsBasicCredentials.create(accessKey, secretKey)
-            );
+            ));
+        }
+        // Otherwise use default provider chain
 
-            // Create client with credentials
-            return CognitoIdentityProviderClient.builder()
-                    .region(Region.of(awsRegion))
-                    .credentialsProvider(credentialsProvider)
-                    .build();
-        } else {
-            // Use default provider chain
-            return CognitoIdentityProviderClient.builder()
-                    .region(Region.of(awsRegion))
-                    .build();
+        Map<CognitoQuota, Double> rates = new EnumMap<>(CognitoQuota.class);
+        if (rateLimitEnabled) {
+            for (CognitoQuota quota : CognitoQuota.values()) {
+                rates.put(quota, environment.getProperty("app.cognito.client.rate-limit.rate." + quota.key(),
+                        Double.class, quota.defaultRate() * quotaShare));
+            }
         }
+        CognitoSimulator cognitoSimulator = simulator.getIfAvailable();
+        CognitoIdentityProviderClient delegate = cognitoSimulator != null ? cognitoSimulator.client() : builder.build();
+        return ResilientCognitoClient.wrap(delegate, rates, meterRegistry, maxAttempts, baseDelay, maxDelay,
+                maxWait);
     }
 }
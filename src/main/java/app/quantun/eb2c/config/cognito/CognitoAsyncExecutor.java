@@ -0,0 +1,109 @@
+package app.quantun.eb2c.config.cognito;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs Cognito calls on a dedicated pool of threads and returns them as futures, so independent calls run
+ * concurrently and request threads are released while waiting on AWS.
+ * <p>
+ * Calls go through the same {@link ResilientCognitoClient} as the blocking ones, keeping a single rate limiter,
+ * retry policy and set of client metrics per replica. The pool size bounds the Cognito calls in flight from
+ * asynchronous requests. Metrics are published as the {@code executor.*} meters tagged with
+ * {@code name=cognito.async}.
+ */
+@Component
+public class CognitoAsyncExecutor {
+
+    private static final String EXECUTOR_NAME = "cognito.async";
+
+    private final ThreadLocal<Boolean> poolThread = ThreadLocal.withInitial(() -> false);
+
+    private final ExecutorService executor;
+
+    public CognitoAsyncExecutor(MeterRegistry meterRegistry,
+                                @Value("${app.cognito.async.concurrency:32}") int concurrency) {
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry,
+                Executors.newFixedThreadPool(concurrency, threadFactory()), EXECUTOR_NAME);
+    }
+
+    /**
+     * Run a call on the Cognito pool.
+     * A call made from a thread of the pool runs inline instead, so a pool task waiting on calls of its own can
+     * never wait for a pool thread that is not free.
+     *
+     * @param call the call, typically made on the Cognito client
+     * @return the future result; a failed call completes it with the exception thrown, not wrapped
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                future.complete(call.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+        if (poolThread.get()) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+        return future;
+    }
+
+    /**
+     * Wait for a future from this executor, for blocking callers.
+     *
+     * @param future the future
+     * @return its result
+     * @throws RuntimeException the exception the future failed with
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * @return the exception a future failed with, without the {@link CompletionException} wrapping added by
+     * dependent stages
+     */
+    public static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new CompletionException(cause);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ThreadFactory threadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                poolThread.set(true);
+                runnable.run();
+            }, "cognito-async-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package app.quantun.eb2c.config.cognito;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Request rate quota categories of the Cognito user pool API, with their default rates in requests per second.
+ * <p>
+ * Cognito applies a quota to a category of operations rather than to each operation, so operations of one category
+ * share a rate limit. Only the operations this application calls are listed; other operations are not rate limited.
+ */
+public enum CognitoQuota {
+
+    USER_AUTHENTICATION(120, "AdminInitiateAuth", "InitiateAuth", "AdminRespondToAuthChallenge",
+            "RespondToAuthChallenge"),
+    USER_CREATION(50, "AdminCreateUser", "SignUp"),
+    USER_ACCOUNT_RECOVERY(30, "AdminResetUserPassword", "ForgotPassword", "ConfirmForgotPassword"),
+    USER_READ(120, "AdminGetUser", "GetUser"),
+    USER_UPDATE(25, "AdminUpdateUserAttributes", "AdminEnableUser", "AdminDisableUser", "AdminDeleteUser",
+            "AdminSetUserPassword"),
+    USER_RESOURCE_READ(50, "AdminListGroupsForUser"),
+    USER_RESOURCE_UPDATE(25, "AdminAddUserToGroup", "AdminRemoveUserFromGroup"),
+    USER_LIST(30, "ListUsers", "ListUsersInGroup"),
+    USER_POOL_RESOURCE_READ(20, "GetGroup", "ListGroups"),
+    USER_POOL_RESOURCE_UPDATE(15, "CreateGroup", "UpdateGroup", "DeleteGroup");
+
+    private static final Map<String, CognitoQuota> BY_OPERATION = Arrays.stream(values())
+            .flatMap(quota -> Arrays.stream(quota.operations).map(operation -> Map.entry(operation, quota)))
+            .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+
+    private final double defaultRate;
+
+    private final String[] operations;
+
+    CognitoQuota(double defaultRate, String... operations) {
+        this.defaultRate = defaultRate;
+        this.operations = operations;
+    }
+
+    /**
+     * @return the default rate of the category, in requests per second
+     */
+    public double defaultRate() {
+        return defaultRate;
+    }
+
+    /**
+     * @return the name of the category in configuration keys, such as {@code user-list}
+     */
+    public String key() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Find the category of an operation.
+     *
+     * @param operation the operation name, such as {@code ListUsers}
+     * @return the category, or null when the operation is not rate limited
+     */
+    public static CognitoQuota of(String operation) {
+        return BY_OPERATION.get(operation);
+    }
+}
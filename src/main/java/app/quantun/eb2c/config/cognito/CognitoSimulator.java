@@ -0,0 +1,531 @@
+package app.quantun.eb2c.config.cognito;
+
+import app.quantun.eb2c.util.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderServiceClientConfiguration;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory stand-in for a Cognito user pool, used to run and load test the application without AWS.
+ * <p>
+ * Active with the {@value #PROFILE} profile, where {@code AwsConfig} wraps {@link #client()} instead of the AWS
+ * SDK client, so rate limiting, retries and metrics behave as in production. The simulated pool implements the
+ * user and group operations this application calls, with Cognito's page size limit, pagination tokens and
+ * exceptions, and is seeded with users and groups on startup. Every call waits for a latency drawn from a
+ * log-normal distribution with the configured median and 99th percentile, is throttled per {@link CognitoQuota}
+ * category at the default Cognito rates times a multiplier, and can fail with an injected 5xx error.
+ * <p>
+ * The ListUsers filter accepts {@code attribute = "value"} and {@code attribute ^= "value"} terms joined with
+ * {@code or}, which is more than Cognito accepts.
+ */
+@Component
+@Profile(CognitoSimulator.PROFILE)
+@Slf4j
+public class CognitoSimulator {
+
+    /**
+     * Spring profile replacing Cognito with the simulator.
+     */
+    public static final String PROFILE = "cognito-sim";
+
+    /**
+     * Maximum page size accepted by the list operations.
+     */
+    private static final int MAX_LIMIT = 60;
+
+    /**
+     * The 99th percentile of the standard normal distribution.
+     */
+    private static final double Z_99 = 2.3263;
+
+    private static final Pattern FILTER_TERM = Pattern.compile("(\\w+)\\s*(\\^?=)\\s*\"([^\"]*)\"");
+
+    private final Duration medianLatency;
+
+    private final double latencySigma;
+
+    private final double errorRate;
+
+    private final Map<CognitoQuota, TokenBucket> buckets = new EnumMap<>(CognitoQuota.class);
+
+    /**
+     * Users by username and groups by name; both guarded by this simulator's monitor.
+     */
+    private final TreeMap<String, SimulatedUser> users = new TreeMap<>();
+
+    private final TreeMap<String, SimulatedGroup> groups = new TreeMap<>();
+
+    private final CognitoIdentityProviderClient client = new Client();
+
+    public CognitoSimulator(@Value("${app.cognito.simulator.latency.median:40ms}") Duration medianLatency,
+                            @Value("${app.cognito.simulator.latency.p99:250ms}") Duration p99Latency,
+                            @Value("${app.cognito.simulator.error-rate:0.0}") double errorRate,
+                            @Value("${app.cognito.simulator.quota-multiplier:1.0}") double quotaMultiplier,
+                            @Value("${app.cognito.simulator.seed.users:1000}") int seedUsers,
+                            @Value("${app.cognito.simulator.seed.groups:20}") int seedGroups,
+                            @Value("${app.cognito.simulator.seed.groups-per-user:2}") int groupsPerUser) {
+        this.medianLatency = medianLatency;
+        this.latencySigma = medianLatency.isZero() || p99Latency.compareTo(medianLatency) <= 0
+                ? 0 : Math.log((double) p99Latency.toNanos() / medianLatency.toNanos()) / Z_99;
+        this.errorRate = errorRate;
+        if (quotaMultiplier > 0) {
+            for (CognitoQuota quota : CognitoQuota.values()) {
+                buckets.put(quota, new TokenBucket(quota.defaultRate() * quotaMultiplier));
+            }
+        }
+        seed(seedUsers, seedGroups, groupsPerUser);
+        log.info("Cognito simulator started with {} users and {} groups", users.size(), groups.size());
+    }
+
+    /**
+     * @return the client calling the simulated user pool
+     */
+    public CognitoIdentityProviderClient client() {
+        return client;
+    }
+
+    /**
+     * Seed names follow {@code user-00001} and {@code group-01}, so load tests can address them.
+     */
+    private void seed(int userCount, int groupCount, int groupsPerUser) {
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        for (int i = 1; i <= groupCount; i++) {
+            String name = String.format("group-%02d", i);
+            groups.put(name, new SimulatedGroup(name, "Seeded group " + i, i, now));
+        }
+        List<String> groupNames = new ArrayList<>(groups.keySet());
+        for (int i = 1; i <= userCount; i++) {
+            String username = String.format("user-%05d", i);
+            SimulatedUser user = new SimulatedUser(username, now);
+            user.attributes.put("email", username + "@example.com");
+            user.attributes.put("email_verified", "true");
+            user.status = UserStatusType.CONFIRMED;
+            users.put(username, user);
+            for (int j = 0; j < Math.min(groupsPerUser, groupNames.size()); j++) {
+                join(user, groups.get(groupNames.get(random.nextInt(groupNames.size()))));
+            }
+        }
+    }
+
+    /**
+     * Run an operation as Cognito would: after a network delay, subject to throttling and injected errors.
+     */
+    private <T> T call(CognitoIdentityProviderRequest request, Supplier<T> operation) {
+        String name = request.getClass().getSimpleName().replaceFirst("Request$", "");
+        sleep(latency());
+
+        CognitoQuota quota = CognitoQuota.of(name);
+        TokenBucket bucket = quota == null ? null : buckets.get(quota);
+        if (bucket != null && bucket.reserve(0) < 0) {
+            throw TooManyRequestsException.builder().message("Rate exceeded").statusCode(400).build();
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            throw InternalErrorException.builder().message("Injected error in " + name).statusCode(500).build();
+        }
+        synchronized (this) {
+            return operation.get();
+        }
+    }
+
+    private long latency() {
+        double factor = latencySigma == 0 ? 1 : Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian());
+        return (long) (medianLatency.toNanos() * factor);
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SimulatedUser user(String username) {
+        SimulatedUser user = users.get(username);
+        if (user == null) {
+            throw UserNotFoundException.builder().message("User does not exist.").statusCode(400).build();
+        }
+        return user;
+    }
+
+    private SimulatedGroup group(String groupName) {
+        SimulatedGroup group = groups.get(groupName);
+        if (group == null) {
+            throw ResourceNotFoundException.builder().message("Group not found.").statusCode(400).build();
+        }
+        return group;
+    }
+
+    private static void join(SimulatedUser user, SimulatedGroup group) {
+        user.groups.add(group.name);
+        group.members.add(user.username);
+    }
+
+    private static void leave(SimulatedUser user, SimulatedGroup group) {
+        user.groups.remove(group.name);
+        group.members.remove(user.username);
+    }
+
+    /**
+     * Read one page of keys following an opaque token holding the last key of the previous page.
+     */
+    private static Page page(NavigableSet<String> keys, String token, Integer limit) {
+        int size = limit == null ? MAX_LIMIT : limit;
+        if (size < 1 || size > MAX_LIMIT) {
+            throw InvalidParameterException.builder()
+                    .message("Limit must be between 1 and " + MAX_LIMIT)
+                    .statusCode(400)
+                    .build();
+        }
+        NavigableSet<String> remaining = keys;
+        if (token != null) {
+            try {
+                remaining = keys.tailSet(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8),
+                        false);
+            } catch (IllegalArgumentException e) {
+                throw InvalidParameterException.builder()
+                        .message("Invalid pagination token")
+                        .statusCode(400)
+                        .build();
+            }
+        }
+        List<String> page = remaining.stream().limit(size).toList();
+        String next = page.size() == size && remaining.size() > size
+                ? Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(page.get(page.size() - 1).getBytes(StandardCharsets.UTF_8))
+                : null;
+        return new Page(page, next);
+    }
+
+    private static boolean matches(SimulatedUser user, String filter) {
+        if (filter == null || filter.isBlank()) {
+            return true;
+        }
+        Matcher term = FILTER_TERM.matcher(filter);
+        while (term.find()) {
+            String value = "username".equals(term.group(1)) ? user.username : user.attributes.get(term.group(1));
+            if (value != null && (term.group(2).equals("=") ? value.equals(term.group(3))
+                    : value.startsWith(term.group(3)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Page(List<String> keys, String next) {
+    }
+
+    private static final class SimulatedUser {
+
+        private final String username;
+
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+
+        private final TreeSet<String> groups = new TreeSet<>();
+
+        private final Instant created;
+
+        private Instant modified;
+
+        private boolean enabled = true;
+
+        private UserStatusType status = UserStatusType.FORCE_CHANGE_PASSWORD;
+
+        private SimulatedUser(String username, Instant created) {
+            this.username = username;
+            this.created = created;
+            this.modified = created;
+            attributes.put("sub", UUID.randomUUID().toString());
+        }
+
+        private List<AttributeType> attributeTypes() {
+            return attributes.entrySet().stream()
+                    .map(entry -> AttributeType.builder().name(entry.getKey()).value(entry.getValue()).build())
+                    .toList();
+        }
+
+        private UserType toUserType() {
+            return UserType.builder()
+                    .username(username)
+                    .attributes(attributeTypes())
+                    .userCreateDate(created)
+                    .userLastModifiedDate(modified)
+                    .enabled(enabled)
+                    .userStatus(status)
+                    .build();
+        }
+    }
+
+    private static final class SimulatedGroup {
+
+        private final String name;
+
+        private final TreeSet<String> members = new TreeSet<>();
+
+        private final Instant created;
+
+        private String description;
+
+        private Integer precedence;
+
+        private Instant modified;
+
+        private SimulatedGroup(String name, String description, Integer precedence, Instant created) {
+            this.name = name;
+            this.description = description;
+            this.precedence = precedence;
+            this.created = created;
+            this.modified = created;
+        }
+
+        private GroupType toGroupType() {
+            return GroupType.builder()
+                    .groupName(name)
+                    .description(description)
+                    .precedence(precedence)
+                    .creationDate(created)
+                    .lastModifiedDate(modified)
+                    .build();
+        }
+    }
+
+    /**
+     * The operations of the simulated user pool; every other operation is unsupported.
+     */
+    private final class Client implements CognitoIdentityProviderClient {
+
+        @Override
+        public AdminCreateUserResponse adminCreateUser(AdminCreateUserRequest request) {
+            return call(request, () -> {
+                if (users.containsKey(request.username())) {
+                    throw UsernameExistsException.builder().message("User account already exists.")
+                            .statusCode(400).build();
+                }
+                SimulatedUser user = new SimulatedUser(request.username(), Instant.now());
+                request.userAttributes().forEach(attribute -> user.attributes.put(attribute.name(),
+                        attribute.value()));
+                users.put(user.username, user);
+                return AdminCreateUserResponse.builder().user(user.toUserType()).build();
+            });
+        }
+
+        @Override
+        public AdminGetUserResponse adminGetUser(AdminGetUserRequest request) {
+            return call(request, () -> {
+                SimulatedUser user = user(request.username());
+                return AdminGetUserResponse.builder()
+                        .username(user.username)
+                        .userAttributes(user.attributeTypes())
+                        .userCreateDate(user.created)
+                        .userLastModifiedDate(user.modified)
+                        .enabled(user.enabled)
+                        .userStatus(user.status)
+                        .build();
+            });
+        }
+
+        @Override
+        public AdminUpdateUserAttributesResponse adminUpdateUserAttributes(AdminUpdateUserAttributesRequest request) {
+            return call(request, () -> {
+                SimulatedUser user = user(request.username());
+                request.userAttributes().forEach(attribute -> user.attributes.put(attribute.name(),
+                        attribute.value()));
+                user.modified = Instant.now();
+                return AdminUpdateUserAttributesResponse.builder().build();
+            });
+        }
+
+        @Override
+        public AdminDeleteUserResponse adminDeleteUser(AdminDeleteUserRequest request) {
+            return call(request, () -> {
+                SimulatedUser user = user(request.username());
+                new ArrayList<>(user.groups).forEach(groupName -> leave(user, groups.get(groupName)));
+                users.remove(user.username);
+                return AdminDeleteUserResponse.builder().build();
+            });
+        }
+
+        @Override
+        public AdminEnableUserResponse adminEnableUser(AdminEnableUserRequest request) {
+            return call(request, () -> {
+                SimulatedUser user = user(request.username());
+                user.enabled = true;
+                user.modified = Instant.now();
+                return AdminEnableUserResponse.builder().build();
+            });
+        }
+
+        @Override
+        public AdminDisableUserResponse adminDisableUser(AdminDisableUserRequest request) {
+            return call(request, () -> {
+                SimulatedUser user = user(request.username());
+                user.enabled = false;
+                user.modified = Instant.now();
+                return AdminDisableUserResponse.builder().build();
+            });
+        }
+
+        @Override
+        public AdminResetUserPasswordResponse adminResetUserPassword(AdminResetUserPasswordRequest request) {
+            return call(request, () -> {
+                SimulatedUser user = user(request.username());
+                user.status = UserStatusType.RESET_REQUIRED;
+                user.modified = Instant.now();
+                return AdminResetUserPasswordResponse.builder().build();
+            });
+        }
+
+        @Override
+        public AdminAddUserToGroupResponse adminAddUserToGroup(AdminAddUserToGroupRequest request) {
+            return call(request, () -> {
+                join(user(request.username()), group(request.groupName()));
+                return AdminAddUserToGroupResponse.builder().build();
+            });
+        }
+
+        @Override
+        public AdminRemoveUserFromGroupResponse adminRemoveUserFromGroup(AdminRemoveUserFromGroupRequest request) {
+            return call(request, () -> {
+                leave(user(request.username()), group(request.groupName()));
+                return AdminRemoveUserFromGroupResponse.builder().build();
+            });
+        }
+
+        @Override
+        public AdminListGroupsForUserResponse adminListGroupsForUser(AdminListGroupsForUserRequest request) {
+            return call(request, () -> {
+                Page page = page(user(request.username()).groups, request.nextToken(), request.limit());
+                return AdminListGroupsForUserResponse.builder()
+                        .groups(page.keys().stream().map(name -> groups.get(name).toGroupType()).toList())
+                        .nextToken(page.next())
+                        .build();
+            });
+        }
+
+        @Override
+        public ListUsersResponse listUsers(ListUsersRequest request) {
+            return call(request, () -> {
+                NavigableSet<String> usernames = new TreeSet<>();
+                users.values().stream()
+                        .filter(user -> matches(user, request.filter()))
+                        .forEach(user -> usernames.add(user.username));
+                Page page = page(usernames, request.paginationToken(), request.limit());
+                return ListUsersResponse.builder()
+                        .users(page.keys().stream().map(username -> users.get(username).toUserType()).toList())
+                        .paginationToken(page.next())
+                        .build();
+            });
+        }
+
+        @Override
+        public ListUsersInGroupResponse listUsersInGroup(ListUsersInGroupRequest request) {
+            return call(request, () -> {
+                Page page = page(group(request.groupName()).members, request.nextToken(), request.limit());
+                return ListUsersInGroupResponse.builder()
+                        .users(page.keys().stream().map(username -> users.get(username).toUserType()).toList())
+                        .nextToken(page.next())
+                        .build();
+            });
+        }
+
+        @Override
+        public CreateGroupResponse createGroup(CreateGroupRequest request) {
+            return call(request, () -> {
+                if (groups.containsKey(request.groupName())) {
+                    throw GroupExistsException.builder().message("A group with the name already exists.")
+                            .statusCode(400).build();
+                }
+                SimulatedGroup group = new SimulatedGroup(request.groupName(), request.description(),
+                        request.precedence(), Instant.now());
+                groups.put(group.name, group);
+                return CreateGroupResponse.builder().group(group.toGroupType()).build();
+            });
+        }
+
+        @Override
+        public GetGroupResponse getGroup(GetGroupRequest request) {
+            return call(request, () -> GetGroupResponse.builder()
+                    .group(group(request.groupName()).toGroupType())
+                    .build());
+        }
+
+        @Override
+        public UpdateGroupResponse updateGroup(UpdateGroupRequest request) {
+            return call(request, () -> {
+                SimulatedGroup group = group(request.groupName());
+                if (request.description() != null) {
+                    group.description = request.description();
+                }
+                if (request.precedence() != null) {
+                    group.precedence = request.precedence();
+                }
+                group.modified = Instant.now();
+                return UpdateGroupResponse.builder().group(group.toGroupType()).build();
+            });
+        }
+
+        @Override
+        public DeleteGroupResponse deleteGroup(DeleteGroupRequest request) {
+            return call(request, () -> {
+                SimulatedGroup group = group(request.groupName());
+                new ArrayList<>(group.members).forEach(username -> leave(users.get(username), group));
+                groups.remove(group.name);
+                return DeleteGroupResponse.builder().build();
+            });
+        }
+
+        @Override
+        public ListGroupsResponse listGroups(ListGroupsRequest request) {
+            return call(request, () -> {
+                Page page = page(groups.navigableKeySet(), request.nextToken(), request.limit());
+                return ListGroupsResponse.builder()
+                        .groups(page.keys().stream().map(name -> groups.get(name).toGroupType()).toList())
+                        .nextToken(page.next())
+                        .build();
+            });
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public CognitoIdentityProviderServiceClientConfiguration serviceClientConfiguration() {
+            return CognitoIdentityProviderServiceClientConfiguration.builder().build();
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
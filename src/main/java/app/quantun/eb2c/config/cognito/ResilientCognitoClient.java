@@ -0,0 +1,225 @@
+package app.quantun.eb2c.config.cognito;
+
+import app.quantun.eb2c.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.CognitoIdentityProviderRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.TooManyRequestsException;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Wraps a Cognito client with client-side rate limiting, retries and metrics.
+ * <p>
+ * Every call takes a token from the bucket of its {@link CognitoQuota}, waiting for one up to a bounded time, so a
+ * burst is spread out instead of being rejected by Cognito. A call rejected with a throttling error, a 5xx error or
+ * an I/O error is retried after a full jitter exponential backoff. The wrapper is a dynamic proxy, so every
+ * operation of the client is covered, including the builder and paginator variants, which are routed back through
+ * the proxy.
+ * <p>
+ * Metrics, tagged with the operation name:
+ * <ul>
+ *     <li>{@code cognito.client.requests}: latency of every attempt, tagged with its outcome</li>
+ *     <li>{@code cognito.client.retries}: retried attempts, tagged with the reason</li>
+ *     <li>{@code cognito.client.rate-limit.wait}: time spent waiting for a token</li>
+ * </ul>
+ */
+@Slf4j
+public final class ResilientCognitoClient implements InvocationHandler {
+
+    private final CognitoIdentityProviderClient delegate;
+
+    private final Map<CognitoQuota, TokenBucket> buckets;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int maxAttempts;
+
+    private final Duration baseDelay;
+
+    private final Duration maxDelay;
+
+    private final Duration maxWait;
+
+    private ResilientCognitoClient(CognitoIdentityProviderClient delegate, Map<CognitoQuota, Double> rates,
+                                   MeterRegistry meterRegistry, int maxAttempts, Duration baseDelay,
+                                   Duration maxDelay, Duration maxWait) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxWait = maxWait;
+        this.buckets = new EnumMap<>(CognitoQuota.class);
+        rates.forEach((quota, rate) -> buckets.put(quota, new TokenBucket(rate)));
+    }
+
+    /**
+     * Wrap a Cognito client.
+     *
+     * @param delegate      the client making the calls
+     * @param rates         the rate of each quota category in requests per second, categories left out are not
+     *                      rate limited
+     * @param meterRegistry the registry of the client metrics
+     * @param maxAttempts   the attempts of a call before its error is thrown, 1 disables retries
+     * @param baseDelay     the backoff cap of the first retry, doubled on every retry
+     * @param maxDelay      the highest backoff cap
+     * @param maxWait       the longest wait for a rate limit token before the call fails as throttled
+     * @return the wrapped client
+     */
+    public static CognitoIdentityProviderClient wrap(CognitoIdentityProviderClient delegate,
+                                                     Map<CognitoQuota, Double> rates, MeterRegistry meterRegistry,
+                                                     int maxAttempts, Duration baseDelay, Duration maxDelay,
+                                                     Duration maxWait) {
+        return (CognitoIdentityProviderClient) Proxy.newProxyInstance(
+                CognitoIdentityProviderClient.class.getClassLoader(),
+                new Class<?>[]{CognitoIdentityProviderClient.class},
+                new ResilientCognitoClient(delegate, rates, meterRegistry, maxAttempts, baseDelay, maxDelay,
+                        maxWait));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "ResilientCognitoClient(" + delegate + ")";
+            };
+        }
+        if (isOperation(method, args)) {
+            return call(method, args);
+        }
+        if (method.isDefault() && isConvenienceVariant(method)) {
+            // Builds the request, or the paginator, and calls the operation on the proxy
+            return InvocationHandler.invokeDefault(proxy, method, args);
+        }
+        return invokeDelegate(method, args);
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        String operation = Character.toUpperCase(method.getName().charAt(0)) + method.getName().substring(1);
+        CognitoQuota quota = CognitoQuota.of(operation);
+        for (int attempt = 1; ; attempt++) {
+            awaitToken(operation, quota);
+
+            long start = System.nanoTime();
+            try {
+                Object response = invokeDelegate(method, args);
+                record(operation, "success", start);
+                return response;
+            } catch (Throwable e) {
+                String reason = retryReason(e);
+                record(operation, reason == null ? "error" : reason, start);
+                if (reason == null || attempt >= maxAttempts) {
+                    throw e;
+                }
+                Counter.builder("cognito.client.retries")
+                        .tag("operation", operation)
+                        .tag("reason", reason)
+                        .register(meterRegistry)
+                        .increment();
+                long delay = backoff(attempt);
+                log.debug("Cognito {} attempt {} failed ({}), retrying in {} ms", operation, attempt, reason, delay);
+                sleep(delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void awaitToken(String operation, CognitoQuota quota) {
+        TokenBucket bucket = quota == null ? null : buckets.get(quota);
+        if (bucket == null) {
+            return;
+        }
+        long waitNanos = bucket.reserve(maxWait.toNanos());
+        if (waitNanos < 0) {
+            throw TooManyRequestsException.builder()
+                    .message("Client-side rate limit of " + quota.key() + " exceeded for " + operation)
+                    .statusCode(429)
+                    .build();
+        }
+        if (waitNanos > 0) {
+            Timer.builder("cognito.client.rate-limit.wait")
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .record(waitNanos, TimeUnit.NANOSECONDS);
+            sleep(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void record(String operation, String outcome, long start) {
+        Timer.builder("cognito.client.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Full jitter backoff: a random delay up to an exponentially growing cap.
+     */
+    private long backoff(int attempt) {
+        long cap = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static void sleep(long duration, TimeUnit unit) {
+        try {
+            unit.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while waiting to call Cognito", e);
+        }
+    }
+
+    /**
+     * @return the metric tag of a retryable failure, or null when the failure is final
+     */
+    private static String retryReason(Throwable e) {
+        if (e instanceof AwsServiceException serviceException) {
+            if (serviceException.isThrottlingException() || serviceException instanceof TooManyRequestsException) {
+                return "throttled";
+            }
+            return serviceException.statusCode() >= 500 ? "server-error" : null;
+        }
+        if (e instanceof SdkClientException && e.getCause() instanceof IOException) {
+            return "io-error";
+        }
+        return null;
+    }
+
+    private static boolean isOperation(Method method, Object[] args) {
+        return args != null && args.length == 1 && args[0] instanceof CognitoIdentityProviderRequest
+                && SdkResponse.class.isAssignableFrom(method.getReturnType());
+    }
+
+    private static boolean isConvenienceVariant(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        return method.getName().endsWith("Paginator")
+                || parameterTypes.length == 1 && parameterTypes[0] == Consumer.class;
+    }
+}
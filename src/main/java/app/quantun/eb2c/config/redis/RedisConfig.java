@@ -1,5 +1,6 @@
 package app.quantun.eb2c.config.redis;
 
+import app.quantun.eb2c.message.RedisEventExecutor;
 import app.quantun.eb2c.message.RedisSubscriber;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,7 +8,7 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
-import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 /**
  * Configuration class for Redis.
@@ -23,35 +24,25 @@ public class RedisConfig {
      * Configures the RedisMessageListenerContainer bean.
      *
      * This method sets up the RedisMessageListenerContainer with the provided RedisConnectionFactory
-     * and MessageListenerAdapter. It also subscribes to the specified ChannelTopic.
+     * and subscribes the RedisSubscriber to the specified ChannelTopic. Received messages are handled
+     * on the bounded pool of the RedisEventExecutor instead of a new thread per message.
      *
      * @param connectionFactory the Redis connection factory
-     * @param listenerAdapter the message listener adapter
+     * @param subscriber        the Redis subscriber
+     * @param eventExecutor     the pool handling received messages
      * @return RedisMessageListenerContainer instance
      */
     @Bean
     public RedisMessageListenerContainer redisContainer(RedisConnectionFactory connectionFactory,
-                                                        MessageListenerAdapter listenerAdapter) {
+                                                        RedisSubscriber subscriber,
+                                                        RedisEventExecutor eventExecutor) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
-        container.addMessageListener(listenerAdapter, topic());
+        container.setTaskExecutor(eventExecutor.executor());
+        container.addMessageListener(subscriber, topic());
         return container;
     }
 
-    /**
-     * Configures the MessageListenerAdapter bean.
-     *
-     * This method sets up the MessageListenerAdapter with the provided RedisSubscriber.
-     * The RedisSubscriber's onMessage method will be called when a message is received.
-     *
-     * @param subscriber the Redis subscriber
-     * @return MessageListenerAdapter instance
-     */
-    @Bean
-    public MessageListenerAdapter listenerAdapter(RedisSubscriber subscriber) {
-        return new MessageListenerAdapter(subscriber, "onMessage");
-    }
-
     /**
      * Configures the ChannelTopic bean.
      *
@@ -69,7 +60,8 @@ public class RedisConfig {
      * Configures the RedisTemplate bean.
      *
      * This method sets up the RedisTemplate with the provided RedisConnectionFactory.
-     * The RedisTemplate is used for performing Redis operations.
+     * The RedisTemplate is used for performing Redis operations. Keys and values are written as
+     * UTF-8 strings, the format the listeners read, instead of the default JDK serialization.
      *
      * @param connectionFactory the Redis connection factory
      * @return RedisTemplate instance
@@ -78,6 +70,10 @@ public class RedisConfig {
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.string());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setHashValueSerializer(RedisSerializer.string());
         return template;
     }
 }
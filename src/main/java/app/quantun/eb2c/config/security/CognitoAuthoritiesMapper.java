@@ -0,0 +1,71 @@
+package app.quantun.eb2c.config.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maps the claims of a Cognito token to Spring Security authorities.
+ * <p>
+ * Each group in {@code cognito:groups} becomes a {@code ROLE_} authority and, for access tokens, each scope in
+ * {@code scope} becomes a {@code SCOPE_} authority. Most callers share a handful of group and scope combinations,
+ * so the mapped authorities are cached by combination and every token with the same one gets the same set.
+ * <p>
+ * Metrics are published as the {@code cache.*} meters tagged with {@code cache=security.authorities}.
+ */
+@Component
+public class CognitoAuthoritiesMapper {
+
+    public static final String GROUPS_CLAIM = "cognito:groups";
+
+    public static final String SCOPE_CLAIM = "scope";
+
+    private static final String CACHE_NAME = "security.authorities";
+
+    private final Cache<ClaimKey, Set<GrantedAuthority>> cache;
+
+    public CognitoAuthoritiesMapper(MeterRegistry meterRegistry,
+                                    @Value("${app.security.jwt.authorities-cache.max-size:1000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Map the group and scope claims of a token.
+     *
+     * @param groups the {@code cognito:groups} claim, may be null
+     * @param scope  the space separated {@code scope} claim, may be null
+     * @return the authorities, unmodifiable
+     */
+    public Set<GrantedAuthority> authorities(Collection<?> groups, String scope) {
+        List<String> groupNames = groups == null ? List.of() : groups.stream().map(Object::toString).toList();
+        return cache.get(new ClaimKey(groupNames, scope == null ? "" : scope), CognitoAuthoritiesMapper::map);
+    }
+
+    private static Set<GrantedAuthority> map(ClaimKey key) {
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
+        key.groups().forEach(group -> authorities.add(new SimpleGrantedAuthority("ROLE_" + group)));
+        for (String scope : key.scope().split(" ")) {
+            if (!scope.isBlank()) {
+                authorities.add(new SimpleGrantedAuthority("SCOPE_" + scope));
+            }
+        }
+        return Set.copyOf(authorities);
+    }
+
+    private record ClaimKey(List<String> groups, String scope) {
+    }
+}
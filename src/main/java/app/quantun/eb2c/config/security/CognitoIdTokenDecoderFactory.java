@@ -0,0 +1,75 @@
+package app.quantun.eb2c.config.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.converter.ClaimTypeConverter;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the decoders of the ID tokens received on OIDC logins.
+ * <p>
+ * When the login provider publishes its keys at the same URL as the pool validated by
+ * {@link JwtResourceServerConfig}, its ID tokens are verified against that cached, refresh-ahead key set, so a
+ * login never waits on a key download. The key set is fetched at startup by {@link CognitoJwkSourceWarmer}, so this
+ * holds for the first login after a restart too, unless that fetch failed. Other providers, or all of them
+ * when bearer tokens are disabled, get the default decoder of Spring Security.
+ * The checks made on the ID token are the default ones in both cases.
+ */
+@Component
+public class CognitoIdTokenDecoderFactory implements JwtDecoderFactory<ClientRegistration> {
+
+    private final OidcIdTokenDecoderFactory defaultFactory = new OidcIdTokenDecoderFactory();
+
+    private final Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+
+    private final ObjectProvider<JWKSource<SecurityContext>> cognitoJwkSource;
+
+    private final String jwkSetUri;
+
+    public CognitoIdTokenDecoderFactory(ObjectProvider<JWKSource<SecurityContext>> cognitoJwkSource,
+                                        @Value("${app.security.jwt.jwk-set-uri:}") String jwkSetUri) {
+        this.cognitoJwkSource = cognitoJwkSource;
+        this.jwkSetUri = jwkSetUri;
+    }
+
+    @Override
+    public JwtDecoder createDecoder(ClientRegistration clientRegistration) {
+        JWKSource<SecurityContext> jwkSource = cognitoJwkSource.getIfAvailable();
+        if (jwkSource == null || !jwkSetUri.equals(clientRegistration.getProviderDetails().getJwkSetUri())) {
+            return defaultFactory.createDecoder(clientRegistration);
+        }
+        return decoders.computeIfAbsent(clientRegistration.getRegistrationId(),
+                registrationId -> createDecoder(clientRegistration, jwkSource));
+    }
+
+    private static JwtDecoder createDecoder(ClientRegistration clientRegistration,
+                                            JWKSource<SecurityContext> jwkSource) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are checked by the validators below
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                new JwtTimestampValidator(), new OidcIdTokenValidator(clientRegistration)));
+        decoder.setClaimSetConverter(
+                new ClaimTypeConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverters()));
+        return decoder;
+    }
+}
@@ -0,0 +1,52 @@
+package app.quantun.eb2c.config.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fetches the signing keys of the user pool once the application is ready, so the first bearer token or login
+ * checked after a restart finds them in the cache of {@link JwtResourceServerConfig#cognitoJwkSource}. A failed
+ * fetch is only logged; the keys are then fetched when the first token is checked.
+ * Set {@code app.security.jwt.jwks.warm-up=false} to fetch them on first use only.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.security.jwt.jwks.warm-up", havingValue = "true", matchIfMissing = true)
+public class CognitoJwkSourceWarmer {
+
+    private final ObjectProvider<JWKSource<SecurityContext>> cognitoJwkSource;
+
+    public CognitoJwkSourceWarmer(ObjectProvider<JWKSource<SecurityContext>> cognitoJwkSource) {
+        this.cognitoJwkSource = cognitoJwkSource;
+    }
+
+    /**
+     * Fetch the signing keys, when bearer tokens are enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        JWKSource<SecurityContext> jwkSource = cognitoJwkSource.getIfAvailable();
+        if (jwkSource == null) {
+            return;
+        }
+        try {
+            List<JWK> keys = jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+            log.info("Fetched {} signing keys of the user pool", keys.size());
+        } catch (KeySourceException e) {
+            log.warn("Could not fetch the signing keys of the user pool, fetching them on first use: {}",
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package app.quantun.eb2c.config.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts a validated Cognito access or ID token into the authentication of a bearer-token request.
+ * <p>
+ * The authorities come from {@link CognitoAuthoritiesMapper}, so a bearer token grants the same roles as an
+ * interactive login of the same user. The principal name is the Cognito username, or the subject for
+ * machine-to-machine tokens, which have none.
+ */
+@Component
+@RequiredArgsConstructor
+public class CognitoJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    private final CognitoAuthoritiesMapper authoritiesMapper;
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        return new JwtAuthenticationToken(jwt,
+                authoritiesMapper.authorities(jwt.getClaimAsStringList(CognitoAuthoritiesMapper.GROUPS_CLAIM),
+                        jwt.getClaimAsString(CognitoAuthoritiesMapper.SCOPE_CLAIM)),
+                principalName(jwt));
+    }
+
+    private static String principalName(Jwt jwt) {
+        // Access tokens carry "username", ID tokens "cognito:username"
+        String username = jwt.getClaimAsString("username");
+        if (username == null) {
+            username = jwt.getClaimAsString("cognito:username");
+        }
+        return username != null ? username : jwt.getSubject();
+    }
+}
@@ -0,0 +1,46 @@
+package app.quantun.eb2c.config.security;
+
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks that a Cognito token was issued to one of our app clients.
+ * <p>
+ * Cognito access tokens name their client in {@code client_id} and have no audience, while ID tokens name it in
+ * {@code aud}, so the claim checked depends on {@code token_use}. Tokens of any other use are rejected.
+ */
+public class CognitoTokenValidator implements OAuth2TokenValidator<Jwt> {
+
+    private final Set<String> clientIds;
+
+    public CognitoTokenValidator(Set<String> clientIds) {
+        this.clientIds = Set.copyOf(clientIds);
+    }
+
+    @Override
+    public OAuth2TokenValidatorResult validate(Jwt jwt) {
+        String tokenUse = jwt.getClaimAsString("token_use");
+        if ("access".equals(tokenUse)) {
+            return clientIds.contains(jwt.getClaimAsString("client_id"))
+                    ? OAuth2TokenValidatorResult.success()
+                    : failure("The access token was issued to an unknown client");
+        }
+        if ("id".equals(tokenUse)) {
+            List<String> audience = jwt.getAudience();
+            return audience != null && audience.stream().anyMatch(clientIds::contains)
+                    ? OAuth2TokenValidatorResult.success()
+                    : failure("The ID token was issued to an unknown client");
+        }
+        return failure("The token is neither a Cognito access token nor an ID token");
+    }
+
+    private static OAuth2TokenValidatorResult failure(String description) {
+        return OAuth2TokenValidatorResult.failure(new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN, description, null));
+    }
+}
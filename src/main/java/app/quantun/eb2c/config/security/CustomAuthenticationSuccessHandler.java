@@ -10,7 +10,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
@@ -43,9 +42,8 @@ public class CustomAuthenticationSuccessHandler implements AuthenticationSuccess
         }
 
 
-        List<GrantedAuthority> authorities = groups.stream()
-                .map(group -> new SimpleGrantedAuthority("ROLE_" + group))
-                .collect(Collectors.toList());
+        // Already mapped from the groups by CustomOidcUserService
+        List<GrantedAuthority> authorities = List.copyOf(authentication.getAuthorities());
 
         // Set the authorities to the authentication object
         Authentication newAuth = new UsernamePasswordAuthenticationToken(authentication.getPrincipal(), authentication.getCredentials(), authorities);
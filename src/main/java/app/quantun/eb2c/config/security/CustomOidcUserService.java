@@ -1,49 +1,66 @@
 package app.quantun.eb2c.config.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
 import org.springframework.security.oauth2.core.oidc.user.DefaultOidcUser;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Loads the user of an OIDC login and maps its Cognito groups to authorities.
+ * <p>
+ * The user info endpoint is only called when the ID token lacks one of the claims the login reads, listed in
+ * {@code app.security.oidc.id-token-claims}. Cognito puts the user's attributes and groups in the ID token, so
+ * most logins skip that round trip. Leave the list empty to always call the endpoint.
+ */
 @Service
 public class CustomOidcUserService implements OAuth2UserService<OidcUserRequest, OidcUser> {
 
     private final OidcUserService delegate = new OidcUserService();
 
+    private final CognitoAuthoritiesMapper authoritiesMapper;
+
+    private final List<String> idTokenClaims;
+
+    public CustomOidcUserService(CognitoAuthoritiesMapper authoritiesMapper,
+                                 @Value("${app.security.oidc.id-token-claims:sub,email,given_name}")
+                                 List<String> idTokenClaims) {
+        this.authoritiesMapper = authoritiesMapper;
+        this.idTokenClaims = List.copyOf(idTokenClaims);
+    }
+
     @Override
     public OidcUser loadUser(OidcUserRequest userRequest) throws OAuth2AuthenticationException {
+        OidcIdToken idToken = userRequest.getIdToken();
+        if (carriesNeededClaims(idToken)) {
+            return new DefaultOidcUser(authorities(idToken.getClaims()), idToken);
+        }
+
         // Delegate to the default OidcUserService to load the user
         OidcUser oidcUser = delegate.loadUser(userRequest);
 
-        // Extract claims from the ID token or user info
-        Map<String, Object> claims = oidcUser.getClaims();
-
-        // Extract roles and groups from the claims
-        Set<GrantedAuthority> authorities = new HashSet<>();
-//        List<String> roles = (List<String>) claims.get("roles");
-        List<String> groups = (List<String>) claims.get("cognito:groups");
-
-        // Add roles to authorities
-//        if (roles != null) {
-//            roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
-//        }
+        // Return a new DefaultOidcUser with the extracted authorities
+        return new DefaultOidcUser(authorities(oidcUser.getClaims()), oidcUser.getIdToken(), oidcUser.getUserInfo());
+    }
 
-        // Add groups to authorities
-        if (groups != null) {
-            groups.forEach(group -> authorities.add(new SimpleGrantedAuthority("ROLE_" + group)));
-        }
+    private boolean carriesNeededClaims(OidcIdToken idToken) {
+        return !idTokenClaims.isEmpty() && idTokenClaims.stream().allMatch(idToken::hasClaim);
+    }
 
-        // Return a new DefaultOidcUser with the extracted authorities
-        return new DefaultOidcUser(authorities, oidcUser.getIdToken(), oidcUser.getUserInfo());
+    /**
+     * Map the groups to authorities, the same way as for bearer tokens.
+     */
+    private Set<GrantedAuthority> authorities(Map<String, Object> claims) {
+        return authoritiesMapper.authorities((Collection<?>) claims.get(CognitoAuthoritiesMapper.GROUPS_CLAIM), null);
     }
 }
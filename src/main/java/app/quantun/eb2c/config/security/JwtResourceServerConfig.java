@@ -0,0 +1,121 @@
+package app.quantun.eb2c.config.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Configuration class accepting Cognito access and ID tokens as bearer tokens.
+ *
+ * Requests carrying an {@code Authorization: Bearer} header are handled by a stateless filter chain of their own:
+ * the token is verified locally against the user pool's signing keys, no session is created or read, and the
+ * browser login of {@link SecurityConfig} is left untouched for every other request. The signing keys are cached
+ * and refreshed in the background before they expire, so a request never waits on Cognito.
+ * Set {@code app.security.jwt.enabled=false} to accept session logins only.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.security.jwt.enabled", havingValue = "true", matchIfMissing = true)
+public class JwtResourceServerConfig {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * Configures the source of the user pool's signing keys.
+     *
+     * @param jwkSetUri    URL of the user pool's JSON Web Key Set
+     * @param ttl          how long fetched keys are used
+     * @param refreshAhead how long before they expire the keys are fetched again, in the background
+     * @return JWKSource instance, closed with the context to stop its refresh thread
+     * @throws MalformedURLException if the key set URL is invalid
+     */
+    @Bean
+    public JWKSource<SecurityContext> cognitoJwkSource(
+            @Value("${app.security.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${app.security.jwt.jwks.ttl:1h}") Duration ttl,
+            @Value("${app.security.jwt.jwks.refresh-ahead:5m}") Duration refreshAhead) throws MalformedURLException {
+        return JWKSourceBuilder.<SecurityContext>create(URI.create(jwkSetUri).toURL())
+                .cache(ttl.toMillis(), JWKSourceBuilder.DEFAULT_CACHE_REFRESH_TIMEOUT)
+                .refreshAheadCache(refreshAhead.toMillis(), true)
+                .retrying(true)
+                .build();
+    }
+
+    /**
+     * Configures the decoder of bearer tokens.
+     *
+     * @param jwkSource the signing keys
+     * @param issuerUri the issuer of the user pool's tokens
+     * @param clientIds the app clients whose tokens are accepted
+     * @return JwtDecoder instance
+     */
+    @Bean
+    public JwtDecoder cognitoJwtDecoder(JWKSource<SecurityContext> jwkSource,
+                                        @Value("${app.security.jwt.issuer-uri}") String issuerUri,
+                                        @Value("${app.security.jwt.client-ids}") Set<String> clientIds) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are checked by the validators below
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(issuerUri), new CognitoTokenValidator(clientIds)));
+        return decoder;
+    }
+
+    /**
+     * Configures the filter chain of bearer-token requests, ahead of the session based one.
+     *
+     * @param http                    the HttpSecurity object to configure
+     * @param cognitoJwtDecoder       the decoder of bearer tokens
+     * @param authenticationConverter the converter of decoded tokens
+     * @return SecurityFilterChain instance
+     * @throws Exception if an error occurs while configuring the security filter chain
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain bearerTokenFilterChain(HttpSecurity http, JwtDecoder cognitoJwtDecoder,
+                                                      CognitoJwtAuthenticationConverter authenticationConverter)
+            throws Exception {
+        http
+                .securityMatcher(JwtResourceServerConfig::hasBearerToken)
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().authenticated())
+                .oauth2ResourceServer(resourceServer -> resourceServer
+                        .jwt(jwt -> jwt
+                                .decoder(cognitoJwtDecoder)
+                                .jwtAuthenticationConverter(authenticationConverter)));
+
+        return http.build();
+    }
+
+    private static boolean hasBearerToken(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return authorization != null
+                && authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length());
+    }
+}
@@ -0,0 +1,325 @@
+package app.quantun.eb2c.config.session;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session repository keeping HTTP sessions in Redis, so a login survives a restart and any replica can serve it.
+ * <p>
+ * A session is one Redis hash holding its creation time, last access time, idle timeout and one field per
+ * attribute, written by {@link CompactSessionSerializer}. Loading a session reads the hash in one call but
+ * deserializes an attribute only when it is first read, so requests that never look at the security context do
+ * not pay for it. Saving writes the changed attributes only.
+ * <p>
+ * Every request moves the last access time of its session. Rewriting it on each request would cost a Redis write
+ * per request, so an access that changes nothing else is only written once the stored time is older than the
+ * touch interval. The stored time then lags the real one by less than the interval, so sessions are kept for
+ * their idle timeout plus the interval, which is the price of the skipped writes.
+ * <p>
+ * Metrics are published as {@code session.store.writes}, tagged with the kind of write (new, delta or touch),
+ * and {@code session.store.touches.skipped}.
+ */
+@Slf4j
+public class CompactRedisSessionRepository implements SessionRepository<CompactRedisSessionRepository.RedisSession> {
+
+    private static final String CREATED = "created";
+    private static final String LAST_ACCESSED = "lastAccessed";
+    private static final String MAX_INACTIVE = "maxInactive";
+    private static final String ATTRIBUTE_PREFIX = "attr:";
+
+    private final RedisOperations<String, byte[]> redisOperations;
+
+    private final CompactSessionSerializer serializer;
+
+    private final String keyPrefix;
+
+    private final Duration defaultMaxInactiveInterval;
+
+    private final Duration touchInterval;
+
+    private final Counter newWrites;
+
+    private final Counter deltaWrites;
+
+    private final Counter touchWrites;
+
+    private final Counter skippedTouches;
+
+    public CompactRedisSessionRepository(RedisOperations<String, byte[]> redisOperations,
+                                         CompactSessionSerializer serializer,
+                                         MeterRegistry meterRegistry,
+                                         String keyPrefix,
+                                         Duration defaultMaxInactiveInterval,
+                                         Duration touchInterval) {
+        this.redisOperations = redisOperations;
+        this.serializer = serializer;
+        this.keyPrefix = keyPrefix;
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.touchInterval = touchInterval;
+        this.newWrites = Counter.builder("session.store.writes").tag("kind", "new").register(meterRegistry);
+        this.deltaWrites = Counter.builder("session.store.writes").tag("kind", "delta").register(meterRegistry);
+        this.touchWrites = Counter.builder("session.store.writes").tag("kind", "touch").register(meterRegistry);
+        this.skippedTouches = Counter.builder("session.store.touches.skipped").register(meterRegistry);
+    }
+
+    @Override
+    public RedisSession createSession() {
+        Instant now = Instant.now();
+        RedisSession session = new RedisSession(UUID.randomUUID().toString(), now, now, defaultMaxInactiveInterval,
+                Map.of(), true);
+        session.persistedLastAccessedTime = now;
+        return session;
+    }
+
+    @Override
+    public void save(RedisSession session) {
+        String key = key(session.id);
+        boolean idChanged = !session.id.equals(session.originalId);
+        Map<String, byte[]> fields = new HashMap<>();
+        List<String> removed = session.delta.entrySet().stream()
+                .filter(entry -> entry.getValue() == null)
+                .map(entry -> ATTRIBUTE_PREFIX + entry.getKey())
+                .toList();
+        session.delta.forEach((name, value) -> {
+            if (value != null) {
+                fields.put(ATTRIBUTE_PREFIX + name, serializer.serialize(value));
+            }
+        });
+
+        Counter kind;
+        if (session.isNew || idChanged) {
+            // Written whole, including the attributes that were never deserialized
+            kind = newWrites;
+            session.raw.forEach((name, bytes) -> fields.put(ATTRIBUTE_PREFIX + name, bytes));
+            session.attributes.forEach((name, value) ->
+                    fields.computeIfAbsent(ATTRIBUTE_PREFIX + name, field -> serializer.serialize(value)));
+            fields.put(CREATED, encode(session.creationTime.toEpochMilli()));
+            fields.put(MAX_INACTIVE, encode(session.maxInactiveInterval.toSeconds()));
+        } else if (!fields.isEmpty() || !removed.isEmpty() || session.maxInactiveChanged) {
+            kind = deltaWrites;
+            if (session.maxInactiveChanged) {
+                fields.put(MAX_INACTIVE, encode(session.maxInactiveInterval.toSeconds()));
+            }
+        } else if (Duration.between(session.persistedLastAccessedTime, session.lastAccessedTime)
+                .compareTo(touchInterval) >= 0) {
+            kind = touchWrites;
+        } else {
+            skippedTouches.increment();
+            return;
+        }
+        fields.put(LAST_ACCESSED, encode(session.lastAccessedTime.toEpochMilli()));
+
+        if (idChanged && !session.isNew) {
+            redisOperations.delete(key(session.originalId));
+        }
+        HashOperations<String, String, byte[]> hash = redisOperations.opsForHash();
+        if (!removed.isEmpty() && !session.isNew && !idChanged) {
+            hash.delete(key, removed.toArray());
+        }
+        hash.putAll(key, fields);
+        if (session.maxInactiveInterval.isNegative()) {
+            redisOperations.persist(key);
+        } else {
+            redisOperations.expire(key, session.maxInactiveInterval.plus(touchInterval).toSeconds(), TimeUnit.SECONDS);
+        }
+        kind.increment();
+
+        session.delta.clear();
+        session.isNew = false;
+        session.maxInactiveChanged = false;
+        session.originalId = session.id;
+        session.persistedLastAccessedTime = session.lastAccessedTime;
+    }
+
+    @Override
+    public RedisSession findById(String id) {
+        HashOperations<String, String, byte[]> hash = redisOperations.opsForHash();
+        Map<String, byte[]> entries = hash.entries(key(id));
+        if (entries.isEmpty() || !entries.containsKey(CREATED)) {
+            return null;
+        }
+        Map<String, byte[]> raw = new HashMap<>();
+        entries.forEach((field, bytes) -> {
+            if (field.startsWith(ATTRIBUTE_PREFIX)) {
+                raw.put(field.substring(ATTRIBUTE_PREFIX.length()), bytes);
+            }
+        });
+        Instant lastAccessed = Instant.ofEpochMilli(decode(entries.get(LAST_ACCESSED)));
+        RedisSession session = new RedisSession(id, Instant.ofEpochMilli(decode(entries.get(CREATED))),
+                lastAccessed, Duration.ofSeconds(decode(entries.get(MAX_INACTIVE))), raw, false);
+        session.persistedLastAccessedTime = lastAccessed;
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        redisOperations.delete(key(id));
+    }
+
+    private String key(String id) {
+        return keyPrefix + id;
+    }
+
+    private static byte[] encode(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long decode(byte[] value) {
+        return Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * A session read from or written to Redis, tracking its changes since it was loaded.
+     */
+    public final class RedisSession implements Session {
+
+        private final Instant creationTime;
+
+        /**
+         * Attributes read from Redis and not deserialized yet, by name.
+         */
+        private final Map<String, byte[]> raw;
+
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        /**
+         * Attributes set or removed (null) since the last save, by name.
+         */
+        private final Map<String, Object> delta = new LinkedHashMap<>();
+
+        private String id;
+
+        private String originalId;
+
+        private Instant lastAccessedTime;
+
+        private Instant persistedLastAccessedTime;
+
+        private Duration maxInactiveInterval;
+
+        private boolean maxInactiveChanged;
+
+        private boolean isNew;
+
+        private RedisSession(String id, Instant creationTime, Instant lastAccessedTime, Duration maxInactiveInterval,
+                             Map<String, byte[]> raw, boolean isNew) {
+            this.id = id;
+            this.originalId = id;
+            this.creationTime = creationTime;
+            this.lastAccessedTime = lastAccessedTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.raw = new HashMap<>(raw);
+            this.isNew = isNew;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String changeSessionId() {
+            id = UUID.randomUUID().toString();
+            return id;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getAttribute(String attributeName) {
+            if (!attributes.containsKey(attributeName)) {
+                byte[] bytes = raw.remove(attributeName);
+                if (bytes == null) {
+                    return null;
+                }
+                try {
+                    attributes.put(attributeName, serializer.deserialize(bytes));
+                } catch (IllegalArgumentException e) {
+                    // Unreadable after a class change; dropped as if it had never been set
+                    log.warn("Dropping session attribute {}: {}", attributeName, e.getMessage());
+                    delta.put(attributeName, null);
+                    return null;
+                }
+            }
+            return (T) attributes.get(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            Set<String> names = new HashSet<>(attributes.keySet());
+            names.addAll(raw.keySet());
+            return names;
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            if (attributeValue == null) {
+                removeAttribute(attributeName);
+                return;
+            }
+            raw.remove(attributeName);
+            attributes.put(attributeName, attributeValue);
+            delta.put(attributeName, attributeValue);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            raw.remove(attributeName);
+            attributes.remove(attributeName);
+            delta.put(attributeName, null);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            this.lastAccessedTime = lastAccessedTime;
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return lastAccessedTime;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            maxInactiveChanged |= !interval.equals(maxInactiveInterval);
+            maxInactiveInterval = interval;
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return maxInactiveInterval;
+        }
+
+        @Override
+        public boolean isExpired() {
+            // The stored access time may lag by up to the touch interval
+            return !maxInactiveInterval.isNegative()
+                    && Instant.now().isAfter(lastAccessedTime.plus(maxInactiveInterval).plus(touchInterval));
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package app.quantun.eb2c.config.session;
+
+import app.quantun.eb2c.model.contract.contract.dto.CustomUserDTO;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.OidcUserInfo;
+import org.springframework.security.oauth2.core.oidc.user.DefaultOidcUser;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Serializer of session attributes, writing the security context and the {@link CustomUserDTO} of a login in a
+ * compact binary form.
+ * <p>
+ * JDK serialization of a security context holding an OIDC user takes several kilobytes, most of it class
+ * descriptors. The compact form writes the fields only: authorities as their names, and the ID token and user
+ * info as their claims. It covers the authentication tokens, principals and claim value types produced by the
+ * login flow of this application; any other attribute, such as the pending OAuth2 authorization request, falls
+ * back to JDK serialization. The first byte of a value tells the two formats apart.
+ */
+@Component
+public class CompactSessionSerializer {
+
+    private static final byte FORMAT_JAVA = 0;
+    private static final byte FORMAT_COMPACT = 1;
+
+    private static final byte TYPE_SECURITY_CONTEXT = 1;
+    private static final byte TYPE_USER_DTO = 2;
+
+    private static final byte AUTHENTICATION_NONE = 0;
+    private static final byte AUTHENTICATION_USERNAME_PASSWORD = 1;
+    private static final byte AUTHENTICATION_OAUTH2 = 2;
+
+    private static final byte PRINCIPAL_STRING = 1;
+    private static final byte PRINCIPAL_OIDC_USER = 2;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_BOOLEAN = 2;
+    private static final byte VALUE_INTEGER = 3;
+    private static final byte VALUE_LONG = 4;
+    private static final byte VALUE_DOUBLE = 5;
+    private static final byte VALUE_INSTANT = 6;
+    private static final byte VALUE_URL = 7;
+    private static final byte VALUE_LIST = 8;
+    private static final byte VALUE_MAP = 9;
+
+    /**
+     * Serialize an attribute value.
+     *
+     * @param value the value, not null
+     * @return the serialized value
+     * @throws IllegalArgumentException if the value has no compact form and is not {@link Serializable}
+     */
+    public byte[] serialize(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_COMPACT);
+            if (writeCompact(out, value)) {
+                out.flush();
+                return bytes.toByteArray();
+            }
+            return serializeJava(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize " + value.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Deserialize an attribute value.
+     *
+     * @param bytes the serialized value
+     * @return the value
+     * @throws IllegalArgumentException if the value cannot be read, e.g. after a change of its class
+     */
+    public Object deserialize(byte[] bytes) {
+        try {
+            if (bytes.length > 0 && bytes[0] == FORMAT_COMPACT) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+                return readCompact(in);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+                return in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot deserialize a session attribute", e);
+        }
+    }
+
+    private byte[] serializeJava(Object value) throws IOException {
+        if (!(value instanceof Serializable)) {
+            throw new IllegalArgumentException("Session attribute is not serializable: " + value.getClass().getName());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        bytes.write(FORMAT_JAVA);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return false when the value has no compact form; what was written is then discarded
+     */
+    private boolean writeCompact(DataOutputStream out, Object value) throws IOException {
+        if (value != null && value.getClass() == SecurityContextImpl.class) {
+            out.writeByte(TYPE_SECURITY_CONTEXT);
+            return writeAuthentication(out, ((SecurityContext) value).getAuthentication());
+        }
+        if (value instanceof CustomUserDTO user) {
+            out.writeByte(TYPE_USER_DTO);
+            writeString(out, user.getUsername());
+            writeString(out, user.getEmail());
+            writeString(out, user.getAccountId());
+            writeString(out, user.getGivenName());
+            writeStrings(out, user.getGroups());
+            writeStrings(out, user.getAuthorities() == null ? null
+                    : user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+            return true;
+        }
+        return false;
+    }
+
+    private Object readCompact(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case TYPE_SECURITY_CONTEXT -> new SecurityContextImpl(readAuthentication(in));
+            case TYPE_USER_DTO -> CustomUserDTO.builder()
+                    .username(readString(in))
+                    .email(readString(in))
+                    .accountId(readString(in))
+                    .givenName(readString(in))
+                    .groups(readStrings(in))
+                    .authorities(toAuthorities(readStrings(in)))
+                    .build();
+            default -> throw new IOException("Unknown session attribute type " + type);
+        };
+    }
+
+    private boolean writeAuthentication(DataOutputStream out, Authentication authentication) throws IOException {
+        if (authentication == null) {
+            out.writeByte(AUTHENTICATION_NONE);
+            return true;
+        }
+        // Credentials are not kept; Spring Security erases them after authentication anyway
+        if (authentication instanceof OAuth2AuthenticationToken token) {
+            out.writeByte(AUTHENTICATION_OAUTH2);
+            writeString(out, token.getAuthorizedClientRegistrationId());
+        } else if (authentication.getClass() == UsernamePasswordAuthenticationToken.class) {
+            out.writeByte(AUTHENTICATION_USERNAME_PASSWORD);
+            out.writeBoolean(authentication.isAuthenticated());
+        } else {
+            return false;
+        }
+        return writeAuthorities(out, authentication.getAuthorities())
+                && writePrincipal(out, authentication.getPrincipal());
+    }
+
+    private Authentication readAuthentication(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case AUTHENTICATION_NONE:
+                return null;
+            case AUTHENTICATION_OAUTH2: {
+                String registrationId = readString(in);
+                List<GrantedAuthority> authorities = toAuthorities(readStrings(in));
+                return new OAuth2AuthenticationToken((OAuth2User) readPrincipal(in), authorities,
+                        registrationId);
+            }
+            case AUTHENTICATION_USERNAME_PASSWORD: {
+                boolean authenticated = in.readBoolean();
+                List<GrantedAuthority> authorities = toAuthorities(readStrings(in));
+                Object principal = readPrincipal(in);
+                return authenticated
+                        ? UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities)
+                        : UsernamePasswordAuthenticationToken.unauthenticated(principal, null);
+            }
+            default:
+                throw new IOException("Unknown authentication type " + type);
+        }
+    }
+
+    private boolean writePrincipal(DataOutputStream out, Object principal) throws IOException {
+        if (principal instanceof String name) {
+            out.writeByte(PRINCIPAL_STRING);
+            writeString(out, name);
+            return true;
+        }
+        // A user built with another name attribute than sub cannot be rebuilt from its public state
+        if (principal != null && principal.getClass() == DefaultOidcUser.class) {
+            DefaultOidcUser user = (DefaultOidcUser) principal;
+            if (!Objects.equals(user.getName(), user.getSubject())) {
+                return false;
+            }
+            out.writeByte(PRINCIPAL_OIDC_USER);
+            OidcIdToken idToken = user.getIdToken();
+            writeString(out, idToken.getTokenValue());
+            writeInstant(out, idToken.getIssuedAt());
+            writeInstant(out, idToken.getExpiresAt());
+            return writeAuthorities(out, user.getAuthorities())
+                    && writeValue(out, idToken.getClaims())
+                    && writeValue(out, user.getUserInfo() == null ? null : user.getUserInfo().getClaims());
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readPrincipal(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case PRINCIPAL_STRING:
+                return readString(in);
+            case PRINCIPAL_OIDC_USER: {
+                String tokenValue = readString(in);
+                Instant issuedAt = readInstant(in);
+                Instant expiresAt = readInstant(in);
+                List<GrantedAuthority> authorities = toAuthorities(readStrings(in));
+                Map<String, Object> claims = (Map<String, Object>) readValue(in);
+                Map<String, Object> userInfo = (Map<String, Object>) readValue(in);
+                return new DefaultOidcUser(authorities, new OidcIdToken(tokenValue, issuedAt, expiresAt, claims),
+                        userInfo == null ? null : new OidcUserInfo(userInfo));
+            }
+            default:
+                throw new IOException("Unknown principal type " + type);
+        }
+    }
+
+    private boolean writeAuthorities(DataOutputStream out, Collection<? extends GrantedAuthority> authorities)
+            throws IOException {
+        List<String> names = new ArrayList<>(authorities.size());
+        for (GrantedAuthority authority : authorities) {
+            // Other authority types carry more than their name
+            if (authority.getClass() != SimpleGrantedAuthority.class) {
+                return false;
+            }
+            names.add(authority.getAuthority());
+        }
+        writeStrings(out, names);
+        return true;
+    }
+
+    private static List<GrantedAuthority> toAuthorities(List<String> names) {
+        if (names == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+        names.forEach(name -> authorities.add(new SimpleGrantedAuthority(name)));
+        return authorities;
+    }
+
+    /**
+     * Write a claim value, as found in ID tokens and user info.
+     */
+    private boolean writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String string) {
+            out.writeByte(VALUE_STRING);
+            writeString(out, string);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean(bool);
+        } else if (value instanceof Integer integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt(integer);
+        } else if (value instanceof Long number) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong(number);
+        } else if (value instanceof Double number) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(number);
+        } else if (value instanceof Instant instant) {
+            out.writeByte(VALUE_INSTANT);
+            writeInstant(out, instant);
+        } else if (value instanceof URL url) {
+            out.writeByte(VALUE_URL);
+            writeString(out, url.toExternalForm());
+        } else if (value instanceof List<?> list) {
+            out.writeByte(VALUE_LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                if (!writeValue(out, element)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(VALUE_MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String key)) {
+                    return false;
+                }
+                writeString(out, key);
+                if (!writeValue(out, entry.getValue())) {
+                    return false;
+                }
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(in);
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_INTEGER:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_INSTANT:
+                return readInstant(in);
+            case VALUE_URL:
+                return URI.create(readString(in)).toURL();
+            case VALUE_LIST: {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case VALUE_MAP: {
+                int size = in.readInt();
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            default:
+                throw new IOException("Unknown claim value type " + type);
+        }
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeBoolean(instant != null);
+        if (instant != null) {
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings == null ? -1 : strings.size());
+        if (strings != null) {
+            for (String string : strings) {
+                writeString(out, string);
+            }
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    /**
+     * Strings are written as length-prefixed UTF-8, since tokens can exceed the 64 KB limit of writeUTF.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new IOException("Truncated session attribute");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package app.quantun.eb2c.config.session;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import java.time.Duration;
+
+/**
+ * Configuration class keeping HTTP sessions in Redis.
+ *
+ * Sessions are stored by {@link CompactRedisSessionRepository}, so logins no longer depend on sticky sessions
+ * and survive a restart. Set {@code app.session.redis.enabled=false} to fall back to container sessions.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(name = "app.session.redis.enabled", havingValue = "true", matchIfMissing = true)
+public class SessionConfig {
+
+    /**
+     * Configures the session repository.
+     *
+     * @param connectionFactory the Redis connection factory
+     * @param serializer        the serializer of session attributes
+     * @param meterRegistry     the registry of the session store metrics
+     * @param keyPrefix         prefix of the session keys
+     * @param timeout           idle timeout of a session
+     * @param touchInterval     age of the stored last access time before an access alone is written again
+     * @return CompactRedisSessionRepository instance
+     */
+    @Bean
+    public CompactRedisSessionRepository sessionRepository(
+            RedisConnectionFactory connectionFactory,
+            CompactSessionSerializer serializer,
+            MeterRegistry meterRegistry,
+            @Value("${app.session.redis.key-prefix:eb2c:session:}") String keyPrefix,
+            @Value("${server.servlet.session.timeout:30m}") Duration timeout,
+            @Value("${app.session.redis.touch-interval:60s}") Duration touchInterval) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return new CompactRedisSessionRepository(template, serializer, meterRegistry, keyPrefix, timeout,
+                touchInterval);
+    }
+}
@@ -0,0 +1,14 @@
+package app.quantun.eb2c.exception;
+
+/**
+ * Exception thrown when a bulk import request body cannot be parsed
+ */
+public class BulkImportException extends RuntimeException {
+    public BulkImportException(String message) {
+        super(message);
+    }
+
+    public BulkImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,12 +1,15 @@
 package app.quantun.eb2c.exception;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.ServletWebRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.TooManyRequestsException;
 
 import java.time.Instant;
 import java.util.HashMap;
@@ -73,6 +76,121 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    /**
+     * Handles invalid pagination cursor exceptions.
+     *
+     * This method handles InvalidCursorException, which occurs when a client sends a cursor that cannot be
+     * decoded or that was issued for a different sort order. It returns a ProblemDetail object with a
+     * BAD_REQUEST status and includes the exception message.
+     *
+     * @param exception the InvalidCursorException
+     * @param webRequest the ServletWebRequest
+     * @return ProblemDetail object with invalid cursor error details
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ProblemDetail handleInvalidCursorException(InvalidCursorException exception, ServletWebRequest webRequest) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.BAD_REQUEST, exception.getMessage());
+
+        problemDetail.setTitle("Invalid Cursor");
+        problemDetail.setProperty("timestamp", System.currentTimeMillis());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles bulk import exceptions.
+     *
+     * This method handles BulkImportException, which occurs when the body of a bulk import is not a well-formed
+     * JSON array. Batches written before the malformed item are kept. It returns a ProblemDetail object with a
+     * BAD_REQUEST status and includes the exception message.
+     *
+     * @param exception the BulkImportException
+     * @param webRequest the ServletWebRequest
+     * @return ProblemDetail object with bulk import error details
+     */
+    @ExceptionHandler(BulkImportException.class)
+    public ProblemDetail handleBulkImportException(BulkImportException exception, ServletWebRequest webRequest) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.BAD_REQUEST, exception.getMessage());
+
+        problemDetail.setTitle("Invalid Bulk Request");
+        problemDetail.setProperty("timestamp", System.currentTimeMillis());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles insufficient stock exceptions.
+     *
+     * This method handles InsufficientStockException, which occurs when a reservation asks for more units than
+     * the product has left. It returns a ProblemDetail object with a CONFLICT status and includes the exception
+     * message.
+     *
+     * @param exception the InsufficientStockException
+     * @param webRequest the ServletWebRequest
+     * @return ProblemDetail object with insufficient stock error details
+     */
+    @ExceptionHandler(InsufficientStockException.class)
+    public ProblemDetail handleInsufficientStockException(InsufficientStockException exception, ServletWebRequest webRequest) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.CONFLICT, exception.getMessage());
+
+        problemDetail.setTitle("Insufficient Stock");
+        problemDetail.setProperty("timestamp", System.currentTimeMillis());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles reservation state exceptions.
+     *
+     * This method handles ReservationStateException, which occurs when a reservation that was already confirmed,
+     * released or expired is confirmed or released again. It returns a ProblemDetail object with a CONFLICT status
+     * and includes the exception message.
+     *
+     * @param exception the ReservationStateException
+     * @param webRequest the ServletWebRequest
+     * @return ProblemDetail object with reservation state error details
+     */
+    @ExceptionHandler(ReservationStateException.class)
+    public ProblemDetail handleReservationStateException(ReservationStateException exception, ServletWebRequest webRequest) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.CONFLICT, exception.getMessage());
+
+        problemDetail.setTitle("Invalid Reservation State");
+        problemDetail.setProperty("timestamp", System.currentTimeMillis());
+
+        return problemDetail;
+    }
+
+    /**
+     * Handles Cognito exceptions.
+     *
+     * This method handles CognitoException. When Cognito kept throttling the call after the client retries, it
+     * returns a ProblemDetail object with a SERVICE_UNAVAILABLE status and a Retry-After header, so clients back
+     * off instead of treating the request as failed. Other Cognito errors are handled like any unexpected error.
+     *
+     * @param exception the CognitoException
+     * @param webRequest the ServletWebRequest
+     * @return ProblemDetail object with Cognito error details
+     */
+    @ExceptionHandler(CognitoException.class)
+    public ResponseEntity<ProblemDetail> handleCognitoException(CognitoException exception, ServletWebRequest webRequest) {
+        if (!isThrottled(exception)) {
+            return ResponseEntity.internalServerError().body(handleGlobalException(exception, webRequest));
+        }
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.SERVICE_UNAVAILABLE, "The identity provider is busy, retry shortly");
+
+        problemDetail.setTitle("Identity Provider Busy");
+        problemDetail.setProperty("timestamp", System.currentTimeMillis());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(problemDetail);
+    }
+
     /**
      * Handles global exceptions.
      *
@@ -93,4 +211,13 @@ public class GlobalExceptionHandler {
 
         return problemDetail;
     }
+
+    private static boolean isThrottled(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TooManyRequestsException) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,10 @@
+package app.quantun.eb2c.exception;
+
+/**
+ * Exception thrown when a product does not have enough stock left to satisfy a reservation
+ */
+public class InsufficientStockException extends RuntimeException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package app.quantun.eb2c.exception;
+
+/**
+ * Exception thrown when a pagination cursor cannot be decoded or does not match the requested sort
+ */
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,10 @@
+package app.quantun.eb2c.exception;
+
+/**
+ * Exception thrown when a stock reservation is no longer held and cannot be confirmed or released
+ */
+public class ReservationStateException extends RuntimeException {
+    public ReservationStateException(String message) {
+        super(message);
+    }
+}
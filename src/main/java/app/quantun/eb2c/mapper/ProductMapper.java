@@ -0,0 +1,24 @@
+package app.quantun.eb2c.mapper;
+
+import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring", implementationName = "ProductMapperImpl")
+@Component
+public interface ProductMapper {
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "category", ignore = true)
+    Product toEntity(ProductRequestDTO requestDTO);
+
+    @Mapping(target = "categoryId", source = "category.id")
+    ProductResponseDTO toProductResponseDTO(Product product);
+
+    List<ProductResponseDTO> toProductResponseDTOList(List<Product> products);
+}
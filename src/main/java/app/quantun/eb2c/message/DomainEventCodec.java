@@ -0,0 +1,143 @@
+package app.quantun.eb2c.message;
+
+import app.quantun.eb2c.message.event.DomainEvent;
+import app.quantun.eb2c.message.event.GroupCatalogChangedEvent;
+import app.quantun.eb2c.message.event.GroupMembersChangedEvent;
+import app.quantun.eb2c.message.event.MembershipsResetEvent;
+import app.quantun.eb2c.message.event.ProductsChangedEvent;
+import app.quantun.eb2c.message.event.UserGroupsChangedEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the batches of {@link DomainEvent}s sent on the Redis event channel.
+ * <p>
+ * A batch is a format byte, the time its oldest event was published, the number of events and the events, each a
+ * type byte followed by its fields. Names are written with {@link DataOutputStream#writeUTF}, which bounds them
+ * to 64 KB, far above the Cognito limits.
+ */
+public final class DomainEventCodec {
+
+    private static final byte FORMAT = 1;
+
+    private static final byte TYPE_PRODUCTS_CHANGED = 1;
+    private static final byte TYPE_USER_GROUPS_CHANGED = 2;
+    private static final byte TYPE_GROUP_MEMBERS_CHANGED = 3;
+    private static final byte TYPE_MEMBERSHIPS_RESET = 4;
+    private static final byte TYPE_GROUP_CATALOG_CHANGED = 5;
+
+    private DomainEventCodec() {
+    }
+
+    /**
+     * Encode a batch of events.
+     *
+     * @param publishedAt when the oldest event of the batch was published
+     * @param events      the events
+     * @return the encoded batch
+     */
+    public static byte[] encode(Instant publishedAt, List<? extends DomainEvent> events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 16 * events.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeLong(publishedAt.toEpochMilli());
+            out.writeInt(events.size());
+            for (DomainEvent event : events) {
+                writeEvent(out, event);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a batch of events.
+     *
+     * @param bytes the encoded batch
+     * @return the batch
+     * @throws IllegalArgumentException if the bytes are not a batch of known events
+     */
+    public static Batch decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte format = in.readByte();
+            if (format != FORMAT) {
+                throw new IllegalArgumentException("Unknown event batch format " + format);
+            }
+            Instant publishedAt = Instant.ofEpochMilli(in.readLong());
+            int size = in.readInt();
+            if (size < 0 || size > bytes.length) {
+                throw new IllegalArgumentException("Invalid event batch size " + size);
+            }
+            List<DomainEvent> events = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                events.add(readEvent(in));
+            }
+            return new Batch(publishedAt, events);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated event batch", e);
+        }
+    }
+
+    private static void writeEvent(DataOutputStream out, DomainEvent event) throws IOException {
+        if (event instanceof ProductsChangedEvent products) {
+            out.writeByte(TYPE_PRODUCTS_CHANGED);
+            out.writeInt(products.productIds().size());
+            for (Long id : products.productIds()) {
+                out.writeLong(id);
+            }
+        } else if (event instanceof UserGroupsChangedEvent userGroups) {
+            out.writeByte(TYPE_USER_GROUPS_CHANGED);
+            out.writeUTF(userGroups.username());
+        } else if (event instanceof GroupMembersChangedEvent groupMembers) {
+            out.writeByte(TYPE_GROUP_MEMBERS_CHANGED);
+            out.writeUTF(groupMembers.groupName());
+        } else if (event instanceof MembershipsResetEvent) {
+            out.writeByte(TYPE_MEMBERSHIPS_RESET);
+        } else if (event instanceof GroupCatalogChangedEvent catalog) {
+            out.writeByte(TYPE_GROUP_CATALOG_CHANGED);
+            out.writeUTF(catalog.originId());
+        } else {
+            throw new IllegalArgumentException("Unknown event type " + event.getClass().getName());
+        }
+    }
+
+    private static DomainEvent readEvent(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case TYPE_PRODUCTS_CHANGED -> {
+                int size = in.readInt();
+                if (size < 0 || size > in.available() / Long.BYTES) {
+                    throw new IllegalArgumentException("Invalid product count " + size);
+                }
+                List<Long> ids = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    ids.add(in.readLong());
+                }
+                yield new ProductsChangedEvent(ids);
+            }
+            case TYPE_USER_GROUPS_CHANGED -> new UserGroupsChangedEvent(in.readUTF());
+            case TYPE_GROUP_MEMBERS_CHANGED -> new GroupMembersChangedEvent(in.readUTF());
+            case TYPE_MEMBERSHIPS_RESET -> new MembershipsResetEvent();
+            case TYPE_GROUP_CATALOG_CHANGED -> new GroupCatalogChangedEvent(in.readUTF());
+            default -> throw new IllegalArgumentException("Unknown event type " + type);
+        };
+    }
+
+    /**
+     * A decoded batch of events.
+     *
+     * @param publishedAt when the oldest event of the batch was published, by the clock of the sender
+     * @param events      the events, in publication order
+     */
+    public record Batch(Instant publishedAt, List<DomainEvent> events) {
+    }
+}
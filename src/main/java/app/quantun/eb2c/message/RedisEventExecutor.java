@@ -0,0 +1,64 @@
+package app.quantun.eb2c.message;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of threads handling the messages received on the Redis event channel.
+ * <p>
+ * Without it the listener container starts a new thread per message. The pool has a fixed number of threads and
+ * a bounded queue; when both are full the receiving thread handles the message itself, which stops it reading
+ * from Redis until the pool catches up, so a burst of events slows the subscription down instead of piling up
+ * in memory. Messages handled concurrently may complete out of order, which the events tolerate since they only
+ * evict state. Metrics are published as the {@code executor.*} meters tagged with {@code name=redis.events}.
+ */
+@Component
+public class RedisEventExecutor {
+
+    private static final String EXECUTOR_NAME = "redis.events";
+
+    private final ExecutorService executor;
+
+    public RedisEventExecutor(MeterRegistry meterRegistry,
+                              @Value("${app.events.consumer.threads:4}") int threads,
+                              @Value("${app.events.consumer.queue-capacity:1000}") int queueCapacity) {
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry,
+                new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), threadFactory(),
+                        new ThreadPoolExecutor.CallerRunsPolicy()),
+                EXECUTOR_NAME);
+    }
+
+    /**
+     * @return the pool, for the listener container
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "redis-events-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,23 +1,177 @@
 package app.quantun.eb2c.message;
 
-import lombok.RequiredArgsConstructor;
+import app.quantun.eb2c.message.event.DomainEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link DomainEvent}s to every replica on the Redis event channel.
+ * <p>
+ * Publishing only queues the event. A single sender thread takes the queued events, waits up to the linger time
+ * for more to join them, encodes them with {@link DomainEventCodec} in batches of at most the maximum batch size
+ * and sends all the batches in one pipelined round trip. A burst of changes, such as a bulk update, then costs a
+ * few Redis messages instead of one per event.
+ * <p>
+ * When the queue is full, publishing waits up to the offer timeout and then drops the event; the time to live of
+ * the caches the events evict bounds the staleness this causes. Events still queued on shutdown are sent.
+ * <p>
+ * Metrics are published as {@code events.published}, tagged with the event type, {@code events.publish.batch.size},
+ * {@code events.publish.dropped}, {@code events.publish.errors} and {@code events.publish.queue}.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class RedisPublisher {
 
+    private static final long IDLE_POLL_MILLIS = 100;
+
     private final RedisTemplate<String, Object> redisTemplate;
-    private final ChannelTopic topic;
 
+    private final byte[] channel;
+
+    private final BlockingQueue<Pending> queue;
+
+    private final int maxBatchSize;
+
+    private final Duration linger;
+
+    private final Duration offerTimeout;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Class<?>, Counter> published = new ConcurrentHashMap<>();
+
+    private final DistributionSummary batchSize;
+
+    private final Counter dropped;
+
+    private final Counter errors;
+
+    private final Thread sender;
 
-    public void publish(String message) {
-        redisTemplate.convertAndSend(topic.getTopic(), message);
-        log.info("Published message: {}", message);
+    private volatile boolean running = true;
+
+    public RedisPublisher(RedisTemplate<String, Object> redisTemplate,
+                          ChannelTopic topic,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.events.publisher.queue-capacity:10000}") int queueCapacity,
+                          @Value("${app.events.publisher.max-batch-size:256}") int maxBatchSize,
+                          @Value("${app.events.publisher.linger:5ms}") Duration linger,
+                          @Value("${app.events.publisher.offer-timeout:100ms}") Duration offerTimeout) {
+        this.redisTemplate = redisTemplate;
+        this.channel = topic.getTopic().getBytes(StandardCharsets.UTF_8);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.offerTimeout = offerTimeout;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = DistributionSummary.builder("events.publish.batch.size").register(meterRegistry);
+        this.dropped = Counter.builder("events.publish.dropped").register(meterRegistry);
+        this.errors = Counter.builder("events.publish.errors").register(meterRegistry);
+        Gauge.builder("events.publish.queue", queue, BlockingQueue::size).register(meterRegistry);
+
+        this.sender = new Thread(this::sendLoop, "redis-events-publisher");
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    /**
+     * Queue an event for every replica, including this one.
+     *
+     * @param event the event
+     */
+    public void publish(DomainEvent event) {
+        try {
+            if (running && queue.offer(new Pending(event, Instant.now()), offerTimeout.toNanos(),
+                    TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.increment();
+        log.warn("Dropped event {}, the publish queue is full", event);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void sendLoop() {
+        List<Pending> pending = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                pending.add(first);
+                long deadline = System.nanoTime() + linger.toNanos();
+                while (running && pending.size() < maxBatchSize) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    pending.add(next);
+                }
+                queue.drainTo(pending);
+                send(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to send {} events", pending.size(), e);
+            } finally {
+                pending.clear();
+            }
+        }
+    }
+
+    private void send(List<Pending> pending) {
+        List<byte[]> batches = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += maxBatchSize) {
+            List<Pending> batch = pending.subList(from, Math.min(pending.size(), from + maxBatchSize));
+            batches.add(DomainEventCodec.encode(batch.get(0).publishedAt(),
+                    batch.stream().map(Pending::event).toList()));
+            batchSize.record(batch.size());
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                batches.forEach(batch -> connection.publish(channel, batch));
+                return null;
+            });
+            pending.forEach(entry -> published.computeIfAbsent(entry.event().getClass(), type ->
+                    Counter.builder("events.published").tag("type", type.getSimpleName()).register(meterRegistry))
+                    .increment());
+        } catch (DataAccessException e) {
+            // Lost; the caches the events evict catch up when their entries expire
+            errors.increment(pending.size());
+            log.warn("Failed to publish {} events: {}", pending.size(), e.getMessage());
+        }
+    }
 
+    private record Pending(DomainEvent event, Instant publishedAt) {
     }
-}
\ No newline at end of file
+}
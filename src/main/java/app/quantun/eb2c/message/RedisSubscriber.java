@@ -1,16 +1,103 @@
 package app.quantun.eb2c.message;
 
+import app.quantun.eb2c.message.event.DomainEvent;
+import app.quantun.eb2c.message.event.GroupCatalogChangedEvent;
+import app.quantun.eb2c.message.event.GroupMembersChangedEvent;
+import app.quantun.eb2c.message.event.MembershipsResetEvent;
+import app.quantun.eb2c.message.event.ProductsChangedEvent;
+import app.quantun.eb2c.message.event.UserGroupsChangedEvent;
+import app.quantun.eb2c.service.GroupCatalogService;
+import app.quantun.eb2c.service.GroupMembershipIndexService;
+import app.quantun.eb2c.service.ProductCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Receives the batches of {@link DomainEvent}s sent by {@link RedisPublisher} and hands each event to the handler
+ * of its type.
+ * <p>
+ * Messages are handled on the pool of {@link RedisEventExecutor}. A message that cannot be decoded, or an event
+ * whose handler fails, is logged and skipped; the time to live of the evicted caches bounds the staleness it
+ * causes.
+ * <p>
+ * Metrics are published as {@code events.received} and {@code events.handle.errors}, tagged with the event type,
+ * {@code events.lag}, the time from the publication of the oldest event of a batch to its receipt as measured
+ * across the clocks of both replicas, and {@code events.decode.errors}.
+ */
 @Service
 @Slf4j
-public class RedisSubscriber {
+public class RedisSubscriber implements MessageListener {
+
+    private final Map<Class<? extends DomainEvent>, Handler> handlers = new HashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer lag;
+
+    private final Counter decodeErrors;
+
+    public RedisSubscriber(ProductCacheService productCacheService,
+                           GroupMembershipIndexService membershipIndexService,
+                           GroupCatalogService groupCatalogService,
+                           MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.lag = Timer.builder("events.lag").register(meterRegistry);
+        this.decodeErrors = Counter.builder("events.decode.errors").register(meterRegistry);
 
-    public void onMessage(String message) {
-        log.info("Received message: {}", message);
+        register(ProductsChangedEvent.class, productCacheService::onProductsChanged);
+        register(UserGroupsChangedEvent.class, membershipIndexService::onUserGroupsChanged);
+        register(GroupMembersChangedEvent.class, membershipIndexService::onGroupMembersChanged);
+        register(MembershipsResetEvent.class, membershipIndexService::onMembershipsReset);
+        register(GroupCatalogChangedEvent.class, groupCatalogService::onCatalogChanged);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        DomainEventCodec.Batch batch;
+        try {
+            batch = DomainEventCodec.decode(message.getBody());
+        } catch (IllegalArgumentException e) {
+            decodeErrors.increment();
+            log.warn("Ignoring undecodable event message: {}", e.getMessage());
+            return;
+        }
+        Duration elapsed = Duration.between(batch.publishedAt(), Instant.now());
+        lag.record(elapsed.isNegative() ? Duration.ZERO : elapsed);
+        batch.events().forEach(this::dispatch);
+    }
 
+    void dispatch(DomainEvent event) {
+        Handler handler = handlers.get(event.getClass());
+        if (handler == null) {
+            log.debug("No handler for event {}", event);
+            return;
+        }
+        handler.received().increment();
+        try {
+            handler.consumer().accept(event);
+        } catch (RuntimeException e) {
+            handler.errors().increment();
+            log.warn("Failed to handle event {}", event, e);
+        }
+    }
+
+    private <E extends DomainEvent> void register(Class<E> type, Consumer<E> consumer) {
+        handlers.put(type, new Handler(event -> consumer.accept(type.cast(event)),
+                Counter.builder("events.received").tag("type", type.getSimpleName()).register(meterRegistry),
+                Counter.builder("events.handle.errors").tag("type", type.getSimpleName()).register(meterRegistry)));
+    }
 
-        // Add your business logic here
+    private record Handler(Consumer<DomainEvent> consumer, Counter received, Counter errors) {
     }
 }
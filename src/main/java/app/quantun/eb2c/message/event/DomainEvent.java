@@ -0,0 +1,11 @@
+package app.quantun.eb2c.message.event;
+
+/**
+ * An event broadcast to every replica on the Redis event channel.
+ * <p>
+ * Events tell replicas to drop or reload state derived from data changed elsewhere; they carry identifiers only.
+ * Each type has a fixed binary form written by {@link app.quantun.eb2c.message.DomainEventCodec}.
+ */
+public sealed interface DomainEvent permits ProductsChangedEvent, UserGroupsChangedEvent, GroupMembersChangedEvent,
+        MembershipsResetEvent, GroupCatalogChangedEvent {
+}
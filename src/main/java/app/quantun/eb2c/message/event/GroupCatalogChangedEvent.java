@@ -0,0 +1,9 @@
+package app.quantun.eb2c.message.event;
+
+/**
+ * A group was created, updated or deleted; replicas other than the sender reload their group catalog.
+ *
+ * @param originId the id of the replica that made the change, which has already applied it
+ */
+public record GroupCatalogChangedEvent(String originId) implements DomainEvent {
+}
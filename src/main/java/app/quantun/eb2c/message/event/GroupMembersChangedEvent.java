@@ -0,0 +1,9 @@
+package app.quantun.eb2c.message.event;
+
+/**
+ * The members of a group changed, or the group was deleted; replicas drop its in-memory users.
+ *
+ * @param groupName the Cognito group name
+ */
+public record GroupMembersChangedEvent(String groupName) implements DomainEvent {
+}
@@ -0,0 +1,8 @@
+package app.quantun.eb2c.message.event;
+
+/**
+ * Memberships changed in a way no single user or group describes, such as a rebuild of the membership index;
+ * replicas drop every in-memory membership.
+ */
+public record MembershipsResetEvent() implements DomainEvent {
+}
@@ -0,0 +1,15 @@
+package app.quantun.eb2c.message.event;
+
+import java.util.List;
+
+/**
+ * Products were updated or deleted; replicas drop them from their in-process cache.
+ *
+ * @param productIds the IDs of the products
+ */
+public record ProductsChangedEvent(List<Long> productIds) implements DomainEvent {
+
+    public ProductsChangedEvent {
+        productIds = List.copyOf(productIds);
+    }
+}
@@ -0,0 +1,9 @@
+package app.quantun.eb2c.message.event;
+
+/**
+ * The groups of a user changed, or the user was created or deleted; replicas drop its in-memory memberships.
+ *
+ * @param username the Cognito username
+ */
+public record UserGroupsChangedEvent(String username) implements DomainEvent {
+}
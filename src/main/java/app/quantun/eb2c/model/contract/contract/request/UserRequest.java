@@ -8,6 +8,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -34,4 +35,6 @@ public class UserRequest {
     private Boolean phoneNumberVerified;
 
     private Map<String, String> attributes;
+
+    private List<String> groups;
 } 
\ No newline at end of file
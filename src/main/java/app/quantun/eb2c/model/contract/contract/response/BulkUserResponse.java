@@ -0,0 +1,71 @@
+package app.quantun.eb2c.model.contract.contract.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a bulk user provisioning.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserResponse {
+
+    /**
+     * The number of users in the request.
+     */
+    private int total;
+
+    /**
+     * The number of users created and added to all their groups.
+     */
+    private int created;
+
+    /**
+     * The number of users created but missing some of their groups.
+     */
+    private int partial;
+
+    /**
+     * The number of users not created.
+     */
+    private int failed;
+
+    /**
+     * The outcome of every user, in request order.
+     */
+    @Builder.Default
+    private List<UserResult> results = new ArrayList<>();
+
+    /**
+     * Outcome of a single user of a bulk provisioning.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class UserResult {
+        private int index;
+        private String username;
+        private Status status;
+        private UserResponse user;
+        private List<String> errors;
+    }
+
+    /**
+     * Possible outcomes of a bulk provisioning item.
+     */
+    public enum Status {
+        CREATED,
+        PARTIAL,
+        FAILED
+    }
+}
@@ -0,0 +1,38 @@
+package app.quantun.eb2c.model.contract.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Summary of a group membership index refresh.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembershipIndexResponse {
+
+    /**
+     * Whether the index is enabled; a disabled index only drops the in-memory memberships.
+     */
+    private boolean enabled;
+
+    /**
+     * The number of groups indexed.
+     */
+    private int groups;
+
+    /**
+     * The number of users belonging to at least one group.
+     */
+    private int users;
+
+    /**
+     * When the refresh completed.
+     */
+    private Instant refreshedAt;
+}
@@ -21,4 +21,8 @@ public class PagedResponse<T> {
     private String sortBy;
     private String sortDirection;
     private String filter;
+    /**
+     * Opaque cursor of the following page, null on the last page or when the listing is not cursor based.
+     */
+    private String nextCursor;
 } 
\ No newline at end of file
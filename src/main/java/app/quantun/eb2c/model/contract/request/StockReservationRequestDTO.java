@@ -0,0 +1,34 @@
+package app.quantun.eb2c.model.contract.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for stock reservation requests.
+ * This class is used to hold a quantity of a product until the reservation is confirmed, released or expires.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequestDTO {
+
+    /**
+     * The quantity to hold.
+     * It must be a positive value.
+     */
+    @NotNull(message = "{reservation.quantity.positive}")
+    @Positive(message = "{reservation.quantity.positive}")
+    private Integer quantity;
+
+    /**
+     * How long the hold lasts, in seconds, before it expires and the stock is returned.
+     * The configured default is used when absent.
+     */
+    @Positive(message = "{reservation.ttl.positive}")
+    private Long ttlSeconds;
+}
@@ -0,0 +1,41 @@
+package app.quantun.eb2c.model.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for cursor (keyset) paginated responses.
+ * Unlike a page, a slice carries no total count; clients follow {@code nextCursor} until {@code hasNext} is false.
+ *
+ * @param <T> the type of the elements in the slice
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponseDTO<T> {
+
+    /**
+     * The elements of the current slice.
+     */
+    private List<T> content;
+
+    /**
+     * The requested slice size.
+     */
+    private int size;
+
+    /**
+     * Opaque cursor to pass as {@code after} to fetch the next slice, or null when this is the last slice.
+     */
+    private String nextCursor;
+
+    /**
+     * Indicates whether another slice follows this one.
+     */
+    private boolean hasNext;
+}
@@ -0,0 +1,50 @@
+package app.quantun.eb2c.model.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for a page of search results together with the facet counts of the whole search.
+ *
+ * @param <T> the type of the page content
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedPageResponseDTO<T> {
+
+    /**
+     * The items of the page.
+     */
+    private List<T> content;
+
+    /**
+     * The zero-based page number.
+     */
+    private int page;
+
+    /**
+     * The requested page size.
+     */
+    private int size;
+
+    /**
+     * The number of items matching the search.
+     */
+    private long totalElements;
+
+    /**
+     * The number of pages.
+     */
+    private int totalPages;
+
+    /**
+     * The filter counts of the search.
+     */
+    private ProductFacetsDTO facets;
+}
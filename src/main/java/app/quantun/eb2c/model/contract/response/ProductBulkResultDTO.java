@@ -0,0 +1,68 @@
+package app.quantun.eb2c.model.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object summarizing a bulk product import.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkResultDTO {
+
+    /**
+     * The number of items read from the request.
+     */
+    private int total;
+
+    /**
+     * The number of products created.
+     */
+    private int created;
+
+    /**
+     * The number of products updated.
+     */
+    private int updated;
+
+    /**
+     * The number of items rejected by validation or by the database.
+     */
+    private int failed;
+
+    /**
+     * The outcome of every item, in request order.
+     */
+    @Builder.Default
+    private List<RowResultDTO> rows = new ArrayList<>();
+
+    /**
+     * Outcome of a single item of a bulk import.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResultDTO {
+        private int index;
+        private Long id;
+        private Status status;
+        private List<String> errors;
+    }
+
+    /**
+     * Possible outcomes of a bulk import item.
+     */
+    public enum Status {
+        CREATED,
+        UPDATED,
+        FAILED
+    }
+}
@@ -0,0 +1,84 @@
+package app.quantun.eb2c.model.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object holding the filter counts of a product search.
+ * Every count applies the same criteria as the search results.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+
+    /**
+     * Product counts per category name, largest first. Products without a category have a null value.
+     */
+    @Builder.Default
+    private List<FacetCountDTO> categories = new ArrayList<>();
+
+    /**
+     * Product counts per configured price range, in ascending order, including empty ranges.
+     */
+    @Builder.Default
+    private List<PriceBucketDTO> priceBuckets = new ArrayList<>();
+
+    /**
+     * Product counts per stock status, "true" and "false".
+     */
+    @Builder.Default
+    private List<FacetCountDTO> inStock = new ArrayList<>();
+
+    /**
+     * Count of products sharing a facet value.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCountDTO {
+
+        /**
+         * The facet value.
+         */
+        private String value;
+
+        /**
+         * The number of matching products with this value.
+         */
+        private long count;
+    }
+
+    /**
+     * Count of products priced within a range.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucketDTO {
+
+        /**
+         * The inclusive lower bound, null for the first range.
+         */
+        private BigDecimal min;
+
+        /**
+         * The exclusive upper bound, null for the last range.
+         */
+        private BigDecimal max;
+
+        /**
+         * The number of matching products priced within the range.
+         */
+        private long count;
+    }
+}
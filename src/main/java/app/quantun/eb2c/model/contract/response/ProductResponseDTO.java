@@ -1,11 +1,13 @@
 package app.quantun.eb2c.model.contract.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 /**
  * Data Transfer Object for Product responses.
@@ -46,4 +48,15 @@ public class ProductResponseDTO {
      * The quantity of the product in stock.
      */
     private int stock;
+
+    /**
+     * The last modification date of the product, from which its ETag is derived.
+     */
+    private LocalDateTime updatedAt;
+
+    /**
+     * The ID of the category of the product, omitted when it has none.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long categoryId;
 }
@@ -0,0 +1,55 @@
+package app.quantun.eb2c.model.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for stock reservation responses.
+ * This class is used to transfer the state of a stock hold between the server and the client.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResponseDTO {
+
+    /**
+     * The ID of the reservation.
+     */
+    private UUID id;
+
+    /**
+     * The ID of the reserved product.
+     */
+    private Long productId;
+
+    /**
+     * The reserved quantity.
+     */
+    private int quantity;
+
+    /**
+     * The state of the reservation.
+     */
+    private Status status;
+
+    /**
+     * When an unconfirmed reservation expires and its stock is returned.
+     */
+    private LocalDateTime expiresAt;
+
+    /**
+     * Lifecycle of a reservation. Only a HELD reservation can change state.
+     */
+    public enum Status {
+        HELD,
+        CONFIRMED,
+        RELEASED,
+        EXPIRED
+    }
+}
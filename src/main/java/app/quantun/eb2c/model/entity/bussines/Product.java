@@ -54,12 +54,17 @@ public class Product extends AuditModel<String> {
 
     /**
      * Indicates whether the product is in stock.
+     * Kept up to date by the stock reservations, so entity updates never write it back.
      */
+    @Column(updatable = false)
     private boolean inStock;
 
     /**
      * The quantity of the product in stock.
+     * Only changed by the conditional updates of the stock reservations; an entity update writing back the value
+     * it loaded would undo a reservation committed in between.
      */
+    @Column(updatable = false)
     private int stock;
 
     @JsonIgnoreProperties(value = {"categories", "hibernateLazyInitializer", "handler"}, allowSetters = true)
@@ -0,0 +1,104 @@
+package app.quantun.eb2c.repository;
+
+
+import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC repository for writing products in batches.
+ * Products use identity ids, which prevents Hibernate from batching inserts, so bulk writes bypass the
+ * persistence context and go straight through JDBC batch statements.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO product "
+            + "(name, description, price, in_stock, stock, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE product SET "
+            + "name = COALESCE(?, name), description = COALESCE(?, description), price = COALESCE(?, price), "
+            + "in_stock = ?, updated_at = ? "
+            + "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert the given products in a single JDBC batch.
+     *
+     * @param products the products to insert
+     * @return the generated IDs, in the same order as the products
+     */
+    @Transactional
+    public List<Long> insertAll(List<ProductRequestDTO> products) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ProductRequestDTO product = products.get(i);
+                        ps.setString(1, product.getName());
+                        ps.setString(2, product.getDescription());
+                        ps.setBigDecimal(3, product.getPrice());
+                        ps.setBoolean(4, product.isInStock());
+                        ps.setInt(5, product.getStock());
+                        ps.setTimestamp(6, now);
+                        ps.setTimestamp(7, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                },
+                keyHolder);
+        return keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.get("id")).longValue())
+                .toList();
+    }
+
+    /**
+     * Update the given products in a single JDBC batch.
+     * Null name, description and price keep their current values and the stock is left untouched, as in a single
+     * product update; the stock only changes through reservations.
+     *
+     * @param products the products to update, each with its ID set
+     * @return the number of rows updated for each product, 0 when the ID does not exist
+     */
+    @Transactional
+    public int[] updateAll(List<ProductRequestDTO> products) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ProductRequestDTO product = products.get(i);
+                ps.setString(1, product.getName());
+                ps.setString(2, product.getDescription());
+                ps.setBigDecimal(3, product.getPrice());
+                ps.setBoolean(4, product.isInStock());
+                ps.setTimestamp(5, now);
+                ps.setLong(6, product.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return products.size();
+            }
+        });
+    }
+}
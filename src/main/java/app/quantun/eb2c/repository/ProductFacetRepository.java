@@ -0,0 +1,89 @@
+package app.quantun.eb2c.repository;
+
+
+import app.quantun.eb2c.model.entity.bussines.Category;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Repository computing facet counts over products.
+ * All facets come from one grouped query: rows are grouped by category, price bucket and stock status together,
+ * so the result has at most one row per combination and each facet is summed from it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductFacetRepository {
+
+    /**
+     * Bucket index of products without a price.
+     */
+    public static final int NO_PRICE_BUCKET = -1;
+
+    private final EntityManager entityManager;
+
+    /**
+     * Count the products matching a specification per category, price bucket and stock status.
+     *
+     * @param specification the products to count
+     * @param bucketBounds  the ascending upper bounds of the price buckets; bucket i holds prices below bound i,
+     *                      bucket {@code bucketBounds.size()} holds the rest
+     * @return one row per combination present in the data
+     */
+    public List<FacetRow> countFacets(Specification<Product> specification, List<BigDecimal> bucketBounds) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category", JoinType.LEFT);
+        Path<String> categoryName = category.get("name");
+        Path<Boolean> inStock = root.get("inStock");
+        Path<BigDecimal> price = root.get("price");
+
+        CriteriaBuilder.Case<Integer> bucketCase = criteriaBuilder.<Integer>selectCase()
+                .when(criteriaBuilder.isNull(price), NO_PRICE_BUCKET);
+        for (int i = 0; i < bucketBounds.size(); i++) {
+            bucketCase = bucketCase.when(criteriaBuilder.lessThan(price, bucketBounds.get(i)), i);
+        }
+        Expression<Integer> bucket = bucketCase.otherwise(bucketBounds.size());
+
+        query.multiselect(categoryName, bucket, inStock, criteriaBuilder.count(root));
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.groupBy(categoryName, bucket, inStock);
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> new FacetRow(
+                        tuple.get(0, String.class),
+                        tuple.get(1, Integer.class),
+                        tuple.get(2, Boolean.class),
+                        tuple.get(3, Long.class)))
+                .toList();
+    }
+
+    /**
+     * Count of products sharing a category, price bucket and stock status.
+     *
+     * @param category the category name, null for products without a category
+     * @param bucket   the price bucket index, {@link #NO_PRICE_BUCKET} for products without a price
+     * @param inStock  the stock status
+     * @param count    the number of products
+     */
+    public record FacetRow(String category, int bucket, boolean inStock, long count) {
+    }
+}
@@ -0,0 +1,143 @@
+package app.quantun.eb2c.repository;
+
+
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only JDBC repository for product lists.
+ * Rows are mapped straight into ProductResponseDTO, selecting only its columns, so list endpoints skip entity
+ * hydration, dirty-tracking snapshots and category proxies. Writes and criteria searches stay on ProductRepository.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductReadRepository {
+
+    private static final String SELECT_COLUMNS = "SELECT p.id, p.name, p.description, p.price, p.in_stock, p.stock, "
+            + "p.updated_at, p.category_id FROM product p ";
+
+    private static final String FIND_ALL_SQL = SELECT_COLUMNS + "ORDER BY p.id";
+
+    private static final String FIND_BY_NAME_SQL = SELECT_COLUMNS
+            + "WHERE p.name LIKE :pattern ESCAPE '\\' ORDER BY p.id";
+
+    private static final String FIND_BY_PRICE_LESS_THAN_SQL = SELECT_COLUMNS
+            + "WHERE p.price < :price ORDER BY p.id";
+
+    private static final String FIND_BY_IN_STOCK_SQL = SELECT_COLUMNS
+            + "WHERE p.in_stock = :inStock ORDER BY p.id";
+
+    private static final String SEARCH_RANKED_SQL = SELECT_COLUMNS
+            + "CROSS JOIN websearch_to_tsquery('english', :query) q "
+            + "WHERE p.search_vector @@ q OR p.name % :query "
+            + "ORDER BY ts_rank_cd(p.search_vector, q) + similarity(p.name, :query) DESC, p.id "
+            + "LIMIT :limit";
+
+    private static final String SEARCH_FALLBACK_SQL = SELECT_COLUMNS
+            + "WHERE lower(p.name) LIKE :pattern ESCAPE '\\' OR lower(p.description) LIKE :pattern ESCAPE '\\' "
+            + "ORDER BY p.id LIMIT :limit";
+
+    private static final String SEARCH_VECTOR_EXISTS_SQL = "SELECT EXISTS (SELECT 1 FROM information_schema.columns "
+            + "WHERE table_schema = current_schema() AND table_name = 'product' AND column_name = 'search_vector')";
+
+    private static final RowMapper<ProductResponseDTO> ROW_MAPPER = (rs, rowNum) -> ProductResponseDTO.builder()
+            .id(rs.getLong("id"))
+            .name(rs.getString("name"))
+            .description(rs.getString("description"))
+            .price(rs.getBigDecimal("price"))
+            .inStock(rs.getBoolean("in_stock"))
+            .stock(rs.getInt("stock"))
+            .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+            .categoryId(rs.getObject("category_id", Long.class))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private volatile boolean searchIndexesReady;
+
+    /**
+     * Find all products, ordered by ID.
+     *
+     * @return a list of all products
+     */
+    public List<ProductResponseDTO> findAll() {
+        return jdbcTemplate.query(FIND_ALL_SQL, ROW_MAPPER);
+    }
+
+    /**
+     * Find products whose name contains the given text, case-sensitively, as findByNameContaining did.
+     *
+     * @param name the text to search for; LIKE wildcards in it are matched literally
+     * @return a list of products containing the given name
+     */
+    public List<ProductResponseDTO> findByNameContaining(String name) {
+        return jdbcTemplate.query(FIND_BY_NAME_SQL, Map.of("pattern", "%" + escapeLike(name) + "%"), ROW_MAPPER);
+    }
+
+    /**
+     * Find products priced below a given value.
+     *
+     * @param price the maximum price, exclusive
+     * @return a list of products priced below the given value
+     */
+    public List<ProductResponseDTO> findByPriceLessThan(BigDecimal price) {
+        return jdbcTemplate.query(FIND_BY_PRICE_LESS_THAN_SQL, Map.of("price", price), ROW_MAPPER);
+    }
+
+    /**
+     * Find products by stock status.
+     *
+     * @param inStock the stock status
+     * @return a list of products with the given stock status
+     */
+    public List<ProductResponseDTO> findByInStock(boolean inStock) {
+        return jdbcTemplate.query(FIND_BY_IN_STOCK_SQL, Map.of("inStock", inStock), ROW_MAPPER);
+    }
+
+    /**
+     * Full-text and fuzzy search over names and descriptions, best matches first.
+     * A product matches when the query matches its search_vector (stemmed words of the name and description) or
+     * when its name is trigram-similar to the query, which tolerates typos. Both predicates are served by the GIN
+     * indexes of the 003-product-search-indexes changeset.
+     * <p>
+     * On a fresh database that changeset only runs on the start after Hibernate created the product table. Until
+     * then the search falls back to a case-insensitive LIKE on the name and description, ordered by ID.
+     *
+     * @param query the free-text query, in websearch syntax
+     * @param limit the maximum number of products to return
+     * @return the matching products ordered by rank
+     */
+    public List<ProductResponseDTO> searchRanked(String query, int limit) {
+        if (!searchIndexesReady()) {
+            String pattern = "%" + escapeLike(query.toLowerCase()) + "%";
+            return jdbcTemplate.query(SEARCH_FALLBACK_SQL, Map.of("pattern", pattern, "limit", limit), ROW_MAPPER);
+        }
+        return jdbcTemplate.query(SEARCH_RANKED_SQL, Map.of("query", query, "limit", limit), ROW_MAPPER);
+    }
+
+    private boolean searchIndexesReady() {
+        // Checked until the changeset has run, then never again; the column is added with the indexes
+        if (!searchIndexesReady) {
+            searchIndexesReady = Boolean.TRUE.equals(
+                    jdbcTemplate.queryForObject(SEARCH_VECTOR_EXISTS_SQL, Map.of(), Boolean.class));
+        }
+        return searchIndexesReady;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
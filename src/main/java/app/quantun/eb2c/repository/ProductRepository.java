@@ -2,41 +2,35 @@ package app.quantun.eb2c.repository;
 
 
 import app.quantun.eb2c.model.entity.bussines.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Product entities.
  * This interface provides methods for CRUD operations and custom queries on Product entities.
+ * Read-only product lists go through ProductReadRepository instead.
  */
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     /**
-     * Find products containing the given name.
+     * Stream all products ordered by ID from a server-side cursor.
+     * The fetch size keeps only one batch of rows in the JDBC driver at a time; PostgreSQL only honours it
+     * inside a transaction, so callers must be transactional and must close the stream.
      *
-     * @param name the name to search for
-     * @return a list of products containing the given name
+     * @return a stream of read-only products
      */
-    List<Product> findByNameContaining(String name);
-
-    /**
-     * Find products priced below a given value.
-     *
-     * @param price the maximum price
-     * @return a list of products priced below the given value
-     */
-    List<Product> findByPriceLessThan(BigDecimal price);
-
-    /**
-     * Find products that are currently in stock.
-     *
-     * @param inStock indicates whether the product is in stock
-     * @return a list of products that are in stock
-     */
-    List<Product> findByInStock(boolean inStock);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Product p order by p.id")
+    Stream<Product> streamAllBy();
 }
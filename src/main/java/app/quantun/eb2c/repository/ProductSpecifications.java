@@ -0,0 +1,59 @@
+package app.quantun.eb2c.repository;
+
+
+import app.quantun.eb2c.model.contract.request.ProductSearchCriteria;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Specifications for querying Product entities.
+ * Shared by the paged, keyset and faceted searches so they all filter on the same criteria.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Build the specification matching every non-null field of the criteria.
+     *
+     * @param criteria the search criteria
+     * @return a specification combining the criteria with AND
+     */
+    public static Specification<Product> matching(ProductSearchCriteria criteria) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (criteria.getNamePattern() != null) {
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("name")),
+                        "%" + criteria.getNamePattern().toLowerCase() + "%"));
+            }
+
+            if (criteria.getMinPrice() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), criteria.getMinPrice()));
+            }
+
+            if (criteria.getMaxPrice() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), criteria.getMaxPrice()));
+            }
+
+            if (criteria.getInStock() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("inStock"), criteria.getInStock()));
+            }
+
+            if (criteria.getMinStock() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("stock"), criteria.getMinStock()));
+            }
+
+            if (criteria.getCategoryName() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("category").get("name"), criteria.getCategoryName()));
+            }
+
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
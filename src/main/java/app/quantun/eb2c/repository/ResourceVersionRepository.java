@@ -0,0 +1,106 @@
+package app.quantun.eb2c.repository;
+
+
+import app.quantun.eb2c.util.ResourceVersion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * JDBC repository computing HTTP validators for product lists and organizations.
+ * A single product takes its validators from its cached representation, see {@link ResourceVersion#ofProduct}.
+ * Each validator is one aggregate or primary key lookup over {@code updated_at}, versions and row counts,
+ * so a conditional GET is answered without loading entities or rendering the body.
+ * <p>
+ * Collection validators cover the whole table: any filtered list can only change when some row is inserted,
+ * updated or deleted, which moves the count or the latest {@code updated_at}. Collections carry no Last-Modified
+ * date, since deleting a row does not move the latest {@code updated_at} and If-Modified-Since alone would then
+ * answer 304 with a stale list; clients revalidate them with the weak ETag.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ResourceVersionRepository {
+
+    private static final String PRODUCTS_SQL = "SELECT COUNT(*) AS row_count, MAX(updated_at) AS updated_at FROM product";
+
+    private static final String ORGANIZATION_SQL = "SELECT o.id, o.version, "
+            + "GREATEST(o.updated_at, (SELECT MAX(b.updated_at) FROM branches b WHERE b.organization_id = o.id)) AS updated_at, "
+            + "(SELECT COUNT(*) FROM branches b WHERE b.organization_id = o.id) AS branch_count "
+            + "FROM organizations o WHERE ";
+
+    private static final String ORGANIZATIONS_SQL = "SELECT "
+            + "(SELECT COUNT(*) FROM organizations) AS row_count, "
+            + "(SELECT COALESCE(SUM(version), 0) FROM organizations) AS version_sum, "
+            + "(SELECT COUNT(*) FROM branches) AS branch_count, "
+            + "GREATEST((SELECT MAX(updated_at) FROM organizations), (SELECT MAX(updated_at) FROM branches)) AS updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Validators shared by every product list.
+     *
+     * @return the weak validators of the product table
+     */
+    public ResourceVersion findProductsVersion() {
+        return jdbcTemplate.queryForObject(PRODUCTS_SQL, (rs, rowNum) -> {
+            LocalDateTime updatedAt = toLocalDateTime(rs.getTimestamp("updated_at"));
+            return ResourceVersion.weak("products-" + rs.getLong("row_count") + "-" + ResourceVersion.tagOf(updatedAt),
+                    null, "products");
+        });
+    }
+
+    /**
+     * Validators of a single organization, including its branches.
+     * Branches are rendered from a set with no stable order, so the ETag is weak.
+     *
+     * @param id the ID of the organization
+     * @return the validators, empty if the organization does not exist
+     */
+    public Optional<ResourceVersion> findOrganizationVersion(Long id) {
+        return jdbcTemplate.query(ORGANIZATION_SQL + "o.id = ?", (rs, rowNum) -> toOrganizationVersion(rs), id)
+                .stream().findFirst();
+    }
+
+    /**
+     * Validators of a single organization looked up by tax ID, including its branches.
+     *
+     * @param taxId the tax ID of the organization
+     * @return the validators, empty if the organization does not exist
+     */
+    public Optional<ResourceVersion> findOrganizationVersionByTaxId(String taxId) {
+        return jdbcTemplate.query(ORGANIZATION_SQL + "o.tax_id = ?", (rs, rowNum) -> toOrganizationVersion(rs), taxId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Validators shared by every organization list.
+     * The sum of the optimistic-lock versions moves on every update, whatever the clocks of the writers.
+     *
+     * @return the weak validators of the organization and branch tables
+     */
+    public ResourceVersion findOrganizationsVersion() {
+        return jdbcTemplate.queryForObject(ORGANIZATIONS_SQL, (rs, rowNum) -> {
+            LocalDateTime updatedAt = toLocalDateTime(rs.getTimestamp("updated_at"));
+            return ResourceVersion.weak("organizations-" + rs.getLong("row_count") + "-" + rs.getLong("version_sum")
+                            + "-" + rs.getLong("branch_count") + "-" + ResourceVersion.tagOf(updatedAt),
+                    null, "organizations");
+        });
+    }
+
+    private static ResourceVersion toOrganizationVersion(ResultSet rs) throws SQLException {
+        LocalDateTime updatedAt = toLocalDateTime(rs.getTimestamp("updated_at"));
+        String organizationKey = "organization-" + rs.getLong("id");
+        return ResourceVersion.weak(organizationKey + "-" + rs.getLong("version") + "-" + rs.getLong("branch_count")
+                + "-" + ResourceVersion.tagOf(updatedAt), updatedAt, organizationKey);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
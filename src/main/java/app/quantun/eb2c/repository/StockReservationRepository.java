@@ -0,0 +1,135 @@
+package app.quantun.eb2c.repository;
+
+
+import app.quantun.eb2c.model.contract.response.StockReservationResponseDTO;
+import app.quantun.eb2c.model.contract.response.StockReservationResponseDTO.Status;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * JDBC repository for stock reservations.
+ * Every state change is a single conditional statement, so concurrent buyers never read-modify-write the stock:
+ * the row lock taken by the UPDATE serializes them and the WHERE clause rejects the ones that would oversell.
+ * A reservation only leaves HELD once, which guarantees its stock is returned at most once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockReservationRepository {
+
+    private static final String RESERVE_SQL = "WITH claimed AS ("
+            + "UPDATE product SET stock = stock - ?, in_stock = stock > ?, updated_at = ? "
+            + "WHERE id = ? AND stock >= ? RETURNING id) "
+            + "INSERT INTO product_reservation (id, product_id, quantity, status, expires_at, created_at, updated_at) "
+            + "SELECT ?, id, ?, 'HELD', ?, ?, ? FROM claimed";
+
+    private static final String CONFIRM_SQL = "UPDATE product_reservation SET status = 'CONFIRMED', updated_at = ? "
+            + "WHERE id = ? AND status = 'HELD' AND expires_at > ?";
+
+    private static final String RELEASE_SQL = "UPDATE product_reservation SET status = 'RELEASED', updated_at = ? "
+            + "WHERE id = ? AND status = 'HELD' RETURNING product_id, quantity";
+
+    private static final String RESTOCK_SQL = "UPDATE product SET stock = stock + ?, in_stock = true, updated_at = ? "
+            + "WHERE id = ?";
+
+    private static final String EXPIRE_SQL = "WITH expired AS ("
+            + "UPDATE product_reservation SET status = 'EXPIRED', updated_at = ? "
+            + "WHERE status = 'HELD' AND id IN ("
+            + "SELECT id FROM product_reservation WHERE status = 'HELD' AND expires_at <= ? "
+            + "ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING product_id, quantity), "
+            + "totals AS (SELECT product_id, SUM(quantity) AS quantity FROM expired GROUP BY product_id) "
+            + "UPDATE product p SET stock = p.stock + t.quantity, in_stock = true, updated_at = ? "
+            + "FROM totals t WHERE p.id = t.product_id RETURNING p.id";
+
+    private static final String FIND_SQL = "SELECT id, product_id, quantity, status, expires_at "
+            + "FROM product_reservation WHERE id = ?";
+
+    private static final RowMapper<StockReservationResponseDTO> ROW_MAPPER = (rs, rowNum) ->
+            StockReservationResponseDTO.builder()
+                    .id(rs.getObject("id", UUID.class))
+                    .productId(rs.getLong("product_id"))
+                    .quantity(rs.getInt("quantity"))
+                    .status(Status.valueOf(rs.getString("status")))
+                    .expiresAt(rs.getTimestamp("expires_at").toLocalDateTime())
+                    .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Take stock from a product and record the hold, in one statement.
+     *
+     * @param id        the ID of the new reservation
+     * @param productId the ID of the product
+     * @param quantity  the quantity to hold
+     * @param expiresAt when the hold expires
+     * @return true if the product had enough stock, false if it does not exist or has too little
+     */
+    public boolean reserve(UUID id, Long productId, int quantity, LocalDateTime expiresAt) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(RESERVE_SQL,
+                quantity, quantity, now, productId, quantity,
+                id, quantity, Timestamp.valueOf(expiresAt), now, now) == 1;
+    }
+
+    /**
+     * Confirm a held reservation that has not expired yet. The stock stays taken.
+     *
+     * @param id the ID of the reservation
+     * @return true if the reservation moved to CONFIRMED
+     */
+    public boolean confirm(UUID id) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(CONFIRM_SQL, now, id, now) == 1;
+    }
+
+    /**
+     * Release a held reservation and return its stock to the product.
+     *
+     * @param id the ID of the reservation
+     * @return the ID of the restocked product, empty if the reservation was not held
+     */
+    @Transactional
+    public Optional<Long> release(UUID id) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map<String, Object>> released = jdbcTemplate.queryForList(RELEASE_SQL, now, id);
+        if (released.isEmpty()) {
+            return Optional.empty();
+        }
+        Long productId = ((Number) released.get(0).get("product_id")).longValue();
+        int quantity = ((Number) released.get(0).get("quantity")).intValue();
+        jdbcTemplate.update(RESTOCK_SQL, quantity, now, productId);
+        return Optional.of(productId);
+    }
+
+    /**
+     * Expire held reservations past their deadline and return their stock, oldest first.
+     * Rows locked by a concurrent confirm, release or another replica's sweep are skipped.
+     *
+     * @param limit the maximum number of reservations to expire
+     * @return the IDs of the restocked products
+     */
+    public List<Long> expireDue(int limit) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.queryForList(EXPIRE_SQL, Long.class, now, now, limit, now);
+    }
+
+    /**
+     * Find a reservation by its ID.
+     *
+     * @param id the ID of the reservation
+     * @return an Optional containing the reservation if found, otherwise empty
+     */
+    public Optional<StockReservationResponseDTO> findById(UUID id) {
+        return jdbcTemplate.query(FIND_SQL, ROW_MAPPER, id).stream().findFirst();
+    }
+}
@@ -0,0 +1,442 @@
+package app.quantun.eb2c.repository;
+
+
+import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC repository for the local copy of the Cognito user pool.
+ * <p>
+ * Rows carry the Cognito {@code userLastModifiedDate}, and an upsert never replaces a row with an older copy, so a
+ * background sync reading Cognito before a write-through cannot undo it. Searches are case-insensitive prefix
+ * matches on the username or the email, served by the lower() text_pattern_ops indexes of the 004-user-directory
+ * changeset.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserDirectoryRepository {
+
+    private static final TypeReference<Map<String, String>> ATTRIBUTES_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * Sort fields of the user API and the columns they order by.
+     */
+    public static final Map<String, String> SORT_COLUMNS = Map.of(
+            "username", "username",
+            "email", "email",
+            "status", "user_status",
+            "enabled", "enabled",
+            "createDate", "user_create_date"
+    );
+
+    /**
+     * Maximum number of values bound to one IN list, well below the PostgreSQL limit of bind parameters.
+     */
+    private static final int IN_LIST_CHUNK_SIZE = 1000;
+
+    private static final String UPSERT_SQL = "INSERT INTO user_directory (username, email, phone_number, "
+            + "user_status, enabled, email_verified, phone_number_verified, attributes, user_create_date, "
+            + "user_last_modified_date, synced_at) VALUES (:username, :email, :phoneNumber, :userStatus, :enabled, "
+            + ":emailVerified, :phoneNumberVerified, :attributes, :userCreateDate, :userLastModifiedDate, :syncedAt) "
+            + "ON CONFLICT (username) DO UPDATE SET email = EXCLUDED.email, phone_number = EXCLUDED.phone_number, "
+            + "user_status = EXCLUDED.user_status, enabled = EXCLUDED.enabled, "
+            + "email_verified = EXCLUDED.email_verified, phone_number_verified = EXCLUDED.phone_number_verified, "
+            + "attributes = EXCLUDED.attributes, user_create_date = EXCLUDED.user_create_date, "
+            + "user_last_modified_date = EXCLUDED.user_last_modified_date, synced_at = EXCLUDED.synced_at "
+            + "WHERE user_directory.user_last_modified_date IS NULL "
+            + "OR EXCLUDED.user_last_modified_date IS NULL "
+            + "OR EXCLUDED.user_last_modified_date >= user_directory.user_last_modified_date";
+
+    private static final String SELECT_COLUMNS = "SELECT username, email, phone_number, user_status, enabled, "
+            + "email_verified, phone_number_verified, attributes, user_create_date, user_last_modified_date "
+            + "FROM user_directory ";
+
+    private static final String PREFIX_FILTER = "WHERE lower(username) LIKE :prefix ESCAPE '\\' "
+            + "OR lower(email) LIKE :prefix ESCAPE '\\' ";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Find the Cognito last modification date of every user in the directory.
+     *
+     * @return the last modification date by username
+     */
+    public Map<String, Instant> findLastModifiedDates() {
+        Map<String, Instant> dates = new HashMap<>();
+        jdbcTemplate.query("SELECT username, user_last_modified_date FROM user_directory", rs -> {
+            dates.put(rs.getString("username"), toInstant(rs, "user_last_modified_date"));
+        });
+        return dates;
+    }
+
+    /**
+     * Insert or update users, keeping the stored row when it is newer than the given copy.
+     * Group memberships are left untouched.
+     *
+     * @param users    the users
+     * @param syncedAt the time the users were read from Cognito
+     */
+    public void upsertAll(Collection<UserResponse> users, Instant syncedAt) {
+        SqlParameterSource[] batch = users.stream()
+                .map(user -> userParameters(user, syncedAt))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+    }
+
+    /**
+     * Insert or update a user together with its group memberships.
+     *
+     * @param user     the user, with its groups
+     * @param syncedAt the time the user was read from Cognito
+     */
+    @Transactional
+    public void save(UserResponse user, Instant syncedAt) {
+        jdbcTemplate.update(UPSERT_SQL, userParameters(user, syncedAt));
+        if (user.getGroups() != null) {
+            replaceGroups(user.getUsername(), user.getGroups());
+        }
+    }
+
+    /**
+     * Delete users and their memberships.
+     *
+     * @param usernames the usernames
+     */
+    @Transactional
+    public void deleteAll(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        Map<String, Object> parameters = Map.of("usernames", usernames);
+        jdbcTemplate.update("DELETE FROM user_directory_group WHERE username IN (:usernames)", parameters);
+        jdbcTemplate.update("DELETE FROM user_directory WHERE username IN (:usernames)", parameters);
+    }
+
+    /**
+     * Delete users that were synced before the given time, used to drop users the sync no longer finds in Cognito.
+     * Users written through since the sync started are kept.
+     *
+     * @param usernames the candidate usernames
+     * @param before    the start of the sync
+     * @return the usernames that were deleted
+     */
+    @Transactional
+    public List<String> deleteSyncedBefore(Collection<String> usernames, Instant before) {
+        List<String> candidates = List.copyOf(usernames);
+        List<String> stale = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<String> chunk = candidates.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, candidates.size()));
+            List<String> staleChunk = jdbcTemplate.queryForList(
+                    "SELECT username FROM user_directory WHERE username IN (:usernames) AND synced_at < :before",
+                    Map.of("usernames", chunk, "before", toOffsetDateTime(before)), String.class);
+            deleteAll(staleChunk);
+            stale.addAll(staleChunk);
+        }
+        return stale;
+    }
+
+    /**
+     * Replace the memberships of a user.
+     *
+     * @param username the username
+     * @param groups   the names of the groups the user belongs to
+     */
+    @Transactional
+    public void replaceGroups(String username, Collection<String> groups) {
+        jdbcTemplate.update("DELETE FROM user_directory_group WHERE username = :username",
+                Map.of("username", username));
+        insertMemberships(groups.stream().map(group -> membership(username, group)).toList());
+    }
+
+    /**
+     * Replace the members of a group.
+     *
+     * @param groupName the group name
+     * @param usernames the usernames of the members
+     */
+    @Transactional
+    public void replaceMembers(String groupName, Collection<String> usernames) {
+        jdbcTemplate.update("DELETE FROM user_directory_group WHERE group_name = :groupName",
+                Map.of("groupName", groupName));
+        insertMemberships(usernames.stream().map(username -> membership(username, groupName)).toList());
+    }
+
+    /**
+     * Drop the memberships of every group not in the given list.
+     *
+     * @param groupNames the names of the existing groups
+     */
+    public void retainGroups(Collection<String> groupNames) {
+        if (groupNames.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM user_directory_group", Map.of());
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM user_directory_group WHERE group_name NOT IN (:groupNames)",
+                Map.of("groupNames", groupNames));
+    }
+
+    /**
+     * Add a user to a group.
+     *
+     * @param username  the username
+     * @param groupName the group name
+     */
+    public void addMembership(String username, String groupName) {
+        jdbcTemplate.update("INSERT INTO user_directory_group (username, group_name) VALUES (:username, :groupName) "
+                + "ON CONFLICT DO NOTHING", membership(username, groupName));
+    }
+
+    /**
+     * Remove a user from a group.
+     *
+     * @param username  the username
+     * @param groupName the group name
+     */
+    public void removeMembership(String username, String groupName) {
+        jdbcTemplate.update("DELETE FROM user_directory_group WHERE username = :username AND group_name = :groupName",
+                membership(username, groupName));
+    }
+
+    /**
+     * Drop every membership of a group.
+     *
+     * @param groupName the group name
+     */
+    public void deleteGroup(String groupName) {
+        jdbcTemplate.update("DELETE FROM user_directory_group WHERE group_name = :groupName",
+                Map.of("groupName", groupName));
+    }
+
+    /**
+     * Find a user with its groups.
+     *
+     * @param username the username
+     * @return the user, or empty when it is not in the directory
+     */
+    public Optional<UserResponse> findByUsername(String username) {
+        List<UserResponse> users = jdbcTemplate.query(SELECT_COLUMNS + "WHERE username = :username",
+                Map.of("username", username), (rs, rowNum) -> mapUser(rs));
+        if (users.isEmpty()) {
+            return Optional.empty();
+        }
+        UserResponse user = users.get(0);
+        user.getGroups().addAll(jdbcTemplate.queryForList("SELECT group_name FROM user_directory_group "
+                + "WHERE username = :username ORDER BY group_name", Map.of("username", username), String.class));
+        return Optional.of(user);
+    }
+
+    /**
+     * Find a page of users, with their groups, whose username or email starts with the given text.
+     *
+     * @param filter    the prefix, matched case-insensitively, or null for every user
+     * @param sortBy    the sort field, a key of {@link #SORT_COLUMNS}, or null to sort by username
+     * @param ascending the sort direction
+     * @param offset    the number of users to skip
+     * @param limit     the maximum number of users to return
+     * @return the users of the page
+     */
+    public List<UserResponse> search(String filter, String sortBy, boolean ascending, long offset, int limit) {
+        String column = SORT_COLUMNS.getOrDefault(sortBy, "username");
+        String direction = ascending ? "ASC" : "DESC";
+        String sql = SELECT_COLUMNS + (filter == null ? "" : PREFIX_FILTER)
+                + "ORDER BY " + column + " " + direction + " NULLS LAST, username " + direction
+                + " LIMIT :limit OFFSET :offset";
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("prefix", filter == null ? null : prefixPattern(filter))
+                .addValue("limit", limit)
+                .addValue("offset", offset);
+
+        Map<String, UserResponse> users = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, parameters, rs -> {
+            UserResponse user = mapUser(rs);
+            users.put(user.getUsername(), user);
+        });
+        if (!users.isEmpty()) {
+            jdbcTemplate.query("SELECT username, group_name FROM user_directory_group "
+                            + "WHERE username IN (:usernames) ORDER BY group_name",
+                    Map.of("usernames", users.keySet()),
+                    rs -> {
+                        users.get(rs.getString("username")).getGroups().add(rs.getString("group_name"));
+                    });
+        }
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * Count the users whose username or email starts with the given text.
+     *
+     * @param filter the prefix, matched case-insensitively, or null for every user
+     * @return the number of matching users
+     */
+    public long count(String filter) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_directory "
+                        + (filter == null ? "" : PREFIX_FILTER),
+                new MapSqlParameterSource("prefix", filter == null ? null : prefixPattern(filter)), Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Run a task while holding a PostgreSQL session advisory lock, so that only one replica runs it at a time.
+     * The lock is held by a connection of its own, taken from the pool for the duration of the task.
+     *
+     * @param lockKey the advisory lock key
+     * @param task    the task
+     * @return true when the task ran, false when another session holds the lock
+     */
+    public boolean runLocked(long lockKey, Runnable task) {
+        Boolean ran = jdbcTemplate.getJdbcOperations().execute((ConnectionCallback<Boolean>) connection -> {
+            if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(?)", lockKey)) {
+                return false;
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                advisoryLock(connection, "SELECT pg_advisory_unlock(?)", lockKey);
+            }
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    /**
+     * Record that a sync completed.
+     *
+     * @param name        the sync name
+     * @param completedAt the completion time
+     */
+    public void markSynced(String name, Instant completedAt) {
+        jdbcTemplate.update("INSERT INTO user_directory_sync (name, completed_at) VALUES (:name, :completedAt) "
+                        + "ON CONFLICT (name) DO UPDATE SET completed_at = EXCLUDED.completed_at",
+                Map.of("name", name, "completedAt", toOffsetDateTime(completedAt)));
+    }
+
+    /**
+     * Find when a sync last completed, on any replica.
+     *
+     * @param name the sync name
+     * @return the completion time, or empty when the sync never completed
+     */
+    public Optional<Instant> findSyncedAt(String name) {
+        return jdbcTemplate.query("SELECT completed_at FROM user_directory_sync WHERE name = :name",
+                Map.of("name", name), (rs, rowNum) -> toInstant(rs, "completed_at")).stream().findFirst();
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql, long lockKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, lockKey);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void insertMemberships(List<Map<String, String>> memberships) {
+        if (memberships.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_directory_group (username, group_name) "
+                + "VALUES (:username, :groupName) ON CONFLICT DO NOTHING", memberships.stream()
+                .map(MapSqlParameterSource::new)
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    private static Map<String, String> membership(String username, String groupName) {
+        return Map.of("username", username, "groupName", groupName);
+    }
+
+    private SqlParameterSource userParameters(UserResponse user, Instant syncedAt) {
+        return new MapSqlParameterSource()
+                .addValue("username", user.getUsername())
+                .addValue("email", user.getEmail())
+                .addValue("phoneNumber", user.getPhoneNumber())
+                .addValue("userStatus", user.getUserStatus())
+                .addValue("enabled", user.getEnabled())
+                .addValue("emailVerified", user.getEmailVerified())
+                .addValue("phoneNumberVerified", user.getPhoneNumberVerified())
+                .addValue("attributes", writeAttributes(user.getAttributes()))
+                .addValue("userCreateDate", toOffsetDateTime(user.getUserCreateDate()))
+                .addValue("userLastModifiedDate", toOffsetDateTime(user.getUserLastModifiedDate()))
+                .addValue("syncedAt", toOffsetDateTime(syncedAt));
+    }
+
+    private UserResponse mapUser(ResultSet rs) throws SQLException {
+        String username = rs.getString("username");
+        return UserResponse.builder()
+                .username(username)
+                .userId(username)
+                .email(rs.getString("email"))
+                .phoneNumber(rs.getString("phone_number"))
+                .userStatus(rs.getString("user_status"))
+                .enabled(rs.getObject("enabled", Boolean.class))
+                .emailVerified(rs.getObject("email_verified", Boolean.class))
+                .phoneNumberVerified(rs.getObject("phone_number_verified", Boolean.class))
+                .attributes(readAttributes(rs.getString("attributes")))
+                .userCreateDate(toInstant(rs, "user_create_date"))
+                .userLastModifiedDate(toInstant(rs, "user_last_modified_date"))
+                .groups(new ArrayList<>())
+                .build();
+    }
+
+    private String writeAttributes(Map<String, String> attributes) {
+        if (attributes == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(attributes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize user attributes", e);
+        }
+    }
+
+    private Map<String, String> readAttributes(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, ATTRIBUTES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt user attributes: " + json, e);
+        }
+    }
+
+    private static String prefixPattern(String filter) {
+        String escaped = filter.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return escaped + "%";
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value == null ? null : value.toInstant();
+    }
+}
@@ -4,10 +4,12 @@ package app.quantun.eb2c.rest;
 import app.quantun.eb2c.model.contract.contract.request.GroupRequest;
 import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
 import app.quantun.eb2c.model.contract.contract.response.GroupResponse;
+import app.quantun.eb2c.model.contract.contract.response.MembershipIndexResponse;
 import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
 import app.quantun.eb2c.service.CognitoGroupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,8 +19,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.CompletableFuture;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/groups")
@@ -49,11 +53,10 @@ public class GroupController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping(value = "/{groupName}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<GroupResponse> getGroupByName(
+    public CompletableFuture<ResponseEntity<GroupResponse>> getGroupByName(
             @Parameter(description = "Group name", required = true)
             @PathVariable String groupName) {
-        GroupResponse group = groupService.getGroupByName(groupName);
-        return ResponseEntity.ok(group);
+        return groupService.getGroupByNameAsync(groupName).thenApply(ResponseEntity::ok);
     }
 
     @Operation(summary = "List groups", description = "Retrieves a paginated list of groups with filtering and sorting options")
@@ -111,18 +114,54 @@ public class GroupController {
         return ResponseEntity.noContent().build();
     }
 
-    @Operation(summary = "Get users in a group", description = "Gets the list of users belonging to a group")
+    @Operation(summary = "Get users in a group", description = "Gets a page of the users belonging to a group. "
+            + "Follow nextCursor to walk the whole group, totalElements is -1 until the last page is reached")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User list successfully retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid or expired cursor"),
             @ApiResponse(responseCode = "404", description = "Group not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping(value = "/{groupName}/users", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<String>> getGroupUsers(
+    public CompletableFuture<ResponseEntity<PagedResponse<String>>> getGroupUsers(
+            @Parameter(description = "Group name", required = true)
+            @PathVariable String groupName,
+            @Parameter(description = "Page size (1 to 100)")
+            @RequestParam(required = false, defaultValue = "60") Integer size,
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(required = false) String cursor) {
+        return groupService.listGroupUsersAsync(groupName, size, cursor).thenApply(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Export users in a group",
+            description = "Streams every member of a group as NDJSON, one user per line, without loading the group into memory")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export started",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)),
+            @ApiResponse(responseCode = "404", description = "Group not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(value = "/{groupName}/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportGroupUsers(
             @Parameter(description = "Group name", required = true)
             @PathVariable String groupName) {
-        List<String> users = groupService.getGroupUsers(groupName);
-        return ResponseEntity.ok(users);
+        // Fail with a 404 before the response is committed
+        groupService.getGroupByName(groupName);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> groupService.exportGroupUsers(groupName, outputStream));
+    }
+
+    @Operation(summary = "Refresh the membership index",
+            description = "Rebuilds the cached user to groups and group to users index from Cognito, for changes " +
+                    "made outside this application")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Index successfully refreshed"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/membership-index/refresh", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<MembershipIndexResponse> refreshMembershipIndex() {
+        return ResponseEntity.ok(groupService.refreshMembershipIndex());
     }
 
     @Operation(summary = "Add user to a group", description = "Adds a user to a specific group")
@@ -3,6 +3,7 @@ package app.quantun.eb2c.rest;
 import app.quantun.eb2c.model.contract.request.OrganizationRequestDTO;
 import app.quantun.eb2c.model.contract.response.OrganizationResponseDTO;
 import app.quantun.eb2c.service.OrganizationService;
+import app.quantun.eb2c.service.ResourceVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -29,6 +31,8 @@ public class OrganizationRestController {
 
     private final OrganizationService organizationService;
 
+    private final ResourceVersionService resourceVersionService;
+
     @Operation(summary = "Create a new organization")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Organization created successfully",
@@ -43,25 +47,32 @@ public class OrganizationRestController {
     }
 
     @Operation(summary = "Get all organizations")
-    @ApiResponse(responseCode = "200", description = "List of organizations retrieved successfully",
-            content = @Content(schema = @Schema(implementation = OrganizationResponseDTO.class)))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "List of organizations retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = OrganizationResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Organizations not modified")
+    })
     @GetMapping
-    public ResponseEntity<List<OrganizationResponseDTO>> getAllOrganizations() {
-        List<OrganizationResponseDTO> organizations = organizationService.getAllOrganizations();
-        return ResponseEntity.ok(organizations);
+    public ResponseEntity<List<OrganizationResponseDTO>> getAllOrganizations(WebRequest webRequest) {
+        return resourceVersionService.getOrganizationsVersion()
+                .respond(webRequest, organizationService::getAllOrganizations);
     }
 
     @Operation(summary = "Get organization by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Organization found",
                     content = @Content(schema = @Schema(implementation = OrganizationResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Organization not modified"),
             @ApiResponse(responseCode = "404", description = "Organization not found")
     })
     @GetMapping("/{id}")
     public ResponseEntity<OrganizationResponseDTO> getOrganizationById(
-            @Parameter(description = "Organization ID") @PathVariable Long id) {
-        OrganizationResponseDTO responseDTO = organizationService.getOrganizationById(id);
-        return ResponseEntity.ok(responseDTO);
+            @Parameter(description = "Organization ID") @PathVariable Long id,
+            WebRequest webRequest) {
+        // Without validators the service lookup reports the missing organization
+        return resourceVersionService.getOrganizationVersion(id)
+                .map(version -> version.respond(webRequest, () -> organizationService.getOrganizationById(id)))
+                .orElseGet(() -> ResponseEntity.ok(organizationService.getOrganizationById(id)));
     }
 
     @Operation(summary = "Update an organization")
@@ -92,25 +103,32 @@ public class OrganizationRestController {
     }
 
     @Operation(summary = "Search organizations by name")
-    @ApiResponse(responseCode = "200", description = "Search results",
-            content = @Content(schema = @Schema(implementation = OrganizationResponseDTO.class)))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search results",
+                    content = @Content(schema = @Schema(implementation = OrganizationResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Organizations not modified")
+    })
     @GetMapping("/search")
     public ResponseEntity<List<OrganizationResponseDTO>> searchOrganizationsByName(
-            @Parameter(description = "Name to search for") @RequestParam String name) {
-        List<OrganizationResponseDTO> organizations = organizationService.searchOrganizationsByName(name);
-        return ResponseEntity.ok(organizations);
+            @Parameter(description = "Name to search for") @RequestParam String name,
+            WebRequest webRequest) {
+        return resourceVersionService.getOrganizationsVersion()
+                .respond(webRequest, () -> organizationService.searchOrganizationsByName(name));
     }
 
     @Operation(summary = "Find organization by tax ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Organization found",
                     content = @Content(schema = @Schema(implementation = OrganizationResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Organization not modified"),
             @ApiResponse(responseCode = "404", description = "Organization not found")
     })
     @GetMapping("/tax/{taxId}")
     public ResponseEntity<OrganizationResponseDTO> getOrganizationByTaxId(
-            @Parameter(description = "Tax ID to search for") @PathVariable String taxId) {
-        OrganizationResponseDTO responseDTO = organizationService.getOrganizationByTaxId(taxId);
-        return ResponseEntity.ok(responseDTO);
+            @Parameter(description = "Tax ID to search for") @PathVariable String taxId,
+            WebRequest webRequest) {
+        return resourceVersionService.getOrganizationVersionByTaxId(taxId)
+                .map(version -> version.respond(webRequest, () -> organizationService.getOrganizationByTaxId(taxId)))
+                .orElseGet(() -> ResponseEntity.ok(organizationService.getOrganizationByTaxId(taxId)));
     }
 }
\ No newline at end of file
@@ -3,8 +3,16 @@ package app.quantun.eb2c.rest;
 
 import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
 import app.quantun.eb2c.model.contract.request.ProductSearchCriteria;
+import app.quantun.eb2c.model.contract.response.CursorPageResponseDTO;
+import app.quantun.eb2c.model.contract.response.FacetedPageResponseDTO;
+import app.quantun.eb2c.model.contract.response.ProductBulkResultDTO;
 import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import app.quantun.eb2c.service.ProductBulkService;
+import app.quantun.eb2c.service.ProductExportService;
+import app.quantun.eb2c.service.ProductFacetService;
 import app.quantun.eb2c.service.ProductService;
+import app.quantun.eb2c.service.ResourceVersionService;
+import app.quantun.eb2c.util.ResourceVersion;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,12 +25,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -62,12 +76,23 @@ import java.util.List;
 @RequiredArgsConstructor
 @Tag(name = "Product Management", description = "Operations for managing products")
 public class ProductRestController {
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     private final ProductService productService;
 
+    private final ProductExportService productExportService;
+
+    private final ProductBulkService productBulkService;
+
+    private final ProductFacetService productFacetService;
+
+    private final ResourceVersionService resourceVersionService;
+
     /**
      * Retrieve a list of all products.
      *
-     * @return a list of ProductResponseDTO
+     * @param webRequest the current request, checked against If-None-Match and If-Modified-Since
+     * @return a list of ProductResponseDTO, or 304 if the client copy is current
      */
     @GetMapping
     @Operation(summary = "Get all products",
@@ -76,17 +101,51 @@ public class ProductRestController {
                     @ApiResponse(responseCode = "200",
                             description = "Successfully retrieved products",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                                    schema = @Schema(implementation = ProductResponseDTO.class)))
+                                    schema = @Schema(implementation = ProductResponseDTO.class))),
+                    @ApiResponse(responseCode = "304", description = "Products not modified")
+            })
+    public ResponseEntity<List<ProductResponseDTO>> getAllProducts(WebRequest webRequest) {
+        return resourceVersionService.getProductsVersion().respond(webRequest, productService::getAllProducts);
+    }
+
+    /**
+     * Export the whole catalog as a stream.
+     *
+     * @param format the export format, ndjson or csv
+     * @return a streaming body writing one product per line
+     */
+    @GetMapping("/export")
+    @Operation(summary = "Export all products",
+            description = "Stream the whole catalog as NDJSON or CSV without loading it into memory",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Catalog export started",
+                            content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE),
+                                    @Content(mediaType = "text/csv")}),
+                    @ApiResponse(responseCode = "400", description = "Unsupported export format")
             })
-    public ResponseEntity<List<ProductResponseDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @Parameter(description = "Export format (ndjson, csv)", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        if ("csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(TEXT_CSV)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"")
+                    .body(productExportService::exportCsv);
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(productExportService::exportNdjson);
+        }
+        return ResponseEntity.badRequest().build();
     }
 
     /**
      * Retrieve a specific product by its ID.
      *
-     * @param id the ID of the product
-     * @return the ProductResponseDTO
+     * @param id         the ID of the product
+     * @param webRequest the current request, checked against If-None-Match and If-Modified-Since
+     * @return the ProductResponseDTO, or 304 if the client copy is current
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID",
@@ -95,14 +154,18 @@ public class ProductRestController {
                     @ApiResponse(responseCode = "200", description = "Product found",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ProductResponseDTO.class))),
+                    @ApiResponse(responseCode = "304", description = "Product not modified"),
                     @ApiResponse(responseCode = "404", description = "Product not found")
             })
     public ResponseEntity<ProductResponseDTO> getProductById(
             @Parameter(description = "Product ID", example = "1")
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            WebRequest webRequest) {
+        // Validators come from the cached body, so a conditional GET on a cached product never reaches the database,
+        // and a stale cached copy is never labelled with the row's current tag
         return productService.getProductById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+                .map(product -> ResourceVersion.ofProduct(product).respond(webRequest, () -> product))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
@@ -126,6 +189,27 @@ public class ProductRestController {
                 .body(productService.createProduct(productRequestDTO));
     }
 
+    /**
+     * Create or update many products from a JSON array.
+     *
+     * @param body the request body, a JSON array of ProductRequestDTO
+     * @return the per-item outcome of the import
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Create or update products in bulk",
+            description = "Accepts a JSON array of products. Items without an id are created and items with an id "
+                    + "update the existing product. The array is parsed incrementally and written in batches",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Import processed, see the per-item results",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = ProductBulkResultDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Body is not a well-formed JSON array")
+            })
+    public ResponseEntity<ProductBulkResultDTO> bulkUpsertProducts(InputStream body) throws IOException {
+        return ResponseEntity.ok(productBulkService.importProducts(body));
+    }
+
     /**
      * Update details of an existing product.
      *
@@ -171,8 +255,9 @@ public class ProductRestController {
     /**
      * Find products containing the given name.
      *
-     * @param name the name to search for
-     * @return a list of ProductResponseDTO
+     * @param name       the name to search for
+     * @param webRequest the current request, checked against If-None-Match and If-Modified-Since
+     * @return a list of ProductResponseDTO, or 304 if the client copy is current
      */
     @GetMapping("/search")
     @Operation(summary = "Search products by name",
@@ -180,19 +265,51 @@ public class ProductRestController {
             responses = {
                     @ApiResponse(responseCode = "200", description = "Successfully retrieved matching products",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                                    schema = @Schema(implementation = ProductResponseDTO.class)))
+                                    schema = @Schema(implementation = ProductResponseDTO.class))),
+                    @ApiResponse(responseCode = "304", description = "Products not modified")
             })
     public ResponseEntity<List<ProductResponseDTO>> searchProductsByName(
             @Parameter(description = "Product name to search", example = "Phone")
-            @RequestParam String name) {
-        return ResponseEntity.ok(productService.searchProductsByName(name));
+            @RequestParam String name,
+            WebRequest webRequest) {
+        return resourceVersionService.getProductsVersion()
+                .respond(webRequest, () -> productService.searchProductsByName(name));
+    }
+
+    /**
+     * Find products matching a free-text query, best matches first.
+     *
+     * @param q          the free-text query
+     * @param limit      the maximum number of products to return
+     * @param webRequest the current request, checked against If-None-Match and If-Modified-Since
+     * @return a list of ProductResponseDTO ordered by relevance, or 304 if the client copy is current
+     */
+    @GetMapping("/search/ranked")
+    @Operation(summary = "Ranked product search",
+            description = "Full-text search over names and descriptions with typo-tolerant name matching. "
+                    + "Supports websearch syntax such as quoted phrases and -exclusions; results are ordered by relevance",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved matching products",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = ProductResponseDTO.class))),
+                    @ApiResponse(responseCode = "304", description = "Products not modified")
+            })
+    public ResponseEntity<List<ProductResponseDTO>> searchProductsRanked(
+            @Parameter(description = "Free-text query", example = "wireless headphones")
+            @RequestParam String q,
+            @Parameter(description = "Maximum number of results, at most 100", example = "20")
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest webRequest) {
+        return resourceVersionService.getProductsVersion()
+                .respond(webRequest, () -> productService.searchProductsRanked(q, limit));
     }
 
     /**
      * Retrieve products priced below a given value.
      *
-     * @param price the maximum price
-     * @return a list of ProductResponseDTO
+     * @param price      the maximum price
+     * @param webRequest the current request, checked against If-None-Match and If-Modified-Since
+     * @return a list of ProductResponseDTO, or 304 if the client copy is current
      */
     @GetMapping("/under-price")
     @Operation(summary = "Get products under a specific price",
@@ -200,18 +317,22 @@ public class ProductRestController {
             responses = {
                     @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                                    schema = @Schema(implementation = ProductResponseDTO.class)))
+                                    schema = @Schema(implementation = ProductResponseDTO.class))),
+                    @ApiResponse(responseCode = "304", description = "Products not modified")
             })
     public ResponseEntity<List<ProductResponseDTO>> getProductsUnderPrice(
             @Parameter(description = "Maximum price", example = "100.00")
-            @RequestParam BigDecimal price) {
-        return ResponseEntity.ok(productService.getProductsUnderPrice(price));
+            @RequestParam BigDecimal price,
+            WebRequest webRequest) {
+        return resourceVersionService.getProductsVersion()
+                .respond(webRequest, () -> productService.getProductsUnderPrice(price));
     }
 
     /**
      * Retrieve all products that are currently in stock.
      *
-     * @return a list of ProductResponseDTO
+     * @param webRequest the current request, checked against If-None-Match and If-Modified-Since
+     * @return a list of ProductResponseDTO, or 304 if the client copy is current
      */
     @GetMapping("/in-stock")
     @Operation(summary = "Get products in stock",
@@ -219,10 +340,11 @@ public class ProductRestController {
             responses = {
                     @ApiResponse(responseCode = "200", description = "Successfully retrieved in-stock products",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                                    schema = @Schema(implementation = ProductResponseDTO.class)))
+                                    schema = @Schema(implementation = ProductResponseDTO.class))),
+                    @ApiResponse(responseCode = "304", description = "Products not modified")
             })
-    public ResponseEntity<List<ProductResponseDTO>> getInStockProducts() {
-        return ResponseEntity.ok(productService.getInStockProducts());
+    public ResponseEntity<List<ProductResponseDTO>> getInStockProducts(WebRequest webRequest) {
+        return resourceVersionService.getProductsVersion().respond(webRequest, productService::getInStockProducts);
     }
 
 
@@ -253,15 +375,90 @@ public class ProductRestController {
             @Parameter(description = "Sort field and direction, e.g. name,asc", example = "name,asc")
             @RequestParam(defaultValue = "id,asc") String sort) {
 
+        Pageable pageable = PageRequest.of(page, size, Sort.by(parseSortOrder(sort)));
+        Page<ProductResponseDTO> products = productService.findProductsByCriteria(criteria, pageable);
+
+        return ResponseEntity.ok(products);
+    }
+
+    /**
+     * Search for products based on multiple criteria, returning a page together with the facet counts.
+     *
+     * @param criteria the search criteria
+     * @param page     the page number (zero-based)
+     * @param size     the page size
+     * @param sort     the sorting criteria
+     * @return a page of products matching the criteria and the counts per category, price range and stock status
+     */
+    @PostMapping("/search/faceted")
+    @Operation(summary = "Search products by criteria with facets",
+            description = "Same as the criteria search, plus the filter counts per category, price range and stock "
+                    + "status of every matching product, computed in one grouped query",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Successfully retrieved filtered products and facets",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = FacetedPageResponseDTO.class)))
+            })
+    public ResponseEntity<FacetedPageResponseDTO<ProductResponseDTO>> searchProductsWithFacets(
+            @RequestBody ProductSearchCriteria criteria,
+            @Parameter(description = "Page number (zero-based)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sort field and direction, e.g. name,asc", example = "name,asc")
+            @RequestParam(defaultValue = "id,asc") String sort) {
+
+        Pageable pageable = PageRequest.of(page, size, Sort.by(parseSortOrder(sort)));
+        Page<ProductResponseDTO> products = productService.findProductsByCriteria(criteria, pageable);
+
+        return ResponseEntity.ok(FacetedPageResponseDTO.<ProductResponseDTO>builder()
+                .content(products.getContent())
+                .page(products.getNumber())
+                .size(products.getSize())
+                .totalElements(products.getTotalElements())
+                .totalPages(products.getTotalPages())
+                .facets(productFacetService.getFacets(criteria))
+                .build());
+    }
+
+    /**
+     * Scroll through products matching multiple criteria using keyset (seek) pagination.
+     *
+     * @param criteria the search criteria
+     * @param after    the cursor returned as nextCursor by the previous call, omitted for the first slice
+     * @param size     the slice size
+     * @param sort     the sorting criteria
+     * @return a slice of products matching the criteria and the cursor of the next slice
+     */
+    @PostMapping("/search/scroll")
+    @Operation(summary = "Scroll products by criteria",
+            description = "Keyset pagination over products matching the criteria. Pass the nextCursor of the "
+                    + "previous response as 'after' to fetch the following slice; no total count is computed",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Successfully retrieved filtered products",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = CursorPageResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid or mismatched cursor")
+            })
+    public ResponseEntity<CursorPageResponseDTO<ProductResponseDTO>> scrollProducts(
+            @RequestBody ProductSearchCriteria criteria,
+            @Parameter(description = "Opaque cursor returned by the previous slice")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Slice size", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sort field and direction, one of id, name, price, stock, createdAt", example = "name,asc")
+            @RequestParam(defaultValue = "id,asc") String sort) {
+        return ResponseEntity.ok(productService.scrollProductsByCriteria(criteria, after, size, parseSortOrder(sort)));
+    }
+
+    private Sort.Order parseSortOrder(String sort) {
         String[] sortParams = sort.split(",");
         String sortField = sortParams[0];
         Sort.Direction direction = sortParams.length > 1 && sortParams[1].equalsIgnoreCase("desc")
                 ? Sort.Direction.DESC : Sort.Direction.ASC;
-
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortField));
-        Page<ProductResponseDTO> products = productService.findProductsByCriteria(criteria, pageable);
-
-        return ResponseEntity.ok(products);
+        return new Sort.Order(direction, sortField);
     }
 
 }
@@ -0,0 +1,125 @@
+package app.quantun.eb2c.rest;
+
+
+import app.quantun.eb2c.model.contract.request.StockReservationRequestDTO;
+import app.quantun.eb2c.model.contract.response.StockReservationResponseDTO;
+import app.quantun.eb2c.service.StockReservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Controller class for reserving product stock.
+ * This class provides endpoints to hold stock of a product and to confirm or release the hold.
+ */
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Tag(name = "Stock Reservations", description = "Operations for holding product stock during checkout")
+public class StockReservationRestController {
+
+    private final StockReservationService stockReservationService;
+
+    /**
+     * Hold a quantity of a product.
+     *
+     * @param productId  the ID of the product
+     * @param requestDTO the quantity and optional TTL of the hold
+     * @return the held reservation
+     */
+    @PostMapping("/products/{productId}/reservations")
+    @Operation(summary = "Reserve product stock",
+            description = "Take stock from a product and hold it until the reservation is confirmed, released or expires",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Stock reserved",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = StockReservationResponseDTO.class))),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Not enough stock left")
+            })
+    public ResponseEntity<StockReservationResponseDTO> reserve(
+            @Parameter(description = "Product ID", example = "1")
+            @PathVariable Long productId,
+            @Parameter(description = "Reservation details", required = true)
+            @Valid @RequestBody StockReservationRequestDTO requestDTO) {
+        Duration ttl = requestDTO.getTtlSeconds() == null ? null : Duration.ofSeconds(requestDTO.getTtlSeconds());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(stockReservationService.reserve(productId, requestDTO.getQuantity(), ttl));
+    }
+
+    /**
+     * Retrieve a reservation by its ID.
+     *
+     * @param id the ID of the reservation
+     * @return the reservation
+     */
+    @GetMapping("/reservations/{id}")
+    @Operation(summary = "Get reservation by ID",
+            description = "Retrieve the state of a stock reservation",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Reservation found",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = StockReservationResponseDTO.class))),
+                    @ApiResponse(responseCode = "404", description = "Reservation not found")
+            })
+    public ResponseEntity<StockReservationResponseDTO> getReservation(
+            @Parameter(description = "Reservation ID")
+            @PathVariable UUID id) {
+        return ResponseEntity.ok(stockReservationService.getReservation(id));
+    }
+
+    /**
+     * Confirm a held reservation.
+     *
+     * @param id the ID of the reservation
+     * @return the confirmed reservation
+     */
+    @PostMapping("/reservations/{id}/confirm")
+    @Operation(summary = "Confirm a reservation",
+            description = "Make a held reservation permanent; its stock is not returned",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Reservation confirmed",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = StockReservationResponseDTO.class))),
+                    @ApiResponse(responseCode = "404", description = "Reservation not found"),
+                    @ApiResponse(responseCode = "409", description = "Reservation expired or no longer held")
+            })
+    public ResponseEntity<StockReservationResponseDTO> confirm(
+            @Parameter(description = "Reservation ID")
+            @PathVariable UUID id) {
+        return ResponseEntity.ok(stockReservationService.confirm(id));
+    }
+
+    /**
+     * Release a held reservation.
+     *
+     * @param id the ID of the reservation
+     * @return a ResponseEntity with no content
+     */
+    @DeleteMapping("/reservations/{id}")
+    @Operation(summary = "Release a reservation",
+            description = "Cancel a held reservation and return its stock to the product",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Reservation released"),
+                    @ApiResponse(responseCode = "404", description = "Reservation not found"),
+                    @ApiResponse(responseCode = "409", description = "Reservation no longer held")
+            })
+    public ResponseEntity<Void> release(
+            @Parameter(description = "Reservation ID")
+            @PathVariable UUID id) {
+        stockReservationService.release(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -3,8 +3,10 @@ package app.quantun.eb2c.rest;
 
 import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
 import app.quantun.eb2c.model.contract.contract.request.UserRequest;
+import app.quantun.eb2c.model.contract.contract.response.BulkUserResponse;
 import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
 import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import app.quantun.eb2c.service.BulkUserService;
 import app.quantun.eb2c.service.CognitoUserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -18,7 +20,9 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/users")
@@ -26,8 +30,14 @@ import java.util.List;
 @Tag(name = "Users", description = "API for user management in AWS Cognito")
 public class UserController {
 
+    private static final String RETURN_MINIMAL = "return=minimal";
+
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+
     private final CognitoUserService userService;
 
+    private final BulkUserService bulkUserService;
+
     @Operation(summary = "Create a new user", description = "Creates a new user in the Cognito user pool")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "User successfully created"),
@@ -42,6 +52,22 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
     }
 
+    @Operation(summary = "Create users in bulk", description = "Creates many users and adds them to their groups. "
+            + "Users are provisioned concurrently, backing off when Cognito throttles, and each user succeeds or "
+            + "fails on its own")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Provisioning processed, see the per-user results"),
+            @ApiResponse(responseCode = "400", description = "Too many users in the request"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkUserResponse> createUsers(
+            @Parameter(description = "Users to create", required = true)
+            @RequestBody List<UserRequest> userRequests) {
+        return ResponseEntity.ok(bulkUserService.createUsers(userRequests));
+    }
+
     @Operation(summary = "Get a user by username", description = "Retrieves the details of a specific user")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User found"),
@@ -49,17 +75,18 @@ public class UserController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping(value = "/{username}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<UserResponse> getUserByUsername(
+    public CompletableFuture<ResponseEntity<UserResponse>> getUserByUsername(
             @Parameter(description = "Username", required = true)
             @PathVariable String username) {
-        UserResponse user = userService.getUserByUsername(username);
-        return ResponseEntity.ok(user);
+        return userService.getUserByUsernameAsync(username).thenApply(ResponseEntity::ok);
     }
 
-    @Operation(summary = "List users", description = "Retrieves a paginated list of users with filtering and sorting options")
+    @Operation(summary = "List users", description = "Retrieves a paginated list of users with filtering and sorting options. "
+            + "Pages are read from Cognito in pool order and sorted within the page; follow nextCursor to walk the "
+            + "whole pool, totalElements is -1 until the last page is reached")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User list successfully retrieved"),
-            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters"),
+            @ApiResponse(responseCode = "400", description = "Invalid pagination parameters or cursor"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
@@ -73,16 +100,19 @@ public class UserController {
             @Parameter(description = "Sort direction (asc, desc)")
             @RequestParam(required = false, defaultValue = "asc") String sortDirection,
             @Parameter(description = "Text filter (searches in username and email)")
-            @RequestParam(required = false) String filter) {
+            @RequestParam(required = false) String filter,
+            @Parameter(description = "nextCursor of the previous page; takes precedence over the page number")
+            @RequestParam(required = false) String cursor) {
 
         PaginationRequest pagination = new PaginationRequest(page, size, sortBy, sortDirection, filter);
-        PagedResponse<UserResponse> users = userService.listUsers(pagination);
+        PagedResponse<UserResponse> users = userService.listUsers(pagination, cursor);
         return ResponseEntity.ok(users);
     }
 
     @Operation(summary = "Update a user", description = "Updates the attributes of an existing user")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User successfully updated"),
+            @ApiResponse(responseCode = "204", description = "Change applied, no content returned for Prefer: return=minimal"),
             @ApiResponse(responseCode = "400", description = "Invalid request"),
             @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
@@ -92,9 +122,11 @@ public class UserController {
             @Parameter(description = "Username", required = true)
             @PathVariable String username,
             @Parameter(description = "Updated user data", required = true)
-            @Valid @RequestBody UserRequest userRequest) {
-        UserResponse updatedUser = userService.updateUser(username, userRequest);
-        return ResponseEntity.ok(updatedUser);
+            @Valid @RequestBody UserRequest userRequest,
+            @Parameter(description = "Send return=minimal to get 204 No Content instead of the updated user")
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean minimal = returnMinimal(prefer);
+        return respond(minimal, userService.updateUser(username, userRequest, !minimal));
     }
 
     @Operation(summary = "Delete a user", description = "Deletes a user from the Cognito user pool")
@@ -114,43 +146,52 @@ public class UserController {
     @Operation(summary = "Enable a user", description = "Enables an existing user")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User successfully enabled"),
+            @ApiResponse(responseCode = "204", description = "Change applied, no content returned for Prefer: return=minimal"),
             @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping(value = "/{username}/enable", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<UserResponse> enableUser(
             @Parameter(description = "Username", required = true)
-            @PathVariable String username) {
-        UserResponse enabledUser = userService.enableUser(username);
-        return ResponseEntity.ok(enabledUser);
+            @PathVariable String username,
+            @Parameter(description = "Send return=minimal to get 204 No Content instead of the updated user")
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean minimal = returnMinimal(prefer);
+        return respond(minimal, userService.enableUser(username, !minimal));
     }
 
     @Operation(summary = "Disable a user", description = "Disables an existing user")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User successfully disabled"),
+            @ApiResponse(responseCode = "204", description = "Change applied, no content returned for Prefer: return=minimal"),
             @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping(value = "/{username}/disable", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<UserResponse> disableUser(
             @Parameter(description = "Username", required = true)
-            @PathVariable String username) {
-        UserResponse disabledUser = userService.disableUser(username);
-        return ResponseEntity.ok(disabledUser);
+            @PathVariable String username,
+            @Parameter(description = "Send return=minimal to get 204 No Content instead of the updated user")
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean minimal = returnMinimal(prefer);
+        return respond(minimal, userService.disableUser(username, !minimal));
     }
 
     @Operation(summary = "Reset password", description = "Resets a user's password")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Password successfully reset"),
+            @ApiResponse(responseCode = "204", description = "Change applied, no content returned for Prefer: return=minimal"),
             @ApiResponse(responseCode = "404", description = "User not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping(value = "/{username}/reset-password", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<UserResponse> resetPassword(
             @Parameter(description = "Username", required = true)
-            @PathVariable String username) {
-        UserResponse user = userService.resetPassword(username);
-        return ResponseEntity.ok(user);
+            @PathVariable String username,
+            @Parameter(description = "Send return=minimal to get 204 No Content instead of the updated user")
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean minimal = returnMinimal(prefer);
+        return respond(minimal, userService.resetPassword(username, !minimal));
     }
 
     @Operation(summary = "Get user groups", description = "Gets the list of groups a user belongs to")
@@ -160,16 +201,16 @@ public class UserController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping(value = "/{username}/groups", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<String>> getUserGroups(
+    public CompletableFuture<ResponseEntity<List<String>>> getUserGroups(
             @Parameter(description = "Username", required = true)
             @PathVariable String username) {
-        List<String> groups = userService.getUserGroups(username);
-        return ResponseEntity.ok(groups);
+        return userService.getUserGroupsAsync(username).thenApply(ResponseEntity::ok);
     }
 
     @Operation(summary = "Add user to a group", description = "Adds a user to a specific group")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User successfully added to the group"),
+            @ApiResponse(responseCode = "204", description = "Change applied, no content returned for Prefer: return=minimal"),
             @ApiResponse(responseCode = "404", description = "User or group not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
@@ -178,14 +219,17 @@ public class UserController {
             @Parameter(description = "Username", required = true)
             @PathVariable String username,
             @Parameter(description = "Group name", required = true)
-            @PathVariable String groupName) {
-        UserResponse user = userService.addUserToGroup(username, groupName);
-        return ResponseEntity.ok(user);
+            @PathVariable String groupName,
+            @Parameter(description = "Send return=minimal to get 204 No Content instead of the updated user")
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean minimal = returnMinimal(prefer);
+        return respond(minimal, userService.addUserToGroup(username, groupName, !minimal));
     }
 
     @Operation(summary = "Remove user from a group", description = "Removes a user from a specific group")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User successfully removed from the group"),
+            @ApiResponse(responseCode = "204", description = "Change applied, no content returned for Prefer: return=minimal"),
             @ApiResponse(responseCode = "404", description = "User or group not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
@@ -194,8 +238,29 @@ public class UserController {
             @Parameter(description = "Username", required = true)
             @PathVariable String username,
             @Parameter(description = "Group name", required = true)
-            @PathVariable String groupName) {
-        UserResponse user = userService.removeUserFromGroup(username, groupName);
+            @PathVariable String groupName,
+            @Parameter(description = "Send return=minimal to get 204 No Content instead of the updated user")
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean minimal = returnMinimal(prefer);
+        return respond(minimal, userService.removeUserFromGroup(username, groupName, !minimal));
+    }
+
+    /**
+     * Whether the client asked for no representation in the response (RFC 7240).
+     */
+    private static boolean returnMinimal(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        return Arrays.stream(prefer.split(","))
+                .map(preference -> preference.split(";", 2)[0].replace(" ", ""))
+                .anyMatch(RETURN_MINIMAL::equalsIgnoreCase);
+    }
+
+    private static ResponseEntity<UserResponse> respond(boolean minimal, UserResponse user) {
+        if (minimal) {
+            return ResponseEntity.noContent().header(PREFERENCE_APPLIED, RETURN_MINIMAL).build();
+        }
         return ResponseEntity.ok(user);
     }
-} 
\ No newline at end of file
+}
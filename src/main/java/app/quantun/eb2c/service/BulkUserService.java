@@ -0,0 +1,250 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.exception.BulkImportException;
+import app.quantun.eb2c.exception.CognitoException;
+import app.quantun.eb2c.model.contract.contract.request.UserRequest;
+import app.quantun.eb2c.model.contract.contract.response.BulkUserResponse;
+import app.quantun.eb2c.model.contract.contract.response.BulkUserResponse.Status;
+import app.quantun.eb2c.model.contract.contract.response.BulkUserResponse.UserResult;
+import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import app.quantun.eb2c.util.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.TooManyRequestsException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Service class provisioning many Cognito users at once.
+ * <p>
+ * Users are created, then added to their groups, on a pool of threads. The number of Cognito calls in flight is
+ * bounded by an {@link AdaptiveConcurrencyLimit} shared by every bulk request, since the Cognito request quota is
+ * shared by the whole user pool: the limit grows while calls succeed and is cut when Cognito answers
+ * {@code TooManyRequestsException}. A throttled call is retried after a jittered exponential backoff; any other
+ * failure only fails its own user.
+ * <p>
+ * Metrics are published as {@code cognito.bulk.concurrency.limit}, {@code cognito.bulk.throttled} and the
+ * {@code executor.*} meters of the provisioning pool.
+ */
+@Service
+@Slf4j
+public class BulkUserService {
+
+    private static final String METRIC_PREFIX = "cognito.bulk";
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+    private final CognitoUserService userService;
+
+    private final Validator validator;
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final ExecutorService executor;
+
+    private final Counter throttled;
+
+    private final int maxUsers;
+
+    private final int maxAttempts;
+
+    private final Duration backoff;
+
+    public BulkUserService(CognitoUserService userService,
+                           Validator validator,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.cognito.bulk.max-users:1000}") int maxUsers,
+                           @Value("${app.cognito.bulk.initial-concurrency:8}") int initialConcurrency,
+                           @Value("${app.cognito.bulk.max-concurrency:32}") int maxConcurrency,
+                           @Value("${app.cognito.bulk.max-attempts:6}") int maxAttempts,
+                           @Value("${app.cognito.bulk.backoff:200ms}") Duration backoff) {
+        this.userService = userService;
+        this.validator = validator;
+        this.maxUsers = maxUsers;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialConcurrency, 1, maxConcurrency, 0.5);
+        // Threads wait on the limit, so the pool is sized for the highest limit
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry,
+                Executors.newFixedThreadPool(maxConcurrency, threadFactory()), METRIC_PREFIX);
+        this.throttled = Counter.builder(METRIC_PREFIX + ".throttled")
+                .description("Cognito calls of bulk provisioning rejected with TooManyRequestsException")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current limit of concurrent Cognito calls of bulk provisioning")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Create users and add them to their groups.
+     *
+     * @param requests the users to create
+     * @return the per-user outcome and the totals of the provisioning
+     */
+    public BulkUserResponse createUsers(List<UserRequest> requests) {
+        if (requests.size() > maxUsers) {
+            throw new BulkImportException("A bulk request holds at most " + maxUsers + " users, got "
+                    + requests.size());
+        }
+
+        BulkUserResponse summary = new BulkUserResponse();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(requests.size());
+        for (int index = 0; index < requests.size(); index++) {
+            UserRequest request = requests.get(index);
+            UserResult result = UserResult.builder()
+                    .index(index)
+                    .username(request == null ? null : request.getUsername())
+                    .build();
+            summary.getResults().add(result);
+
+            List<String> violations = validate(request);
+            if (!violations.isEmpty()) {
+                reject(result, violations);
+                continue;
+            }
+            tasks.add(CompletableFuture.runAsync(() -> provision(request, result), executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+
+        summary.setTotal(summary.getResults().size());
+        for (UserResult result : summary.getResults()) {
+            switch (result.getStatus()) {
+                case CREATED -> summary.setCreated(summary.getCreated() + 1);
+                case PARTIAL -> summary.setPartial(summary.getPartial() + 1);
+                case FAILED -> summary.setFailed(summary.getFailed() + 1);
+            }
+        }
+        log.info("Bulk user provisioning finished: {} created, {} partial, {} failed, concurrency limit {}",
+                summary.getCreated(), summary.getPartial(), summary.getFailed(), concurrencyLimit.getLimit());
+        return summary;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void provision(UserRequest request, UserResult result) {
+        UserResponse user;
+        try {
+            user = call(() -> userService.createUser(request, false));
+        } catch (RuntimeException e) {
+            reject(result, List.of(e.getMessage()));
+            return;
+        }
+
+        List<String> errors = new ArrayList<>();
+        if (request.getGroups() != null) {
+            for (String groupName : request.getGroups()) {
+                try {
+                    call(() -> userService.addUserToGroup(request.getUsername(), groupName, false));
+                    user.getGroups().add(groupName);
+                } catch (RuntimeException e) {
+                    errors.add(groupName + ": " + e.getMessage());
+                }
+            }
+        }
+        result.setUser(user);
+        result.setStatus(errors.isEmpty() ? Status.CREATED : Status.PARTIAL);
+        result.setErrors(errors.isEmpty() ? null : errors);
+    }
+
+    /**
+     * Run a Cognito call within the concurrency limit, retrying it while Cognito throttles it.
+     */
+    private <T> T call(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            long admittedAt;
+            try {
+                admittedAt = concurrencyLimit.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CognitoException("Interrupted while waiting for Cognito capacity", e);
+            }
+
+            try {
+                T value = operation.get();
+                concurrencyLimit.onSuccess();
+                return value;
+            } catch (RuntimeException e) {
+                if (!isThrottled(e)) {
+                    concurrencyLimit.onIgnore();
+                    throw e;
+                }
+                concurrencyLimit.onThrottle(admittedAt);
+                throttled.increment();
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+            }
+
+            try {
+                Thread.sleep(backoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CognitoException("Interrupted while backing off from Cognito throttling", e);
+            }
+        }
+    }
+
+    /**
+     * Full jitter backoff: a random delay up to an exponentially growing cap.
+     */
+    private long backoff(int attempt) {
+        long cap = Math.min(MAX_BACKOFF.toMillis(), backoff.toMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private List<String> validate(UserRequest request) {
+        if (request == null) {
+            return List.of("Item must be a JSON object");
+        }
+        Set<ConstraintViolation<UserRequest>> violations = validator.validate(request);
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+    }
+
+    private static boolean isThrottled(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TooManyRequestsException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void reject(UserResult result, List<String> errors) {
+        result.setStatus(Status.FAILED);
+        result.setErrors(errors);
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "cognito-bulk-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
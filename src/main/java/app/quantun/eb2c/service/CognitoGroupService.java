@@ -1,13 +1,19 @@
 package app.quantun.eb2c.service;
 
 
+import app.quantun.eb2c.config.cognito.CognitoAsyncExecutor;
 import app.quantun.eb2c.exception.CognitoException;
+import app.quantun.eb2c.exception.InvalidCursorException;
 import app.quantun.eb2c.exception.InvalidSortFieldException;
 import app.quantun.eb2c.exception.ResourceNotFoundException;
 import app.quantun.eb2c.model.contract.contract.request.GroupRequest;
 import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
 import app.quantun.eb2c.model.contract.contract.response.GroupResponse;
+import app.quantun.eb2c.model.contract.contract.response.MembershipIndexResponse;
 import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
+import app.quantun.eb2c.util.CursorCodec;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,10 +21,13 @@ import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,7 +38,18 @@ public class CognitoGroupService {
     private static final Set<String> VALID_SORT_FIELDS = Set.of(
             "groupName", "description", "precedence", "creationDate"
     );
+    /**
+     * Maximum page size accepted by ListUsersInGroup.
+     */
+    private static final int MAX_LIST_USERS_IN_GROUP_LIMIT = 60;
+    private static final int MAX_GROUP_USERS_PAGE_SIZE = 100;
+    private static final String GROUP_USERS_CURSOR_TYPE = "group-users";
     private final CognitoIdentityProviderClient cognitoClient;
+    private final GroupMembershipIndexService membershipIndexService;
+    private final GroupCatalogService groupCatalogService;
+    private final UserDirectoryService userDirectoryService;
+    private final ObjectMapper objectMapper;
+    private final CognitoAsyncExecutor cognitoAsyncExecutor;
     @Value("${aws.cognito.userPoolId}")
     private String userPoolId;
 
@@ -54,6 +74,7 @@ public class CognitoGroupService {
             }
 
             CreateGroupResponse response = cognitoClient.createGroup(requestBuilder.build());
+            groupCatalogService.put(response.group());
 
             return mapToGroupResponse(response.group());
         } catch (GroupExistsException e) {
@@ -88,6 +109,17 @@ public class CognitoGroupService {
         }
     }
 
+    /**
+     * Gets a group by its name without blocking the caller
+     *
+     * @param groupName Group name
+     * @return Group information, or a future failed with {@link ResourceNotFoundException} or
+     * {@link CognitoException}
+     */
+    public CompletableFuture<GroupResponse> getGroupByNameAsync(String groupName) {
+        return cognitoAsyncExecutor.supply(() -> getGroupByName(groupName));
+    }
+
     /**
      * Lists groups with pagination, filtering, and sorting
      *
@@ -102,33 +134,9 @@ public class CognitoGroupService {
                         ". Valid values: " + String.join(", ", VALID_SORT_FIELDS));
             }
 
-            // Build the request to Cognito
-            ListGroupsRequest.Builder requestBuilder = ListGroupsRequest.builder()
-                    .userPoolId(userPoolId)
-                    .limit(Math.min(60, pagination.getSize() * 3)); // Request more to allow filtering
-
-            ListGroupsResponse response = cognitoClient.listGroups(requestBuilder.build());
-
-            // Map results
-            List<GroupResponse> groups = response.groups().stream()
-                    .map(this::mapToGroupResponse)
-                    .collect(Collectors.toList());
-
-            // Filter results if there is a filter
-            if (pagination.getFilter() != null && !pagination.getFilter().isEmpty()) {
-                String filter = pagination.getFilter().toLowerCase();
-                groups = groups.stream()
-                        .filter(group ->
-                                group.getGroupName().toLowerCase().contains(filter) ||
-                                        (group.getDescription() != null && group.getDescription().toLowerCase().contains(filter))
-                        )
-                        .collect(Collectors.toList());
-            }
-
-            // Sort results according to the specified criteria
-            if (pagination.getSortBy() != null) {
-                sortGroups(groups, pagination.getSortBy(), pagination.getSortDirection());
-            }
+            // Served from the in-memory catalog of every group, already sorted and indexed for the filter
+            List<GroupType> groups = groupCatalogService.find(pagination.getFilter(), pagination.getSortBy(),
+                    "desc".equalsIgnoreCase(pagination.getSortDirection()));
 
             // Apply pagination
             int totalElements = groups.size();
@@ -145,12 +153,15 @@ public class CognitoGroupService {
                         true,
                         pagination.getSortBy(),
                         pagination.getSortDirection(),
-                        pagination.getFilter()
+                        pagination.getFilter(),
+                        null
                 );
             }
 
             int toIndex = Math.min(fromIndex + pagination.getSize(), totalElements);
-            List<GroupResponse> pagedContent = groups.subList(fromIndex, toIndex);
+            List<GroupResponse> pagedContent = groups.subList(fromIndex, toIndex).stream()
+                    .map(this::mapToGroupResponse)
+                    .collect(Collectors.toList());
 
             return new PagedResponse<>(
                     pagedContent,
@@ -161,7 +172,8 @@ public class CognitoGroupService {
                     pagination.getPage() >= totalPages - 1,
                     pagination.getSortBy(),
                     pagination.getSortDirection(),
-                    pagination.getFilter()
+                    pagination.getFilter(),
+                    null
             );
         } catch (InvalidSortFieldException e) {
             throw e;
@@ -194,9 +206,10 @@ public class CognitoGroupService {
                 requestBuilder.precedence(groupRequest.getPrecedence());
             }
 
-            cognitoClient.updateGroup(requestBuilder.build());
+            UpdateGroupResponse response = cognitoClient.updateGroup(requestBuilder.build());
+            groupCatalogService.put(response.group());
 
-            return getGroupByName(groupName);
+            return mapToGroupResponse(response.group());
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -220,6 +233,9 @@ public class CognitoGroupService {
                     .build();
 
             cognitoClient.deleteGroup(request);
+            membershipIndexService.removeGroup(groupName);
+            groupCatalogService.remove(groupName);
+            userDirectoryService.deleteGroup(groupName);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -234,29 +250,130 @@ public class CognitoGroupService {
      * @return List of usernames belonging to the group
      */
     public List<String> getGroupUsers(String groupName) {
-        try {
-            // Verify that the group exists
-            getGroupByName(groupName);
-
-            ListUsersInGroupRequest request = ListUsersInGroupRequest.builder()
-                    .userPoolId(userPoolId)
-                    .groupName(groupName)
-                    .build();
-
-            ListUsersInGroupResponse response = cognitoClient.listUsersInGroup(request);
+        return membershipIndexService.getGroupUsers(groupName, this::loadGroupUsers);
+    }
 
-            if (response == null || response.users() == null) {
-                return Collections.emptyList();
+    /**
+     * Lists the users of a group page by page, following Cognito pagination tokens.
+     * <p>
+     * Pages are read in Cognito order. The total is only known once the last page has been reached and is -1
+     * until then.
+     *
+     * @param groupName Group name
+     * @param size      Page size
+     * @param cursor    The nextCursor of the previous page, or null for the first page
+     * @return Page of usernames with the cursor of the next page
+     */
+    public PagedResponse<String> listGroupUsers(String groupName, int size, String cursor) {
+        int pageSize = Math.max(1, Math.min(MAX_GROUP_USERS_PAGE_SIZE, size));
+        int page = 0;
+        String nextToken = null;
+        if (cursor != null && !cursor.isBlank()) {
+            List<String> parts = CursorCodec.decode(cursor);
+            if (parts.size() != 4 || !GROUP_USERS_CURSOR_TYPE.equals(parts.get(0))
+                    || !groupName.equals(parts.get(1)) || parts.get(3) == null) {
+                throw new InvalidCursorException("Cursor does not match group " + groupName);
             }
+            try {
+                page = Integer.parseInt(parts.get(2));
+            } catch (NumberFormatException e) {
+                throw new InvalidCursorException("Malformed cursor: " + cursor, e);
+            }
+            nextToken = parts.get(3);
+        }
 
-            return response.users().stream()
-                    .map(UserType::username)
-                    .collect(Collectors.toList());
-        } catch (ResourceNotFoundException e) {
-            throw e;
+        try {
+            // Ask for exactly what the page still needs, so each page ends on a Cognito token
+            List<String> usernames = new ArrayList<>(pageSize);
+            do {
+                ListUsersInGroupResponse response = listUsersInGroup(groupName,
+                        Math.min(MAX_LIST_USERS_IN_GROUP_LIMIT, pageSize - usernames.size()), nextToken);
+                response.users().forEach(user -> usernames.add(user.username()));
+                nextToken = response.nextToken();
+            } while (nextToken != null && usernames.size() < pageSize);
+
+            boolean last = nextToken == null;
+            long totalElements = last ? (long) page * pageSize + usernames.size() : -1;
+            int totalPages = last ? (int) Math.ceil((double) totalElements / pageSize) : -1;
+
+            return new PagedResponse<>(
+                    usernames,
+                    page,
+                    pageSize,
+                    totalElements,
+                    totalPages,
+                    last,
+                    null,
+                    null,
+                    null,
+                    last ? null : CursorCodec.encode(GROUP_USERS_CURSOR_TYPE, groupName, String.valueOf(page + 1),
+                            nextToken)
+            );
+        } catch (software.amazon.awssdk.services.cognitoidentityprovider.model.ResourceNotFoundException e) {
+            throw new ResourceNotFoundException("Group not found: " + groupName);
+        } catch (InvalidParameterException e) {
+            // Cognito rejects pagination tokens that expired or belong to another listing
+            throw new InvalidCursorException("Cursor expired or invalid: " + e.getMessage(), e);
         } catch (Exception e) {
-            throw new CognitoException("Error getting users in group: " + e.getMessage(), e);
+            throw new CognitoException("Error listing users in group: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lists a page of the users of a group without blocking the caller
+     *
+     * @param groupName Group name
+     * @param size      Page size
+     * @param cursor    The nextCursor of the previous page, or null for the first page
+     * @return Page of usernames with the cursor of the next page
+     * @see #listGroupUsers(String, int, String)
+     */
+    public CompletableFuture<PagedResponse<String>> listGroupUsersAsync(String groupName, int size, String cursor) {
+        return cognitoAsyncExecutor.supply(() -> listGroupUsers(groupName, size, cursor));
+    }
+
+    /**
+     * Writes the members of a group as newline-delimited JSON, one object per line, reading one Cognito page at
+     * a time so memory use does not depend on the size of the group.
+     *
+     * @param groupName    Group name
+     * @param outputStream The stream to write to
+     * @return The number of exported members
+     * @throws IOException if writing to the stream fails
+     */
+    public long exportGroupUsers(String groupName, OutputStream outputStream) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            // Lines are separated by the newline written after each object, not by the default space
+            generator.setRootValueSeparator(null);
+            String nextToken = null;
+            do {
+                ListUsersInGroupResponse response = listUsersInGroup(groupName, MAX_LIST_USERS_IN_GROUP_LIMIT,
+                        nextToken);
+                for (UserType user : response.users()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("groupName", groupName);
+                    generator.writeStringField("username", user.username());
+                    generator.writeStringField("email", user.attributes().stream()
+                            .filter(attribute -> "email".equals(attribute.name()))
+                            .map(AttributeType::value)
+                            .findFirst()
+                            .orElse(null));
+                    generator.writeStringField("userStatus", user.userStatusAsString());
+                    if (user.enabled() != null) {
+                        generator.writeBooleanField("enabled", user.enabled());
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    count++;
+                }
+                // Hand every page to the client as soon as it is read
+                generator.flush();
+                nextToken = response.nextToken();
+            } while (nextToken != null);
         }
+        log.info("Exported {} members of group {} as NDJSON", count, groupName);
+        return count;
     }
 
     /**
@@ -278,15 +395,11 @@ public class CognitoGroupService {
                     .build();
 
             cognitoClient.adminAddUserToGroup(request);
+            membershipIndexService.addMembership(username, groupName);
+            userDirectoryService.addUserToGroup(username, groupName);
 
             // Get updated group with user list
-            GetGroupRequest getRequest = GetGroupRequest.builder()
-                    .userPoolId(userPoolId)
-                    .groupName(groupName)
-                    .build();
-
-            GetGroupResponse response = cognitoClient.getGroup(getRequest);
-            return mapToGroupResponseWithUsers(response.group());
+            return getGroupWithUsers(groupName);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -313,15 +426,11 @@ public class CognitoGroupService {
                     .build();
 
             cognitoClient.adminRemoveUserFromGroup(request);
+            membershipIndexService.removeMembership(username, groupName);
+            userDirectoryService.removeUserFromGroup(username, groupName);
 
             // Get updated group with user list
-            GetGroupRequest getRequest = GetGroupRequest.builder()
-                    .userPoolId(userPoolId)
-                    .groupName(groupName)
-                    .build();
-
-            GetGroupResponse response = cognitoClient.getGroup(getRequest);
-            return mapToGroupResponseWithUsers(response.group());
+            return getGroupWithUsers(groupName);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -329,8 +438,53 @@ public class CognitoGroupService {
         }
     }
 
+    /**
+     * Rebuilds the group membership index from Cognito, syncing the memberships of the user directory with it
+     *
+     * @return Size of the rebuilt index
+     */
+    public MembershipIndexResponse refreshMembershipIndex() {
+        try {
+            return userDirectoryService.refreshGroups();
+        } catch (Exception e) {
+            throw new CognitoException("Error refreshing the membership index: " + e.getMessage(), e);
+        }
+    }
+
     // Helper methods
 
+    /**
+     * Load the users of a group from Cognito, for the membership index.
+     */
+    private List<String> loadGroupUsers(String groupName) {
+        try {
+            List<String> usernames = new ArrayList<>();
+            String nextToken = null;
+            do {
+                ListUsersInGroupResponse response = listUsersInGroup(groupName, MAX_LIST_USERS_IN_GROUP_LIMIT,
+                        nextToken);
+                response.users().forEach(user -> usernames.add(user.username()));
+                nextToken = response.nextToken();
+            } while (nextToken != null);
+            return usernames;
+        } catch (software.amazon.awssdk.services.cognitoidentityprovider.model.ResourceNotFoundException e) {
+            throw new ResourceNotFoundException("Group not found: " + groupName);
+        } catch (Exception e) {
+            throw new CognitoException("Error getting users in group: " + e.getMessage(), e);
+        }
+    }
+
+    private ListUsersInGroupResponse listUsersInGroup(String groupName, int limit, String nextToken) {
+        ListUsersInGroupRequest request = ListUsersInGroupRequest.builder()
+                .userPoolId(userPoolId)
+                .groupName(groupName)
+                .limit(limit)
+                .nextToken(nextToken)
+                .build();
+
+        return cognitoClient.listUsersInGroup(request);
+    }
+
     private GroupResponse mapToGroupResponse(GroupType groupType) {
         return GroupResponse.builder()
                 .groupName(groupType.groupName())
@@ -342,31 +496,20 @@ public class CognitoGroupService {
     }
 
     /**
-     * Maps a Cognito group to the response DTO and includes the users list
+     * Read a group and its members concurrently.
+     * The members are listed on the Cognito pool while the group is read on the calling thread, so the caller only
+     * waits for one pool task and never holds a pool thread waiting for two.
      */
-    private GroupResponse mapToGroupResponseWithUsers(GroupType groupType) {
-        GroupResponse response = mapToGroupResponse(groupType);
-        response.setUsers(getGroupUsers(groupType.groupName()));
-        return response;
-    }
-
-    private void sortGroups(List<GroupResponse> groups, String sortBy, String sortDirection) {
-        Comparator<GroupResponse> comparator = switch (sortBy) {
-            case "groupName" ->
-                    Comparator.comparing(GroupResponse::getGroupName, Comparator.nullsLast(String::compareTo));
-            case "description" ->
-                    Comparator.comparing(GroupResponse::getDescription, Comparator.nullsLast(String::compareTo));
-            case "precedence" ->
-                    Comparator.comparing(GroupResponse::getPrecedence, Comparator.nullsLast(Integer::compareTo));
-            case "creationDate" ->
-                    Comparator.comparing(GroupResponse::getCreationDate, Comparator.nullsLast(Comparator.naturalOrder()));
-            default -> Comparator.comparing(GroupResponse::getGroupName, Comparator.nullsLast(String::compareTo));
-        };
-
-        if ("desc".equalsIgnoreCase(sortDirection)) {
-            comparator = comparator.reversed();
-        }
+    private GroupResponse getGroupWithUsers(String groupName) {
+        GetGroupRequest request = GetGroupRequest.builder()
+                .userPoolId(userPoolId)
+                .groupName(groupName)
+                .build();
 
-        groups.sort(comparator);
+        CompletableFuture<List<String>> users = cognitoAsyncExecutor.supply(() -> getGroupUsers(groupName));
+        GetGroupResponse response = cognitoClient.getGroup(request);
+        GroupResponse groupResponse = mapToGroupResponse(response.group());
+        groupResponse.setUsers(CognitoAsyncExecutor.await(users));
+        return groupResponse;
     }
 } 
\ No newline at end of file
@@ -1,13 +1,17 @@
 package app.quantun.eb2c.service;
 
 
+import app.quantun.eb2c.config.cognito.CognitoAsyncExecutor;
 import app.quantun.eb2c.exception.CognitoException;
+import app.quantun.eb2c.exception.InvalidCursorException;
 import app.quantun.eb2c.exception.InvalidSortFieldException;
 import app.quantun.eb2c.exception.ResourceNotFoundException;
 import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
 import app.quantun.eb2c.model.contract.contract.request.UserRequest;
 import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
 import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import app.quantun.eb2c.util.CursorCodec;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,6 +21,9 @@ import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,18 +34,40 @@ public class CognitoUserService {
     private static final Set<String> VALID_SORT_FIELDS = Set.of(
             "username", "email", "status", "enabled", "createDate"
     );
+    /**
+     * Maximum page size accepted by ListUsers.
+     */
+    private static final int MAX_LIST_USERS_LIMIT = 60;
+    private static final String USER_CURSOR_TYPE = "users";
     private final CognitoIdentityProviderClient cognitoClient;
+    private final GroupMembershipIndexService membershipIndexService;
+    private final UserCursorCacheService userCursorCacheService;
+    private final UserDirectoryService userDirectoryService;
+    private final MeterRegistry meterRegistry;
+    private final CognitoAsyncExecutor cognitoAsyncExecutor;
     @Value("${aws.cognito.userPoolId}")
     private String userPoolId;
 
 
     /**
-     * Creates a new user in AWS Cognito
+     * Creates a new user in AWS Cognito and adds it to the groups of the request
      *
      * @param userRequest User data to create
      * @return Information about the created user
      */
     public UserResponse createUser(UserRequest userRequest) {
+        return createUser(userRequest, true);
+    }
+
+    /**
+     * Creates a new user in AWS Cognito
+     *
+     * @param userRequest  User data to create
+     * @param assignGroups Whether to add the user to the groups of the request, callers passing false add them
+     *                     with {@link #addUserToGroup(String, String, boolean)}
+     * @return Information about the created user
+     */
+    public UserResponse createUser(UserRequest userRequest, boolean assignGroups) {
         try {
             AdminCreateUserRequest.Builder requestBuilder = AdminCreateUserRequest.builder()
                     .userPoolId(userPoolId)
@@ -68,7 +97,24 @@ public class CognitoUserService {
             AdminCreateUserResponse response = cognitoClient.adminCreateUser(requestBuilder.build());
             UserType userType = response.user();
 
-            return mapToUserResponse(userType);
+            // A new user has no groups but the ones assigned here, so there is nothing to read back
+            membershipIndexService.removeUser(userType.username());
+            List<String> groups = new ArrayList<>();
+            if (assignGroups && userRequest.getGroups() != null) {
+                for (String groupName : userRequest.getGroups()) {
+                    cognitoClient.adminAddUserToGroup(AdminAddUserToGroupRequest.builder()
+                            .userPoolId(userPoolId)
+                            .username(userType.username())
+                            .groupName(groupName)
+                            .build());
+                    membershipIndexService.addMembership(userType.username(), groupName);
+                    groups.add(groupName);
+                }
+            }
+
+            UserResponse created = mapToUserResponse(userType, groups);
+            userDirectoryService.saveUser(created);
+            return created;
         } catch (UsernameExistsException e) {
             throw new CognitoException("User already exists: " + userRequest.getUsername(), e);
         } catch (InvalidParameterException e) {
@@ -85,33 +131,43 @@ public class CognitoUserService {
      * @return User information
      */
     public UserResponse getUserByUsername(String username) {
-        try {
-            AdminGetUserRequest request = AdminGetUserRequest.builder()
-                    .userPoolId(userPoolId)
-                    .username(username)
-                    .build();
+        return CognitoAsyncExecutor.await(getUserByUsernameAsync(username));
+    }
 
-            AdminGetUserResponse response = cognitoClient.adminGetUser(request);
-
-            return UserResponse.builder()
-                    .username(response.username())
-                    .userStatus(response.userStatusAsString())
-                    .enabled(response.enabled())
-                    .userCreateDate(response.userCreateDate())
-                    .userLastModifiedDate(response.userLastModifiedDate())
-                    .attributes(response.userAttributes().stream()
-                            .collect(Collectors.toMap(AttributeType::name, AttributeType::value)))
-                    .email(getAttributeValue(response.userAttributes(), "email"))
-                    .phoneNumber(getAttributeValue(response.userAttributes(), "phone_number"))
-                    .emailVerified(Boolean.parseBoolean(getAttributeValue(response.userAttributes(), "email_verified")))
-                    .phoneNumberVerified(Boolean.parseBoolean(getAttributeValue(response.userAttributes(), "phone_number_verified")))
-                    .groups(getUserGroups(username))
-                    .build();
-        } catch (UserNotFoundException e) {
-            throw new ResourceNotFoundException("User not found: " + username);
-        } catch (Exception e) {
-            throw new CognitoException("Error getting user: " + e.getMessage(), e);
-        }
+    /**
+     * Gets a user by username without blocking the caller. The user and its groups are read concurrently.
+     *
+     * @param username Username
+     * @return User information, or a future failed with {@link ResourceNotFoundException} or
+     * {@link CognitoException}
+     */
+    public CompletableFuture<UserResponse> getUserByUsernameAsync(String username) {
+        AdminGetUserRequest request = AdminGetUserRequest.builder()
+                .userPoolId(userPoolId)
+                .username(username)
+                .build();
+
+        CompletableFuture<AdminGetUserResponse> user =
+                cognitoAsyncExecutor.supply(() -> cognitoClient.adminGetUser(request));
+        CompletableFuture<List<String>> groups = getUserGroupsAsync(username);
+
+        // Both calls complete before combining, and a failure of the user read takes precedence
+        return user.thenCombine(groups, (response, userGroups) -> UserResponse.builder()
+                        .username(response.username())
+                        .userStatus(response.userStatusAsString())
+                        .enabled(response.enabled())
+                        .userCreateDate(response.userCreateDate())
+                        .userLastModifiedDate(response.userLastModifiedDate())
+                        .attributes(response.userAttributes().stream()
+                                .collect(Collectors.toMap(AttributeType::name, AttributeType::value)))
+                        .email(getAttributeValue(response.userAttributes(), "email"))
+                        .phoneNumber(getAttributeValue(response.userAttributes(), "phone_number"))
+                        .emailVerified(Boolean.parseBoolean(getAttributeValue(response.userAttributes(), "email_verified")))
+                        .phoneNumberVerified(Boolean.parseBoolean(getAttributeValue(response.userAttributes(), "phone_number_verified")))
+                        .groups(userGroups)
+                        .build())
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(
+                        mapGetUserError(username, CognitoAsyncExecutor.unwrap(error))));
     }
 
     /**
@@ -121,6 +177,23 @@ public class CognitoUserService {
      * @return Paginated list of users
      */
     public PagedResponse<UserResponse> listUsers(PaginationRequest pagination) {
+        return listUsers(pagination, null);
+    }
+
+    /**
+     * Lists users page by page over the whole user pool.
+     * <p>
+     * Once the local {@link UserDirectoryService directory} is synced, pages located by number are served from it,
+     * sorted over the whole pool and with an exact total. Otherwise, and whenever a cursor is given, the pool is
+     * walked following Cognito pagination tokens, resuming from the nearest page start remembered by
+     * {@link UserCursorCacheService}. Cognito cannot sort, so the sort then applies within the page, and the total
+     * is only known once the last page has been reached and is -1 until then.
+     *
+     * @param pagination Pagination parameters
+     * @param cursor     The nextCursor of the previous page, or null to locate the page by number
+     * @return Paginated list of users with the cursor of the next page
+     */
+    public PagedResponse<UserResponse> listUsers(PaginationRequest pagination, String cursor) {
         try {
             // Validate sort field
             if (pagination.getSortBy() != null && !VALID_SORT_FIELDS.contains(pagination.getSortBy())) {
@@ -128,75 +201,82 @@ public class CognitoUserService {
                         ". Valid values: " + String.join(", ", VALID_SORT_FIELDS));
             }
 
-            // Build the request to Cognito
-            ListUsersRequest.Builder requestBuilder = ListUsersRequest.builder()
-                    .userPoolId(userPoolId)
-                    .limit(Math.min(60, pagination.getSize() * 3)); // Request more to allow filtering
-
-            // Add filter if it exists
-            if (pagination.getFilter() != null && !pagination.getFilter().isEmpty()) {
-                requestBuilder.filter("username ^= \"" + pagination.getFilter() + "\" or email ^= \"" +
-                        pagination.getFilter() + "\"");
+            // Serve page numbers from the local directory once it is synced; cursors always walk Cognito
+            boolean byCursor = cursor != null && !cursor.isBlank();
+            if (!byCursor && userDirectoryService.isReady()) {
+                return userDirectoryService.listUsers(pagination);
             }
 
-            ListUsersResponse response = cognitoClient.listUsers(requestBuilder.build());
+            String filter = pagination.getFilter() == null || pagination.getFilter().isEmpty()
+                    ? null : pagination.getFilter();
+            int size = pagination.getSize();
+            UserCursorCacheService.PageStart start = byCursor
+                    ? decodeCursor(cursor, filter)
+                    : userCursorCacheService.findNearest(filter, size, Math.max(0, pagination.getPage()));
+            int page = byCursor ? start.page() : Math.max(0, pagination.getPage());
+
+            // Walk the pool from the nearest known page start, skipping the pages in between
+            UserScan scan = scanUsers(filter, start.position(), (page - start.page()) * size, size);
+            if (scan.next() != null) {
+                userCursorCacheService.put(filter, size, page + 1, scan.next());
+            }
 
-            // Map and filter results
-            List<UserResponse> users = response.users().stream()
-                    .map(this::mapToUserResponse)
+            // Resolve the groups of the whole page at once, concurrently and from the cache where possible
+            AtomicInteger cognitoCalls = new AtomicInteger(scan.calls());
+            Map<String, List<String>> groups = membershipIndexService.getAllUserGroups(
+                    scan.users().stream().map(UserType::username).toList(),
+                    username -> {
+                        cognitoCalls.incrementAndGet();
+                        return loadUserGroups(username);
+                    });
+            meterRegistry.summary("cognito.calls.per.request", "operation", "listUsers").record(cognitoCalls.get());
+
+            List<UserResponse> users = scan.users().stream()
+                    .map(userType -> mapToUserResponse(userType, groups.get(userType.username())))
                     .collect(Collectors.toList());
 
-            // Sort results according to the specified criteria
+            // Sort the page according to the specified criteria
             if (pagination.getSortBy() != null) {
                 sortUsers(users, pagination.getSortBy(), pagination.getSortDirection());
             }
 
-            // Apply pagination
-            int totalElements = users.size();
-            int totalPages = (int) Math.ceil((double) totalElements / pagination.getSize());
-
-            int fromIndex = pagination.getPage() * pagination.getSize();
-            if (fromIndex >= totalElements) {
-                return new PagedResponse<>(
-                        Collections.emptyList(),
-                        pagination.getPage(),
-                        pagination.getSize(),
-                        totalElements,
-                        totalPages,
-                        true,
-                        pagination.getSortBy(),
-                        pagination.getSortDirection(),
-                        pagination.getFilter()
-                );
-            }
-
-            int toIndex = Math.min(fromIndex + pagination.getSize(), totalElements);
-            List<UserResponse> pagedContent = users.subList(fromIndex, toIndex);
+            boolean last = scan.next() == null;
+            long totalElements = last ? (long) page * size + users.size() : -1;
+            int totalPages = last ? (int) Math.ceil((double) totalElements / size) : -1;
 
             return new PagedResponse<>(
-                    pagedContent,
-                    pagination.getPage(),
-                    pagination.getSize(),
+                    users,
+                    page,
+                    size,
                     totalElements,
                     totalPages,
-                    pagination.getPage() >= totalPages - 1,
+                    last,
                     pagination.getSortBy(),
                     pagination.getSortDirection(),
-                    pagination.getFilter()
+                    pagination.getFilter(),
+                    last ? null : encodeCursor(filter, page + 1, scan.next())
             );
-        } catch (InvalidSortFieldException e) {
+        } catch (InvalidSortFieldException | InvalidCursorException e) {
             throw e;
         } catch (Exception e) {
             throw new CognitoException("Error listing users: " + e.getMessage(), e);
         }
     }
 
-
     public UserResponse updateUser(String username, UserRequest userRequest) {
-        try {
-            // Verify that the user exists
-            getUserByUsername(username);
+        return updateUser(username, userRequest, true);
+    }
 
+    /**
+     * Updates the attributes of a user
+     *
+     * @param username             Username of the user to update
+     * @param userRequest          Attributes to update, null fields are left unchanged
+     * @param returnRepresentation Whether to return the updated user
+     * @return Updated user information, or null when no representation was requested
+     */
+    public UserResponse updateUser(String username, UserRequest userRequest, boolean returnRepresentation) {
+        try {
             List<AttributeType> userAttributes = new ArrayList<>();
 
             if (userRequest.getEmail() != null) {
@@ -221,17 +301,23 @@ public class CognitoUserService {
                 );
             }
 
-            if (!userAttributes.isEmpty()) {
-                AdminUpdateUserAttributesRequest attributesRequest = AdminUpdateUserAttributesRequest.builder()
-                        .userPoolId(userPoolId)
-                        .username(username)
-                        .userAttributes(userAttributes)
-                        .build();
-
-                cognitoClient.adminUpdateUserAttributes(attributesRequest);
+            if (userAttributes.isEmpty()) {
+                // Nothing to write, but the user must still exist
+                UserResponse user = getUserByUsername(username);
+                return returnRepresentation ? user : null;
             }
 
-            return getUserByUsername(username);
+            AdminUpdateUserAttributesRequest attributesRequest = AdminUpdateUserAttributesRequest.builder()
+                    .userPoolId(userPoolId)
+                    .username(username)
+                    .userAttributes(userAttributes)
+                    .build();
+
+            cognitoClient.adminUpdateUserAttributes(attributesRequest);
+
+            return afterWrite(username, returnRepresentation, user -> applyAttributes(user, userAttributes));
+        } catch (UserNotFoundException e) {
+            throw new ResourceNotFoundException("User not found: " + username);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -246,17 +332,16 @@ public class CognitoUserService {
      */
     public void deleteUser(String username) {
         try {
-            // Verify that the user exists
-            getUserByUsername(username);
-
             AdminDeleteUserRequest request = AdminDeleteUserRequest.builder()
                     .userPoolId(userPoolId)
                     .username(username)
                     .build();
 
             cognitoClient.adminDeleteUser(request);
-        } catch (ResourceNotFoundException e) {
-            throw e;
+            membershipIndexService.removeUser(username);
+            userDirectoryService.deleteUser(username);
+        } catch (UserNotFoundException e) {
+            throw new ResourceNotFoundException("User not found: " + username);
         } catch (Exception e) {
             throw new CognitoException("Error deleting user: " + e.getMessage(), e);
         }
@@ -269,10 +354,18 @@ public class CognitoUserService {
      * @return Enabled user information
      */
     public UserResponse enableUser(String username) {
-        try {
-            // Verify that the user exists
-            getUserByUsername(username);
+        return enableUser(username, true);
+    }
 
+    /**
+     * Enables a user
+     *
+     * @param username             Username of the user to enable
+     * @param returnRepresentation Whether to return the enabled user
+     * @return Enabled user information, or null when no representation was requested
+     */
+    public UserResponse enableUser(String username, boolean returnRepresentation) {
+        try {
             AdminEnableUserRequest request = AdminEnableUserRequest.builder()
                     .userPoolId(userPoolId)
                     .username(username)
@@ -280,7 +373,9 @@ public class CognitoUserService {
 
             cognitoClient.adminEnableUser(request);
 
-            return getUserByUsername(username);
+            return afterWrite(username, returnRepresentation, user -> user.setEnabled(true));
+        } catch (UserNotFoundException e) {
+            throw new ResourceNotFoundException("User not found: " + username);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -295,10 +390,18 @@ public class CognitoUserService {
      * @return Disabled user information
      */
     public UserResponse disableUser(String username) {
-        try {
-            // Verify that the user exists
-            getUserByUsername(username);
+        return disableUser(username, true);
+    }
 
+    /**
+     * Disables a user
+     *
+     * @param username             Username of the user to disable
+     * @param returnRepresentation Whether to return the disabled user
+     * @return Disabled user information, or null when no representation was requested
+     */
+    public UserResponse disableUser(String username, boolean returnRepresentation) {
+        try {
             AdminDisableUserRequest request = AdminDisableUserRequest.builder()
                     .userPoolId(userPoolId)
                     .username(username)
@@ -306,7 +409,9 @@ public class CognitoUserService {
 
             cognitoClient.adminDisableUser(request);
 
-            return getUserByUsername(username);
+            return afterWrite(username, returnRepresentation, user -> user.setEnabled(false));
+        } catch (UserNotFoundException e) {
+            throw new ResourceNotFoundException("User not found: " + username);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -321,10 +426,18 @@ public class CognitoUserService {
      * @return User information
      */
     public UserResponse resetPassword(String username) {
-        try {
-            // Verify that the user exists
-            getUserByUsername(username);
+        return resetPassword(username, true);
+    }
 
+    /**
+     * Resets a user's password
+     *
+     * @param username             Username of the user
+     * @param returnRepresentation Whether to return the user
+     * @return User information, or null when no representation was requested
+     */
+    public UserResponse resetPassword(String username, boolean returnRepresentation) {
+        try {
             AdminResetUserPasswordRequest request = AdminResetUserPasswordRequest.builder()
                     .userPoolId(userPoolId)
                     .username(username)
@@ -332,7 +445,10 @@ public class CognitoUserService {
 
             cognitoClient.adminResetUserPassword(request);
 
-            return getUserByUsername(username);
+            return afterWrite(username, returnRepresentation,
+                    user -> user.setUserStatus(UserStatusType.RESET_REQUIRED.toString()));
+        } catch (UserNotFoundException e) {
+            throw new ResourceNotFoundException("User not found: " + username);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -348,10 +464,19 @@ public class CognitoUserService {
      * @return Updated user information
      */
     public UserResponse addUserToGroup(String username, String groupName) {
-        try {
-            // Verify that the user exists
-            getUserByUsername(username);
+        return addUserToGroup(username, groupName, true);
+    }
 
+    /**
+     * Adds a user to a group
+     *
+     * @param username             Username
+     * @param groupName            Group name
+     * @param returnRepresentation Whether to return the updated user
+     * @return Updated user information, or null when no representation was requested
+     */
+    public UserResponse addUserToGroup(String username, String groupName, boolean returnRepresentation) {
+        try {
             AdminAddUserToGroupRequest request = AdminAddUserToGroupRequest.builder()
                     .userPoolId(userPoolId)
                     .username(username)
@@ -359,8 +484,16 @@ public class CognitoUserService {
                     .build();
 
             cognitoClient.adminAddUserToGroup(request);
-
-            return getUserByUsername(username);
+            membershipIndexService.addMembership(username, groupName);
+
+            return afterWrite(username, returnRepresentation, user -> {
+                if (!user.getGroups().contains(groupName)) {
+                    user.getGroups().add(groupName);
+                    Collections.sort(user.getGroups());
+                }
+            });
+        } catch (UserNotFoundException e) {
+            throw new ResourceNotFoundException("User not found: " + username);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -376,10 +509,19 @@ public class CognitoUserService {
      * @return Updated user information
      */
     public UserResponse removeUserFromGroup(String username, String groupName) {
-        try {
-            // Verify that the user exists
-            getUserByUsername(username);
+        return removeUserFromGroup(username, groupName, true);
+    }
 
+    /**
+     * Removes a user from a group
+     *
+     * @param username             Username
+     * @param groupName            Group name
+     * @param returnRepresentation Whether to return the updated user
+     * @return Updated user information, or null when no representation was requested
+     */
+    public UserResponse removeUserFromGroup(String username, String groupName, boolean returnRepresentation) {
+        try {
             AdminRemoveUserFromGroupRequest request = AdminRemoveUserFromGroupRequest.builder()
                     .userPoolId(userPoolId)
                     .username(username)
@@ -387,8 +529,11 @@ public class CognitoUserService {
                     .build();
 
             cognitoClient.adminRemoveUserFromGroup(request);
+            membershipIndexService.removeMembership(username, groupName);
 
-            return getUserByUsername(username);
+            return afterWrite(username, returnRepresentation, user -> user.getGroups().remove(groupName));
+        } catch (UserNotFoundException e) {
+            throw new ResourceNotFoundException("User not found: " + username);
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -403,6 +548,25 @@ public class CognitoUserService {
      * @return List of groups the user belongs to
      */
     public List<String> getUserGroups(String username) {
+        return membershipIndexService.getUserGroups(username, this::loadUserGroups);
+    }
+
+    /**
+     * Gets the groups of a user without blocking the caller
+     *
+     * @param username Username
+     * @return List of groups the user belongs to
+     */
+    public CompletableFuture<List<String>> getUserGroupsAsync(String username) {
+        return cognitoAsyncExecutor.supply(() -> getUserGroups(username));
+    }
+
+    // Helper methods
+
+    /**
+     * Load the groups of a user from Cognito, for the membership index.
+     */
+    private List<String> loadUserGroups(String username) {
         try {
             AdminListGroupsForUserRequest request = AdminListGroupsForUserRequest.builder()
                     .userPoolId(userPoolId)
@@ -421,9 +585,132 @@ public class CognitoUserService {
         }
     }
 
-    // Helper methods
+    private RuntimeException mapGetUserError(String username, RuntimeException error) {
+        if (error instanceof UserNotFoundException) {
+            return new ResourceNotFoundException("User not found: " + username);
+        }
+        if (error instanceof ResourceNotFoundException || error instanceof CognitoException) {
+            return error;
+        }
+        return new CognitoException("Error getting user: " + error.getMessage(), error);
+    }
+
+    /**
+     * Read a user back from Cognito after a change and write it through to the local directory.
+     */
+    private UserResponse refreshUser(String username) {
+        UserResponse user = getUserByUsername(username);
+        userDirectoryService.saveUser(user);
+        return user;
+    }
+
+    /**
+     * Build the result of a write that Cognito accepted. When the user is in the local directory, its copy is
+     * patched with the change instead of being read back from Cognito, so the write costs a single Cognito call.
+     * The patched copy is stored without a modification date, which makes the next directory sync replace it
+     * with the authoritative one.
+     *
+     * @return the updated user, or null when no representation was requested
+     */
+    private UserResponse afterWrite(String username, boolean returnRepresentation, Consumer<UserResponse> patch) {
+        Optional<UserResponse> local = userDirectoryService.findUser(username);
+        if (local.isEmpty()) {
+            return returnRepresentation ? refreshUser(username) : null;
+        }
+        UserResponse user = local.get();
+        patch.accept(user);
+        user.setUserLastModifiedDate(null);
+        userDirectoryService.saveUser(user);
+        return returnRepresentation ? user : null;
+    }
+
+    /**
+     * Apply attributes written to Cognito to a user. Like Cognito, a changed email or phone number becomes
+     * unverified unless its verification flag was written along with it.
+     */
+    private void applyAttributes(UserResponse user, List<AttributeType> userAttributes) {
+        Map<String, String> attributes = new HashMap<>(Optional.ofNullable(user.getAttributes()).orElse(Map.of()));
+        Map<String, String> written = userAttributes.stream()
+                .collect(Collectors.toMap(AttributeType::name, AttributeType::value, (first, second) -> second));
+        if (written.containsKey("email") && !written.get("email").equals(attributes.get("email"))) {
+            attributes.put("email_verified", "false");
+        }
+        if (written.containsKey("phone_number") && !written.get("phone_number").equals(attributes.get("phone_number"))) {
+            attributes.put("phone_number_verified", "false");
+        }
+        attributes.putAll(written);
+
+        user.setAttributes(attributes);
+        user.setEmail(attributes.get("email"));
+        user.setPhoneNumber(attributes.get("phone_number"));
+        user.setEmailVerified(Boolean.parseBoolean(attributes.get("email_verified")));
+        user.setPhoneNumberVerified(Boolean.parseBoolean(attributes.get("phone_number_verified")));
+    }
+
+    /**
+     * Read users from a position in the pool, skipping some first, with as few ListUsers calls as possible.
+     *
+     * @return the users read, the position of the user following them or null at the end of the pool, and the
+     * number of Cognito calls made
+     */
+    private UserScan scanUsers(String filter, UserCursorCacheService.Position start, int skip, int take) {
+        List<UserType> users = new ArrayList<>(take);
+        String token = start.paginationToken();
+        int offset = start.offset();
+        int remainingSkip = skip;
+        int calls = 0;
+        while (true) {
+            ListUsersRequest.Builder requestBuilder = ListUsersRequest.builder()
+                    .userPoolId(userPoolId)
+                    .limit(MAX_LIST_USERS_LIMIT)
+                    .paginationToken(token);
+            if (filter != null) {
+                requestBuilder.filter("username ^= \"" + filter + "\" or email ^= \"" + filter + "\"");
+            }
+            ListUsersResponse response = cognitoClient.listUsers(requestBuilder.build());
+            calls++;
+
+            List<UserType> batch = response.users();
+            int from = Math.min(offset, batch.size());
+            int index = Math.min(from + remainingSkip, batch.size());
+            remainingSkip -= index - from;
+            int end = Math.min(batch.size(), index + take - users.size());
+            users.addAll(batch.subList(index, end));
+
+            if (remainingSkip == 0 && users.size() == take) {
+                UserCursorCacheService.Position next = end < batch.size()
+                        ? new UserCursorCacheService.Position(token, end)
+                        : response.paginationToken() == null
+                        ? null : new UserCursorCacheService.Position(response.paginationToken(), 0);
+                return new UserScan(users, next, calls);
+            }
+            if (response.paginationToken() == null) {
+                return new UserScan(users, null, calls);
+            }
+            token = response.paginationToken();
+            offset = 0;
+        }
+    }
+
+    private String encodeCursor(String filter, int page, UserCursorCacheService.Position position) {
+        return CursorCodec.encode(USER_CURSOR_TYPE, filter, String.valueOf(page), position.paginationToken(),
+                String.valueOf(position.offset()));
+    }
+
+    private UserCursorCacheService.PageStart decodeCursor(String cursor, String filter) {
+        List<String> parts = CursorCodec.decode(cursor);
+        if (parts.size() != 5 || !USER_CURSOR_TYPE.equals(parts.get(0)) || !Objects.equals(filter, parts.get(1))) {
+            throw new InvalidCursorException("Cursor does not match filter " + filter);
+        }
+        try {
+            return new UserCursorCacheService.PageStart(Integer.parseInt(parts.get(2)),
+                    new UserCursorCacheService.Position(parts.get(3), Integer.parseInt(parts.get(4))));
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new InvalidCursorException("Malformed cursor: " + cursor, e);
+        }
+    }
 
-    private UserResponse mapToUserResponse(UserType userType) {
+    private UserResponse mapToUserResponse(UserType userType, List<String> groups) {
         return UserResponse.builder()
                 .username(userType.username())
                 .userId(userType.username())
@@ -437,7 +724,7 @@ public class CognitoUserService {
                 .phoneNumber(getAttributeValue(userType.attributes(), "phone_number"))
                 .emailVerified(Boolean.parseBoolean(getAttributeValue(userType.attributes(), "email_verified")))
                 .phoneNumberVerified(Boolean.parseBoolean(getAttributeValue(userType.attributes(), "phone_number_verified")))
-                .groups(getUserGroups(userType.username()))
+                .groups(groups)
                 .build();
     }
 
@@ -466,4 +753,7 @@ public class CognitoUserService {
 
         users.sort(comparator);
     }
+
+    private record UserScan(List<UserType> users, UserCursorCacheService.Position next, int calls) {
+    }
 } 
\ No newline at end of file
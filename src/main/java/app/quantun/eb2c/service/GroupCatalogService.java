@@ -0,0 +1,331 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.message.RedisPublisher;
+import app.quantun.eb2c.message.event.GroupCatalogChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.GroupType;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.ListGroupsRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.ListGroupsResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Service class holding the whole group catalog of the Cognito user pool in memory, so group listings are
+ * filtered, sorted and paged without calling Cognito.
+ * <p>
+ * The catalog is loaded on first use by following ListGroups pagination tokens, and reloaded on a schedule. It is
+ * an immutable snapshot, replaced as a whole, holding the groups pre-sorted on every sortable field in both
+ * directions and a trigram index over the lowercased name and description for substring filters. Groups created,
+ * updated or deleted through this application are applied to the snapshot at once, and a change event on the
+ * Redis event channel makes the other replicas reload theirs on their next read.
+ * <p>
+ * Metrics are published as {@code cognito.group-catalog.size} and {@code cognito.group-catalog.refresh}.
+ */
+@Service
+@Slf4j
+public class GroupCatalogService {
+
+    /**
+     * Maximum page size accepted by ListGroups.
+     */
+    private static final int MAX_LIST_GROUPS_LIMIT = 60;
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final Map<String, Comparator<GroupType>> COMPARATORS = Map.of(
+            "groupName", Comparator.comparing(GroupType::groupName, Comparator.nullsLast(String::compareTo)),
+            "description", Comparator.comparing(GroupType::description, Comparator.nullsLast(String::compareTo)),
+            "precedence", Comparator.comparing(GroupType::precedence, Comparator.nullsLast(Integer::compareTo)),
+            "creationDate", Comparator.comparing(GroupType::creationDate,
+                    Comparator.nullsLast(Comparator.naturalOrder()))
+    );
+
+    private final CognitoIdentityProviderClient cognitoClient;
+
+    private final RedisPublisher redisPublisher;
+
+    private final String userPoolId;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Timer refreshTimer;
+
+    private final Object lock = new Object();
+
+    private volatile Catalog catalog;
+
+    /**
+     * Incremented on every local change, so a reload started before a change does not overwrite it.
+     */
+    private long version;
+
+    public GroupCatalogService(CognitoIdentityProviderClient cognitoClient,
+                               RedisPublisher redisPublisher,
+                               MeterRegistry meterRegistry,
+                               @Value("${aws.cognito.userPoolId}") String userPoolId) {
+        this.cognitoClient = cognitoClient;
+        this.redisPublisher = redisPublisher;
+        this.userPoolId = userPoolId;
+        this.refreshTimer = Timer.builder("cognito.group-catalog.refresh").register(meterRegistry);
+        Gauge.builder("cognito.group-catalog.size", this, service -> {
+            Catalog current = service.catalog;
+            return current == null ? 0 : current.groups().size();
+        }).register(meterRegistry);
+    }
+
+    /**
+     * Find the groups whose name or description contains a text, in the given order.
+     *
+     * @param filter     case-insensitive text to look for, or null for every group
+     * @param sortBy     the field to sort by (groupName, description, precedence, creationDate), or null for
+     *                   groupName
+     * @param descending whether to sort in descending order
+     * @return the matching groups, an unmodifiable list
+     */
+    public List<GroupType> find(String filter, String sortBy, boolean descending) {
+        Catalog current = current();
+        String field = sortBy == null || !COMPARATORS.containsKey(sortBy) ? "groupName" : sortBy;
+        List<GroupType> sorted = current.sorted().get(direction(field, descending));
+        if (filter == null || filter.isEmpty()) {
+            return sorted;
+        }
+
+        String needle = filter.toLowerCase(Locale.ROOT);
+        boolean[] matches = new boolean[current.groups().size()];
+        int[] candidates = current.candidates(needle);
+        for (int position : candidates) {
+            matches[position] = current.searchText()[position].contains(needle);
+        }
+        Map<String, Integer> positions = current.positions();
+        return sorted.stream()
+                .filter(group -> matches[positions.get(group.groupName())])
+                .toList();
+    }
+
+    /**
+     * Record a group created or updated in Cognito.
+     *
+     * @param group the group as returned by Cognito
+     */
+    public void put(GroupType group) {
+        change(groups -> {
+            groups.put(group.groupName(), group);
+            return groups;
+        });
+    }
+
+    /**
+     * Record a group deleted from Cognito.
+     *
+     * @param groupName the group name
+     */
+    public void remove(String groupName) {
+        change(groups -> {
+            groups.remove(groupName);
+            return groups;
+        });
+    }
+
+    /**
+     * Reload the catalog from Cognito on a schedule, once it has been loaded.
+     */
+    @Scheduled(initialDelayString = "${app.cognito.groups.catalog.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.cognito.groups.catalog.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        if (catalog == null) {
+            // Not used yet on this replica, or already marked for reload
+            return;
+        }
+        try {
+            refresh();
+        } catch (SdkException e) {
+            log.warn("Group catalog refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload the catalog from Cognito.
+     */
+    public void refresh() {
+        long startVersion;
+        synchronized (lock) {
+            startVersion = version;
+        }
+        List<GroupType> groups = refreshTimer.record(this::listAllGroups);
+        synchronized (lock) {
+            if (version == startVersion) {
+                catalog = Catalog.of(groups);
+                log.debug("Group catalog loaded: {} groups", groups.size());
+            } else {
+                // Changed while loading; the next read loads again rather than drop the change
+                catalog = null;
+            }
+        }
+    }
+
+    /**
+     * Drop the catalog after a change made by another replica, so the next read reloads it.
+     *
+     * @param event the change broadcast on the Redis event channel
+     */
+    public void onCatalogChanged(GroupCatalogChangedEvent event) {
+        if (!instanceId.equals(event.originId())) {
+            synchronized (lock) {
+                version++;
+                catalog = null;
+            }
+        }
+    }
+
+    private Catalog current() {
+        Catalog current = catalog;
+        if (current != null) {
+            return current;
+        }
+        synchronized (lock) {
+            if (catalog == null) {
+                // Loaded under the lock so concurrent first reads share a single enumeration
+                catalog = Catalog.of(refreshTimer.record(this::listAllGroups));
+            }
+            return catalog;
+        }
+    }
+
+    private void change(Function<Map<String, GroupType>, Map<String, GroupType>> update) {
+        synchronized (lock) {
+            version++;
+            if (catalog != null) {
+                Map<String, GroupType> groups = new LinkedHashMap<>();
+                catalog.groups().forEach(group -> groups.put(group.groupName(), group));
+                catalog = Catalog.of(update.apply(groups).values());
+            }
+        }
+        redisPublisher.publish(new GroupCatalogChangedEvent(instanceId));
+    }
+
+    private List<GroupType> listAllGroups() {
+        List<GroupType> groups = new ArrayList<>();
+        String nextToken = null;
+        do {
+            ListGroupsResponse response = cognitoClient.listGroups(ListGroupsRequest.builder()
+                    .userPoolId(userPoolId)
+                    .limit(MAX_LIST_GROUPS_LIMIT)
+                    .nextToken(nextToken)
+                    .build());
+            groups.addAll(response.groups());
+            nextToken = response.nextToken();
+        } while (nextToken != null);
+        return groups;
+    }
+
+    private static String direction(String field, boolean descending) {
+        return descending ? field + ":desc" : field;
+    }
+
+    /**
+     * Immutable snapshot of the catalog.
+     *
+     * @param groups     the groups, in groupName order
+     * @param positions  the position of each group name in {@code groups}
+     * @param searchText the lowercased name and description of each group, by position
+     * @param grams      the sorted positions of the groups whose search text contains each trigram
+     * @param sorted     the groups sorted on each field and direction
+     */
+    private record Catalog(List<GroupType> groups, Map<String, Integer> positions, String[] searchText,
+                           Map<String, int[]> grams, Map<String, List<GroupType>> sorted) {
+
+        static Catalog of(Collection<GroupType> source) {
+            List<GroupType> groups = source.stream().sorted(COMPARATORS.get("groupName")).toList();
+
+            Map<String, Integer> positions = new HashMap<>();
+            String[] searchText = new String[groups.size()];
+            Map<String, List<Integer>> postings = new HashMap<>();
+            for (int position = 0; position < groups.size(); position++) {
+                GroupType group = groups.get(position);
+                positions.put(group.groupName(), position);
+                // A separator no filter can contain keeps matches from spanning the name and the description
+                searchText[position] = (group.groupName() + '\u0000'
+                        + (group.description() == null ? "" : group.description())).toLowerCase(Locale.ROOT);
+                String text = searchText[position];
+                for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+                    List<Integer> posting = postings.computeIfAbsent(text.substring(start, start + GRAM_LENGTH),
+                            gram -> new ArrayList<>());
+                    if (posting.isEmpty() || posting.get(posting.size() - 1) != position) {
+                        posting.add(position);
+                    }
+                }
+            }
+            Map<String, int[]> grams = new HashMap<>();
+            postings.forEach((gram, posting) ->
+                    grams.put(gram, posting.stream().mapToInt(Integer::intValue).toArray()));
+
+            Map<String, List<GroupType>> sorted = new HashMap<>();
+            COMPARATORS.forEach((field, comparator) -> {
+                // Ties fall back to the name order of the source list, since the sort is stable
+                sorted.put(direction(field, false), groups.stream().sorted(comparator).toList());
+                sorted.put(direction(field, true), groups.stream().sorted(comparator.reversed()).toList());
+            });
+
+            return new Catalog(groups, Map.copyOf(positions), searchText, Map.copyOf(grams), Map.copyOf(sorted));
+        }
+
+        /**
+         * @return the positions of the groups that may contain the text, to be checked one by one
+         */
+        int[] candidates(String needle) {
+            if (needle.length() < GRAM_LENGTH) {
+                int[] all = new int[groups.size()];
+                Arrays.setAll(all, position -> position);
+                return all;
+            }
+            int[] result = null;
+            for (int start = 0; start + GRAM_LENGTH <= needle.length(); start++) {
+                int[] posting = grams.get(needle.substring(start, start + GRAM_LENGTH));
+                if (posting == null) {
+                    return new int[0];
+                }
+                result = result == null ? posting : intersect(result, posting);
+                if (result.length == 0) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        private static int[] intersect(int[] left, int[] right) {
+            int[] result = new int[Math.min(left.length, right.length)];
+            int size = 0;
+            for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+                if (left[i] == right[j]) {
+                    result[size++] = left[i];
+                    i++;
+                    j++;
+                } else if (left[i] < right[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+    }
+}
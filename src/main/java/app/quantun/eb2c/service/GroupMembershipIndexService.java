@@ -0,0 +1,494 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.message.RedisPublisher;
+import app.quantun.eb2c.message.event.GroupMembersChangedEvent;
+import app.quantun.eb2c.message.event.MembershipsResetEvent;
+import app.quantun.eb2c.message.event.UserGroupsChangedEvent;
+import app.quantun.eb2c.model.contract.contract.response.MembershipIndexResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Service class indexing the group memberships of the Cognito user pool in both directions: the groups of each
+ * user and the users of each group.
+ * <p>
+ * The index is held in Redis, shared by every replica, as one set per user and one set per group. Each set holds
+ * an empty-string marker besides its members, telling a loaded set with no members from a missing one. Sets are
+ * filled lazily from Cognito on a miss and all at once by {@link #rebuild}, fed by the group sync of
+ * {@link UserDirectoryService}, and expire after {@code app.cognito.membership.ttl}, which bounds how long a change
+ * made outside this application goes unseen.
+ * <p>
+ * In front of Redis, the groups of a user are kept in memory by {@link UserGroupCacheService} and the users of a
+ * group by a Caffeine cache of this service. Membership changes made through this application update the Redis
+ * sets in place, only when the set is loaded, and broadcast an eviction on the Redis event channel so every
+ * replica drops its in-memory copies. They also bump a per-set change counter, and a set loaded on a miss is only
+ * written if its counter did not move during the load, so a load that read Cognito before a change cannot store
+ * the memberships the change replaced.
+ * <p>
+ * Metrics are published as {@code cache.gets}, {@code cache.puts} and {@code cache.errors}, tagged with
+ * {@code cache=cognito.membership}, and as the {@code cache.*} meters of {@code cache=cognito.group-users}.
+ */
+@Service
+@Slf4j
+public class GroupMembershipIndexService {
+
+    private static final String INDEX_NAME = "cognito.membership";
+
+    private static final String GROUP_USERS_NAME = "cognito.group-users";
+
+    private static final String KEY_PREFIX = "cognito:membership:";
+
+    private static final String USER_KEY_PREFIX = KEY_PREFIX + "user:";
+
+    private static final String GROUP_KEY_PREFIX = KEY_PREFIX + "group:";
+
+    private static final String CHANGES_KEY_PREFIX = KEY_PREFIX + "changes:";
+
+    /**
+     * Member of every loaded set, never a valid username or group name.
+     */
+    private static final String LOADED = "";
+
+    /**
+     * Adds a member to a set only if the set is loaded, so an update never makes a partial set look complete.
+     */
+    private static final RedisScript<Long> ADD_IF_LOADED = new DefaultRedisScript<>(
+            "if redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 1 then "
+                    + "return redis.call('SADD', KEYS[1], ARGV[2]) end return 0", Long.class);
+
+    /**
+     * Replaces a set only if its change counter still holds the value read before the load. The members are added
+     * in chunks to stay below the Lua stack limit on large groups.
+     */
+    private static final RedisScript<Long> REPLACE_IF_UNCHANGED = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "for i = 3, #ARGV, 1000 do "
+                    + "redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))) end "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[2]) return 1", Long.class);
+
+    /**
+     * Bumps the change counter of every given set, kept as long as the sets themselves.
+     */
+    private static final RedisScript<Long> MARK_CHANGED = new DefaultRedisScript<>(
+            "for _, key in ipairs(KEYS) do redis.call('INCR', key) redis.call('EXPIRE', key, ARGV[1]) end "
+                    + "return #KEYS", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisPublisher redisPublisher;
+
+    private final UserGroupCacheService userGroupCacheService;
+
+    private final boolean enabled;
+
+    private final Duration ttl;
+
+    private final Cache<String, List<String>> groupUsers;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter puts;
+
+    private final Counter errors;
+
+    public GroupMembershipIndexService(StringRedisTemplate redisTemplate,
+                                       RedisPublisher redisPublisher,
+                                       UserGroupCacheService userGroupCacheService,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.cognito.membership.enabled:true}") boolean enabled,
+                                       @Value("${app.cognito.membership.ttl:30m}") Duration ttl,
+                                       @Value("${app.cognito.membership.group-users.max-size:10000}") long groupUsersMaxSize,
+                                       @Value("${app.cognito.membership.group-users.ttl:1m}") Duration groupUsersTtl) {
+        this.redisTemplate = redisTemplate;
+        this.redisPublisher = redisPublisher;
+        this.userGroupCacheService = userGroupCacheService;
+        this.enabled = enabled;
+        this.ttl = ttl;
+
+        this.groupUsers = Caffeine.newBuilder()
+                .maximumSize(groupUsersMaxSize)
+                .expireAfterWrite(groupUsersTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, groupUsers, GROUP_USERS_NAME);
+
+        this.hits = counter(meterRegistry, "cache.gets", "result", "hit");
+        this.misses = counter(meterRegistry, "cache.gets", "result", "miss");
+        this.puts = counter(meterRegistry, "cache.puts");
+        this.errors = counter(meterRegistry, "cache.errors");
+    }
+
+    /**
+     * Look up the groups of a user, loading them with the given function when the index does not hold them.
+     *
+     * @param username the username
+     * @param loader   loads the groups of a user from Cognito
+     * @return the names of the groups the user belongs to
+     */
+    public List<String> getUserGroups(String username, Function<String, List<String>> loader) {
+        return userGroupCacheService.get(username, key -> readOrLoad(userKey(key), key, loader));
+    }
+
+    /**
+     * Look up the groups of many users, loading the misses concurrently.
+     *
+     * @param usernames the usernames
+     * @param loader    loads the groups of a user from Cognito
+     * @return the names of the groups of each user, in the iteration order of the usernames
+     */
+    public Map<String, List<String>> getAllUserGroups(Collection<String> usernames,
+                                                      Function<String, List<String>> loader) {
+        return userGroupCacheService.getAll(usernames, key -> readOrLoad(userKey(key), key, loader));
+    }
+
+    /**
+     * Look up the users of a group, loading them with the given function when the index does not hold them.
+     *
+     * @param groupName the group name
+     * @param loader    loads the users of a group from Cognito
+     * @return the usernames of the members of the group
+     */
+    public List<String> getGroupUsers(String groupName, Function<String, List<String>> loader) {
+        return groupUsers.get(groupName, key -> List.copyOf(readOrLoad(groupKey(key), key, loader)));
+    }
+
+    /**
+     * Record a user added to a group in Cognito.
+     *
+     * @param username  the username
+     * @param groupName the group name
+     */
+    public void addMembership(String username, String groupName) {
+        update(username, groupName, () -> {
+            redisTemplate.execute(ADD_IF_LOADED, List.of(userKey(username)), LOADED, groupName);
+            redisTemplate.execute(ADD_IF_LOADED, List.of(groupKey(groupName)), LOADED, username);
+        });
+    }
+
+    /**
+     * Record a user removed from a group in Cognito.
+     *
+     * @param username  the username
+     * @param groupName the group name
+     */
+    public void removeMembership(String username, String groupName) {
+        update(username, groupName, () -> {
+            redisTemplate.opsForSet().remove(userKey(username), groupName);
+            redisTemplate.opsForSet().remove(groupKey(groupName), username);
+        });
+    }
+
+    /**
+     * Record a user created or deleted in Cognito, dropping whatever the index holds for its username.
+     *
+     * @param username the username
+     */
+    public void removeUser(String username) {
+        userGroupCacheService.evict(username);
+        if (!enabled) {
+            return;
+        }
+        try {
+            Set<String> groups = redisTemplate.opsForSet().members(userKey(username));
+            markChanged(userKey(username), groups, GroupMembershipIndexService::groupKey);
+            redisTemplate.delete(userKey(username));
+            for (String groupName : groups == null ? Set.<String>of() : groups) {
+                if (!LOADED.equals(groupName)) {
+                    redisTemplate.opsForSet().remove(groupKey(groupName), username);
+                    evictGroup(groupName);
+                }
+            }
+            redisPublisher.publish(new UserGroupsChangedEvent(username));
+        } catch (DataAccessException e) {
+            // The groups of other users are unaffected; stale group sets expire with their TTL
+            errors.increment();
+            log.warn("Failed to remove user {} from the membership index", username, e);
+        }
+    }
+
+    /**
+     * Record a group deleted from Cognito.
+     *
+     * @param groupName the group name
+     */
+    public void removeGroup(String groupName) {
+        groupUsers.invalidate(groupName);
+        if (!enabled) {
+            userGroupCacheService.evictAll();
+            return;
+        }
+        try {
+            Set<String> usernames = redisTemplate.opsForSet().members(groupKey(groupName));
+            markChanged(groupKey(groupName), usernames, GroupMembershipIndexService::userKey);
+            redisTemplate.delete(groupKey(groupName));
+            if (usernames == null || !usernames.contains(LOADED)) {
+                // Members unknown, so no user can be updated in place
+                userGroupCacheService.evictAll();
+                redisPublisher.publish(new MembershipsResetEvent());
+                return;
+            }
+            for (String username : usernames) {
+                if (!LOADED.equals(username)) {
+                    redisTemplate.opsForSet().remove(userKey(username), groupName);
+                    userGroupCacheService.evict(username);
+                    redisPublisher.publish(new UserGroupsChangedEvent(username));
+                }
+            }
+            redisPublisher.publish(new GroupMembersChangedEvent(groupName));
+        } catch (DataAccessException e) {
+            errors.increment();
+            userGroupCacheService.evictAll();
+            log.warn("Failed to remove group {} from the membership index", groupName, e);
+        }
+    }
+
+    /**
+     * Whether the index is kept in Redis.
+     *
+     * @return true when the index is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rebuild the whole index from the memberships of every group: write both directions and drop the sets of
+     * groups that no longer exist. Users indexed earlier but no longer in any group are written with no groups.
+     *
+     * @param usersByGroup the usernames of the members of every group of the pool
+     * @return the size of the rebuilt index
+     */
+    public MembershipIndexResponse rebuild(Map<String, List<String>> usersByGroup) {
+        if (!enabled) {
+            userGroupCacheService.evictAll();
+            groupUsers.invalidateAll();
+            return new MembershipIndexResponse(false, 0, 0, Instant.now());
+        }
+
+        Map<String, Set<String>> groupsByUser = new TreeMap<>();
+        usersByGroup.forEach((groupName, usernames) -> usernames.forEach(username ->
+                groupsByUser.computeIfAbsent(username, key -> new TreeSet<>()).add(groupName)));
+
+        Set<String> staleGroups = scanNames(GROUP_KEY_PREFIX);
+        staleGroups.removeAll(usersByGroup.keySet());
+        Set<String> staleUsers = scanNames(USER_KEY_PREFIX);
+        staleUsers.removeAll(groupsByUser.keySet());
+
+        usersByGroup.forEach((groupName, usernames) -> replace(groupKey(groupName), usernames));
+        groupsByUser.forEach((username, groups) -> replace(userKey(username), groups));
+        staleUsers.forEach(username -> replace(userKey(username), List.of()));
+        if (!staleGroups.isEmpty()) {
+            redisTemplate.delete(staleGroups.stream().map(GroupMembershipIndexService::groupKey).toList());
+        }
+
+        userGroupCacheService.evictAll();
+        groupUsers.invalidateAll();
+        redisPublisher.publish(new MembershipsResetEvent());
+        log.info("Membership index refreshed: {} groups, {} users", usersByGroup.size(), groupsByUser.size());
+        return new MembershipIndexResponse(true, usersByGroup.size(), groupsByUser.size(), Instant.now());
+    }
+
+    /**
+     * Drop the in-memory groups of a user changed by another replica.
+     *
+     * @param event the change broadcast on the Redis event channel
+     */
+    public void onUserGroupsChanged(UserGroupsChangedEvent event) {
+        userGroupCacheService.evict(event.username());
+    }
+
+    /**
+     * Drop the in-memory users of a group changed by another replica.
+     *
+     * @param event the change broadcast on the Redis event channel
+     */
+    public void onGroupMembersChanged(GroupMembersChangedEvent event) {
+        groupUsers.invalidate(event.groupName());
+    }
+
+    /**
+     * Drop every in-memory membership after a change spanning many users on another replica.
+     *
+     * @param event the change broadcast on the Redis event channel
+     */
+    public void onMembershipsReset(MembershipsResetEvent event) {
+        userGroupCacheService.evictAll();
+        groupUsers.invalidateAll();
+    }
+
+    private void update(String username, String groupName, Runnable write) {
+        userGroupCacheService.evict(username);
+        groupUsers.invalidate(groupName);
+        if (!enabled) {
+            return;
+        }
+        try {
+            markChanged(List.of(userKey(username), groupKey(groupName)));
+            write.run();
+            redisPublisher.publish(new UserGroupsChangedEvent(username));
+            redisPublisher.publish(new GroupMembersChangedEvent(groupName));
+        } catch (DataAccessException e) {
+            // Drop both sets rather than leave them wrong; they are loaded again on the next lookup
+            errors.increment();
+            log.warn("Failed to update the membership of {} in {}, dropping it from the index", username,
+                    groupName, e);
+            try {
+                redisTemplate.delete(List.of(userKey(username), groupKey(groupName)));
+            } catch (DataAccessException ignored) {
+                // Left to expire with their TTL
+            }
+        }
+    }
+
+    private void evictGroup(String groupName) {
+        groupUsers.invalidate(groupName);
+        redisPublisher.publish(new GroupMembersChangedEvent(groupName));
+    }
+
+    private List<String> readOrLoad(String key, String name, Function<String, List<String>> loader) {
+        if (!enabled) {
+            return loader.apply(name);
+        }
+        String changes;
+        try {
+            Set<String> members = redisTemplate.opsForSet().members(key);
+            if (members != null && members.contains(LOADED)) {
+                hits.increment();
+                return members.stream().filter(member -> !LOADED.equals(member)).sorted().toList();
+            }
+            misses.increment();
+            changes = redisTemplate.opsForValue().get(changesKey(key));
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("Failed to read {} from Redis, falling back to Cognito", key, e);
+            return loader.apply(name);
+        }
+        List<String> loaded = loader.apply(name);
+        replaceIfUnchanged(key, changes == null ? "0" : changes, loaded);
+        return loaded;
+    }
+
+    /**
+     * Write a set loaded on a miss, unless a change to it was recorded since the load started. A skipped set is
+     * loaded again on the next lookup.
+     */
+    private void replaceIfUnchanged(String key, String changes, Collection<String> members) {
+        String[] args = Stream.concat(Stream.of(changes, String.valueOf(ttl.toSeconds()), LOADED), members.stream())
+                .toArray(String[]::new);
+        try {
+            Long written = redisTemplate.execute(REPLACE_IF_UNCHANGED, List.of(key, changesKey(key)), (Object[]) args);
+            if (written != null && written == 1) {
+                puts.increment();
+            } else {
+                log.debug("Not writing {}, changed while it was loaded", key);
+            }
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("Failed to write {} to Redis", key, e);
+        }
+    }
+
+    /**
+     * Bump the change counters of a set and of the sets of its members.
+     */
+    private void markChanged(String key, Set<String> members, Function<String, String> memberKey) {
+        List<String> keys = new ArrayList<>();
+        keys.add(key);
+        if (members != null) {
+            members.stream().filter(member -> !LOADED.equals(member)).map(memberKey).forEach(keys::add);
+        }
+        markChanged(keys);
+    }
+
+    private void markChanged(List<String> keys) {
+        redisTemplate.execute(MARK_CHANGED, keys.stream().map(GroupMembershipIndexService::changesKey).toList(),
+                String.valueOf(ttl.toSeconds()));
+    }
+
+    /**
+     * Write a whole set, replacing its previous content, in one transaction.
+     */
+    private void replace(String key, Collection<String> members) {
+        String[] values = Stream.concat(Stream.of(LOADED), members.stream()).toArray(String[]::new);
+        try {
+            redisTemplate.execute(new SessionCallback<List<Object>>() {
+                @Override
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                public List<Object> execute(RedisOperations operations) {
+                    operations.multi();
+                    operations.delete(key);
+                    operations.opsForSet().add(key, values);
+                    operations.expire(key, ttl);
+                    return operations.exec();
+                }
+            });
+            puts.increment();
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("Failed to write {} to Redis", key, e);
+        }
+    }
+
+    private Set<String> scanNames(String prefix) {
+        Set<String> names = new HashSet<>();
+        try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions()
+                .match(prefix + "*")
+                .count(1000)
+                .build())) {
+            while (cursor.hasNext()) {
+                names.add(cursor.next().substring(prefix.length()));
+            }
+        }
+        return names;
+    }
+
+    private static String userKey(String username) {
+        return USER_KEY_PREFIX + username;
+    }
+
+    private static String groupKey(String groupName) {
+        return GROUP_KEY_PREFIX + groupName;
+    }
+
+    private static String changesKey(String key) {
+        return CHANGES_KEY_PREFIX + key.substring(KEY_PREFIX.length());
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String... tags) {
+        return Counter.builder(name)
+                .tag("cache", INDEX_NAME)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+}
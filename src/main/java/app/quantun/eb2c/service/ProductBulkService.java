@@ -0,0 +1,193 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.exception.BulkImportException;
+import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
+import app.quantun.eb2c.model.contract.response.ProductBulkResultDTO;
+import app.quantun.eb2c.model.contract.response.ProductBulkResultDTO.RowResultDTO;
+import app.quantun.eb2c.model.contract.response.ProductBulkResultDTO.Status;
+import app.quantun.eb2c.repository.ProductBatchRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service class for importing products in bulk.
+ * <p>
+ * The request body is parsed incrementally, one array item at a time, so the whole payload is never buffered.
+ * Valid items are collected into batches of {@code app.products.bulk.batch-size} and written with JDBC batch
+ * statements: items without an ID are created, items with an ID update the existing product. Each batch is
+ * committed on its own, so a failing batch only rejects its own items. When the body turns out to be malformed,
+ * the batches already committed are kept and the items of the unfinished batch are discarded.
+ */
+@Service
+@Slf4j
+public class ProductBulkService {
+
+    private final ProductBatchRepository productBatchRepository;
+
+    private final ProductCacheService productCacheService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final int batchSize;
+
+    public ProductBulkService(ProductBatchRepository productBatchRepository,
+                              ProductCacheService productCacheService,
+                              ObjectMapper objectMapper,
+                              Validator validator,
+                              @Value("${app.products.bulk.batch-size:500}") int batchSize) {
+        this.productBatchRepository = productBatchRepository;
+        this.productCacheService = productCacheService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Create or update every product of a JSON array.
+     *
+     * @param inputStream the request body, a JSON array of ProductRequestDTO
+     * @return the per-item outcome and the totals of the import
+     * @throws IOException if the request body cannot be read
+     */
+    public ProductBulkResultDTO importProducts(InputStream inputStream) throws IOException {
+        ProductBulkResultDTO summary = new ProductBulkResultDTO();
+        List<PendingRow> pending = new ArrayList<>(batchSize);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BulkImportException("Request body must be a JSON array of products");
+            }
+
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new BulkImportException("Unexpected end of input after " + index + " items");
+                }
+
+                RowResultDTO row = RowResultDTO.builder().index(index++).build();
+                summary.getRows().add(row);
+
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    reject(row, List.of("Item must be a JSON object"));
+                    continue;
+                }
+
+                // Only the current item is materialized, so a bad field rejects the item instead of the request
+                JsonNode item = objectMapper.readTree(parser);
+                ProductRequestDTO product;
+                try {
+                    product = objectMapper.treeToValue(item, ProductRequestDTO.class);
+                } catch (JsonProcessingException e) {
+                    reject(row, List.of("Malformed product: " + e.getOriginalMessage()));
+                    continue;
+                }
+
+                Set<ConstraintViolation<ProductRequestDTO>> violations = validator.validate(product);
+                if (!violations.isEmpty()) {
+                    reject(row, violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .toList());
+                    continue;
+                }
+
+                pending.add(new PendingRow(product, row));
+                if (pending.size() >= batchSize) {
+                    flush(pending);
+                }
+            }
+            flush(pending);
+        } catch (JsonProcessingException e) {
+            // The items of the unfinished batch are discarded, only full batches before the error are kept
+            long saved = summary.getRows().stream()
+                    .filter(row -> row.getStatus() == Status.CREATED || row.getStatus() == Status.UPDATED)
+                    .count();
+            throw new BulkImportException("Malformed JSON after " + summary.getRows().size() + " items, "
+                    + saved + " items of earlier batches were saved and the rest discarded: "
+                    + e.getOriginalMessage(), e);
+        }
+
+        summary.setTotal(summary.getRows().size());
+        for (RowResultDTO row : summary.getRows()) {
+            switch (row.getStatus()) {
+                case CREATED -> summary.setCreated(summary.getCreated() + 1);
+                case UPDATED -> summary.setUpdated(summary.getUpdated() + 1);
+                case FAILED -> summary.setFailed(summary.getFailed() + 1);
+            }
+        }
+        log.info("Bulk import finished: {} created, {} updated, {} failed",
+                summary.getCreated(), summary.getUpdated(), summary.getFailed());
+        return summary;
+    }
+
+    private void flush(List<PendingRow> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<PendingRow> inserts = pending.stream().filter(row -> row.product().getId() == null).toList();
+        List<PendingRow> updates = pending.stream().filter(row -> row.product().getId() != null).toList();
+        pending.clear();
+
+        if (!inserts.isEmpty()) {
+            try {
+                List<Long> ids = productBatchRepository.insertAll(inserts.stream().map(PendingRow::product).toList());
+                for (int i = 0; i < inserts.size(); i++) {
+                    RowResultDTO row = inserts.get(i).result();
+                    row.setId(ids.get(i));
+                    row.setStatus(Status.CREATED);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Bulk insert batch of {} products failed", inserts.size(), e);
+                inserts.forEach(row -> reject(row.result(), List.of(e.getMostSpecificCause().getMessage())));
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            try {
+                int[] counts = productBatchRepository.updateAll(updates.stream().map(PendingRow::product).toList());
+                productCacheService.evictAll(updates.stream().map(row -> row.product().getId()).toList());
+                for (int i = 0; i < updates.size(); i++) {
+                    RowResultDTO row = updates.get(i).result();
+                    row.setId(updates.get(i).product().getId());
+                    if (counts[i] == 0) {
+                        reject(row, List.of("Product not found with id " + row.getId()));
+                    } else {
+                        row.setStatus(Status.UPDATED);
+                    }
+                }
+            } catch (DataAccessException e) {
+                log.warn("Bulk update batch of {} products failed", updates.size(), e);
+                updates.forEach(row -> reject(row.result(), List.of(e.getMostSpecificCause().getMessage())));
+            }
+        }
+    }
+
+    private static void reject(RowResultDTO row, List<String> errors) {
+        row.setStatus(Status.FAILED);
+        row.setErrors(errors);
+    }
+
+    private record PendingRow(ProductRequestDTO product, RowResultDTO result) {
+    }
+}
@@ -0,0 +1,230 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.message.RedisPublisher;
+import app.quantun.eb2c.message.event.ProductsChangedEvent;
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Service class for caching product lookups in two tiers.
+ * <p>
+ * L1 is a bounded in-process Caffeine cache (W-TinyLFU admission), L2 is Redis and is shared by every replica.
+ * A lookup falls through L1, then L2, then the database, and fills the tiers it missed. Writes evict the product
+ * from L2 and broadcast the eviction on the Redis event channel, so every replica drops it from its L1. The L1
+ * TTL bounds staleness if a broadcast is lost.
+ * <p>
+ * An eviction leaves a short-lived tombstone in L2 and lookups only fill an empty L2 entry, so a lookup that
+ * loaded the product before an update committed cannot put the old row back in L2 after the eviction. Lookups
+ * during the tombstone TTL read the database and keep the result in L1 only.
+ * <p>
+ * Metrics are published as {@code cache.gets}, {@code cache.puts} and {@code cache.evictions}, tagged with
+ * {@code cache=products.l1} or {@code cache=products.l2}.
+ */
+@Service
+@Slf4j
+public class ProductCacheService {
+
+    private static final String L1_NAME = "products.l1";
+
+    private static final String L2_NAME = "products.l2";
+
+    private static final String L2_KEY_PREFIX = "product:";
+
+    private static final String TOMBSTONE = "-";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisPublisher redisPublisher;
+
+    private final ObjectReader reader;
+
+    private final ObjectWriter writer;
+
+    private final Duration l2Ttl;
+
+    private final Duration tombstoneTtl;
+
+    private final Cache<Long, ProductResponseDTO> l1;
+
+    private final Counter l2Hits;
+
+    private final Counter l2Misses;
+
+    private final Counter l2Puts;
+
+    private final Counter l2Evictions;
+
+    private final Counter l2Errors;
+
+    public ProductCacheService(StringRedisTemplate redisTemplate,
+                               RedisPublisher redisPublisher,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.products.cache.l1.max-size:10000}") long l1MaxSize,
+                               @Value("${app.products.cache.l1.ttl:1m}") Duration l1Ttl,
+                               @Value("${app.products.cache.l2.ttl:10m}") Duration l2Ttl,
+                               @Value("${app.products.cache.l2.tombstone-ttl:10s}") Duration tombstoneTtl) {
+        this.redisTemplate = redisTemplate;
+        this.redisPublisher = redisPublisher;
+        this.reader = objectMapper.readerFor(ProductResponseDTO.class);
+        this.writer = objectMapper.writerFor(ProductResponseDTO.class).without(SerializationFeature.INDENT_OUTPUT);
+        this.l2Ttl = l2Ttl;
+        this.tombstoneTtl = tombstoneTtl;
+
+        this.l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1Ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, L1_NAME);
+
+        this.l2Hits = counter(meterRegistry, "cache.gets", "result", "hit");
+        this.l2Misses = counter(meterRegistry, "cache.gets", "result", "miss");
+        this.l2Puts = counter(meterRegistry, "cache.puts");
+        this.l2Evictions = counter(meterRegistry, "cache.evictions");
+        this.l2Errors = counter(meterRegistry, "cache.errors");
+    }
+
+    /**
+     * Look a product up in the cache, loading it with the given function on a miss.
+     * <p>
+     * Concurrent lookups of the same product on one replica share a single load. Absent products are not cached.
+     *
+     * @param id     the ID of the product
+     * @param loader loads the product from the database
+     * @return an Optional containing the ProductResponseDTO if found, otherwise empty
+     */
+    public Optional<ProductResponseDTO> get(Long id, Function<Long, Optional<ProductResponseDTO>> loader) {
+        return Optional.ofNullable(l1.get(id, key -> readL2(key)
+                .or(() -> loader.apply(key).map(this::writeL2))
+                .orElse(null)));
+    }
+
+    /**
+     * Evict a product from every tier on every replica.
+     *
+     * @param id the ID of the product
+     */
+    public void evict(Long id) {
+        evictAll(List.of(id));
+    }
+
+    /**
+     * Evict products from every tier on every replica.
+     * <p>
+     * Inside a transaction the eviction runs after commit, so a concurrent lookup cannot cache the old row again.
+     *
+     * @param ids the IDs of the products
+     */
+    public void evictAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> snapshot = List.copyOf(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(snapshot);
+                }
+            });
+        } else {
+            doEvict(snapshot);
+        }
+    }
+
+    /**
+     * Drop products changed by another replica from L1.
+     *
+     * @param event the change broadcast on the Redis event channel
+     */
+    public void onProductsChanged(ProductsChangedEvent event) {
+        l1.invalidateAll(event.productIds());
+    }
+
+    private void doEvict(List<Long> ids) {
+        l1.invalidateAll(ids);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                public Object execute(RedisOperations operations) {
+                    ids.forEach(id -> operations.opsForValue().set(l2Key(id), TOMBSTONE, tombstoneTtl));
+                    return null;
+                }
+            });
+            l2Evictions.increment(ids.size());
+            redisPublisher.publish(new ProductsChangedEvent(ids));
+        } catch (DataAccessException e) {
+            // Other replicas keep their L1 entry until it expires
+            l2Errors.increment();
+            log.warn("Failed to evict products {} from Redis", ids, e);
+        }
+    }
+
+    private Optional<ProductResponseDTO> readL2(Long id) {
+        try {
+            String json = redisTemplate.opsForValue().get(l2Key(id));
+            if (json == null || TOMBSTONE.equals(json)) {
+                l2Misses.increment();
+                return Optional.empty();
+            }
+            l2Hits.increment();
+            return Optional.of(reader.readValue(json));
+        } catch (DataAccessException | JsonProcessingException e) {
+            l2Errors.increment();
+            log.warn("Failed to read product {} from Redis, falling back to the database", id, e);
+            return Optional.empty();
+        }
+    }
+
+    private ProductResponseDTO writeL2(ProductResponseDTO product) {
+        try {
+            // Only fills an empty entry, a tombstone means the product changed while it was being loaded
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(l2Key(product.getId()), writer.writeValueAsString(product), l2Ttl))) {
+                l2Puts.increment();
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            l2Errors.increment();
+            log.warn("Failed to write product {} to Redis", product.getId(), e);
+        }
+        return product;
+    }
+
+    private static String l2Key(Long id) {
+        return L2_KEY_PREFIX + id;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String... tags) {
+        return Counter.builder(name)
+                .tag("cache", L2_NAME)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+}
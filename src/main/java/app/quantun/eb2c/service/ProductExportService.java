@@ -0,0 +1,135 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.mapper.ProductMapper;
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import app.quantun.eb2c.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Service class for exporting the product catalog.
+ * <p>
+ * Rows are read from a server-side cursor and written to the output stream one at a time, and every entity is
+ * detached from the persistence context once it has been written, so heap usage does not depend on the size of
+ * the catalog.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductExportService {
+
+    private static final String CSV_HEADER = "id,name,description,price,inStock,stock";
+
+    private final ProductRepository productRepository;
+
+    private final ProductMapper productMapper;
+
+    private final ObjectMapper objectMapper;
+
+    private final EntityManager entityManager;
+
+    /**
+     * Write every product as newline-delimited JSON, one object per line.
+     *
+     * @param outputStream the stream to write to
+     * @return the number of exported products
+     * @throws IOException if writing to the stream fails
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream outputStream) throws IOException {
+        // The shared mapper pretty-prints, which would break the one-object-per-line format
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            // Root values are separated by a space by default, which would start every line but the first with it
+            generator.setRootValueSeparator(null);
+            long count = forEachProduct(product -> {
+                writer.writeValue(generator, product);
+                generator.writeRaw('\n');
+            });
+            log.info("Exported {} products as NDJSON", count);
+            return count;
+        }
+    }
+
+    /**
+     * Write every product as RFC 4180 CSV with a header row.
+     *
+     * @param outputStream the stream to write to
+     * @return the number of exported products
+     * @throws IOException if writing to the stream fails
+     */
+    @Transactional(readOnly = true)
+    public long exportCsv(OutputStream outputStream) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+            long count = forEachProduct(product -> {
+                writer.write(String.valueOf(product.getId()));
+                writer.write(',');
+                writer.write(escapeCsv(product.getName()));
+                writer.write(',');
+                writer.write(escapeCsv(product.getDescription()));
+                writer.write(',');
+                writer.write(product.getPrice() == null ? "" : product.getPrice().toPlainString());
+                writer.write(',');
+                writer.write(String.valueOf(product.isInStock()));
+                writer.write(',');
+                writer.write(String.valueOf(product.getStock()));
+                writer.write("\r\n");
+            });
+            log.info("Exported {} products as CSV", count);
+            return count;
+        }
+    }
+
+    private long forEachProduct(RowWriter rowWriter) throws IOException {
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamAllBy()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                rowWriter.write(productMapper.toProductResponseDTO(product));
+                // Read-only entities are still tracked; drop each one so the persistence context stays empty
+                entityManager.detach(product);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ProductResponseDTO product) throws IOException;
+    }
+}
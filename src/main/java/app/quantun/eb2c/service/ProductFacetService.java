@@ -0,0 +1,77 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.model.contract.request.ProductSearchCriteria;
+import app.quantun.eb2c.model.contract.response.ProductFacetsDTO;
+import app.quantun.eb2c.model.contract.response.ProductFacetsDTO.FacetCountDTO;
+import app.quantun.eb2c.model.contract.response.ProductFacetsDTO.PriceBucketDTO;
+import app.quantun.eb2c.repository.ProductFacetRepository;
+import app.quantun.eb2c.repository.ProductFacetRepository.FacetRow;
+import app.quantun.eb2c.repository.ProductSpecifications;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service class for computing the filter sidebar of a product search.
+ * Price ranges are delimited by {@code app.products.facets.price-buckets}.
+ */
+@Service
+public class ProductFacetService {
+
+    private final ProductFacetRepository productFacetRepository;
+
+    private final List<BigDecimal> bucketBounds;
+
+    public ProductFacetService(ProductFacetRepository productFacetRepository,
+                               @Value("${app.products.facets.price-buckets:25,50,100,250,500}") BigDecimal[] bucketBounds) {
+        this.productFacetRepository = productFacetRepository;
+        this.bucketBounds = Arrays.stream(bucketBounds).distinct().sorted().toList();
+    }
+
+    /**
+     * Count the products matching the criteria per category, price range and stock status, with a single query.
+     * Products without a price are not counted in any price range.
+     *
+     * @param criteria the search criteria
+     * @return the facet counts
+     */
+    @Transactional(readOnly = true)
+    public ProductFacetsDTO getFacets(ProductSearchCriteria criteria) {
+        List<FacetRow> rows = productFacetRepository.countFacets(ProductSpecifications.matching(criteria), bucketBounds);
+
+        Map<String, Long> categories = new HashMap<>();
+        long[] buckets = new long[bucketBounds.size() + 1];
+        Map<Boolean, Long> inStock = new TreeMap<>(Comparator.reverseOrder());
+        for (FacetRow row : rows) {
+            categories.merge(row.category(), row.count(), Long::sum);
+            if (row.bucket() != ProductFacetRepository.NO_PRICE_BUCKET) {
+                buckets[row.bucket()] += row.count();
+            }
+            inStock.merge(row.inStock(), row.count(), Long::sum);
+        }
+
+        ProductFacetsDTO facets = new ProductFacetsDTO();
+        categories.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.nullsLast(Comparator.naturalOrder()))))
+                .forEach(entry -> facets.getCategories().add(new FacetCountDTO(entry.getKey(), entry.getValue())));
+        for (int i = 0; i < buckets.length; i++) {
+            facets.getPriceBuckets().add(PriceBucketDTO.builder()
+                    .min(i == 0 ? null : bucketBounds.get(i - 1))
+                    .max(i == bucketBounds.size() ? null : bucketBounds.get(i))
+                    .count(buckets[i])
+                    .build());
+        }
+        inStock.forEach((value, count) -> facets.getInStock().add(new FacetCountDTO(String.valueOf(value), count)));
+        return facets;
+    }
+}
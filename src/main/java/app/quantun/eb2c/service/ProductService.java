@@ -3,10 +3,12 @@ package app.quantun.eb2c.service;
 
 import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
 import app.quantun.eb2c.model.contract.request.ProductSearchCriteria;
+import app.quantun.eb2c.model.contract.response.CursorPageResponseDTO;
 import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
 import app.quantun.eb2c.model.entity.bussines.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -31,9 +33,14 @@ public interface ProductService {
 
     List<ProductResponseDTO> searchProductsByName(String name);
 
+    List<ProductResponseDTO> searchProductsRanked(String query, int limit);
+
     List<ProductResponseDTO> getProductsUnderPrice(BigDecimal price);
 
     List<ProductResponseDTO> getInStockProducts();
 
     Page<ProductResponseDTO> findProductsByCriteria(ProductSearchCriteria criteria, Pageable pageable);
+
+    CursorPageResponseDTO<ProductResponseDTO> scrollProductsByCriteria(ProductSearchCriteria criteria, String after,
+                                                                      int size, Sort.Order order);
 }
@@ -1,24 +1,35 @@
 package app.quantun.eb2c.service;
 
 
+import app.quantun.eb2c.exception.InvalidCursorException;
+import app.quantun.eb2c.exception.InvalidSortFieldException;
+import app.quantun.eb2c.mapper.ProductMapper;
 import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
 import app.quantun.eb2c.model.contract.request.ProductSearchCriteria;
+import app.quantun.eb2c.model.contract.response.CursorPageResponseDTO;
 import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
 import app.quantun.eb2c.model.entity.bussines.Product;
+import app.quantun.eb2c.repository.ProductReadRepository;
 import app.quantun.eb2c.repository.ProductRepository;
+import app.quantun.eb2c.repository.ProductSpecifications;
+import app.quantun.eb2c.util.CursorCodec;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -29,10 +40,45 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
 
+    /**
+     * Upper bound for a single keyset slice.
+     */
+    private static final int MAX_SCROLL_SIZE = 100;
+
+    /**
+     * Upper bound for the results of a ranked search.
+     */
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    /**
+     * Sort fields supported by keyset pagination, with the accessor used to build the next cursor.
+     */
+    private static final Map<String, Function<Product, Comparable<?>>> KEYSET_ACCESSORS = Map.of(
+            "id", Product::getId,
+            "name", Product::getName,
+            "price", Product::getPrice,
+            "stock", Product::getStock,
+            "createdAt", Product::getCreatedAt
+    );
+
+    /**
+     * Parsers turning the sort key stored in a cursor back into a value comparable with the column.
+     */
+    private static final Map<String, Function<String, Comparable<?>>> KEYSET_PARSERS = Map.of(
+            "id", Long::valueOf,
+            "name", value -> value,
+            "price", BigDecimal::new,
+            "stock", Integer::valueOf,
+            "createdAt", LocalDateTime::parse
+    );
+
     private final ProductRepository productRepository;
 
+    private final ProductReadRepository productReadRepository;
 
-    private final ModelMapper modelMapper;
+    private final ProductMapper productMapper;
+
+    private final ProductCacheService productCacheService;
 
     /**
      * Retrieve a list of all products.
@@ -41,9 +87,7 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     public List<ProductResponseDTO> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
+        return productReadRepository.findAll();
     }
 
     /**
@@ -54,8 +98,8 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     public Optional<ProductResponseDTO> getProductById(Long id) {
-        return productRepository.findById(id)
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class));
+        return productCacheService.get(id, key -> productRepository.findById(key)
+                .map(productMapper::toProductResponseDTO));
     }
 
     /**
@@ -67,9 +111,9 @@ public class ProductServiceImpl implements ProductService {
     @Transactional
     @Override
     public ProductResponseDTO createProduct(ProductRequestDTO productRequestDTO) {
-        Product product = modelMapper.map(productRequestDTO, Product.class);
+        Product product = productMapper.toEntity(productRequestDTO);
         Product savedProduct = productRepository.save(product);
-        return modelMapper.map(savedProduct, ProductResponseDTO.class);
+        return productMapper.toProductResponseDTO(savedProduct);
     }
 
     /**
@@ -86,13 +130,15 @@ public class ProductServiceImpl implements ProductService {
                 .map(existingProduct -> {
                     updateProductFields(existingProduct, productRequestDTO);
                     Product updatedProduct = productRepository.save(existingProduct);
-                    return modelMapper.map(updatedProduct, ProductResponseDTO.class);
+                    productCacheService.evict(id);
+                    return productMapper.toProductResponseDTO(updatedProduct);
                 })
                 .orElseThrow(() -> new RuntimeException("Product not found with id " + id));
     }
 
     /**
      * Update the fields of an existing product with the provided details.
+     * The stock and the in-stock flag are left to the stock reservations.
      *
      * @param existingProduct   the existing product to be updated
      * @param productRequestDTO the updated product details
@@ -108,7 +154,6 @@ public class ProductServiceImpl implements ProductService {
         if (productRequestDTO.getPrice() != null) {
             existingProduct.setPrice(productRequestDTO.getPrice());
         }
-        existingProduct.setInStock(productRequestDTO.isInStock());
     }
 
     /**
@@ -122,6 +167,7 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id " + id));
         productRepository.delete(product);
+        productCacheService.evict(id);
     }
 
     /**
@@ -132,9 +178,22 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     public List<ProductResponseDTO> searchProductsByName(String name) {
-        return productRepository.findByNameContaining(name).stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
+        return productReadRepository.findByNameContaining(name);
+    }
+
+    /**
+     * Find products matching a free-text query, best matches first.
+     *
+     * @param query the free-text query
+     * @param limit the maximum number of products to return, capped at 100
+     * @return a list of ProductResponseDTO ordered by relevance
+     */
+    @Override
+    public List<ProductResponseDTO> searchProductsRanked(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return productReadRepository.searchRanked(query.trim(), Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
     }
 
     /**
@@ -145,9 +204,7 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     public List<ProductResponseDTO> getProductsUnderPrice(BigDecimal price) {
-        return productRepository.findByPriceLessThan(price).stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
+        return productReadRepository.findByPriceLessThan(price);
     }
 
     /**
@@ -157,47 +214,115 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     public List<ProductResponseDTO> getInStockProducts() {
-        return productRepository.findByInStock(true).stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
+        return productReadRepository.findByInStock(true);
     }
 
     @Override
     public Page<ProductResponseDTO> findProductsByCriteria(ProductSearchCriteria criteria, Pageable pageable) {
-        Specification<Product> spec = (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
+        return productRepository.findAll(ProductSpecifications.matching(criteria), pageable)
+                .map(productMapper::toProductResponseDTO);
+    }
 
-            if (criteria.getNamePattern() != null) {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("name")),
-                        "%" + criteria.getNamePattern().toLowerCase() + "%"));
-            }
+    /**
+     * Retrieve a slice of products matching the criteria using keyset (seek) pagination.
+     * <p>
+     * Instead of an OFFSET, the previous slice's last sort key and id are turned into a seek predicate, and no
+     * count query is issued, so every slice costs the same regardless of how deep the client has scrolled.
+     * Rows are ordered by the sort field and then by id, so ties on the sort field are resolved deterministically.
+     *
+     * @param criteria the search criteria
+     * @param after    the cursor returned by the previous slice, or null for the first slice
+     * @param size     the maximum number of products in the slice
+     * @param order    the sort field and direction
+     * @return a slice of ProductResponseDTO with the cursor of the next slice
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponseDTO<ProductResponseDTO> scrollProductsByCriteria(ProductSearchCriteria criteria, String after,
+                                                                             int size, Sort.Order order) {
+        String field = order.getProperty();
+        Sort.Direction direction = order.getDirection();
+        if (!KEYSET_ACCESSORS.containsKey(field)) {
+            throw new InvalidSortFieldException("Invalid sort field: " + field +
+                    ". Valid values: " + String.join(", ", KEYSET_ACCESSORS.keySet()));
+        }
 
-            if (criteria.getMinPrice() != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), criteria.getMinPrice()));
-            }
+        Specification<Product> spec = ProductSpecifications.matching(criteria);
+        if (after != null && !after.isBlank()) {
+            spec = spec.and(seekSpecification(after, field, direction));
+        }
 
-            if (criteria.getMaxPrice() != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), criteria.getMaxPrice()));
-            }
+        Sort sort = "id".equals(field)
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, field).and(Sort.by(direction, "id"));
+        int limit = Math.max(1, Math.min(size, MAX_SCROLL_SIZE));
 
-            if (criteria.getInStock() != null) {
-                predicates.add(criteriaBuilder.equal(root.get("inStock"), criteria.getInStock()));
-            }
+        // Fetch one extra row to know whether another slice follows without counting
+        List<Product> rows = productRepository.findBy(spec, query -> query.sortBy(sort).limit(limit + 1).all());
+        boolean hasNext = rows.size() > limit;
+        List<Product> slice = hasNext ? rows.subList(0, limit) : rows;
 
-            if (criteria.getMinStock() != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("stock"), criteria.getMinStock()));
+        String nextCursor = null;
+        if (hasNext) {
+            Product last = slice.get(slice.size() - 1);
+            Comparable<?> lastValue = KEYSET_ACCESSORS.get(field).apply(last);
+            nextCursor = CursorCodec.encode(field, direction.name(),
+                    lastValue == null ? null : lastValue.toString(), last.getId().toString());
+        }
+
+        return CursorPageResponseDTO.<ProductResponseDTO>builder()
+                .content(slice.stream()
+                        .map(productMapper::toProductResponseDTO)
+                        .collect(Collectors.toList()))
+                .size(limit)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    /**
+     * Build the seek predicate that selects the rows strictly after the cursor position.
+     * Null sort keys follow the PostgreSQL default ordering: last when ascending, first when descending.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Specification<Product> seekSpecification(String after, String field, Sort.Direction direction) {
+        List<String> parts = CursorCodec.decode(after);
+        if (parts.size() != 4 || !field.equals(parts.get(0)) || !direction.name().equals(parts.get(1))
+                || parts.get(3) == null) {
+            throw new InvalidCursorException("Cursor does not match sort " + field + "," + direction.name().toLowerCase());
+        }
+
+        Comparable lastValue;
+        Long lastId;
+        try {
+            lastValue = parts.get(2) == null ? null : KEYSET_PARSERS.get(field).apply(parts.get(2));
+            lastId = Long.valueOf(parts.get(3));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Malformed cursor: " + after, e);
+        }
+
+        boolean ascending = direction.isAscending();
+        return (root, query, criteriaBuilder) -> {
+            Path<Long> id = root.get("id");
+            Predicate afterId = ascending
+                    ? criteriaBuilder.greaterThan(id, lastId)
+                    : criteriaBuilder.lessThan(id, lastId);
+            if ("id".equals(field)) {
+                return afterId;
             }
 
-            if (criteria.getCategoryName() != null) {
-                predicates.add(criteriaBuilder.equal(root.get("category").get("name"), criteria.getCategoryName()));
+            Path key = root.get(field);
+            if (lastValue == null) {
+                Predicate nullTie = criteriaBuilder.and(criteriaBuilder.isNull(key), afterId);
+                return ascending ? nullTie : criteriaBuilder.or(nullTie, criteriaBuilder.isNotNull(key));
             }
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+            Predicate valueTie = criteriaBuilder.and(criteriaBuilder.equal(key, lastValue), afterId);
+            if (ascending) {
+                return criteriaBuilder.or(criteriaBuilder.greaterThan(key, lastValue), valueTie,
+                        criteriaBuilder.isNull(key));
+            }
+            return criteriaBuilder.or(criteriaBuilder.lessThan(key, lastValue), valueTie);
         };
-
-        return productRepository.findAll(spec, pageable)
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class));
     }
-
-
 }
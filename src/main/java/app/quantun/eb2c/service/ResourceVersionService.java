@@ -0,0 +1,58 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.repository.ResourceVersionRepository;
+import app.quantun.eb2c.util.ResourceVersion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Service class providing the HTTP validators used by conditional GETs.
+ * Controllers check them before building the response, so a 304 never loads, maps or serializes the resource.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResourceVersionService {
+
+    private final ResourceVersionRepository resourceVersionRepository;
+
+    /**
+     * Retrieve the validators shared by product lists.
+     *
+     * @return the validators
+     */
+    public ResourceVersion getProductsVersion() {
+        return resourceVersionRepository.findProductsVersion();
+    }
+
+    /**
+     * Retrieve the validators of an organization.
+     *
+     * @param id the ID of the organization
+     * @return the validators, empty if the organization does not exist
+     */
+    public Optional<ResourceVersion> getOrganizationVersion(Long id) {
+        return resourceVersionRepository.findOrganizationVersion(id);
+    }
+
+    /**
+     * Retrieve the validators of an organization looked up by tax ID.
+     *
+     * @param taxId the tax ID of the organization
+     * @return the validators, empty if the organization does not exist
+     */
+    public Optional<ResourceVersion> getOrganizationVersionByTaxId(String taxId) {
+        return resourceVersionRepository.findOrganizationVersionByTaxId(taxId);
+    }
+
+    /**
+     * Retrieve the validators shared by organization lists.
+     *
+     * @return the validators
+     */
+    public ResourceVersion getOrganizationsVersion() {
+        return resourceVersionRepository.findOrganizationsVersion();
+    }
+}
@@ -0,0 +1,153 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.exception.InsufficientStockException;
+import app.quantun.eb2c.exception.ReservationStateException;
+import app.quantun.eb2c.model.contract.response.StockReservationResponseDTO;
+import app.quantun.eb2c.model.contract.response.StockReservationResponseDTO.Status;
+import app.quantun.eb2c.repository.ProductRepository;
+import app.quantun.eb2c.repository.StockReservationRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service class for reserving product stock.
+ * <p>
+ * A reservation takes stock immediately and holds it until it is confirmed (the stock stays taken), released or
+ * expires (the stock is returned). Unconfirmed reservations are expired in the background every
+ * {@code app.products.reservation.sweep-interval-ms}.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private final StockReservationRepository stockReservationRepository;
+
+    private final ProductRepository productRepository;
+
+    private final ProductCacheService productCacheService;
+
+    private final Duration defaultTtl;
+
+    private final Duration maxTtl;
+
+    private final int sweepBatchSize;
+
+    public StockReservationService(StockReservationRepository stockReservationRepository,
+                                   ProductRepository productRepository,
+                                   ProductCacheService productCacheService,
+                                   @Value("${app.products.reservation.default-ttl:15m}") Duration defaultTtl,
+                                   @Value("${app.products.reservation.max-ttl:1h}") Duration maxTtl,
+                                   @Value("${app.products.reservation.sweep-batch-size:500}") int sweepBatchSize) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.productRepository = productRepository;
+        this.productCacheService = productCacheService;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.sweepBatchSize = Math.max(1, sweepBatchSize);
+    }
+
+    /**
+     * Hold a quantity of a product.
+     *
+     * @param productId the ID of the product
+     * @param quantity  the quantity to hold
+     * @param ttl       how long the hold lasts, the default when null, capped at the configured maximum
+     * @return the held reservation
+     * @throws EntityNotFoundException     if the product does not exist
+     * @throws InsufficientStockException if the product has less stock than requested
+     */
+    public StockReservationResponseDTO reserve(Long productId, int quantity, Duration ttl) {
+        Duration holdFor = ttl == null ? defaultTtl : (ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl);
+        UUID id = UUID.randomUUID();
+        LocalDateTime expiresAt = LocalDateTime.now().plus(holdFor);
+
+        if (!stockReservationRepository.reserve(id, productId, quantity, expiresAt)) {
+            // Only the failure path pays for the lookup that tells the two cases apart
+            if (!productRepository.existsById(productId)) {
+                throw new EntityNotFoundException("Product not found with id " + productId);
+            }
+            throw new InsufficientStockException("Not enough stock of product " + productId + " to reserve " + quantity);
+        }
+        productCacheService.evict(productId);
+
+        return StockReservationResponseDTO.builder()
+                .id(id)
+                .productId(productId)
+                .quantity(quantity)
+                .status(Status.HELD)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    /**
+     * Confirm a held reservation, keeping its stock taken.
+     *
+     * @param id the ID of the reservation
+     * @return the confirmed reservation
+     * @throws EntityNotFoundException     if the reservation does not exist
+     * @throws ReservationStateException if the reservation is no longer held or has expired
+     */
+    public StockReservationResponseDTO confirm(UUID id) {
+        if (!stockReservationRepository.confirm(id)) {
+            throw notHeld(id);
+        }
+        return getReservation(id);
+    }
+
+    /**
+     * Release a held reservation, returning its stock to the product.
+     *
+     * @param id the ID of the reservation
+     * @throws EntityNotFoundException     if the reservation does not exist
+     * @throws ReservationStateException if the reservation is no longer held
+     */
+    public void release(UUID id) {
+        Long productId = stockReservationRepository.release(id).orElseThrow(() -> notHeld(id));
+        productCacheService.evict(productId);
+    }
+
+    /**
+     * Retrieve a reservation by its ID.
+     *
+     * @param id the ID of the reservation
+     * @return the reservation
+     * @throws EntityNotFoundException if the reservation does not exist
+     */
+    public StockReservationResponseDTO getReservation(UUID id) {
+        return stockReservationRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Reservation not found with id " + id));
+    }
+
+    /**
+     * Expire unconfirmed reservations past their deadline and return their stock.
+     * Safe to run on every replica at once.
+     */
+    @Scheduled(fixedDelayString = "${app.products.reservation.sweep-interval-ms:30000}")
+    public void expireReservations() {
+        List<Long> productIds;
+        do {
+            productIds = stockReservationRepository.expireDue(sweepBatchSize);
+            productCacheService.evictAll(productIds);
+            if (!productIds.isEmpty()) {
+                log.info("Expired reservations returned stock to {} products", productIds.size());
+            }
+        } while (!productIds.isEmpty());
+    }
+
+    private RuntimeException notHeld(UUID id) {
+        StockReservationResponseDTO reservation = getReservation(id);
+        if (reservation.getStatus() == Status.HELD) {
+            return new ReservationStateException("Reservation " + id + " has expired");
+        }
+        return new ReservationStateException("Reservation " + id + " is already " + reservation.getStatus());
+    }
+}
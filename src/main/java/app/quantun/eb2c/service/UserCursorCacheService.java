@@ -0,0 +1,103 @@
+package app.quantun.eb2c.service;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Service class remembering where each page of a user listing starts in the Cognito user pool.
+ * <p>
+ * Cognito can only walk the pool forward with {@code paginationToken}s, so reaching page N means reading every
+ * page before it. When a page is served, the position of the following page is cached under the filter, the
+ * page size and the page number, and a request for a later page resumes from the nearest cached position.
+ * Entries are short-lived because Cognito pagination tokens expire.
+ * <p>
+ * Metrics are published as the {@code cache.*} meters tagged with {@code cache=cognito.user-cursors}.
+ */
+@Service
+public class UserCursorCacheService {
+
+    private static final String CACHE_NAME = "cognito.user-cursors";
+
+    private final Cache<PageKey, Position> cache;
+
+    public UserCursorCacheService(MeterRegistry meterRegistry,
+                                  @Value("${app.cognito.users.cursor-cache.max-size:10000}") long maxSize,
+                                  @Value("${app.cognito.users.cursor-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Find the cached start of the requested page or, failing that, of the nearest page before it.
+     *
+     * @param filter the listing filter, may be null
+     * @param size   the page size
+     * @param page   the requested page number
+     * @return the nearest known page start, page 0 at the start of the pool when nothing is cached
+     */
+    public PageStart findNearest(String filter, int size, int page) {
+        for (int candidate = page; candidate > 0; candidate--) {
+            Position position = cache.getIfPresent(new PageKey(filter, size, candidate));
+            if (position != null) {
+                return new PageStart(candidate, position);
+            }
+        }
+        return new PageStart(0, Position.START);
+    }
+
+    /**
+     * Remember where a page starts.
+     *
+     * @param filter   the listing filter, may be null
+     * @param size     the page size
+     * @param page     the page number
+     * @param position the position of the first user of the page
+     */
+    public void put(String filter, int size, int page, Position position) {
+        if (page > 0) {
+            cache.put(new PageKey(filter, size, page), position);
+        }
+    }
+
+    /**
+     * A position in the user pool: the Cognito page holding a user and the user's index in that page.
+     *
+     * @param paginationToken the token fetching the Cognito page, null for the first one
+     * @param offset          the index of the user in the Cognito page
+     */
+    public record Position(String paginationToken, int offset) {
+
+        /**
+         * The first user of the pool.
+         */
+        public static final Position START = new Position(null, 0);
+    }
+
+    /**
+     * The start of a page of a listing.
+     *
+     * @param page     the page number
+     * @param position the position of the first user of the page
+     */
+    public record PageStart(int page, Position position) {
+    }
+
+    private record PageKey(String filter, int size, int page) {
+
+        private PageKey {
+            filter = Objects.requireNonNullElse(filter, "");
+        }
+    }
+}
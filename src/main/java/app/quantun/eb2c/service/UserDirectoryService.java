@@ -0,0 +1,355 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
+import app.quantun.eb2c.model.contract.contract.response.MembershipIndexResponse;
+import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
+import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import app.quantun.eb2c.repository.UserDirectoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service class maintaining a local copy of the Cognito user pool, used to list, search and sort users without
+ * calling Cognito.
+ * <p>
+ * Users are synced in the background. Each sync is a full scan: it walks the whole pool with ListUsers (60 users
+ * per call, so one call per 60 users, drawn from the same ListUsers quota as the user API) and only writes the
+ * users whose {@code userLastModifiedDate} changed, then drops the users Cognito no longer has. Group memberships
+ * do not move {@code userLastModifiedDate}, so they are synced on their own schedule by listing the members of
+ * every group; the same listing rebuilds the Redis membership index of {@link GroupMembershipIndexService}, so
+ * the pool's groups are walked once per run for both. The write methods of the user and group services write through, so changes made by this application
+ * are visible at once; changes made elsewhere show up after the next sync.
+ * <p>
+ * The directory is shared by every replica, so each sync runs on one replica at a time, under a PostgreSQL advisory
+ * lock; the other replicas skip the run. The directory is used once both syncs have completed on some replica.
+ */
+@Service
+@Slf4j
+public class UserDirectoryService {
+
+    private static final int MAX_LIST_USERS_LIMIT = 60;
+
+    /**
+     * Advisory lock keys of the syncs, unique within the database.
+     */
+    private static final long USERS_SYNC_LOCK_KEY = 0x5553_4552_5359_4E43L;
+
+    private static final long GROUPS_SYNC_LOCK_KEY = 0x4752_4F55_5053_594EL;
+
+    private static final String USERS_SYNC = "users";
+
+    private static final String GROUPS_SYNC = "groups";
+
+    private final CognitoIdentityProviderClient cognitoClient;
+
+    private final UserDirectoryRepository userDirectoryRepository;
+
+    private final GroupMembershipIndexService membershipIndexService;
+
+    private final String userPoolId;
+
+    private final boolean enabled;
+
+    private volatile boolean usersSynced;
+
+    private volatile boolean groupsSynced;
+
+    public UserDirectoryService(CognitoIdentityProviderClient cognitoClient,
+                                UserDirectoryRepository userDirectoryRepository,
+                                GroupMembershipIndexService membershipIndexService,
+                                @Value("${aws.cognito.userPoolId}") String userPoolId,
+                                @Value("${app.users.directory.enabled:true}") boolean enabled) {
+        this.cognitoClient = cognitoClient;
+        this.userDirectoryRepository = userDirectoryRepository;
+        this.membershipIndexService = membershipIndexService;
+        this.userPoolId = userPoolId;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Whether listings can be served from the directory.
+     *
+     * @return true once users and group memberships have been synced at least once
+     */
+    public boolean isReady() {
+        return enabled && usersSynced && groupsSynced;
+    }
+
+    /**
+     * List users from the directory, filtering by a case-insensitive prefix of the username or email and sorting
+     * over the whole pool.
+     *
+     * @param pagination Pagination parameters, with a sort field already validated
+     * @return Paginated list of users
+     */
+    public PagedResponse<UserResponse> listUsers(PaginationRequest pagination) {
+        String filter = pagination.getFilter() == null || pagination.getFilter().isEmpty()
+                ? null : pagination.getFilter();
+        int page = Math.max(0, pagination.getPage());
+        int size = pagination.getSize();
+
+        long totalElements = userDirectoryRepository.count(filter);
+        List<UserResponse> users = (long) page * size >= totalElements
+                ? List.of()
+                : userDirectoryRepository.search(filter, pagination.getSortBy(),
+                !"desc".equalsIgnoreCase(pagination.getSortDirection()), (long) page * size, size);
+        int totalPages = (int) Math.ceil((double) totalElements / size);
+
+        return new PagedResponse<>(
+                users,
+                page,
+                size,
+                totalElements,
+                totalPages,
+                page >= totalPages - 1,
+                pagination.getSortBy(),
+                pagination.getSortDirection(),
+                pagination.getFilter(),
+                null
+        );
+    }
+
+    /**
+     * Find a user in the directory.
+     *
+     * @param username the username
+     * @return the user with its groups, or empty when the directory is not ready, cannot be read or does not hold
+     * the user
+     */
+    public Optional<UserResponse> findUser(String username) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+        try {
+            return userDirectoryRepository.findByUsername(username);
+        } catch (DataAccessException e) {
+            log.warn("User directory read failed for {}: {}", username, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write a user changed in Cognito, including its groups.
+     *
+     * @param user the user as returned by Cognito
+     */
+    public void saveUser(UserResponse user) {
+        writeThrough("save user " + user.getUsername(),
+                () -> userDirectoryRepository.save(user, Instant.now()));
+    }
+
+    /**
+     * Remove a user deleted from Cognito.
+     *
+     * @param username the username
+     */
+    public void deleteUser(String username) {
+        writeThrough("delete user " + username, () -> userDirectoryRepository.deleteAll(List.of(username)));
+    }
+
+    /**
+     * Record a user added to a group in Cognito.
+     *
+     * @param username  the username
+     * @param groupName the group name
+     */
+    public void addUserToGroup(String username, String groupName) {
+        writeThrough("add " + username + " to " + groupName,
+                () -> userDirectoryRepository.addMembership(username, groupName));
+    }
+
+    /**
+     * Record a user removed from a group in Cognito.
+     *
+     * @param username  the username
+     * @param groupName the group name
+     */
+    public void removeUserFromGroup(String username, String groupName) {
+        writeThrough("remove " + username + " from " + groupName,
+                () -> userDirectoryRepository.removeMembership(username, groupName));
+    }
+
+    /**
+     * Record a group deleted from Cognito.
+     *
+     * @param groupName the group name
+     */
+    public void deleteGroup(String groupName) {
+        writeThrough("delete group " + groupName, () -> userDirectoryRepository.deleteGroup(groupName));
+    }
+
+    /**
+     * Bring the users of the directory up to date with Cognito, unless another replica is already doing it.
+     * Each run lists every user of the pool; only users whose last modification date changed are written.
+     */
+    @Scheduled(fixedDelayString = "${app.users.directory.sync-interval-ms:300000}")
+    public void syncUsers() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!userDirectoryRepository.runLocked(USERS_SYNC_LOCK_KEY, this::scanUsers)) {
+                usersSynced = userDirectoryRepository.findSyncedAt(USERS_SYNC).isPresent();
+                log.debug("User directory sync skipped, running on another replica");
+            }
+        } catch (SdkException | DataAccessException e) {
+            log.warn("User directory sync failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Bring the group memberships of the directory and of the membership index up to date with Cognito, unless
+     * another replica is already doing it.
+     */
+    @Scheduled(fixedDelayString = "${app.users.directory.group-sync-interval-ms:300000}")
+    public void syncGroups() {
+        if (!enabled && !membershipIndexService.isEnabled()) {
+            return;
+        }
+        try {
+            if (!userDirectoryRepository.runLocked(GROUPS_SYNC_LOCK_KEY, () -> scanGroups())) {
+                groupsSynced = userDirectoryRepository.findSyncedAt(GROUPS_SYNC).isPresent();
+                log.debug("User directory group sync skipped, running on another replica");
+            }
+        } catch (SdkException | DataAccessException e) {
+            log.warn("User directory group sync failed: {}", e.getMessage());
+        }
+    }
+
+    private void scanUsers() {
+        Instant startedAt = Instant.now();
+        Map<String, Instant> known = userDirectoryRepository.findLastModifiedDates();
+        Set<String> seen = new HashSet<>();
+        List<UserResponse> changed = new ArrayList<>();
+        String paginationToken = null;
+        do {
+            ListUsersResponse response = cognitoClient.listUsers(ListUsersRequest.builder()
+                    .userPoolId(userPoolId)
+                    .limit(MAX_LIST_USERS_LIMIT)
+                    .paginationToken(paginationToken)
+                    .build());
+            for (UserType user : response.users()) {
+                seen.add(user.username());
+                if (!known.containsKey(user.username())
+                        || !Objects.equals(known.get(user.username()), user.userLastModifiedDate())) {
+                    changed.add(toUserResponse(user));
+                }
+            }
+            if (changed.size() >= MAX_LIST_USERS_LIMIT * 10) {
+                userDirectoryRepository.upsertAll(changed, startedAt);
+                changed.clear();
+            }
+            paginationToken = response.paginationToken();
+        } while (paginationToken != null);
+        userDirectoryRepository.upsertAll(changed, startedAt);
+
+        Set<String> missing = new HashSet<>(known.keySet());
+        missing.removeAll(seen);
+        List<String> deleted = userDirectoryRepository.deleteSyncedBefore(missing, startedAt);
+
+        userDirectoryRepository.markSynced(USERS_SYNC, Instant.now());
+        usersSynced = true;
+        log.info("User directory synced: {} users, {} deleted", seen.size(), deleted.size());
+    }
+
+    /**
+     * Sync the group memberships now, on this replica, whether or not a scheduled sync is running elsewhere.
+     *
+     * @return the size of the rebuilt membership index
+     */
+    public MembershipIndexResponse refreshGroups() {
+        if (!enabled && !membershipIndexService.isEnabled()) {
+            return membershipIndexService.rebuild(Map.of());
+        }
+        return scanGroups();
+    }
+
+    private MembershipIndexResponse scanGroups() {
+        Map<String, List<String>> usersByGroup = new TreeMap<>();
+        String nextToken = null;
+        do {
+            ListGroupsResponse response = cognitoClient.listGroups(ListGroupsRequest.builder()
+                    .userPoolId(userPoolId)
+                    .nextToken(nextToken)
+                    .build());
+            response.groups().forEach(group -> usersByGroup.put(group.groupName(), List.of()));
+            nextToken = response.nextToken();
+        } while (nextToken != null);
+        usersByGroup.replaceAll((groupName, none) -> listMembers(groupName));
+
+        if (enabled) {
+            usersByGroup.forEach(userDirectoryRepository::replaceMembers);
+            userDirectoryRepository.retainGroups(usersByGroup.keySet());
+            userDirectoryRepository.markSynced(GROUPS_SYNC, Instant.now());
+            groupsSynced = true;
+            log.info("User directory group memberships synced: {} groups", usersByGroup.size());
+        }
+        return membershipIndexService.rebuild(usersByGroup);
+    }
+
+    private List<String> listMembers(String groupName) {
+        List<String> usernames = new ArrayList<>();
+        String nextToken = null;
+        do {
+            ListUsersInGroupResponse response = cognitoClient.listUsersInGroup(ListUsersInGroupRequest.builder()
+                    .userPoolId(userPoolId)
+                    .groupName(groupName)
+                    .nextToken(nextToken)
+                    .build());
+            response.users().forEach(user -> usernames.add(user.username()));
+            nextToken = response.nextToken();
+        } while (nextToken != null);
+        return usernames;
+    }
+
+    /**
+     * Apply a change made in Cognito to the directory. A failure is logged rather than thrown, since Cognito
+     * already holds the change and the next sync repairs the directory.
+     */
+    private void writeThrough(String description, Runnable write) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            write.run();
+        } catch (DataAccessException e) {
+            log.warn("User directory write-through failed to {}: {}", description, e.getMessage());
+        }
+    }
+
+    private static UserResponse toUserResponse(UserType user) {
+        Map<String, String> attributes = user.attributes().stream()
+                .collect(Collectors.toMap(AttributeType::name, AttributeType::value));
+        return UserResponse.builder()
+                .username(user.username())
+                .userId(user.username())
+                .userStatus(user.userStatusAsString())
+                .enabled(user.enabled())
+                .userCreateDate(user.userCreateDate())
+                .userLastModifiedDate(user.userLastModifiedDate())
+                .attributes(attributes)
+                .email(attributes.get("email"))
+                .phoneNumber(attributes.get("phone_number"))
+                .emailVerified(Boolean.parseBoolean(attributes.get("email_verified")))
+                .phoneNumberVerified(Boolean.parseBoolean(attributes.get("phone_number_verified")))
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package app.quantun.eb2c.service;
+
+
+import app.quantun.eb2c.exception.CognitoException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Service class caching the user to groups membership map of the Cognito user pool.
+ * <p>
+ * Cognito has no bulk call returning the groups of many users, so a page of users costs one
+ * {@code AdminListGroupsForUser} call per user. Memberships are cached per username, and the misses of a page are
+ * loaded concurrently on a fixed pool of threads, which bounds the load put on the Cognito request quota.
+ * Concurrent lookups of the same user share a single load. Membership changes made through this application
+ * evict the user; changes made elsewhere show up once the entry expires.
+ * <p>
+ * Metrics are published as the {@code cache.*} meters tagged with {@code cache=cognito.user-groups}, and as the
+ * {@code executor.*} meters of the loader pool.
+ */
+@Service
+@Slf4j
+public class UserGroupCacheService {
+
+    private static final String CACHE_NAME = "cognito.user-groups";
+
+    private final AsyncCache<String, List<String>> cache;
+
+    private final ExecutorService executor;
+
+    private final Duration loadTimeout;
+
+    public UserGroupCacheService(MeterRegistry meterRegistry,
+                                 @Value("${app.cognito.groups.cache.max-size:50000}") long maxSize,
+                                 @Value("${app.cognito.groups.cache.ttl:5m}") Duration ttl,
+                                 @Value("${app.cognito.groups.concurrency:8}") int concurrency,
+                                 @Value("${app.cognito.groups.load-timeout:10s}") Duration loadTimeout) {
+        this.loadTimeout = loadTimeout;
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry,
+                Executors.newFixedThreadPool(concurrency, threadFactory()), CACHE_NAME);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(executor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    /**
+     * Look up the groups of a user, loading them with the given function on a miss.
+     *
+     * @param username the username
+     * @param loader   loads the groups of a user from Cognito
+     * @return the names of the groups the user belongs to
+     */
+    public List<String> get(String username, Function<String, List<String>> loader) {
+        return getAll(List.of(username), loader).get(username);
+    }
+
+    /**
+     * Look up the groups of many users, loading the misses concurrently with the given function.
+     *
+     * @param usernames the usernames
+     * @param loader    loads the groups of a user from Cognito, called from the loader pool
+     * @return the names of the groups of each user, in the iteration order of the usernames
+     */
+    public Map<String, List<String>> getAll(Collection<String> usernames, Function<String, List<String>> loader) {
+        Map<String, CompletableFuture<List<String>>> futures = new LinkedHashMap<>();
+        for (String username : usernames) {
+            futures.put(username, cache.get(username, (key, pool) ->
+                    CompletableFuture.supplyAsync(() -> List.copyOf(loader.apply(key)), pool)));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                    .get(loadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            throw new CognitoException("Timed out loading the groups of " + futures.size() + " users", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CognitoException("Interrupted while loading user groups", e);
+        }
+
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        futures.forEach((username, future) -> groups.put(username, future.join()));
+        return groups;
+    }
+
+    /**
+     * Evict the memberships of a user.
+     *
+     * @param username the username
+     */
+    public void evict(String username) {
+        cache.synchronous().invalidate(username);
+    }
+
+    /**
+     * Evict every membership, for changes touching many users at once such as a group deletion.
+     */
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        Throwable root = cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+        if (root instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new CognitoException("Error loading user groups: " + root.getMessage(), root);
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "cognito-groups-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package app.quantun.eb2c.util;
+
+/**
+ * Concurrency limit adapting to the throttling of a downstream service (additive increase, multiplicative
+ * decrease).
+ * <p>
+ * Every successful call raises the limit by {@code 1 / limit}, so the limit grows by about one per round of
+ * calls, up to the maximum. A throttled call cuts the limit by the backoff ratio, down to the minimum. A burst of
+ * throttled calls only cuts the limit once: a throttled call that was admitted before the last cut does not cut it
+ * again.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private double limit;
+
+    private int inFlight;
+
+    private long lastDecrease;
+
+    /**
+     * @param initialLimit the limit to start with
+     * @param minLimit     the lowest limit, at least 1
+     * @param maxLimit     the highest limit
+     * @param backoffRatio the factor applied to the limit on throttling, between 0 and 1
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit range [" + minLimit + ", " + maxLimit + "]");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1: " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Wait until a call may start.
+     *
+     * @return the admission time of the call, to hand back to {@link #onThrottle(long)}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized long acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a successful call and release its slot.
+     */
+    public synchronized void onSuccess() {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+        release();
+    }
+
+    /**
+     * Record a throttled call and release its slot.
+     *
+     * @param admittedAt the value returned by {@link #acquire()} for the call
+     */
+    public synchronized void onThrottle(long admittedAt) {
+        if (admittedAt - lastDecrease > 0) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecrease = System.nanoTime();
+        }
+        release();
+    }
+
+    /**
+     * Release the slot of a call that failed for a reason unrelated to load.
+     */
+    public synchronized void onIgnore() {
+        release();
+    }
+
+    /**
+     * @return the current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the number of calls holding a slot
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+}
@@ -0,0 +1,67 @@
+package app.quantun.eb2c.util;
+
+import app.quantun.eb2c.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes and decodes opaque pagination cursors.
+ * <p>
+ * A cursor is an ordered list of string parts (for example the sort field, the direction, the last sort key
+ * and the last id). Each part is Base64URL-encoded and the parts are joined with a dot, so clients can pass the
+ * token around in query strings without having to understand or escape it. A {@code null} part is written as
+ * {@code ~}, which is outside the Base64URL alphabet.
+ */
+public final class CursorCodec {
+
+    private static final String SEPARATOR = ".";
+    private static final String NULL_PART = "~";
+
+    private CursorCodec() {
+    }
+
+    /**
+     * Encodes the given parts into an opaque cursor.
+     *
+     * @param parts the cursor parts, may contain nulls
+     * @return the encoded cursor
+     */
+    public static String encode(String... parts) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        StringBuilder cursor = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                cursor.append(SEPARATOR);
+            }
+            cursor.append(parts[i] == null
+                    ? NULL_PART
+                    : encoder.encodeToString(parts[i].getBytes(StandardCharsets.UTF_8)));
+        }
+        return cursor.toString();
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode(String...)}.
+     *
+     * @param cursor the encoded cursor
+     * @return the cursor parts
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public static List<String> decode(String cursor) {
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        List<String> parts = new ArrayList<>();
+        try {
+            for (String part : cursor.split("\\" + SEPARATOR, -1)) {
+                parts.add(NULL_PART.equals(part)
+                        ? null
+                        : new String(decoder.decode(part), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor: " + cursor, e);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,149 @@
+package app.quantun.eb2c.util;
+
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * HTTP validators of a resource: its ETag, Last-Modified date and surrogate keys.
+ * <p>
+ * Validators are computed from a few columns (IDs, versions, row counts and {@code updated_at}) without loading
+ * or rendering the resource, so {@link #checkNotModified(WebRequest)} can answer 304 before the body is built.
+ * Surrogate keys are sent in the {@code Surrogate-Key} header, letting an HTTP cache in front of the application
+ * purge every response that contains a given product, category or organization.
+ *
+ * @param eTag          the quoted entity tag, prefixed with {@code W/} when weak
+ * @param lastModified  the last modification date, null when unknown
+ * @param surrogateKeys the keys to purge the response by
+ */
+public record ResourceVersion(String eTag, LocalDateTime lastModified, List<String> surrogateKeys) {
+
+    /**
+     * Header carrying the space separated surrogate keys.
+     */
+    public static final String SURROGATE_KEY = "Surrogate-Key";
+
+    /**
+     * Create validators for a representation that is byte-for-byte identical while the tag does not change.
+     *
+     * @param tag           the unquoted tag
+     * @param lastModified  the last modification date, may be null
+     * @param surrogateKeys the keys to purge the response by
+     * @return the validators
+     */
+    public static ResourceVersion strong(String tag, LocalDateTime lastModified, String... surrogateKeys) {
+        return new ResourceVersion('"' + tag + '"', lastModified, List.of(surrogateKeys));
+    }
+
+    /**
+     * Create validators for a representation that is semantically equivalent while the tag does not change.
+     *
+     * @param tag           the unquoted tag
+     * @param lastModified  the last modification date, may be null
+     * @param surrogateKeys the keys to purge the response by
+     * @return the validators
+     */
+    public static ResourceVersion weak(String tag, LocalDateTime lastModified, String... surrogateKeys) {
+        return new ResourceVersion("W/\"" + tag + '"', lastModified, List.of(surrogateKeys));
+    }
+
+    /**
+     * Create the strong validators of a single product; the tag is derived from its ID and {@code updated_at}.
+     *
+     * @param id            the ID of the product
+     * @param updatedAt     the last modification date of the product
+     * @param surrogateKeys the keys to purge the response by
+     * @return the validators
+     */
+    public static ResourceVersion ofProduct(Long id, LocalDateTime updatedAt, List<String> surrogateKeys) {
+        return strong("product-" + id + "-" + tagOf(updatedAt), updatedAt, surrogateKeys.toArray(String[]::new));
+    }
+
+    /**
+     * Create the strong validators of a product from its representation, keyed by the product and its category.
+     *
+     * @param product the product, as served
+     * @return the validators
+     */
+    public static ResourceVersion ofProduct(ProductResponseDTO product) {
+        return ofProduct(product.getId(), product.getUpdatedAt(), product.getCategoryId() == null
+                ? List.of("product-" + product.getId())
+                : List.of("product-" + product.getId(), "category-" + product.getCategoryId()));
+    }
+
+    /**
+     * Evaluate If-None-Match and If-Modified-Since against these validators.
+     * The ETag and Last-Modified headers are added to the response either way.
+     *
+     * @param webRequest the current request
+     * @return true if the client copy is current and a 304 should be returned
+     */
+    public boolean checkNotModified(WebRequest webRequest) {
+        long lastModifiedMillis = lastModified == null
+                ? -1 : lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return webRequest.checkNotModified(eTag, lastModifiedMillis);
+    }
+
+    /**
+     * Build a 304 response carrying the surrogate keys.
+     *
+     * @param <T> the body type of the endpoint
+     * @return a response without body
+     */
+    public <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .header(SURROGATE_KEY, String.join(" ", surrogateKeys))
+                .build();
+    }
+
+    /**
+     * Start a 200 response carrying the validators and the surrogate keys.
+     *
+     * @return a response builder
+     */
+    public ResponseEntity.BodyBuilder ok() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(eTag)
+                .header(SURROGATE_KEY, String.join(" ", surrogateKeys));
+        if (lastModified != null) {
+            builder.lastModified(lastModified.atZone(ZoneId.systemDefault()));
+        }
+        return builder;
+    }
+
+    /**
+     * Answer a GET: 304 if the client copy is current, otherwise 200 with the body built by the supplier.
+     *
+     * @param webRequest the current request
+     * @param body       builds the body, only called when it is sent
+     * @param <T>        the body type
+     * @return the response
+     */
+    public <T> ResponseEntity<T> respond(WebRequest webRequest, Supplier<T> body) {
+        if (checkNotModified(webRequest)) {
+            return notModified();
+        }
+        return ok().body(body.get());
+    }
+
+    /**
+     * Render a timestamp for use inside a tag, microsecond precision as stored by PostgreSQL.
+     *
+     * @param timestamp the timestamp, may be null
+     * @return the epoch microseconds, 0 when null
+     */
+    public static long tagOf(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return 0;
+        }
+        Instant instant = timestamp.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,53 @@
+package app.quantun.eb2c.util;
+
+/**
+ * Token bucket rate limiter refilled continuously, holding up to one second of tokens.
+ * <p>
+ * Callers reserve a token and are told how long to wait for it, so concurrent callers queue in reservation order
+ * instead of polling. A reservation that would wait longer than the caller accepts is refused and takes nothing.
+ */
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond the sustained rate, also the burst size
+     */
+    public TokenBucket(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        this.capacity = Math.max(1, permitsPerSecond);
+        this.tokensPerNano = permitsPerSecond / NANOS_PER_SECOND;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Reserve a token.
+     *
+     * @param maxWaitNanos the longest wait the caller accepts
+     * @return the time to wait before using the token, in nanoseconds, or -1 when the wait would be too long
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+
+        long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        // Tokens go negative while callers queue, so each reservation waits behind the previous ones
+        tokens -= 1;
+        return waitNanos;
+    }
+}
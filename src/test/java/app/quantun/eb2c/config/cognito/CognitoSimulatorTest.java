@@ -0,0 +1,139 @@
+package app.quantun.eb2c.config.cognito;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CognitoSimulatorTest {
+
+    @Test
+    void seededPoolIsPagedWithTokens() {
+        // Given
+        CognitoIdentityProviderClient client = simulator(0, 0, 130, 3).client();
+
+        // When
+        List<String> usernames = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            ListUsersResponse response = client.listUsers(ListUsersRequest.builder()
+                    .limit(60)
+                    .paginationToken(token)
+                    .build());
+            response.users().forEach(user -> usernames.add(user.username()));
+            token = response.paginationToken();
+            pages++;
+        } while (token != null);
+
+        // Then
+        assertEquals(130, usernames.size());
+        assertEquals(3, pages);
+        assertEquals("user-00001", usernames.get(0));
+        assertEquals("user-00130", usernames.get(129));
+    }
+
+    @Test
+    void listUsersAppliesThePrefixFilter() {
+        // Given
+        CognitoIdentityProviderClient client = simulator(0, 0, 130, 3).client();
+
+        // When
+        ListUsersResponse response = client.listUsers(ListUsersRequest.builder()
+                .filter("username ^= \"user-0012\" or email ^= \"user-0012\"")
+                .build());
+
+        // Then
+        assertEquals(10, response.users().size());
+        assertNull(response.paginationToken());
+    }
+
+    @Test
+    void usersAndGroupsKeepTheirMemberships() {
+        // Given
+        CognitoIdentityProviderClient client = simulator(0, 0, 0, 0).client();
+        client.adminCreateUser(AdminCreateUserRequest.builder()
+                .username("alice")
+                .userAttributes(AttributeType.builder().name("email").value("alice@example.com").build())
+                .build());
+        client.createGroup(CreateGroupRequest.builder().groupName("Admins").precedence(1).build());
+
+        // When
+        client.adminAddUserToGroup(AdminAddUserToGroupRequest.builder().username("alice").groupName("Admins").build());
+        ListUsersInGroupResponse members = client.listUsersInGroup(ListUsersInGroupRequest.builder()
+                .groupName("Admins")
+                .build());
+        client.deleteGroup(DeleteGroupRequest.builder().groupName("Admins").build());
+        AdminListGroupsForUserResponse groups = client.adminListGroupsForUser(AdminListGroupsForUserRequest.builder()
+                .username("alice")
+                .build());
+
+        // Then
+        assertEquals("alice", members.users().get(0).username());
+        assertTrue(groups.groups().isEmpty());
+        assertEquals("alice@example.com", client.adminGetUser(AdminGetUserRequest.builder().username("alice").build())
+                .userAttributes().stream()
+                .filter(attribute -> attribute.name().equals("email"))
+                .findFirst().orElseThrow().value());
+    }
+
+    @Test
+    void missingAndDuplicateResourcesThrowCognitoExceptions() {
+        // Given
+        CognitoIdentityProviderClient client = simulator(0, 0, 1, 1).client();
+
+        // When / Then
+        assertThrows(UserNotFoundException.class,
+                () -> client.adminGetUser(AdminGetUserRequest.builder().username("nobody").build()));
+        assertThrows(ResourceNotFoundException.class,
+                () -> client.getGroup(GetGroupRequest.builder().groupName("nothing").build()));
+        assertThrows(UsernameExistsException.class,
+                () -> client.adminCreateUser(AdminCreateUserRequest.builder().username("user-00001").build()));
+        assertThrows(GroupExistsException.class,
+                () -> client.createGroup(CreateGroupRequest.builder().groupName("group-01").build()));
+        assertThrows(InvalidParameterException.class,
+                () -> client.listGroups(ListGroupsRequest.builder().limit(61).build()));
+    }
+
+    @Test
+    void callsBeyondTheQuotaAreThrottled() {
+        // Given a tenth of the 120 per second UserRead quota
+        CognitoIdentityProviderClient client = simulator(0.1, 0, 1, 1).client();
+        AdminGetUserRequest request = AdminGetUserRequest.builder().username("user-00001").build();
+
+        // When
+        int throttled = 0;
+        for (int i = 0; i < 50; i++) {
+            try {
+                client.adminGetUser(request);
+            } catch (TooManyRequestsException e) {
+                throttled++;
+            }
+        }
+
+        // Then
+        assertTrue(throttled > 0);
+    }
+
+    @Test
+    void errorRateInjectsInternalErrors() {
+        // Given
+        CognitoIdentityProviderClient client = simulator(0, 1.0, 1, 1).client();
+
+        // When
+        InternalErrorException error = assertThrows(InternalErrorException.class,
+                () -> client.listGroups(ListGroupsRequest.builder().build()));
+
+        // Then
+        assertEquals(500, error.statusCode());
+    }
+
+    private static CognitoSimulator simulator(double quotaMultiplier, double errorRate, int users, int groups) {
+        return new CognitoSimulator(Duration.ZERO, Duration.ZERO, errorRate, quotaMultiplier, users, groups, 1);
+    }
+}
@@ -0,0 +1,120 @@
+package app.quantun.eb2c.config.cognito;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilientCognitoClientTest {
+
+    @Mock
+    private CognitoIdentityProviderClient delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void throttledCallIsRetried() {
+        // Given
+        CognitoIdentityProviderClient client = wrap(Map.of(), 3);
+        AdminGetUserResponse response = AdminGetUserResponse.builder().username("alice").build();
+        when(delegate.adminGetUser(any(AdminGetUserRequest.class)))
+                .thenThrow(throttled())
+                .thenReturn(response);
+
+        // When
+        AdminGetUserResponse result = client.adminGetUser(AdminGetUserRequest.builder().username("alice").build());
+
+        // Then
+        assertSame(response, result);
+        verify(delegate, times(2)).adminGetUser(any(AdminGetUserRequest.class));
+        assertEquals(1, meterRegistry.get("cognito.client.retries").tag("operation", "AdminGetUser")
+                .counter().count());
+        assertEquals(1, meterRegistry.get("cognito.client.requests").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void builderVariantGoesThroughTheWrapper() {
+        // Given
+        CognitoIdentityProviderClient client = wrap(Map.of(), 2);
+        when(delegate.adminGetUser(any(AdminGetUserRequest.class)))
+                .thenThrow(throttled())
+                .thenReturn(AdminGetUserResponse.builder().username("alice").build());
+
+        // When
+        AdminGetUserResponse result = client.adminGetUser(request -> request.username("alice"));
+
+        // Then
+        assertEquals("alice", result.username());
+        verify(delegate, times(2)).adminGetUser(any(AdminGetUserRequest.class));
+    }
+
+    @Test
+    void persistentThrottlingIsThrownAfterMaxAttempts() {
+        // Given
+        CognitoIdentityProviderClient client = wrap(Map.of(), 3);
+        when(delegate.listUsers(any(ListUsersRequest.class))).thenThrow(throttled());
+
+        // When & Then
+        assertThrows(TooManyRequestsException.class, () -> client.listUsers(ListUsersRequest.builder().build()));
+        verify(delegate, times(3)).listUsers(any(ListUsersRequest.class));
+        assertEquals(3, meterRegistry.get("cognito.client.requests").tag("outcome", "throttled").timer().count());
+    }
+
+    @Test
+    void clientErrorIsNotRetried() {
+        // Given
+        CognitoIdentityProviderClient client = wrap(Map.of(), 3);
+        when(delegate.adminGetUser(any(AdminGetUserRequest.class)))
+                .thenThrow(UserNotFoundException.builder().message("User does not exist.").statusCode(400).build());
+
+        // When & Then
+        assertThrows(UserNotFoundException.class,
+                () -> client.adminGetUser(AdminGetUserRequest.builder().username("ghost").build()));
+        verify(delegate).adminGetUser(any(AdminGetUserRequest.class));
+    }
+
+    @Test
+    void exhaustedRateLimitFailsWithoutCallingCognito() {
+        // Given
+        CognitoIdentityProviderClient client = wrap(Map.of(CognitoQuota.USER_READ, 1.0), 1);
+        when(delegate.adminGetUser(any(AdminGetUserRequest.class)))
+                .thenReturn(AdminGetUserResponse.builder().username("alice").build());
+        AdminGetUserRequest request = AdminGetUserRequest.builder().username("alice").build();
+
+        // When
+        client.adminGetUser(request);
+
+        // Then
+        assertThrows(TooManyRequestsException.class, () -> client.adminGetUser(request));
+        verify(delegate).adminGetUser(any(AdminGetUserRequest.class));
+    }
+
+    private CognitoIdentityProviderClient wrap(Map<CognitoQuota, Double> rates, int maxAttempts) {
+        return ResilientCognitoClient.wrap(delegate, rates, meterRegistry, maxAttempts, Duration.ofMillis(1),
+                Duration.ofMillis(5), Duration.ZERO);
+    }
+
+    private static TooManyRequestsException throttled() {
+        return (TooManyRequestsException) TooManyRequestsException.builder()
+                .message("Rate exceeded")
+                .statusCode(400)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package app.quantun.eb2c.config.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CognitoAuthoritiesMapperTest {
+
+    private CognitoAuthoritiesMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        mapper = new CognitoAuthoritiesMapper(new SimpleMeterRegistry(), 100);
+    }
+
+    @Test
+    void groupsAndScopesBecomeRolesAndScopes() {
+        // When
+        Set<GrantedAuthority> authorities = mapper.authorities(List.of("Admins", "Users"), "openid api/read");
+
+        // Then
+        assertEquals(Set.of(
+                new SimpleGrantedAuthority("ROLE_Admins"),
+                new SimpleGrantedAuthority("ROLE_Users"),
+                new SimpleGrantedAuthority("SCOPE_openid"),
+                new SimpleGrantedAuthority("SCOPE_api/read")), authorities);
+    }
+
+    @Test
+    void missingClaimsGiveNoAuthorities() {
+        // When
+        Set<GrantedAuthority> authorities = mapper.authorities(null, null);
+
+        // Then
+        assertTrue(authorities.isEmpty());
+    }
+
+    @Test
+    void sameClaimsShareTheCachedAuthorities() {
+        // When
+        Set<GrantedAuthority> first = mapper.authorities(List.of("Admins"), null);
+        Set<GrantedAuthority> second = mapper.authorities(List.of("Admins"), null);
+
+        // Then
+        assertSame(first, second);
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new SimpleGrantedAuthority("ROLE_Other")));
+    }
+}
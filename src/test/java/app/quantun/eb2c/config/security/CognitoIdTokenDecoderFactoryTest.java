@@ -0,0 +1,121 @@
+package app.quantun.eb2c.config.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CognitoIdTokenDecoderFactoryTest {
+
+    private static final String ISSUER = "https://cognito-idp.us-east-1.amazonaws.com/us-east-1_pool";
+
+    private static final String JWK_SET_URI = ISSUER + "/.well-known/jwks.json";
+
+    @Mock
+    private ObjectProvider<JWKSource<SecurityContext>> jwkSourceProvider;
+
+    private RSAKey signingKey;
+
+    private CognitoIdTokenDecoderFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        factory = new CognitoIdTokenDecoderFactory(jwkSourceProvider, JWK_SET_URI);
+    }
+
+    @Test
+    void poolRegistrationUsesTheCachedKeys() throws Exception {
+        // Given
+        when(jwkSourceProvider.getIfAvailable()).thenReturn(new ImmutableJWKSet<>(new JWKSet(signingKey.toPublicJWK())));
+        ClientRegistration registration = registration(JWK_SET_URI);
+
+        // When
+        JwtDecoder decoder = factory.createDecoder(registration);
+        Jwt jwt = decoder.decode(idToken("web-client"));
+
+        // Then
+        assertSame(decoder, factory.createDecoder(registration));
+        assertEquals("3f2a", jwt.getSubject());
+        assertEquals("alice@example.com", jwt.getClaimAsString("email"));
+    }
+
+    @Test
+    void tokenForAnotherClientIsRejected() throws Exception {
+        // Given
+        when(jwkSourceProvider.getIfAvailable()).thenReturn(new ImmutableJWKSet<>(new JWKSet(signingKey.toPublicJWK())));
+        JwtDecoder decoder = factory.createDecoder(registration(JWK_SET_URI));
+
+        // When / Then
+        String token = idToken("other-client");
+        assertThrows(JwtValidationException.class, () -> decoder.decode(token));
+    }
+
+    @Test
+    void otherProvidersGetTheDefaultDecoder() {
+        // Given
+        when(jwkSourceProvider.getIfAvailable()).thenReturn(new ImmutableJWKSet<>(new JWKSet(signingKey.toPublicJWK())));
+        ClientRegistration registration = registration("https://idp.example.com/jwks");
+
+        // When
+        JwtDecoder first = factory.createDecoder(registration);
+        JwtDecoder second = factory.createDecoder(registration);
+
+        // Then the default factory keeps its own decoder per registration
+        assertNotNull(first);
+        assertSame(first, second);
+    }
+
+    private String idToken(String audience) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject("3f2a")
+                .audience(audience)
+                .claim("token_use", "id")
+                .claim("email", "alice@example.com")
+                .issueTime(Date.from(Instant.now()))
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("key-1").build(), claims);
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    private static ClientRegistration registration(String jwkSetUri) {
+        return ClientRegistration.withRegistrationId("cognito")
+                .clientId("web-client")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri(ISSUER + "/oauth2/authorize")
+                .tokenUri(ISSUER + "/oauth2/token")
+                .issuerUri(ISSUER)
+                .jwkSetUri(jwkSetUri)
+                .scope("openid")
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package app.quantun.eb2c.config.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CognitoJwkSourceWarmerTest {
+
+    @Mock
+    private ObjectProvider<JWKSource<SecurityContext>> jwkSourceProvider;
+
+    @Mock
+    private JWKSource<SecurityContext> jwkSource;
+
+    @Test
+    void warmUpFetchesTheSigningKeys() throws Exception {
+        // Given
+        JWK key = new RSAKeyGenerator(2048).keyID("key-1").generate().toPublicJWK();
+        when(jwkSourceProvider.getIfAvailable()).thenReturn(jwkSource);
+        when(jwkSource.get(any(JWKSelector.class), isNull())).thenReturn(List.of(key));
+
+        // When
+        new CognitoJwkSourceWarmer(jwkSourceProvider).warmUp();
+
+        // Then
+        verify(jwkSource).get(any(JWKSelector.class), isNull());
+    }
+
+    @Test
+    void failedWarmUpIsNotPropagated() throws Exception {
+        // Given
+        when(jwkSourceProvider.getIfAvailable()).thenReturn(jwkSource);
+        when(jwkSource.get(any(JWKSelector.class), isNull())).thenThrow(new KeySourceException("unreachable"));
+
+        // When & Then
+        assertDoesNotThrow(() -> new CognitoJwkSourceWarmer(jwkSourceProvider).warmUp());
+    }
+
+    @Test
+    void warmUpDoesNothingWhenBearerTokensAreDisabled() {
+        // Given
+        when(jwkSourceProvider.getIfAvailable()).thenReturn(null);
+
+        // When & Then
+        assertDoesNotThrow(() -> new CognitoJwkSourceWarmer(jwkSourceProvider).warmUp());
+    }
+}
@@ -0,0 +1,74 @@
+package app.quantun.eb2c.config.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CognitoJwtAuthenticationConverterTest {
+
+    private final CognitoJwtAuthenticationConverter converter =
+            new CognitoJwtAuthenticationConverter(new CognitoAuthoritiesMapper(new SimpleMeterRegistry(), 100));
+
+    @Test
+    void accessTokenIsNamedAfterItsUsername() {
+        // Given
+        Jwt jwt = jwt()
+                .claim("token_use", "access")
+                .claim("username", "alice")
+                .claim("cognito:groups", List.of("Admins"))
+                .claim("scope", "aws.cognito.signin.user.admin")
+                .build();
+
+        // When
+        AbstractAuthenticationToken authentication = converter.convert(jwt);
+
+        // Then
+        assertEquals("alice", authentication.getName());
+        assertTrue(authentication.isAuthenticated());
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_Admins"),
+                        new SimpleGrantedAuthority("SCOPE_aws.cognito.signin.user.admin")),
+                Set.copyOf(authentication.getAuthorities()));
+    }
+
+    @Test
+    void idTokenIsNamedAfterItsCognitoUsername() {
+        // Given
+        Jwt jwt = jwt().claim("token_use", "id").claim("cognito:username", "bob").build();
+
+        // When
+        AbstractAuthenticationToken authentication = converter.convert(jwt);
+
+        // Then
+        assertEquals("bob", authentication.getName());
+        assertTrue(authentication.getAuthorities().isEmpty());
+    }
+
+    @Test
+    void machineTokenIsNamedAfterItsSubject() {
+        // Given
+        Jwt jwt = jwt().claim("token_use", "access").claim("scope", "api/read").build();
+
+        // When
+        AbstractAuthenticationToken authentication = converter.convert(jwt);
+
+        // Then
+        assertEquals("3f2a", authentication.getName());
+        assertEquals(Set.of(new SimpleGrantedAuthority("SCOPE_api/read")), Set.copyOf(authentication.getAuthorities()));
+    }
+
+    private static Jwt.Builder jwt() {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("3f2a")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600));
+    }
+}
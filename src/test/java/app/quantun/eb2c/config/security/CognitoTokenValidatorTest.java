@@ -0,0 +1,61 @@
+package app.quantun.eb2c.config.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CognitoTokenValidatorTest {
+
+    private final CognitoTokenValidator validator = new CognitoTokenValidator(Set.of("web-client", "batch-client"));
+
+    @Test
+    void accessTokenOfKnownClientIsValid() {
+        // Given
+        Jwt jwt = jwt().claim("token_use", "access").claim("client_id", "batch-client").build();
+
+        // When / Then
+        assertFalse(validator.validate(jwt).hasErrors());
+    }
+
+    @Test
+    void accessTokenOfUnknownClientIsRejected() {
+        // Given
+        Jwt jwt = jwt().claim("token_use", "access").claim("client_id", "other-client").build();
+
+        // When / Then
+        assertTrue(validator.validate(jwt).hasErrors());
+    }
+
+    @Test
+    void idTokenIsCheckedAgainstItsAudience() {
+        // Given
+        Jwt known = jwt().claim("token_use", "id").audience(List.of("web-client")).build();
+        Jwt unknown = jwt().claim("token_use", "id").audience(List.of("other-client")).build();
+
+        // When / Then
+        assertFalse(validator.validate(known).hasErrors());
+        assertTrue(validator.validate(unknown).hasErrors());
+    }
+
+    @Test
+    void tokenWithoutCognitoUseIsRejected() {
+        // Given
+        Jwt jwt = jwt().claim("client_id", "web-client").audience(List.of("web-client")).build();
+
+        // When / Then
+        assertTrue(validator.validate(jwt).hasErrors());
+    }
+
+    private static Jwt.Builder jwt() {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("3f2a")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600));
+    }
+}
@@ -0,0 +1,75 @@
+package app.quantun.eb2c.config.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomOidcUserServiceTest {
+
+    private final CognitoAuthoritiesMapper authoritiesMapper =
+            new CognitoAuthoritiesMapper(new SimpleMeterRegistry(), 100);
+
+    @Test
+    void idTokenWithTheNeededClaimsSkipsUserInfo() {
+        // Given a user info endpoint nothing listens on
+        CustomOidcUserService service = new CustomOidcUserService(authoritiesMapper, List.of("sub", "email"));
+        OidcIdToken idToken = OidcIdToken.withTokenValue("id-token")
+                .subject("3f2a")
+                .claim("email", "alice@example.com")
+                .claim("cognito:groups", List.of("Admins"))
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+
+        // When
+        OidcUser user = service.loadUser(request(idToken));
+
+        // Then
+        assertEquals("3f2a", user.getName());
+        assertEquals("alice@example.com", user.getEmail());
+        assertNull(user.getUserInfo());
+        assertEquals(Set.of(new SimpleGrantedAuthority("ROLE_Admins")), Set.copyOf(user.getAuthorities()));
+    }
+
+    @Test
+    void idTokenMissingAClaimFallsBackToUserInfo() {
+        // Given
+        CustomOidcUserService service = new CustomOidcUserService(authoritiesMapper, List.of("sub", "email"));
+        OidcIdToken idToken = OidcIdToken.withTokenValue("id-token")
+                .subject("3f2a")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+
+        // When / Then the user info endpoint is called
+        assertThrows(OAuth2AuthenticationException.class, () -> service.loadUser(request(idToken)));
+    }
+
+    private static OidcUserRequest request(OidcIdToken idToken) {
+        ClientRegistration registration = ClientRegistration.withRegistrationId("cognito")
+                .clientId("web-client")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri("https://auth.example.com/oauth2/authorize")
+                .tokenUri("https://auth.example.com/oauth2/token")
+                .userInfoUri("http://localhost:1/oauth2/userInfo")
+                .scope("openid", "email")
+                .build();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+                Instant.now(), Instant.now().plusSeconds(3600), Set.of("openid", "email"));
+        return new OidcUserRequest(registration, accessToken, idToken);
+    }
+}
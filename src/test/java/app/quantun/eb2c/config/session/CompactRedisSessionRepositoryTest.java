@@ -0,0 +1,187 @@
+package app.quantun.eb2c.config.session;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class CompactRedisSessionRepositoryTest {
+
+    @Mock
+    private RedisOperations<String, byte[]> redisOperations;
+
+    @Mock
+    private HashOperations<String, String, byte[]> hashOperations;
+
+    private CompactSessionSerializer serializer;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CompactRedisSessionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        serializer = spy(new CompactSessionSerializer());
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(redisOperations.<String, byte[]>opsForHash()).thenReturn(hashOperations);
+        repository = new CompactRedisSessionRepository(redisOperations, serializer, meterRegistry, "session:",
+                Duration.ofMinutes(30), Duration.ofSeconds(60));
+    }
+
+    @Test
+    void newSessionIsWrittenWholeWithTheTimeoutAndInterval() {
+        // Given
+        CompactRedisSessionRepository.RedisSession session = repository.createSession();
+        session.setAttribute("greeting", "hello");
+
+        // When
+        repository.save(session);
+
+        // Then
+        ArgumentCaptor<Map<String, byte[]>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations).putAll(eq("session:" + session.getId()), fields.capture());
+        assertTrue(fields.getValue().keySet().containsAll(List.of("created", "lastAccessed", "maxInactive",
+                "attr:greeting")));
+        verify(redisOperations).expire("session:" + session.getId(), 1860, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void attributesAreDeserializedOnFirstRead() {
+        // Given
+        when(hashOperations.entries("session:abc")).thenReturn(stored(Instant.now(), "hello"));
+
+        // When
+        CompactRedisSessionRepository.RedisSession session = repository.findById("abc");
+
+        // Then
+        assertNotNull(session);
+        assertEquals(List.of("greeting"), List.copyOf(session.getAttributeNames()));
+        verify(serializer, never()).deserialize(any());
+        assertEquals("hello", session.getAttribute("greeting"));
+        assertEquals("hello", session.getAttribute("greeting"));
+        verify(serializer, times(1)).deserialize(any());
+    }
+
+    @Test
+    void accessWithinTheTouchIntervalIsNotWritten() {
+        // Given
+        when(hashOperations.entries("session:abc")).thenReturn(stored(Instant.now().minusSeconds(10), "hello"));
+        CompactRedisSessionRepository.RedisSession session = repository.findById("abc");
+        session.setLastAccessedTime(Instant.now());
+
+        // When
+        repository.save(session);
+
+        // Then
+        verify(hashOperations, never()).putAll(anyString(), anyMap());
+        verify(redisOperations, never()).expire(anyString(), anyLong(), any());
+        assertEquals(1, meterRegistry.get("session.store.touches.skipped").counter().count());
+    }
+
+    @Test
+    void accessAfterTheTouchIntervalWritesTheAccessTimeOnly() {
+        // Given
+        when(hashOperations.entries("session:abc")).thenReturn(stored(Instant.now().minusSeconds(90), "hello"));
+        CompactRedisSessionRepository.RedisSession session = repository.findById("abc");
+        session.setLastAccessedTime(Instant.now());
+
+        // When
+        repository.save(session);
+
+        // Then
+        ArgumentCaptor<Map<String, byte[]>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations).putAll(eq("session:abc"), fields.capture());
+        assertEquals(List.of("lastAccessed"), List.copyOf(fields.getValue().keySet()));
+        assertEquals(1, meterRegistry.get("session.store.writes").tag("kind", "touch").counter().count());
+    }
+
+    @Test
+    void changedAndRemovedAttributesAreWrittenAsADelta() {
+        // Given
+        Map<String, byte[]> entries = stored(Instant.now(), "hello");
+        entries.put("attr:other", serializer.serialize("value"));
+        when(hashOperations.entries("session:abc")).thenReturn(entries);
+        CompactRedisSessionRepository.RedisSession session = repository.findById("abc");
+
+        // When
+        session.setAttribute("greeting", "bye");
+        session.removeAttribute("other");
+        repository.save(session);
+
+        // Then
+        ArgumentCaptor<Map<String, byte[]>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations).putAll(eq("session:abc"), fields.capture());
+        assertEquals(List.of("attr:greeting", "lastAccessed"), fields.getValue().keySet().stream().sorted().toList());
+        assertEquals("bye", serializer.deserialize(fields.getValue().get("attr:greeting")));
+        verify(hashOperations).delete("session:abc", "attr:other");
+    }
+
+    @Test
+    void changedIdMovesTheSession() {
+        // Given
+        when(hashOperations.entries("session:abc")).thenReturn(stored(Instant.now(), "hello"));
+        CompactRedisSessionRepository.RedisSession session = repository.findById("abc");
+
+        // When
+        String newId = session.changeSessionId();
+        repository.save(session);
+
+        // Then
+        verify(redisOperations).delete("session:abc");
+        ArgumentCaptor<Map<String, byte[]>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations).putAll(eq("session:" + newId), fields.capture());
+        assertTrue(fields.getValue().containsKey("attr:greeting"));
+        // Moved without deserializing the attribute
+        verify(serializer, never()).deserialize(any());
+    }
+
+    @Test
+    void expiredSessionIsNotFound() {
+        // Given
+        when(hashOperations.entries("session:abc")).thenReturn(stored(Instant.now().minus(Duration.ofHours(1)),
+                "hello"));
+
+        // When
+        CompactRedisSessionRepository.RedisSession session = repository.findById("abc");
+
+        // Then
+        assertNull(session);
+        verify(redisOperations).delete("session:abc");
+    }
+
+    private Map<String, byte[]> stored(Instant lastAccessed, String greeting) {
+        Map<String, byte[]> entries = new HashMap<>();
+        entries.put("created", ascii(lastAccessed.minusSeconds(60).toEpochMilli()));
+        entries.put("lastAccessed", ascii(lastAccessed.toEpochMilli()));
+        entries.put("maxInactive", ascii(1800));
+        entries.put("attr:greeting", new CompactSessionSerializer().serialize(greeting));
+        return entries;
+    }
+
+    private static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,134 @@
+package app.quantun.eb2c.config.session;
+
+import app.quantun.eb2c.model.contract.contract.dto.CustomUserDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.user.DefaultOidcUser;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactSessionSerializerTest {
+
+    private final CompactSessionSerializer serializer = new CompactSessionSerializer();
+
+    @Test
+    void securityContextOfALoginRoundTripsCompactly() throws Exception {
+        // Given the context left by the login success handler
+        OidcUser user = oidcUser();
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_Admins"));
+        SecurityContextImpl context = new SecurityContextImpl(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, authorities));
+
+        // When
+        byte[] bytes = serializer.serialize(context);
+        SecurityContextImpl result = (SecurityContextImpl) serializer.deserialize(bytes);
+
+        // Then
+        assertEquals(authorities, List.copyOf(result.getAuthentication().getAuthorities()));
+        assertTrue(result.getAuthentication().isAuthenticated());
+        OidcUser principal = (OidcUser) result.getAuthentication().getPrincipal();
+        assertEquals(user.getIdToken().getTokenValue(), principal.getIdToken().getTokenValue());
+        assertEquals(user.getClaims(), principal.getClaims());
+        assertEquals("alice-sub", principal.getName());
+        assertTrue(bytes.length < javaSize(context) / 2);
+    }
+
+    @Test
+    void oauth2AuthenticationRoundTrips() {
+        // Given
+        OidcUser user = oidcUser();
+        SecurityContextImpl context = new SecurityContextImpl(
+                new OAuth2AuthenticationToken(user, user.getAuthorities(), "auth0"));
+
+        // When
+        OAuth2AuthenticationToken result = (OAuth2AuthenticationToken) ((SecurityContextImpl) serializer
+                .deserialize(serializer.serialize(context))).getAuthentication();
+
+        // Then
+        assertEquals("auth0", result.getAuthorizedClientRegistrationId());
+        assertEquals(List.copyOf(user.getAuthorities()), List.copyOf(result.getAuthorities()));
+        assertEquals(user.getIdToken().getClaims(), ((OidcUser) result.getPrincipal()).getIdToken().getClaims());
+    }
+
+    @Test
+    void userDtoRoundTrips() {
+        // Given
+        CustomUserDTO user = CustomUserDTO.builder()
+                .username("alice@example.com")
+                .email("alice@example.com")
+                .accountId("alice-sub")
+                .givenName("Alice")
+                .groups(List.of("Admins"))
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_Admins")))
+                .build();
+
+        // When
+        Object result = serializer.deserialize(serializer.serialize(user));
+
+        // Then
+        assertEquals(user, result);
+    }
+
+    @Test
+    void otherSerializableValuesFallBackToJavaSerialization() {
+        // Given
+        ArrayList<String> value = new ArrayList<>(List.of("a", "b"));
+
+        // When
+        byte[] bytes = serializer.serialize(value);
+
+        // Then
+        assertEquals(0, bytes[0]);
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void corruptValueIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(new byte[]{1, 42}));
+    }
+
+    private static OidcUser oidcUser() {
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", "alice-sub");
+        try {
+            claims.put("iss", URI.create("https://cognito-idp.us-east-1.amazonaws.com/pool").toURL());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        claims.put("aud", List.of("client"));
+        claims.put("iat", issuedAt);
+        claims.put("exp", issuedAt.plusSeconds(3600));
+        claims.put("email", "alice@example.com");
+        claims.put("email_verified", true);
+        claims.put("cognito:groups", List.of("Admins"));
+        OidcIdToken idToken = new OidcIdToken("header.payload.signature", issuedAt, issuedAt.plusSeconds(3600),
+                claims);
+        return new DefaultOidcUser(List.of(new SimpleGrantedAuthority("ROLE_Admins")), idToken);
+    }
+
+    private static int javaSize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.size();
+    }
+}
@@ -0,0 +1,198 @@
+package app.quantun.eb2c.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Load harness driving the user and group endpoints of a running application, typically started with the
+ * {@code cognito-sim} profile so Cognito latency and throttling are simulated.
+ * <p>
+ * Requests are sent at a fixed rate whatever the response times (an open model), and each latency is measured
+ * from the time the request was scheduled, so a stalled server shows up in the percentiles instead of slowing
+ * the load down. Endpoints are picked at random with fixed weights over the seeded {@code user-00001} users and
+ * {@code group-01} groups.
+ * <p>
+ * Run with {@code ./gradlew loadTest -PloadArgs="--rps=500 --duration=60s"}; the options are
+ * {@code --base-url}, {@code --rps}, {@code --duration}, {@code --users} and {@code --groups}.
+ */
+public final class LoadHarness {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String baseUrl;
+
+    private final int users;
+
+    private final int groups;
+
+    private final List<Endpoint> endpoints;
+
+    private final int totalWeight;
+
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+
+    private LoadHarness(String baseUrl, int users, int groups) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.groups = groups;
+        this.endpoints = List.of(
+                new Endpoint("GET /api/users", 20, random -> get("/api/users?filter=user-0" + random.nextInt(10))),
+                new Endpoint("GET /api/users/{username}", 30, random -> get("/api/users/" + user(random))),
+                new Endpoint("GET /api/users/{username}/groups", 20,
+                        random -> get("/api/users/" + user(random) + "/groups")),
+                new Endpoint("GET /api/groups", 10, random -> get("/api/groups")),
+                new Endpoint("GET /api/groups/{groupName}/users", 10,
+                        random -> get("/api/groups/" + group(random) + "/users")),
+                new Endpoint("POST /api/groups/{groupName}/users/{username}", 5,
+                        random -> send("POST", "/api/groups/" + group(random) + "/users/" + user(random))),
+                new Endpoint("DELETE /api/groups/{groupName}/users/{username}", 5,
+                        random -> send("DELETE", "/api/groups/" + group(random) + "/users/" + user(random))));
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+        endpoints.forEach(endpoint -> stats.put(endpoint.name(), new Stats()));
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        Arrays.stream(args)
+                .filter(arg -> arg.startsWith("--") && arg.contains("="))
+                .forEach(arg -> options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1)));
+
+        LoadHarness harness = new LoadHarness(options.getOrDefault("base-url", "http://localhost:8080"),
+                Integer.parseInt(options.getOrDefault("users", "1000")),
+                Integer.parseInt(options.getOrDefault("groups", "20")));
+        harness.run(Integer.parseInt(options.getOrDefault("rps", "500")),
+                parseDuration(options.getOrDefault("duration", "60s")));
+        harness.report(System.out::println);
+    }
+
+    private void run(int rps, Duration duration) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rps;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Endpoint endpoint = pick(random);
+            Stats endpointStats = stats.get(endpoint.name());
+            long intended = scheduled;
+            inFlight.add(client.sendAsync(endpoint.request().apply(random), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        boolean success = error == null && response.statusCode() < 500;
+                        endpointStats.record(System.nanoTime() - intended, success);
+                        return null;
+                    }));
+            inFlight.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        long elapsedNanos = System.nanoTime() - start;
+        stats.values().forEach(endpointStats -> endpointStats.elapsedNanos = elapsedNanos);
+    }
+
+    private void report(Consumer<String> out) {
+        out.accept(String.format("%-50s %8s %7s %9s %9s %9s %9s %9s", "endpoint", "count", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        stats.forEach((name, endpointStats) -> out.accept(endpointStats.summary(name)));
+    }
+
+    private Endpoint pick(ThreadLocalRandom random) {
+        int value = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            value -= endpoint.weight();
+            if (value < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    private String user(ThreadLocalRandom random) {
+        return String.format("user-%05d", random.nextInt(users) + 1);
+    }
+
+    private String group(ThreadLocalRandom random) {
+        return String.format("group-%02d", random.nextInt(groups) + 1);
+    }
+
+    private HttpRequest get(String path) {
+        return send("GET", path);
+    }
+
+    private HttpRequest send(String method, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .header("Accept", "application/json")
+                .build();
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+    }
+
+    private record Endpoint(String name, int weight, Function<ThreadLocalRandom, HttpRequest> request) {
+    }
+
+    /**
+     * Latencies of one endpoint, in microseconds; recorded from the HTTP client threads.
+     */
+    private static final class Stats {
+
+        private final List<Long> latencies = new ArrayList<>();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        private long elapsedNanos;
+
+        synchronized void record(long nanos, boolean success) {
+            latencies.add(TimeUnit.NANOSECONDS.toMicros(nanos));
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized String summary(String name) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%-50s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f", name, sorted.length, errors.get(),
+                    seconds == 0 ? 0 : sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                    percentile(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package app.quantun.eb2c.message;
+
+import app.quantun.eb2c.message.event.DomainEvent;
+import app.quantun.eb2c.message.event.GroupCatalogChangedEvent;
+import app.quantun.eb2c.message.event.GroupMembersChangedEvent;
+import app.quantun.eb2c.message.event.MembershipsResetEvent;
+import app.quantun.eb2c.message.event.ProductsChangedEvent;
+import app.quantun.eb2c.message.event.UserGroupsChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainEventCodecTest {
+
+    @Test
+    void everyEventTypeRoundTrips() {
+        // Given
+        Instant publishedAt = Instant.ofEpochMilli(1_700_000_000_123L);
+        List<DomainEvent> events = List.of(
+                new ProductsChangedEvent(List.of(1L, 2L, 3L)),
+                new UserGroupsChangedEvent("alice"),
+                new GroupMembersChangedEvent("Admins"),
+                new MembershipsResetEvent(),
+                new GroupCatalogChangedEvent("replica-1"));
+
+        // When
+        DomainEventCodec.Batch batch = DomainEventCodec.decode(DomainEventCodec.encode(publishedAt, events));
+
+        // Then
+        assertEquals(publishedAt, batch.publishedAt());
+        assertEquals(events, batch.events());
+    }
+
+    @Test
+    void encodingIsCompact() {
+        // When
+        byte[] bytes = DomainEventCodec.encode(Instant.now(), List.of(new UserGroupsChangedEvent("alice")));
+
+        // Then format, timestamp, count, type, name length and name
+        assertEquals(1 + 8 + 4 + 1 + 2 + 5, bytes.length);
+    }
+
+    @Test
+    void malformedBatchesAreRejected() {
+        // Given
+        byte[] bytes = DomainEventCodec.encode(Instant.now(), List.of(new GroupMembersChangedEvent("Admins")));
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class,
+                () -> DomainEventCodec.decode("product-cache:evict:1".getBytes()));
+        assertThrows(IllegalArgumentException.class,
+                () -> DomainEventCodec.decode(Arrays.copyOf(bytes, bytes.length - 2)));
+    }
+}
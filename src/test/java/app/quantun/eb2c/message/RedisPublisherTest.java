@@ -0,0 +1,92 @@
+package app.quantun.eb2c.message;
+
+import app.quantun.eb2c.message.event.DomainEvent;
+import app.quantun.eb2c.message.event.GroupMembersChangedEvent;
+import app.quantun.eb2c.message.event.ProductsChangedEvent;
+import app.quantun.eb2c.message.event.UserGroupsChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisPublisherTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisConnection connection;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            RedisCallback<?> callback = invocation.getArgument(0);
+            callback.doInRedis(connection);
+            return List.of();
+        });
+    }
+
+    @Test
+    void queuedEventsAreSentInBatchesOnTheChannel() throws Exception {
+        // Given
+        RedisPublisher publisher = publisher(2, Duration.ofMillis(50));
+        List<DomainEvent> events = List.of(
+                new ProductsChangedEvent(List.of(1L, 2L)),
+                new UserGroupsChangedEvent("alice"),
+                new GroupMembersChangedEvent("Admins"));
+
+        // When
+        events.forEach(publisher::publish);
+        publisher.shutdown();
+
+        // Then every event is sent once, in order, in batches of at most two
+        ArgumentCaptor<byte[]> bodies = ArgumentCaptor.forClass(byte[].class);
+        verify(connection, atLeast(2)).publish(eq("messageQueue".getBytes()), bodies.capture());
+        List<DomainEvent> sent = bodies.getAllValues().stream()
+                .map(DomainEventCodec::decode)
+                .peek(batch -> assertTrue(batch.events().size() <= 2))
+                .flatMap(batch -> batch.events().stream())
+                .toList();
+        assertEquals(events, sent);
+        assertEquals(3.0, meterRegistry.get("events.published").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum());
+    }
+
+    @Test
+    void eventsPublishedAfterShutdownAreDropped() throws Exception {
+        // Given
+        RedisPublisher publisher = publisher(10, Duration.ZERO);
+        publisher.shutdown();
+
+        // When
+        publisher.publish(new UserGroupsChangedEvent("alice"));
+
+        // Then
+        assertEquals(1.0, meterRegistry.get("events.publish.dropped").counter().count());
+        verifyNoInteractions(connection);
+    }
+
+    private RedisPublisher publisher(int maxBatchSize, Duration linger) {
+        return new RedisPublisher(redisTemplate, new ChannelTopic("messageQueue"), meterRegistry, 100, maxBatchSize,
+                linger, Duration.ofMillis(10));
+    }
+}
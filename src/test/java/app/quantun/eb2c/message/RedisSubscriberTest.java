@@ -0,0 +1,134 @@
+package app.quantun.eb2c.message;
+
+import app.quantun.eb2c.config.redis.RedisConfig;
+import app.quantun.eb2c.message.event.GroupCatalogChangedEvent;
+import app.quantun.eb2c.message.event.GroupMembersChangedEvent;
+import app.quantun.eb2c.message.event.MembershipsResetEvent;
+import app.quantun.eb2c.message.event.ProductsChangedEvent;
+import app.quantun.eb2c.message.event.UserGroupsChangedEvent;
+import app.quantun.eb2c.service.GroupCatalogService;
+import app.quantun.eb2c.service.GroupMembershipIndexService;
+import app.quantun.eb2c.service.ProductCacheService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisSubscriberTest {
+
+    @Mock
+    private ProductCacheService productCacheService;
+
+    @Mock
+    private GroupMembershipIndexService membershipIndexService;
+
+    @Mock
+    private GroupCatalogService groupCatalogService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RedisSubscriber redisSubscriber;
+
+    @BeforeEach
+    void setUp() {
+        redisSubscriber = new RedisSubscriber(productCacheService, membershipIndexService, groupCatalogService,
+                meterRegistry);
+    }
+
+    @Test
+    void eachEventGoesToTheHandlerOfItsType() {
+        // Given
+        byte[] body = DomainEventCodec.encode(Instant.now(), List.of(
+                new ProductsChangedEvent(List.of(7L)),
+                new UserGroupsChangedEvent("alice"),
+                new GroupMembersChangedEvent("Admins"),
+                new MembershipsResetEvent(),
+                new GroupCatalogChangedEvent("replica-1")));
+
+        // When
+        redisSubscriber.onMessage(new DefaultMessage("messageQueue".getBytes(), body), null);
+
+        // Then
+        InOrder inOrder = inOrder(productCacheService, membershipIndexService, groupCatalogService);
+        inOrder.verify(productCacheService).onProductsChanged(new ProductsChangedEvent(List.of(7L)));
+        inOrder.verify(membershipIndexService).onUserGroupsChanged(new UserGroupsChangedEvent("alice"));
+        inOrder.verify(membershipIndexService).onGroupMembersChanged(new GroupMembersChangedEvent("Admins"));
+        inOrder.verify(membershipIndexService).onMembershipsReset(new MembershipsResetEvent());
+        inOrder.verify(groupCatalogService).onCatalogChanged(new GroupCatalogChangedEvent("replica-1"));
+        assertEquals(1.0, meterRegistry.get("events.received").tag("type", "UserGroupsChangedEvent").counter().count());
+        assertEquals(1, meterRegistry.get("events.lag").timer().count());
+    }
+
+    @Test
+    void bytesSentByThePublisherReachTheHandlers() throws Exception {
+        // Given the publisher on the template of the application
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        RedisTemplate<String, Object> redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        ChannelTopic topic = new RedisConfig().topic();
+        RedisPublisher publisher = new RedisPublisher(redisTemplate, topic, new SimpleMeterRegistry(), 100, 256,
+                Duration.ofMillis(50), Duration.ofMillis(10));
+
+        // When
+        publisher.publish(new ProductsChangedEvent(List.of(7L, 8L)));
+        publisher.publish(new GroupMembersChangedEvent("Admins"));
+        publisher.shutdown();
+        ArgumentCaptor<byte[]> bodies = ArgumentCaptor.forClass(byte[].class);
+        verify(connection, atLeastOnce()).publish(eq(topic.getTopic().getBytes()), bodies.capture());
+        bodies.getAllValues().forEach(body ->
+                redisSubscriber.onMessage(new DefaultMessage(topic.getTopic().getBytes(), body), null));
+
+        // Then
+        verify(productCacheService).onProductsChanged(new ProductsChangedEvent(List.of(7L, 8L)));
+        verify(membershipIndexService).onGroupMembersChanged(new GroupMembersChangedEvent("Admins"));
+        assertEquals(0.0, meterRegistry.get("events.decode.errors").counter().count());
+    }
+
+    @Test
+    void failingHandlerDoesNotStopTheBatch() {
+        // Given
+        doThrow(new IllegalStateException("boom")).when(productCacheService).onProductsChanged(any());
+        byte[] body = DomainEventCodec.encode(Instant.now(), List.of(
+                new ProductsChangedEvent(List.of(7L)),
+                new UserGroupsChangedEvent("alice")));
+
+        // When
+        redisSubscriber.onMessage(new DefaultMessage("messageQueue".getBytes(), body), null);
+
+        // Then
+        verify(membershipIndexService).onUserGroupsChanged(new UserGroupsChangedEvent("alice"));
+        assertEquals(1.0, meterRegistry.get("events.handle.errors").tag("type", "ProductsChangedEvent").counter()
+                .count());
+    }
+
+    @Test
+    void undecodableMessageIsCountedAndSkipped() {
+        // When
+        redisSubscriber.onMessage(new DefaultMessage("messageQueue".getBytes(), "hello".getBytes()), null);
+
+        // Then
+        assertEquals(1.0, meterRegistry.get("events.decode.errors").counter().count());
+        verifyNoInteractions(productCacheService, membershipIndexService, groupCatalogService);
+    }
+}
@@ -0,0 +1,55 @@
+package app.quantun.eb2c.repository;
+
+import app.quantun.eb2c.Eb2cApplication;
+import app.quantun.eb2c.TestConfig;
+import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = Eb2cApplication.class)
+@Import(TestConfig.class)
+@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+class ProductBatchRepositoryTest {
+
+    @Autowired
+    private ProductBatchRepository productBatchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void updateAllKeepsStockWhenRowHasNoStock() {
+        // Given
+        Long id = productBatchRepository.insertAll(List.of(ProductRequestDTO.builder()
+                .name("Keyboard")
+                .price(new BigDecimal("49.90"))
+                .inStock(true)
+                .stock(7)
+                .build())).get(0);
+        ProductRequestDTO update = new ProductRequestDTO();
+        update.setId(id);
+        update.setName("Mechanical keyboard");
+        update.setInStock(true);
+
+        // When
+        int[] counts = productBatchRepository.updateAll(List.of(update));
+
+        // Then
+        assertArrayEquals(new int[]{1}, counts);
+        assertEquals("Mechanical keyboard",
+                jdbcTemplate.queryForObject("SELECT name FROM product WHERE id = ?", String.class, id));
+        assertEquals(7, jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, id));
+    }
+}
@@ -0,0 +1,71 @@
+package app.quantun.eb2c.repository;
+
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class ProductReadRepositoryTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private ProductReadRepository productReadRepository;
+
+    private final ProductResponseDTO product = ProductResponseDTO.builder().id(1L).name("Phone").build();
+
+    @BeforeEach
+    void setUp() {
+        productReadRepository = new ProductReadRepository(jdbcTemplate);
+    }
+
+    @Test
+    void searchRankedFallsBackToLikeUntilSearchIndexesExist() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), anyMap(), eq(Boolean.class)))
+                .thenReturn(false);
+        when(jdbcTemplate.query(contains("LIKE :pattern"), anyMap(), any(RowMapper.class)))
+                .thenReturn(List.of(product));
+
+        // When
+        List<ProductResponseDTO> result = productReadRepository.searchRanked("50%_Off", 20);
+
+        // Then
+        assertEquals(List.of(product), result);
+        verify(jdbcTemplate).query(contains("LIKE :pattern"),
+                eq(Map.of("pattern", "%50\\%\\_off%", "limit", 20)), any(RowMapper.class));
+        verify(jdbcTemplate, never()).query(contains("search_vector @@"), anyMap(), any(RowMapper.class));
+    }
+
+    @Test
+    void searchRankedUsesSearchIndexesOnceTheyExist() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), anyMap(), eq(Boolean.class)))
+                .thenReturn(true);
+        when(jdbcTemplate.query(contains("search_vector @@"), anyMap(), any(RowMapper.class)))
+                .thenReturn(List.of(product));
+
+        // When
+        productReadRepository.searchRanked("phone", 20);
+        List<ProductResponseDTO> result = productReadRepository.searchRanked("phone", 20);
+
+        // Then the indexes are looked up once
+        assertEquals(List.of(product), result);
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), anyMap(), eq(Boolean.class));
+        verify(jdbcTemplate, times(2)).query(contains("search_vector @@"),
+                eq(Map.of("query", "phone", "limit", 20)), any(RowMapper.class));
+    }
+}
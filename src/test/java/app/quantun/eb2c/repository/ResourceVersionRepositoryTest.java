@@ -0,0 +1,111 @@
+package app.quantun.eb2c.repository;
+
+import app.quantun.eb2c.Eb2cApplication;
+import app.quantun.eb2c.TestConfig;
+import app.quantun.eb2c.model.entity.bussines.Branch;
+import app.quantun.eb2c.model.entity.bussines.Organization;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import app.quantun.eb2c.util.ResourceVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Eb2cApplication.class)
+@Import(TestConfig.class)
+@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+class ResourceVersionRepositoryTest {
+
+    @Autowired
+    private ResourceVersionRepository resourceVersionRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+
+    @Test
+    void productsVersionMovesOnInsertUpdateAndDelete() {
+        // Given
+        ResourceVersion initial = resourceVersionRepository.findProductsVersion();
+
+        // When
+        Product product = productRepository.save(Product.builder()
+                .name("Lamp").price(new BigDecimal("25.00")).inStock(true).stock(3).build());
+        ResourceVersion inserted = resourceVersionRepository.findProductsVersion();
+        product.setName("Desk lamp");
+        productRepository.save(product);
+        ResourceVersion updated = resourceVersionRepository.findProductsVersion();
+        productRepository.deleteById(product.getId());
+        ResourceVersion deleted = resourceVersionRepository.findProductsVersion();
+
+        // Then
+        assertTrue(initial.eTag().startsWith("W/\"products-"));
+        assertNotEquals(initial.eTag(), inserted.eTag());
+        assertNotEquals(inserted.eTag(), updated.eTag());
+        assertNotEquals(updated.eTag(), deleted.eTag());
+        assertNull(deleted.lastModified());
+        assertEquals(List.of("products"), deleted.surrogateKeys());
+    }
+
+    @Test
+    void organizationVersionMovesWithItsBranches() {
+        // Given
+        Organization organization = new Organization();
+        organization.setName("Acme");
+        organization.setTaxId(UUID.randomUUID().toString());
+        organization = organizationRepository.save(organization);
+        ResourceVersion initial = resourceVersionRepository.findOrganizationVersion(organization.getId()).orElseThrow();
+
+        // When
+        Branch branch = new Branch();
+        branch.setName("Downtown");
+        organization.addBranch(branch);
+        organization = organizationRepository.save(organization);
+        ResourceVersion withBranch = resourceVersionRepository.findOrganizationVersion(organization.getId())
+                .orElseThrow();
+
+        // Then
+        assertTrue(initial.eTag().startsWith("W/\"organization-" + organization.getId() + "-"));
+        assertNotEquals(initial.eTag(), withBranch.eTag());
+        assertNotNull(withBranch.lastModified());
+        assertEquals(List.of("organization-" + organization.getId()), withBranch.surrogateKeys());
+        assertEquals(withBranch, resourceVersionRepository.findOrganizationVersionByTaxId(organization.getTaxId())
+                .orElseThrow());
+    }
+
+    @Test
+    void organizationVersionIsEmptyForUnknownOrganization() {
+        // When & Then
+        assertTrue(resourceVersionRepository.findOrganizationVersion(-1L).isEmpty());
+        assertTrue(resourceVersionRepository.findOrganizationVersionByTaxId("unknown").isEmpty());
+    }
+
+    @Test
+    void organizationsVersionMovesOnDeleteAndHasNoLastModified() {
+        // Given
+        Organization organization = new Organization();
+        organization.setName("Globex");
+        organization = organizationRepository.save(organization);
+        ResourceVersion before = resourceVersionRepository.findOrganizationsVersion();
+
+        // When
+        organizationRepository.deleteById(organization.getId());
+        ResourceVersion after = resourceVersionRepository.findOrganizationsVersion();
+
+        // Then
+        assertNotEquals(before.eTag(), after.eTag());
+        assertNull(after.lastModified());
+        assertEquals(List.of("organizations"), after.surrogateKeys());
+    }
+}
@@ -0,0 +1,144 @@
+package app.quantun.eb2c.repository;
+
+import app.quantun.eb2c.Eb2cApplication;
+import app.quantun.eb2c.TestConfig;
+import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Eb2cApplication.class)
+@Import(TestConfig.class)
+@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+class UserDirectoryRepositoryTest {
+
+    private static final Instant T1 = Instant.parse("2025-01-01T10:00:00Z");
+
+    private static final Instant T2 = Instant.parse("2025-01-01T11:00:00Z");
+
+    @Autowired
+    private UserDirectoryRepository userDirectoryRepository;
+
+    @Test
+    void upsertKeepsNewerRow() {
+        // Given
+        String username = uniquePrefix() + "alice";
+        userDirectoryRepository.save(user(username, "new@example.com", T2), T2);
+
+        // When a sync that read Cognito before the write-through upserts an older copy
+        userDirectoryRepository.upsertAll(List.of(user(username, "old@example.com", T1)), T2.plusSeconds(1));
+
+        // Then
+        UserResponse stored = userDirectoryRepository.findByUsername(username).orElseThrow();
+        assertEquals("new@example.com", stored.getEmail());
+        assertEquals(T2, stored.getUserLastModifiedDate());
+    }
+
+    @Test
+    void rowPatchedWithoutDateIsReplacedByNextSync() {
+        // Given a write-through of a partial update, without the Cognito modification date
+        String username = uniquePrefix() + "bob";
+        userDirectoryRepository.save(user(username, "patched@example.com", null), T2);
+
+        // When
+        userDirectoryRepository.upsertAll(List.of(user(username, "synced@example.com", T1)), T2.plusSeconds(1));
+
+        // Then
+        UserResponse stored = userDirectoryRepository.findByUsername(username).orElseThrow();
+        assertEquals("synced@example.com", stored.getEmail());
+        assertEquals(T1, stored.getUserLastModifiedDate());
+    }
+
+    @Test
+    void prefixSearchEscapesWildcards() {
+        // Given
+        String prefix = uniquePrefix();
+        userDirectoryRepository.upsertAll(List.of(
+                user(prefix + "50%off", null, T1),
+                user(prefix + "50xoff", null, T1),
+                user(prefix + "a_b", null, T1),
+                user(prefix + "axb", null, T1)), T1);
+
+        // When
+        List<UserResponse> percent = userDirectoryRepository.search(prefix + "50%", "username", true, 0, 10);
+        List<UserResponse> underscore = userDirectoryRepository.search(prefix + "A_", "username", true, 0, 10);
+
+        // Then
+        assertEquals(List.of(prefix + "50%off"), percent.stream().map(UserResponse::getUsername).toList());
+        assertEquals(List.of(prefix + "a_b"), underscore.stream().map(UserResponse::getUsername).toList());
+        assertEquals(1, userDirectoryRepository.count(prefix + "50%"));
+        assertEquals(4, userDirectoryRepository.count(prefix));
+    }
+
+    @Test
+    void searchSortsByEverySortField() {
+        // Given users whose order is the same for every sort field
+        String prefix = uniquePrefix();
+        UserResponse first = user(prefix + "a", prefix + "a@example.com", T1);
+        first.setUserStatus("CONFIRMED");
+        first.setEnabled(false);
+        first.setUserCreateDate(T1);
+        UserResponse second = user(prefix + "b", prefix + "b@example.com", T1);
+        second.setUserStatus("UNCONFIRMED");
+        second.setEnabled(true);
+        second.setUserCreateDate(T2);
+        userDirectoryRepository.upsertAll(List.of(second, first), T1);
+
+        for (String sortBy : UserDirectoryRepository.SORT_COLUMNS.keySet()) {
+            // When
+            List<String> ascending = userDirectoryRepository.search(prefix, sortBy, true, 0, 10).stream()
+                    .map(UserResponse::getUsername).toList();
+            List<String> descending = userDirectoryRepository.search(prefix, sortBy, false, 0, 10).stream()
+                    .map(UserResponse::getUsername).toList();
+
+            // Then
+            assertEquals(List.of(prefix + "a", prefix + "b"), ascending, sortBy);
+            assertEquals(List.of(prefix + "b", prefix + "a"), descending, sortBy);
+        }
+    }
+
+    @Test
+    void deleteSyncedBeforeKeepsUsersWrittenSinceTheSyncStarted() {
+        // Given
+        String prefix = uniquePrefix();
+        String stale = prefix + "stale";
+        String fresh = prefix + "fresh";
+        userDirectoryRepository.upsertAll(List.of(user(stale, null, T1)), T1);
+        userDirectoryRepository.save(user(fresh, null, T2), T2);
+        userDirectoryRepository.addMembership(stale, "Admins");
+
+        // When
+        List<String> deleted = userDirectoryRepository.deleteSyncedBefore(List.of(stale, fresh), T1.plusSeconds(60));
+
+        // Then
+        assertEquals(List.of(stale), deleted);
+        assertTrue(userDirectoryRepository.findByUsername(stale).isEmpty());
+        assertTrue(userDirectoryRepository.findByUsername(fresh).isPresent());
+    }
+
+    private static String uniquePrefix() {
+        return UUID.randomUUID().toString().substring(0, 8) + "-";
+    }
+
+    private static UserResponse user(String username, String email, Instant lastModified) {
+        return UserResponse.builder()
+                .username(username)
+                .email(email)
+                .userStatus("CONFIRMED")
+                .enabled(true)
+                .userLastModifiedDate(lastModified)
+                .attributes(Map.of())
+                .build();
+    }
+}
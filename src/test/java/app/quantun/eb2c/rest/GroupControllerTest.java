@@ -5,6 +5,7 @@ import app.quantun.eb2c.TestConfig;
 import app.quantun.eb2c.model.contract.contract.request.GroupRequest;
 import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
 import app.quantun.eb2c.model.contract.contract.response.GroupResponse;
+import app.quantun.eb2c.model.contract.contract.response.MembershipIndexResponse;
 import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
 import app.quantun.eb2c.service.CognitoGroupService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -19,11 +20,13 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -31,6 +34,7 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(classes = Eb2cApplication.class)
@@ -83,9 +87,13 @@ public class GroupControllerTest {
 
     @Test
     void getGroupByNameTest() throws Exception {
-        when(groupService.getGroupByName("TestGroup")).thenReturn(groupResponse);
+        when(groupService.getGroupByNameAsync("TestGroup"))
+                .thenReturn(CompletableFuture.completedFuture(groupResponse));
 
-        mockMvc.perform(get("/api/groups/TestGroup"))
+        MvcResult result = mockMvc.perform(get("/api/groups/TestGroup"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.groupName").value("TestGroup"))
                 .andExpect(jsonPath("$.description").value("A test group"));
@@ -95,7 +103,7 @@ public class GroupControllerTest {
     void listGroupsTest() throws Exception {
         PagedResponse<GroupResponse> pagedResponse = new PagedResponse<>(
                 Collections.singletonList(groupResponse),
-                0, 20, 1, 1, true, "groupName", "asc", null);
+                0, 20, 1, 1, true, "groupName", "asc", null, null);
 
         when(groupService.listGroups(any(PaginationRequest.class))).thenReturn(pagedResponse);
 
@@ -127,12 +135,29 @@ public class GroupControllerTest {
     @Test
     void listGroupUsersTest() throws Exception {
         List<String> usernames = Arrays.asList("user1", "user2", "user3");
-        when(groupService.getGroupUsers("TestGroup")).thenReturn(usernames);
+        PagedResponse<String> page = new PagedResponse<>(usernames, 0, 3, -1, -1, false, null, null, null, "next");
+        when(groupService.listGroupUsersAsync("TestGroup", 3, null))
+                .thenReturn(CompletableFuture.completedFuture(page));
+
+        MvcResult result = mockMvc.perform(get("/api/groups/TestGroup/users").param("size", "3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0]").value("user1"))
+                .andExpect(jsonPath("$.content[1]").value("user2"))
+                .andExpect(jsonPath("$.content[2]").value("user3"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void refreshMembershipIndexTest() throws Exception {
+        when(groupService.refreshMembershipIndex())
+                .thenReturn(new MembershipIndexResponse(true, 2, 5, Instant.now()));
 
-        mockMvc.perform(get("/api/groups/TestGroup/users"))
+        mockMvc.perform(post("/api/groups/membership-index/refresh"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0]").value("user1"))
-                .andExpect(jsonPath("$[1]").value("user2"))
-                .andExpect(jsonPath("$[2]").value("user3"));
+                .andExpect(jsonPath("$.groups").value(2))
+                .andExpect(jsonPath("$.users").value(5));
     }
-}
\ No newline at end of file
+}
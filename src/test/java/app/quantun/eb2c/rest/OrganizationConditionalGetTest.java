@@ -0,0 +1,176 @@
+package app.quantun.eb2c.rest;
+
+import app.quantun.eb2c.Eb2cApplication;
+import app.quantun.eb2c.TestConfig;
+import app.quantun.eb2c.model.contract.response.OrganizationResponseDTO;
+import app.quantun.eb2c.service.OrganizationService;
+import app.quantun.eb2c.service.ResourceVersionService;
+import app.quantun.eb2c.util.ResourceVersion;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Conditional GETs of the organization endpoints, with the validators stubbed.
+ */
+@SpringBootTest(classes = Eb2cApplication.class)
+@AutoConfigureMockMvc
+@Import(TestConfig.class)
+@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+class OrganizationConditionalGetTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2025, 3, 1, 10, 15, 30);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private OrganizationService organizationService;
+
+    @MockitoBean
+    private ResourceVersionService resourceVersionService;
+
+    private OrganizationResponseDTO organization;
+
+    private ResourceVersion version;
+
+    @BeforeEach
+    void setUp() {
+        organization = new OrganizationResponseDTO();
+        organization.setId(1L);
+        organization.setName("Test Organization");
+        organization.setTaxId("123456789");
+
+        version = ResourceVersion.weak("organization-1-0-2-100", UPDATED_AT, "organization-1");
+    }
+
+    @Test
+    void getOrganizationById_ShouldReturnValidatorsAndSurrogateKeys() throws Exception {
+        // Arrange
+        when(resourceVersionService.getOrganizationVersion(1L)).thenReturn(Optional.of(version));
+        when(organizationService.getOrganizationById(1L)).thenReturn(organization);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"organization-1-0-2-100\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(ResourceVersion.SURROGATE_KEY, "organization-1"))
+                .andExpect(jsonPath("$.name", is("Test Organization")));
+    }
+
+    @Test
+    void getOrganizationById_WhenETagMatches_ShouldReturnNotModifiedWithoutLoading() throws Exception {
+        // Arrange
+        when(resourceVersionService.getOrganizationVersion(1L)).thenReturn(Optional.of(version));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations/1").header(HttpHeaders.IF_NONE_MATCH, version.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(ResourceVersion.SURROGATE_KEY, "organization-1"))
+                .andExpect(content().string(""));
+        verifyNoInteractions(organizationService);
+    }
+
+    @Test
+    void getOrganizationById_AfterUpdate_ShouldReturnNewBody() throws Exception {
+        // Arrange
+        organization.setName("Renamed Organization");
+        when(resourceVersionService.getOrganizationVersion(1L)).thenReturn(Optional.of(
+                ResourceVersion.weak("organization-1-1-2-200", UPDATED_AT.plusSeconds(5), "organization-1")));
+        when(organizationService.getOrganizationById(1L)).thenReturn(organization);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations/1").header(HttpHeaders.IF_NONE_MATCH, version.eTag()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"organization-1-1-2-200\""))
+                .andExpect(jsonPath("$.name", is("Renamed Organization")));
+    }
+
+    @Test
+    void getOrganizationById_WhenNotExists_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(resourceVersionService.getOrganizationVersion(99L)).thenReturn(Optional.empty());
+        when(organizationService.getOrganizationById(99L))
+                .thenThrow(new EntityNotFoundException("Organization not found with id: 99"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations/99"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void getOrganizationByTaxId_WhenETagMatches_ShouldReturnNotModified() throws Exception {
+        // Arrange
+        when(resourceVersionService.getOrganizationVersionByTaxId("123456789")).thenReturn(Optional.of(version));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations/tax/123456789").header(HttpHeaders.IF_NONE_MATCH, version.eTag()))
+                .andExpect(status().isNotModified());
+        verifyNoInteractions(organizationService);
+    }
+
+    @Test
+    void getAllOrganizations_ShouldReturnWeakETagWithoutLastModified() throws Exception {
+        // Arrange
+        when(resourceVersionService.getOrganizationsVersion())
+                .thenReturn(ResourceVersion.weak("organizations-1-0-2-100", null, "organizations"));
+        when(organizationService.getAllOrganizations()).thenReturn(List.of(organization));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"organizations-1-0-2-100\""))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(ResourceVersion.SURROGATE_KEY, "organizations"))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void getAllOrganizations_WhenETagMatches_ShouldReturnNotModifiedWithoutLoading() throws Exception {
+        // Arrange
+        when(resourceVersionService.getOrganizationsVersion())
+                .thenReturn(ResourceVersion.weak("organizations-1-0-2-100", null, "organizations"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations").header(HttpHeaders.IF_NONE_MATCH,
+                        "W/\"organizations-1-0-2-100\""))
+                .andExpect(status().isNotModified());
+        verifyNoInteractions(organizationService);
+    }
+
+    @Test
+    void getAllOrganizations_AfterDelete_ShouldReturnNewList() throws Exception {
+        // Arrange
+        when(resourceVersionService.getOrganizationsVersion())
+                .thenReturn(ResourceVersion.weak("organizations-0-0-0-100", null, "organizations"));
+        when(organizationService.getAllOrganizations()).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/organizations").header(HttpHeaders.IF_NONE_MATCH,
+                        "W/\"organizations-1-0-2-100\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+}
@@ -0,0 +1,170 @@
+package app.quantun.eb2c.rest;
+
+import app.quantun.eb2c.Eb2cApplication;
+import app.quantun.eb2c.TestConfig;
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import app.quantun.eb2c.service.ProductService;
+import app.quantun.eb2c.service.ResourceVersionService;
+import app.quantun.eb2c.util.ResourceVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(classes = Eb2cApplication.class)
+@AutoConfigureMockMvc
+@Import(TestConfig.class)
+@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+class ProductRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private ResourceVersionService resourceVersionService;
+
+    private ProductResponseDTO product;
+
+    @BeforeEach
+    void setUp() {
+        product = ProductResponseDTO.builder()
+                .id(1L)
+                .name("Lamp")
+                .price(new BigDecimal("25.00"))
+                .inStock(true)
+                .stock(10)
+                .updatedAt(LocalDateTime.of(2025, 3, 1, 10, 15, 30))
+                .categoryId(3L)
+                .build();
+    }
+
+    @Test
+    void getProductById_ShouldReturnValidatorsAndSurrogateKeys() throws Exception {
+        // Arrange
+        when(productService.getProductById(1L)).thenReturn(Optional.of(product));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ResourceVersion.ofProduct(product).eTag()))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(ResourceVersion.SURROGATE_KEY, "product-1 category-3"))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.categoryId").value(3));
+    }
+
+    @Test
+    void getProductById_WhenETagMatches_ShouldReturnNotModified() throws Exception {
+        // Arrange
+        when(productService.getProductById(1L)).thenReturn(Optional.of(product));
+        String eTag = ResourceVersion.ofProduct(product).eTag();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(ResourceVersion.SURROGATE_KEY, "product-1 category-3"))
+                .andExpect(content().string(""));
+        verifyNoInteractions(resourceVersionService);
+    }
+
+    @Test
+    void getProductById_AfterUpdate_ShouldReturnNewBody() throws Exception {
+        // Arrange
+        String staleETag = ResourceVersion.ofProduct(product).eTag();
+        ProductResponseDTO updated = ProductResponseDTO.builder()
+                .id(1L)
+                .name("Desk lamp")
+                .price(new BigDecimal("25.00"))
+                .updatedAt(product.getUpdatedAt().plusSeconds(5))
+                .categoryId(3L)
+                .build();
+        when(productService.getProductById(1L)).thenReturn(Optional.of(updated));
+
+        // Act & Assert
+        String eTag = mockMvc.perform(get("/api/products/1").header(HttpHeaders.IF_NONE_MATCH, staleETag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Desk lamp")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(staleETag, eTag);
+    }
+
+    @Test
+    void getProductById_WhenNotExists_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(productService.getProductById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/99"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void getAllProducts_ShouldReturnWeakETagWithoutLastModified() throws Exception {
+        // Arrange
+        when(resourceVersionService.getProductsVersion())
+                .thenReturn(ResourceVersion.weak("products-1-100", null, "products"));
+        when(productService.getAllProducts()).thenReturn(List.of(product));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"products-1-100\""))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(ResourceVersion.SURROGATE_KEY, "products"))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void getAllProducts_WhenETagMatches_ShouldReturnNotModifiedWithoutLoading() throws Exception {
+        // Arrange
+        when(resourceVersionService.getProductsVersion())
+                .thenReturn(ResourceVersion.weak("products-1-100", null, "products"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, "W/\"products-1-100\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(ResourceVersion.SURROGATE_KEY, "products"));
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    void getAllProducts_AfterChange_ShouldReturnNewList() throws Exception {
+        // Arrange
+        when(resourceVersionService.getProductsVersion())
+                .thenReturn(ResourceVersion.weak("products-2-200", null, "products"));
+        when(productService.getAllProducts())
+                .thenReturn(List.of(product, ProductResponseDTO.builder().id(2L).name("Desk").build()));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, "W/\"products-1-100\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not("W/\"products-1-100\"")))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+}
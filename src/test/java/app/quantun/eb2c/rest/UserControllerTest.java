@@ -20,19 +20,24 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(classes = Eb2cApplication.class)
@@ -95,9 +100,13 @@ public class UserControllerTest {
 
     @Test
     void getUserByUsernameTest() throws Exception {
-        when(userService.getUserByUsername("testuser")).thenReturn(userResponse);
+        when(userService.getUserByUsernameAsync("testuser"))
+                .thenReturn(CompletableFuture.completedFuture(userResponse));
 
-        mockMvc.perform(get("/api/users/testuser"))
+        MvcResult result = mockMvc.perform(get("/api/users/testuser"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.email").value("test@example.com"));
@@ -107,9 +116,9 @@ public class UserControllerTest {
     void listUsersTest() throws Exception {
         PagedResponse<UserResponse> pagedResponse = new PagedResponse<>(
                 Collections.singletonList(userResponse),
-                0, 20, 1, 1, true, "username", "asc", null);
+                0, 20, 1, 1, true, "username", "asc", null, null);
 
-        when(userService.listUsers(any(PaginationRequest.class))).thenReturn(pagedResponse);
+        when(userService.listUsers(any(PaginationRequest.class), any())).thenReturn(pagedResponse);
 
         mockMvc.perform(get("/api/users"))
                 .andExpect(status().isOk())
@@ -119,7 +128,7 @@ public class UserControllerTest {
 
     @Test
     void updateUserTest() throws Exception {
-        when(userService.updateUser(eq("testuser"), any(UserRequest.class))).thenReturn(userResponse);
+        when(userService.updateUser(eq("testuser"), any(UserRequest.class), eq(true))).thenReturn(userResponse);
 
         mockMvc.perform(put("/api/users/testuser")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -138,7 +147,7 @@ public class UserControllerTest {
 
     @Test
     void enableUserTest() throws Exception {
-        when(userService.enableUser("testuser")).thenReturn(userResponse);
+        when(userService.enableUser("testuser", true)).thenReturn(userResponse);
 
         mockMvc.perform(post("/api/users/testuser/enable"))
                 .andExpect(status().isOk())
@@ -146,6 +155,15 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.enabled").value(true));
     }
 
+    @Test
+    void enableUserReturnMinimalTest() throws Exception {
+        mockMvc.perform(post("/api/users/testuser/enable").header("Prefer", "return=minimal"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Preference-Applied", "return=minimal"));
+
+        verify(userService).enableUser("testuser", false);
+    }
+
     @Test
     void disableUserTest() throws Exception {
         UserResponse disabledUser = UserResponse.builder()
@@ -154,7 +172,7 @@ public class UserControllerTest {
                 .enabled(false)
                 .build();
 
-        when(userService.disableUser("testuser")).thenReturn(disabledUser);
+        when(userService.disableUser("testuser", true)).thenReturn(disabledUser);
 
         mockMvc.perform(post("/api/users/testuser/disable"))
                 .andExpect(status().isOk())
@@ -164,7 +182,7 @@ public class UserControllerTest {
 
     @Test
     void resetPasswordTest() throws Exception {
-        when(userService.resetPassword("testuser")).thenReturn(userResponse);
+        when(userService.resetPassword("testuser", true)).thenReturn(userResponse);
 
         mockMvc.perform(post("/api/users/testuser/reset-password"))
                 .andExpect(status().isOk())
@@ -174,9 +192,12 @@ public class UserControllerTest {
     @Test
     void getUserGroupsTest() throws Exception {
         List<String> groups = Arrays.asList("Users", "Admins");
-        when(userService.getUserGroups("testuser")).thenReturn(groups);
+        when(userService.getUserGroupsAsync("testuser")).thenReturn(CompletableFuture.completedFuture(groups));
 
-        mockMvc.perform(get("/api/users/testuser/groups"))
+        MvcResult result = mockMvc.perform(get("/api/users/testuser/groups"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0]").value("Users"))
                 .andExpect(jsonPath("$[1]").value("Admins"));
@@ -184,7 +205,7 @@ public class UserControllerTest {
 
     @Test
     void addUserToGroupTest() throws Exception {
-        when(userService.addUserToGroup("testuser", "Admins")).thenReturn(userResponse);
+        when(userService.addUserToGroup("testuser", "Admins", true)).thenReturn(userResponse);
 
         mockMvc.perform(post("/api/users/testuser/groups/Admins"))
                 .andExpect(status().isOk())
@@ -193,7 +214,7 @@ public class UserControllerTest {
 
     @Test
     void removeUserFromGroupTest() throws Exception {
-        when(userService.removeUserFromGroup("testuser", "Admins")).thenReturn(userResponse);
+        when(userService.removeUserFromGroup("testuser", "Admins", true)).thenReturn(userResponse);
 
         mockMvc.perform(delete("/api/users/testuser/groups/Admins"))
                 .andExpect(status().isOk())
@@ -0,0 +1,131 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.exception.BulkImportException;
+import app.quantun.eb2c.exception.CognitoException;
+import app.quantun.eb2c.model.contract.contract.request.UserRequest;
+import app.quantun.eb2c.model.contract.contract.response.BulkUserResponse;
+import app.quantun.eb2c.model.contract.contract.response.BulkUserResponse.Status;
+import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.TooManyRequestsException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkUserServiceTest {
+
+    @Mock
+    private CognitoUserService userService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BulkUserService bulkUserService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkUserService = new BulkUserService(userService, Validation.buildDefaultValidatorFactory().getValidator(),
+                meterRegistry, 3, 2, 4, 3, Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkUserService.shutdown();
+    }
+
+    @Test
+    void createUsersReportsOutcomePerUser() {
+        // Given
+        when(userService.createUser(any(UserRequest.class), eq(false)))
+                .thenAnswer(invocation -> created(invocation.<UserRequest>getArgument(0).getUsername()));
+        lenient().when(userService.addUserToGroup("bob", "Missing", false))
+                .thenThrow(new CognitoException("Error adding user to group: Group not found"));
+
+        // When
+        BulkUserResponse result = bulkUserService.createUsers(List.of(
+                request("alice", List.of("Users")),
+                request("bob", List.of("Users", "Missing")),
+                UserRequest.builder().username("carol").build()));
+
+        // Then
+        assertEquals(3, result.getTotal());
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getPartial());
+        assertEquals(1, result.getFailed());
+        assertEquals(Status.CREATED, result.getResults().get(0).getStatus());
+        assertEquals(List.of("Users"), result.getResults().get(0).getUser().getGroups());
+        assertEquals(Status.PARTIAL, result.getResults().get(1).getStatus());
+        assertEquals(List.of("Users"), result.getResults().get(1).getUser().getGroups());
+        assertEquals(List.of("Missing: Error adding user to group: Group not found"),
+                result.getResults().get(1).getErrors());
+        assertEquals(Status.FAILED, result.getResults().get(2).getStatus());
+        verify(userService, never()).createUser(argThat(request -> "carol".equals(request.getUsername())), eq(false));
+    }
+
+    @Test
+    void throttledCallIsRetried() {
+        // Given
+        CognitoException throttled = new CognitoException("Error creating user: Rate exceeded",
+                TooManyRequestsException.builder().message("Rate exceeded").build());
+        when(userService.createUser(any(UserRequest.class), eq(false)))
+                .thenThrow(throttled)
+                .thenReturn(created("alice"));
+
+        // When
+        BulkUserResponse result = bulkUserService.createUsers(List.of(request("alice", null)));
+
+        // Then
+        assertEquals(Status.CREATED, result.getResults().get(0).getStatus());
+        verify(userService, times(2)).createUser(any(UserRequest.class), eq(false));
+        assertEquals(1.0, meterRegistry.get("cognito.bulk.throttled").counter().count());
+    }
+
+    @Test
+    void persistentThrottlingFailsTheUser() {
+        // Given
+        when(userService.createUser(any(UserRequest.class), eq(false))).thenThrow(new CognitoException(
+                "Error creating user: Rate exceeded", TooManyRequestsException.builder().build()));
+
+        // When
+        BulkUserResponse result = bulkUserService.createUsers(List.of(request("alice", null)));
+
+        // Then
+        assertEquals(Status.FAILED, result.getResults().get(0).getStatus());
+        verify(userService, times(3)).createUser(any(UserRequest.class), eq(false));
+    }
+
+    @Test
+    void tooManyUsersAreRejected() {
+        // When & Then
+        assertThrows(BulkImportException.class, () -> bulkUserService.createUsers(
+                Collections.nCopies(4, request("alice", null))));
+        verifyNoInteractions(userService);
+    }
+
+    private static UserRequest request(String username, List<String> groups) {
+        return UserRequest.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .groups(groups)
+                .build();
+    }
+
+    private static UserResponse created(String username) {
+        return UserResponse.builder().username(username).groups(new ArrayList<>()).build();
+    }
+}
@@ -1,29 +1,43 @@
 package app.quantun.eb2c.service;
 
 
+import app.quantun.eb2c.config.cognito.CognitoAsyncExecutor;
 import app.quantun.eb2c.exception.CognitoException;
+import app.quantun.eb2c.exception.InvalidCursorException;
 import app.quantun.eb2c.exception.InvalidSortFieldException;
 import app.quantun.eb2c.model.contract.contract.request.GroupRequest;
 import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
 import app.quantun.eb2c.model.contract.contract.response.GroupResponse;
+import app.quantun.eb2c.model.contract.contract.response.MembershipIndexResponse;
 import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +47,16 @@ public class CognitoGroupServiceTest {
     private final String USER_POOL_ID = "test-user-pool-id";
     @Mock
     private CognitoIdentityProviderClient cognitoClient;
+    @Mock
+    private GroupMembershipIndexService membershipIndexService;
+    @Mock
+    private GroupCatalogService groupCatalogService;
+    @Mock
+    private UserDirectoryService userDirectoryService;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+    @Spy
+    private CognitoAsyncExecutor cognitoAsyncExecutor = new CognitoAsyncExecutor(new SimpleMeterRegistry(), 4);
     @InjectMocks
     private CognitoGroupService groupService;
     private GroupRequest groupRequest;
@@ -66,6 +90,11 @@ public class CognitoGroupServiceTest {
                 .build();
         lenient().when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class)))
                 .thenReturn(listUsersResponse);
+
+        // Let the membership index load every group from Cognito
+        lenient().when(membershipIndexService.getGroupUsers(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Function<String, List<String>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
     }
 
     @Test
@@ -86,6 +115,7 @@ public class CognitoGroupServiceTest {
         assertEquals("A test group", result.getDescription());
         assertEquals(10, result.getPrecedence());
         verify(cognitoClient).createGroup(any(CreateGroupRequest.class));
+        verify(groupCatalogService).put(groupType);
     }
 
     @Test
@@ -139,11 +169,7 @@ public class CognitoGroupServiceTest {
     @Test
     void listGroupsTest() {
         // Arrange
-        ListGroupsResponse response = ListGroupsResponse.builder()
-                .groups(Collections.singletonList(groupType))
-                .build();
-
-        when(cognitoClient.listGroups(any(ListGroupsRequest.class))).thenReturn(response);
+        when(groupCatalogService.find(null, "groupName", false)).thenReturn(Collections.singletonList(groupType));
 
         PaginationRequest pagination = new PaginationRequest(0, 20, "groupName", "asc", null);
 
@@ -159,7 +185,26 @@ public class CognitoGroupServiceTest {
         assertEquals(1, result.getTotalElements());
         assertEquals(1, result.getTotalPages());
         assertTrue(result.isLast());
-        verify(cognitoClient).listGroups(any(ListGroupsRequest.class));
+        verify(cognitoClient, never()).listGroups(any(ListGroupsRequest.class));
+    }
+
+    @Test
+    void listGroupsPagesTheCatalogTest() {
+        // Arrange
+        List<GroupType> groups = List.of(
+                GroupType.builder().groupName("Admins").build(),
+                GroupType.builder().groupName("Editors").build(),
+                GroupType.builder().groupName("Users").build());
+        when(groupCatalogService.find("s", null, true)).thenReturn(groups);
+
+        // Act
+        PagedResponse<GroupResponse> result = groupService.listGroups(new PaginationRequest(1, 2, null, "desc", "s"));
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertEquals("Users", result.getContent().get(0).getGroupName());
+        assertEquals(3, result.getTotalElements());
+        assertTrue(result.isLast());
     }
 
     @Test
@@ -174,7 +219,7 @@ public class CognitoGroupServiceTest {
     @Test
     void updateGroupTest() {
         // Arrange
-        UpdateGroupResponse updateResponse = UpdateGroupResponse.builder().build();
+        UpdateGroupResponse updateResponse = UpdateGroupResponse.builder().group(groupType).build();
         when(cognitoClient.updateGroup(any(UpdateGroupRequest.class))).thenReturn(updateResponse);
 
         // Mock the getGroupByName behavior
@@ -192,6 +237,7 @@ public class CognitoGroupServiceTest {
         assertEquals("A test group", result.getDescription());
         assertEquals(10, result.getPrecedence());
         verify(cognitoClient).updateGroup(any(UpdateGroupRequest.class));
+        verify(groupCatalogService).put(groupType);
         verify(cognitoClient, atLeastOnce()).getGroup(any(GetGroupRequest.class));
     }
 
@@ -212,6 +258,9 @@ public class CognitoGroupServiceTest {
 
         // Assert
         verify(cognitoClient).deleteGroup(any(DeleteGroupRequest.class));
+        verify(membershipIndexService).removeGroup("TestGroup");
+        verify(groupCatalogService).remove("TestGroup");
+        verify(userDirectoryService).deleteGroup("TestGroup");
     }
 
     @Test
@@ -228,12 +277,6 @@ public class CognitoGroupServiceTest {
         // Override the mock from setUp for this specific test
         when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenReturn(response);
 
-        // Mock getGroup for the verification
-        GetGroupResponse getResponse = GetGroupResponse.builder()
-                .group(groupType)
-                .build();
-        when(cognitoClient.getGroup(any(GetGroupRequest.class))).thenReturn(getResponse);
-
         // Act
         List<String> result = groupService.getGroupUsers("TestGroup");
 
@@ -244,7 +287,129 @@ public class CognitoGroupServiceTest {
         assertTrue(result.contains("user2"));
         assertTrue(result.contains("user3"));
         verify(cognitoClient).listUsersInGroup(any(ListUsersInGroupRequest.class));
-        verify(cognitoClient).getGroup(any(GetGroupRequest.class));
+        verify(cognitoClient, never()).getGroup(any(GetGroupRequest.class));
+    }
+
+    @Test
+    void getGroupUsersNotFoundTest() {
+        // Arrange
+        when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenThrow(
+                software.amazon.awssdk.services.cognitoidentityprovider.model.ResourceNotFoundException.builder()
+                        .message("Group not found.")
+                        .build());
+
+        // Act & Assert
+        assertThrows(app.quantun.eb2c.exception.ResourceNotFoundException.class,
+                () -> groupService.getGroupUsers("Missing"));
+    }
+
+    @Test
+    void getGroupUsersFollowsPaginationTokensTest() {
+        // Arrange
+        when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenReturn(
+                ListUsersInGroupResponse.builder()
+                        .users(UserType.builder().username("user1").build())
+                        .nextToken("token-2")
+                        .build(),
+                ListUsersInGroupResponse.builder()
+                        .users(UserType.builder().username("user2").build())
+                        .build());
+
+        // Act
+        List<String> result = groupService.getGroupUsers("TestGroup");
+
+        // Assert
+        assertEquals(List.of("user1", "user2"), result);
+        verify(cognitoClient, times(2)).listUsersInGroup(any(ListUsersInGroupRequest.class));
+    }
+
+    @Test
+    void listGroupUsersWalksTheGroupWithCursorsTest() {
+        // Arrange
+        when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenAnswer(invocation -> {
+            ListUsersInGroupRequest request = invocation.getArgument(0);
+            if (request.nextToken() == null) {
+                return ListUsersInGroupResponse.builder()
+                        .users(UserType.builder().username("user1").build(),
+                                UserType.builder().username("user2").build())
+                        .nextToken("token-2")
+                        .build();
+            }
+            return ListUsersInGroupResponse.builder()
+                    .users(UserType.builder().username("user3").build())
+                    .build();
+        });
+
+        // Act
+        PagedResponse<String> first = groupService.listGroupUsers("TestGroup", 2, null);
+        PagedResponse<String> second = groupService.listGroupUsers("TestGroup", 2, first.getNextCursor());
+
+        // Assert
+        assertEquals(List.of("user1", "user2"), first.getContent());
+        assertFalse(first.isLast());
+        assertEquals(-1, first.getTotalElements());
+        assertNotNull(first.getNextCursor());
+        assertEquals(List.of("user3"), second.getContent());
+        assertEquals(1, second.getPage());
+        assertTrue(second.isLast());
+        assertEquals(3, second.getTotalElements());
+        assertNull(second.getNextCursor());
+        verify(cognitoClient).listUsersInGroup(argThat((ListUsersInGroupRequest request) ->
+                "token-2".equals(request.nextToken()) && request.limit() == 2));
+    }
+
+    @Test
+    void listGroupUsersRejectsCursorOfAnotherGroupTest() {
+        // Arrange
+        when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenReturn(
+                ListUsersInGroupResponse.builder()
+                        .users(UserType.builder().username("user1").build())
+                        .nextToken("token-2")
+                        .build());
+        String cursor = groupService.listGroupUsers("TestGroup", 1, null).getNextCursor();
+
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> groupService.listGroupUsers("OtherGroup", 1, cursor));
+    }
+
+    @Test
+    void exportGroupUsersWritesOneLinePerMemberTest() throws Exception {
+        // Arrange
+        when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenReturn(
+                ListUsersInGroupResponse.builder()
+                        .users(UserType.builder().username("user1").enabled(true)
+                                .attributes(AttributeType.builder().name("email").value("user1@example.com").build())
+                                .build())
+                        .nextToken("token-2")
+                        .build(),
+                ListUsersInGroupResponse.builder()
+                        .users(UserType.builder().username("user2").enabled(false).build())
+                        .build());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Act
+        long count = groupService.exportGroupUsers("TestGroup", outputStream);
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals("{\"groupName\":\"TestGroup\",\"username\":\"user1\",\"email\":\"user1@example.com\","
+                        + "\"userStatus\":null,\"enabled\":true}\n"
+                        + "{\"groupName\":\"TestGroup\",\"username\":\"user2\",\"email\":null,"
+                        + "\"userStatus\":null,\"enabled\":false}\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void refreshMembershipIndexTest() {
+        // Arrange
+        MembershipIndexResponse refreshed = new MembershipIndexResponse(true, 3, 7, Instant.now());
+        when(userDirectoryService.refreshGroups()).thenReturn(refreshed);
+
+        // Act
+        MembershipIndexResponse result = groupService.refreshMembershipIndex();
+
+        // Assert
+        assertSame(refreshed, result);
     }
 
     @Test
@@ -268,10 +433,30 @@ public class CognitoGroupServiceTest {
         assertNotNull(result.getUsers());
         assertEquals(2, result.getUsers().size()); // Should match the users we mocked in setUp
         verify(cognitoClient).adminAddUserToGroup(any(AdminAddUserToGroupRequest.class));
+        verify(membershipIndexService).addMembership("testuser", "TestGroup");
         verify(cognitoClient, atLeastOnce()).getGroup(any(GetGroupRequest.class));
         verify(cognitoClient).listUsersInGroup(any(ListUsersInGroupRequest.class));
     }
 
+    @Test
+    void addUserToGroupFromCognitoPoolThreadDoesNotDeadlock() throws Exception {
+        // Arrange a pool of a single thread, busy with the call that adds the user
+        CognitoAsyncExecutor singleThreadExecutor = new CognitoAsyncExecutor(new SimpleMeterRegistry(), 1);
+        ReflectionTestUtils.setField(groupService, "cognitoAsyncExecutor", singleThreadExecutor);
+        when(cognitoClient.adminAddUserToGroup(any(AdminAddUserToGroupRequest.class)))
+                .thenReturn(AdminAddUserToGroupResponse.builder().build());
+        when(cognitoClient.getGroup(any(GetGroupRequest.class)))
+                .thenReturn(GetGroupResponse.builder().group(groupType).build());
+
+        // Act
+        GroupResponse result = singleThreadExecutor
+                .supply(() -> groupService.addUserToGroup("TestGroup", "testuser"))
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(List.of("user1", "user2"), result.getUsers());
+    }
+
     @Test
     void removeUserFromGroupTest() {
         // Arrange
@@ -293,7 +478,23 @@ public class CognitoGroupServiceTest {
         assertNotNull(result.getUsers());
         assertEquals(2, result.getUsers().size()); // Should match the users we mocked in setUp
         verify(cognitoClient).adminRemoveUserFromGroup(any(AdminRemoveUserFromGroupRequest.class));
+        verify(membershipIndexService).removeMembership("testuser", "TestGroup");
         verify(cognitoClient, atLeastOnce()).getGroup(any(GetGroupRequest.class));
         verify(cognitoClient).listUsersInGroup(any(ListUsersInGroupRequest.class));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getGroupByNameAsyncFailsWithNotFound() {
+        // Arrange
+        when(cognitoClient.getGroup(any(GetGroupRequest.class))).thenThrow(
+                software.amazon.awssdk.services.cognitoidentityprovider.model.ResourceNotFoundException.builder()
+                        .message("Group not found").build());
+
+        // Act
+        CompletableFuture<GroupResponse> result = groupService.getGroupByNameAsync("Missing");
+
+        // Assert
+        ExecutionException error = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(app.quantun.eb2c.exception.ResourceNotFoundException.class, error.getCause());
+    }
+}
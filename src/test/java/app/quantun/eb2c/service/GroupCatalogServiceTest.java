@@ -0,0 +1,126 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.message.RedisPublisher;
+import app.quantun.eb2c.message.event.GroupCatalogChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.GroupType;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.ListGroupsRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.ListGroupsResponse;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCatalogServiceTest {
+
+    @Mock
+    private CognitoIdentityProviderClient cognitoClient;
+
+    @Mock
+    private RedisPublisher redisPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private GroupCatalogService groupCatalogService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        groupCatalogService = new GroupCatalogService(cognitoClient, redisPublisher, meterRegistry, "pool");
+
+        // Two ListGroups pages
+        when(cognitoClient.listGroups(any(ListGroupsRequest.class))).thenAnswer(invocation -> {
+            ListGroupsRequest request = invocation.getArgument(0);
+            if (request.nextToken() == null) {
+                return ListGroupsResponse.builder()
+                        .groups(group("Users", "Everyone", 30, 3), group("Admins", "Pool administrators", 10, 2))
+                        .nextToken("page-2")
+                        .build();
+            }
+            return ListGroupsResponse.builder()
+                    .groups(group("Editors", null, 20, 1))
+                    .build();
+        });
+    }
+
+    @Test
+    void catalogIsLoadedOnceAcrossAllPages() {
+        // When
+        List<GroupType> first = groupCatalogService.find(null, null, false);
+        List<GroupType> second = groupCatalogService.find(null, "precedence", true);
+
+        // Then
+        assertEquals(List.of("Admins", "Editors", "Users"), names(first));
+        assertEquals(List.of("Users", "Editors", "Admins"), names(second));
+        verify(cognitoClient, times(2)).listGroups(any(ListGroupsRequest.class));
+        assertEquals(3, meterRegistry.get("cognito.group-catalog.size").gauge().value());
+    }
+
+    @Test
+    void sortsByEveryField() {
+        assertEquals(List.of("Editors", "Admins", "Users"), names(groupCatalogService.find(null, "creationDate", false)));
+        // Groups without a description sort last
+        assertEquals(List.of("Users", "Admins", "Editors"), names(groupCatalogService.find(null, "description", false)));
+    }
+
+    @Test
+    void filterMatchesSubstringsOfNameAndDescription() {
+        assertEquals(List.of("Admins"), names(groupCatalogService.find("ADMINISTRATOR", null, false)));
+        assertEquals(List.of("Admins", "Editors", "Users"), names(groupCatalogService.find("rs", null, false)));
+        assertEquals(List.of("Users"), names(groupCatalogService.find("every", null, false)));
+        assertEquals(List.of(), names(groupCatalogService.find("sEv", null, false)));
+        assertEquals(List.of(), names(groupCatalogService.find("missing", null, false)));
+    }
+
+    @Test
+    void localChangesApplyAtOnceAndAreBroadcast() {
+        // Given
+        groupCatalogService.find(null, null, false);
+
+        // When
+        groupCatalogService.put(group("Auditors", "Read only", 5, 4));
+        groupCatalogService.remove("Users");
+
+        // Then
+        assertEquals(List.of("Admins", "Auditors", "Editors"), names(groupCatalogService.find(null, null, false)));
+        assertEquals(List.of("Auditors"), names(groupCatalogService.find("read", null, false)));
+        verify(cognitoClient, times(2)).listGroups(any(ListGroupsRequest.class));
+        verify(redisPublisher, times(2)).publish(any(GroupCatalogChangedEvent.class));
+    }
+
+    @Test
+    void changeOnAnotherReplicaReloadsOnNextRead() {
+        // Given
+        groupCatalogService.find(null, null, false);
+
+        // When
+        groupCatalogService.onCatalogChanged(new GroupCatalogChangedEvent("other"));
+        groupCatalogService.find(null, null, false);
+
+        // Then
+        verify(cognitoClient, times(4)).listGroups(any(ListGroupsRequest.class));
+    }
+
+    private static GroupType group(String name, String description, int precedence, int day) {
+        return GroupType.builder()
+                .groupName(name)
+                .description(description)
+                .precedence(precedence)
+                .creationDate(Instant.parse("2024-01-0" + day + "T00:00:00Z"))
+                .build();
+    }
+
+    private static List<String> names(List<GroupType> groups) {
+        return groups.stream().map(GroupType::groupName).toList();
+    }
+}
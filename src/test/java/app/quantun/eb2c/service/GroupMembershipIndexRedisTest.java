@@ -0,0 +1,108 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.Eb2cApplication;
+import app.quantun.eb2c.TestConfig;
+import app.quantun.eb2c.message.RedisPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the index scripts against Redis, with two instances of the service standing for two replicas.
+ */
+@SpringBootTest(classes = Eb2cApplication.class)
+@Import(TestConfig.class)
+@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+class GroupMembershipIndexRedisTest {
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private UserGroupCacheService firstCache;
+
+    private UserGroupCacheService secondCache;
+
+    private GroupMembershipIndexService first;
+
+    private GroupMembershipIndexService second;
+
+    private String username;
+
+    @BeforeEach
+    void setUp() {
+        firstCache = new UserGroupCacheService(new SimpleMeterRegistry(), 100, Duration.ofMinutes(5), 2,
+                Duration.ofSeconds(5));
+        secondCache = new UserGroupCacheService(new SimpleMeterRegistry(), 100, Duration.ofMinutes(5), 2,
+                Duration.ofSeconds(5));
+        first = index(firstCache);
+        second = index(secondCache);
+        username = "user-" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        firstCache.shutdown();
+        secondCache.shutdown();
+    }
+
+    @Test
+    void missWritesTheLoadedSet() {
+        // When
+        List<String> groups = first.getUserGroups(username, name -> List.of("Admins"));
+
+        // Then
+        assertEquals(List.of("Admins"), groups);
+        assertEquals(Set.of("", "Admins"), redisTemplate.opsForSet().members(userKey()));
+        assertTrue(redisTemplate.getExpire(userKey()) > 0);
+    }
+
+    @Test
+    void loadRacingAChangeDoesNotWriteTheOldMemberships() {
+        // Given a load that reads Cognito, then sees a change made on another replica before writing
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        List<String> groups = first.getUserGroups(username, name -> {
+            loads.incrementAndGet();
+            second.addMembership(username, "Ops");
+            return List.of("Admins");
+        });
+
+        // Then the old memberships are returned once but not stored, and the next lookup loads again
+        assertEquals(List.of("Admins"), groups);
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(userKey())));
+        firstCache.evict(username);
+        assertEquals(List.of("Admins", "Ops"), first.getUserGroups(username, name -> {
+            loads.incrementAndGet();
+            return List.of("Admins", "Ops");
+        }));
+        assertEquals(2, loads.get());
+        assertEquals(Set.of("", "Admins", "Ops"), redisTemplate.opsForSet().members(userKey()));
+    }
+
+    private String userKey() {
+        return "cognito:membership:user:" + username;
+    }
+
+    private GroupMembershipIndexService index(UserGroupCacheService userGroupCacheService) {
+        return new GroupMembershipIndexService(redisTemplate, mock(RedisPublisher.class), userGroupCacheService,
+                new SimpleMeterRegistry(), true, Duration.ofMinutes(30), 100, Duration.ofMinutes(1));
+    }
+}
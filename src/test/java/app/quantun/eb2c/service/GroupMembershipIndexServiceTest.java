@@ -0,0 +1,291 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.message.RedisPublisher;
+import app.quantun.eb2c.message.event.GroupMembersChangedEvent;
+import app.quantun.eb2c.message.event.MembershipsResetEvent;
+import app.quantun.eb2c.message.event.UserGroupsChangedEvent;
+import app.quantun.eb2c.model.contract.contract.response.MembershipIndexResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class GroupMembershipIndexServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private RedisPublisher redisPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserGroupCacheService userGroupCacheService;
+
+    private GroupMembershipIndexService membershipIndexService;
+
+    private AtomicInteger loads;
+
+    private Function<String, List<String>> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userGroupCacheService = new UserGroupCacheService(meterRegistry, 100, Duration.ofMinutes(5), 2,
+                Duration.ofSeconds(5));
+        membershipIndexService = index(true);
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        loads = new AtomicInteger();
+        loader = name -> {
+            loads.incrementAndGet();
+            return List.of("Admins", "Users");
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        userGroupCacheService.shutdown();
+    }
+
+    @Test
+    void missLoadsFromCognitoAndWritesTheSet() {
+        // Given
+        when(setOperations.members("cognito:membership:user:alice")).thenReturn(Set.of());
+
+        // When
+        List<String> first = membershipIndexService.getUserGroups("alice", loader);
+        List<String> second = membershipIndexService.getUserGroups("alice", loader);
+
+        // Then
+        assertEquals(List.of("Admins", "Users"), first);
+        assertEquals(first, second);
+        assertEquals(1, loads.get());
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("cognito:membership:user:alice", "cognito:membership:changes:user:alice")),
+                eq("0"), eq("1800"), eq(""), eq("Admins"), eq("Users"));
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "cognito.membership").tag("result", "miss")
+                .counter().count());
+    }
+
+    @Test
+    void missWritesTheSetOnlyIfUnchangedSinceTheLoadStarted() {
+        // Given a change recorded before the load
+        when(setOperations.members("cognito:membership:group:Admins")).thenReturn(Set.of());
+        when(valueOperations.get("cognito:membership:changes:group:Admins")).thenReturn("3");
+
+        // When
+        membershipIndexService.getGroupUsers("Admins", loader);
+
+        // Then the write is conditional on the counter read before the load
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("cognito:membership:group:Admins", "cognito:membership:changes:group:Admins")),
+                eq("3"), eq("1800"), eq(""), eq("Admins"), eq("Users"));
+        verify(redisTemplate, never()).execute(any(SessionCallback.class));
+    }
+
+    @Test
+    void loadedSetIsServedFromRedis() {
+        // Given
+        when(setOperations.members("cognito:membership:group:Admins")).thenReturn(Set.of("", "bob", "alice"));
+
+        // When
+        List<String> result = membershipIndexService.getGroupUsers("Admins", loader);
+
+        // Then
+        assertEquals(List.of("alice", "bob"), result);
+        assertEquals(0, loads.get());
+        verify(redisTemplate, never()).execute(any(SessionCallback.class));
+    }
+
+    @Test
+    void redisFailureFallsBackToCognito() {
+        // Given
+        when(setOperations.members("cognito:membership:group:Admins"))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // When
+        List<String> result = membershipIndexService.getGroupUsers("Admins", loader);
+
+        // Then
+        assertEquals(List.of("Admins", "Users"), result);
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("cache.errors").tag("cache", "cognito.membership").counter().count());
+    }
+
+    @Test
+    void manyUsersAreReadFromRedis() {
+        // Given
+        when(setOperations.members("cognito:membership:user:alice")).thenReturn(Set.of("", "Admins"));
+        when(setOperations.members("cognito:membership:user:bob")).thenReturn(Set.of(""));
+
+        // When
+        Map<String, List<String>> result = membershipIndexService.getAllUserGroups(List.of("bob", "alice"), loader);
+
+        // Then
+        assertEquals(List.of("bob", "alice"), List.copyOf(result.keySet()));
+        assertEquals(List.of(), result.get("bob"));
+        assertEquals(List.of("Admins"), result.get("alice"));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void addMembershipUpdatesLoadedSetsAndBroadcasts() {
+        // Given
+        when(setOperations.members("cognito:membership:user:alice")).thenReturn(Set.of("", "Users"));
+        membershipIndexService.getUserGroups("alice", loader);
+
+        // When
+        membershipIndexService.addMembership("alice", "Admins");
+        membershipIndexService.getUserGroups("alice", loader);
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cognito:membership:user:alice")),
+                eq(""), eq("Admins"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cognito:membership:group:Admins")),
+                eq(""), eq("alice"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cognito:membership:changes:user:alice",
+                "cognito:membership:changes:group:Admins")), eq("1800"));
+        verify(redisPublisher).publish(new UserGroupsChangedEvent("alice"));
+        verify(redisPublisher).publish(new GroupMembersChangedEvent("Admins"));
+        // Evicted from memory, so the second lookup reads Redis again
+        verify(setOperations, times(2)).members("cognito:membership:user:alice");
+    }
+
+    @Test
+    void failedUpdateDropsBothSets() {
+        // Given
+        lenient().when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // When
+        membershipIndexService.addMembership("alice", "Admins");
+
+        // Then
+        verify(redisTemplate).delete(List.of("cognito:membership:user:alice", "cognito:membership:group:Admins"));
+        verify(redisPublisher, never()).publish(any());
+    }
+
+    @Test
+    void removeMembershipRemovesFromBothSets() {
+        // When
+        membershipIndexService.removeMembership("alice", "Admins");
+
+        // Then
+        verify(setOperations).remove("cognito:membership:user:alice", "Admins");
+        verify(setOperations).remove("cognito:membership:group:Admins", "alice");
+    }
+
+    @Test
+    void removeGroupUpdatesItsMembers() {
+        // Given
+        when(setOperations.members("cognito:membership:group:Admins")).thenReturn(Set.of("", "alice"));
+
+        // When
+        membershipIndexService.removeGroup("Admins");
+
+        // Then
+        verify(redisTemplate).delete("cognito:membership:group:Admins");
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cognito:membership:changes:group:Admins",
+                "cognito:membership:changes:user:alice")), eq("1800"));
+        verify(setOperations).remove("cognito:membership:user:alice", "Admins");
+        verify(redisPublisher).publish(new UserGroupsChangedEvent("alice"));
+        verify(redisPublisher, never()).publish(new MembershipsResetEvent());
+    }
+
+    @Test
+    void groupMembersChangedEventDropsTheMemoryCopy() {
+        // Given
+        when(setOperations.members("cognito:membership:group:Admins")).thenReturn(Set.of("", "alice"));
+        membershipIndexService.getGroupUsers("Admins", loader);
+
+        // When
+        membershipIndexService.onGroupMembersChanged(new GroupMembersChangedEvent("Admins"));
+        membershipIndexService.getGroupUsers("Admins", loader);
+
+        // Then
+        verify(setOperations, times(2)).members("cognito:membership:group:Admins");
+    }
+
+    @Test
+    void rebuildWritesBothDirectionsAndDropsStaleKeys() {
+        // Given
+        Map<String, List<String>> usersByGroup = Map.of("Admins", List.of("bob"), "Users", List.of("alice", "bob"));
+        Cursor<String> groupKeys = cursor("cognito:membership:group:Old");
+        Cursor<String> userKeys = cursor("cognito:membership:user:carol");
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(groupKeys, userKeys);
+
+        // When
+        MembershipIndexResponse result = membershipIndexService.rebuild(usersByGroup);
+
+        // Then
+        assertTrue(result.isEnabled());
+        assertEquals(2, result.getGroups());
+        assertEquals(2, result.getUsers());
+        // Two groups, two members and one user no longer in any group
+        verify(redisTemplate, times(5)).execute(any(SessionCallback.class));
+        verify(redisTemplate).delete(List.of("cognito:membership:group:Old"));
+        verify(redisPublisher).publish(new MembershipsResetEvent());
+    }
+
+    @Test
+    void disabledIndexNeverCallsRedis() {
+        // Given
+        membershipIndexService = index(false);
+
+        // When
+        List<String> result = membershipIndexService.getGroupUsers("Admins", loader);
+        membershipIndexService.addMembership("alice", "Admins");
+        MembershipIndexResponse rebuilt = membershipIndexService.rebuild(Map.of("Admins", List.of("alice")));
+
+        // Then
+        assertEquals(List.of("Admins", "Users"), result);
+        assertFalse(rebuilt.isEnabled());
+        verifyNoInteractions(redisTemplate, redisPublisher);
+    }
+
+    private GroupMembershipIndexService index(boolean enabled) {
+        return new GroupMembershipIndexService(redisTemplate, redisPublisher, userGroupCacheService, meterRegistry,
+                enabled, Duration.ofMinutes(30), 100, Duration.ofMinutes(1));
+    }
+
+    private static Cursor<String> cursor(String key) {
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenReturn(true, false);
+        when(cursor.next()).thenReturn(key);
+        return cursor;
+    }
+}
@@ -0,0 +1,147 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.exception.BulkImportException;
+import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
+import app.quantun.eb2c.model.contract.response.ProductBulkResultDTO;
+import app.quantun.eb2c.model.contract.response.ProductBulkResultDTO.Status;
+import app.quantun.eb2c.repository.ProductBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class ProductBulkServiceTest {
+
+    @Mock
+    private ProductBatchRepository productBatchRepository;
+
+    @Mock
+    private ProductCacheService productCacheService;
+
+    private ProductBulkService productBulkService;
+
+    @BeforeEach
+    void setUp() {
+        productBulkService = new ProductBulkService(productBatchRepository, productCacheService, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+    }
+
+    @Test
+    void importProductsCreatesUpdatesAndRejectsPerItem() throws Exception {
+        // Given
+        String body = "["
+                + "{\"name\":\"A\",\"price\":1.50},"
+                + "{\"name\":\"\",\"price\":2.00},"
+                + "{\"name\":\"B\",\"price\":\"not-a-number\"},"
+                + "{\"id\":7,\"name\":\"C\",\"price\":3.00},"
+                + "{\"id\":8,\"name\":\"D\",\"price\":4.00},"
+                + "{\"name\":\"E\",\"price\":5.00}"
+                + "]";
+        when(productBatchRepository.insertAll(anyList())).thenReturn(List.of(100L), List.of(101L));
+        when(productBatchRepository.updateAll(anyList())).thenReturn(new int[]{1}, new int[]{0});
+
+        // When
+        ProductBulkResultDTO result = productBulkService.importProducts(stream(body));
+
+        // Then
+        assertEquals(6, result.getTotal());
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(3, result.getFailed());
+        assertEquals(Status.CREATED, result.getRows().get(0).getStatus());
+        assertEquals(100L, result.getRows().get(0).getId());
+        assertEquals(Status.FAILED, result.getRows().get(1).getStatus());
+        assertEquals(Status.FAILED, result.getRows().get(2).getStatus());
+        assertEquals(Status.UPDATED, result.getRows().get(3).getStatus());
+        assertEquals(Status.FAILED, result.getRows().get(4).getStatus());
+        assertEquals(List.of("Product not found with id 8"), result.getRows().get(4).getErrors());
+        assertEquals(Status.CREATED, result.getRows().get(5).getStatus());
+        assertEquals(101L, result.getRows().get(5).getId());
+        verify(productCacheService).evictAll(List.of(7L));
+        verify(productCacheService).evictAll(List.of(8L));
+    }
+
+    @Test
+    void importProductsWritesInConfiguredBatchSize() throws Exception {
+        // Given
+        String body = "[{\"name\":\"A\"},{\"name\":\"B\"},{\"name\":\"C\"}]";
+        when(productBatchRepository.insertAll(anyList())).thenReturn(List.of(1L, 2L), List.of(3L));
+
+        // When
+        productBulkService.importProducts(stream(body));
+
+        // Then
+        verify(productBatchRepository).insertAll(argThat(products -> products.size() == 2));
+        verify(productBatchRepository).insertAll(argThat(products -> products.size() == 1));
+        verify(productBatchRepository, never()).updateAll(anyList());
+    }
+
+    @Test
+    void importProductsRejectsWholeBatchWhenDatabaseFails() throws Exception {
+        // Given
+        String body = "[{\"name\":\"A\"},{\"name\":\"B\"}]";
+        when(productBatchRepository.insertAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // When
+        ProductBulkResultDTO result = productBulkService.importProducts(stream(body));
+
+        // Then
+        assertEquals(2, result.getFailed());
+        assertEquals(0, result.getCreated());
+    }
+
+    @Test
+    void importProductsRejectsNonArrayBody() {
+        // When & Then
+        assertThrows(BulkImportException.class, () -> productBulkService.importProducts(stream("{\"name\":\"A\"}")));
+        verifyNoInteractions(productBatchRepository);
+    }
+
+    @Test
+    void importProductsKeepsEarlierBatchesAndDiscardsPendingItemsWhenJsonIsTruncated() {
+        // Given
+        String body = "[{\"name\":\"A\"},{\"name\":\"B\"},{\"name\":\"C\"},{\"name\":";
+        when(productBatchRepository.insertAll(anyList())).thenReturn(List.of(1L, 2L));
+
+        // When
+        BulkImportException exception = assertThrows(BulkImportException.class,
+                () -> productBulkService.importProducts(stream(body)));
+
+        // Then
+        verify(productBatchRepository).insertAll(argThat((List<ProductRequestDTO> products) ->
+                products.size() == 2 && "A".equals(products.get(0).getName())
+                        && "B".equals(products.get(1).getName())));
+        verifyNoMoreInteractions(productBatchRepository);
+        assertTrue(exception.getMessage().contains("2 items of earlier batches were saved"));
+    }
+
+    @Test
+    void importProductsSavesNothingWhenJsonIsTruncatedInFirstBatch() {
+        // Given
+        String body = "[{\"name\":\"A\"},{\"name\":";
+
+        // When & Then
+        assertThrows(BulkImportException.class, () -> productBulkService.importProducts(stream(body)));
+        verifyNoInteractions(productBatchRepository);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
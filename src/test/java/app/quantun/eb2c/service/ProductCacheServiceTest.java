@@ -0,0 +1,198 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.message.RedisPublisher;
+import app.quantun.eb2c.message.event.ProductsChangedEvent;
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCacheServiceTest {
+
+    private static final Duration L2_TTL = Duration.ofMinutes(10);
+
+    private static final Duration TOMBSTONE_TTL = Duration.ofSeconds(10);
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private RedisPublisher redisPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProductCacheService productCacheService;
+
+    private ProductResponseDTO product;
+
+    private AtomicInteger loads;
+
+    private Function<Long, Optional<ProductResponseDTO>> loader;
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productCacheService = newCacheService();
+
+        product = ProductResponseDTO.builder()
+                .id(1L).name("Test Product").price(new BigDecimal("10.50")).inStock(true).stock(3).build();
+        loads = new AtomicInteger();
+        loader = id -> {
+            loads.incrementAndGet();
+            return Optional.of(product);
+        };
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        // Redis values are kept in a map
+        lenient().when(valueOperations.get(anyString()))
+                .thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        lenient().doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+        lenient().when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> redis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        lenient().when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<?>>getArgument(0).execute(redisTemplate);
+            return List.of();
+        });
+    }
+
+    private ProductCacheService newCacheService() {
+        return new ProductCacheService(redisTemplate, redisPublisher, new ObjectMapper().findAndRegisterModules(),
+                meterRegistry, 100, Duration.ofMinutes(1), L2_TTL, TOMBSTONE_TTL);
+    }
+
+    @Test
+    void getLoadsOnceAndFillsBothTiers() {
+        // When
+        Optional<ProductResponseDTO> first = productCacheService.get(1L, loader);
+        Optional<ProductResponseDTO> second = productCacheService.get(1L, loader);
+
+        // Then
+        assertEquals(Optional.of(product), first);
+        assertEquals(Optional.of(product), second);
+        assertEquals(1, loads.get());
+        verify(valueOperations, times(1)).get("product:1");
+        verify(valueOperations).setIfAbsent(eq("product:1"), anyString(), eq(L2_TTL));
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", "products.l1", "result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", "products.l2", "result", "miss").counter().count());
+    }
+
+    @Test
+    void getReadsL2BeforeTheDatabase() {
+        // Given
+        when(valueOperations.get("product:1"))
+                .thenReturn("{\"id\":1,\"name\":\"Test Product\",\"price\":10.50,\"inStock\":true,\"stock\":3}");
+
+        // When
+        Optional<ProductResponseDTO> result = productCacheService.get(1L, loader);
+
+        // Then
+        assertEquals(Optional.of(product), result);
+        assertEquals(0, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", "products.l2", "result", "hit").counter().count());
+    }
+
+    @Test
+    void getFallsBackToTheDatabaseWhenRedisIsDown() {
+        // Given
+        when(valueOperations.get("product:1")).thenThrow(new RedisConnectionFailureException("down"));
+
+        // When
+        Optional<ProductResponseDTO> result = productCacheService.get(1L, loader);
+
+        // Then
+        assertEquals(Optional.of(product), result);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getDoesNotCacheAbsentProducts() {
+        // When
+        productCacheService.get(2L, id -> Optional.empty());
+        Optional<ProductResponseDTO> result = productCacheService.get(2L, loader);
+
+        // Then
+        assertEquals(Optional.of(product), result);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evictDropsBothTiersAndBroadcasts() {
+        // Given
+        productCacheService.get(1L, loader);
+
+        // When
+        productCacheService.evictAll(List.of(1L, 2L));
+        productCacheService.get(1L, loader);
+
+        // Then
+        verify(valueOperations).set("product:1", "-", TOMBSTONE_TTL);
+        verify(valueOperations).set("product:2", "-", TOMBSTONE_TTL);
+        verify(redisPublisher).publish(new ProductsChangedEvent(List.of(1L, 2L)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void lookupLoadedBeforeAnUpdateDoesNotRefillL2AfterTheEviction() {
+        // Given a lookup that reads the old row, then sees an update commit on another replica before it fills L2
+        ProductResponseDTO updated = ProductResponseDTO.builder()
+                .id(1L).name("Renamed").price(new BigDecimal("10.50")).inStock(true).stock(3).build();
+        Function<Long, Optional<ProductResponseDTO>> racingLoader = id -> {
+            newCacheService().evict(id);
+            return Optional.of(product);
+        };
+
+        // When
+        productCacheService.get(1L, racingLoader);
+        Optional<ProductResponseDTO> otherReplica = newCacheService().get(1L, id -> Optional.of(updated));
+
+        // Then the other replica reads the database instead of the old row
+        assertEquals("-", redis.get("product:1"));
+        assertEquals(Optional.of(updated), otherReplica);
+    }
+
+    @Test
+    void productsChangedEventDropsL1EntryOfAnotherReplica() {
+        // Given
+        productCacheService.get(1L, loader);
+
+        // When
+        productCacheService.onProductsChanged(new ProductsChangedEvent(List.of(1L)));
+        productCacheService.get(1L, loader);
+
+        // Then
+        assertEquals(2, loads.get());
+        verifyNoInteractions(redisPublisher);
+    }
+}
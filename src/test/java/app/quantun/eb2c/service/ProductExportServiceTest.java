@@ -0,0 +1,94 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.mapper.ProductMapper;
+import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import app.quantun.eb2c.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductExportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ProductExportService productExportService;
+
+    private Product product1;
+    private Product product2;
+
+    @BeforeEach
+    void setUp() {
+        productExportService = new ProductExportService(productRepository, productMapper, new ObjectMapper().findAndRegisterModules(), entityManager);
+
+        product1 = new Product();
+        product1.setId(1L);
+        product2 = new Product();
+        product2.setId(2L);
+
+        when(productRepository.streamAllBy()).thenReturn(Stream.of(product1, product2));
+        when(productMapper.toProductResponseDTO(product1)).thenReturn(ProductResponseDTO.builder()
+                .id(1L).name("Plain Product").description("Simple").price(new BigDecimal("10.50"))
+                .inStock(true).stock(5).build());
+        when(productMapper.toProductResponseDTO(product2)).thenReturn(ProductResponseDTO.builder()
+                .id(2L).name("Cable, \"USB-C\"").price(new BigDecimal("3.00"))
+                .inStock(false).stock(0).build());
+    }
+
+    @Test
+    void exportNdjsonWritesOneObjectPerLine() throws Exception {
+        // Given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        long count = productExportService.exportNdjson(outputStream);
+
+        // Then
+        assertEquals(2, count);
+        assertEquals("{\"id\":1,\"name\":\"Plain Product\",\"description\":\"Simple\",\"price\":10.50,"
+                        + "\"inStock\":true,\"stock\":5,\"updatedAt\":null}\n"
+                        + "{\"id\":2,\"name\":\"Cable, \\\"USB-C\\\"\",\"description\":null,\"price\":3.00,"
+                        + "\"inStock\":false,\"stock\":0,\"updatedAt\":null}\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+        verify(entityManager, times(2)).detach(any(Product.class));
+    }
+
+    @Test
+    void exportCsvEscapesFieldsAndWritesHeader() throws Exception {
+        // Given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        long count = productExportService.exportCsv(outputStream);
+
+        // Then
+        assertEquals(2, count);
+        assertEquals("id,name,description,price,inStock,stock\r\n"
+                        + "1,Plain Product,Simple,10.50,true,5\r\n"
+                        + "2,\"Cable, \"\"USB-C\"\"\",,3.00,false,0\r\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+        verify(entityManager).detach(product1);
+        verify(entityManager).detach(product2);
+    }
+}
@@ -0,0 +1,78 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.model.contract.request.ProductSearchCriteria;
+import app.quantun.eb2c.model.contract.response.ProductFacetsDTO;
+import app.quantun.eb2c.model.contract.response.ProductFacetsDTO.FacetCountDTO;
+import app.quantun.eb2c.repository.ProductFacetRepository;
+import app.quantun.eb2c.repository.ProductFacetRepository.FacetRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductFacetServiceTest {
+
+    @Mock
+    private ProductFacetRepository productFacetRepository;
+
+    private ProductFacetService productFacetService;
+
+    @BeforeEach
+    void setUp() {
+        productFacetService = new ProductFacetService(productFacetRepository,
+                new BigDecimal[]{new BigDecimal("100"), new BigDecimal("50"), new BigDecimal("50")});
+    }
+
+    @Test
+    void getFacetsSumsEveryFacetFromTheGroupedRows() {
+        // Given
+        List<BigDecimal> bounds = List.of(new BigDecimal("50"), new BigDecimal("100"));
+        when(productFacetRepository.countFacets(any(), eq(bounds))).thenReturn(List.of(
+                new FacetRow("Phones", 2, true, 4),
+                new FacetRow("Phones", 1, false, 1),
+                new FacetRow("Cables", 0, true, 7),
+                new FacetRow(null, ProductFacetRepository.NO_PRICE_BUCKET, false, 2)));
+
+        // When
+        ProductFacetsDTO facets = productFacetService.getFacets(new ProductSearchCriteria());
+
+        // Then
+        assertEquals(List.of(new FacetCountDTO("Cables", 7), new FacetCountDTO("Phones", 5),
+                new FacetCountDTO(null, 2)), facets.getCategories());
+        assertEquals(3, facets.getPriceBuckets().size());
+        assertNull(facets.getPriceBuckets().get(0).getMin());
+        assertEquals(new BigDecimal("50"), facets.getPriceBuckets().get(0).getMax());
+        assertEquals(7, facets.getPriceBuckets().get(0).getCount());
+        assertEquals(1, facets.getPriceBuckets().get(1).getCount());
+        assertEquals(new BigDecimal("100"), facets.getPriceBuckets().get(2).getMin());
+        assertNull(facets.getPriceBuckets().get(2).getMax());
+        assertEquals(4, facets.getPriceBuckets().get(2).getCount());
+        assertEquals(List.of(new FacetCountDTO("true", 11), new FacetCountDTO("false", 3)), facets.getInStock());
+        verify(productFacetRepository, times(1)).countFacets(any(), any());
+    }
+
+    @Test
+    void getFacetsListsEmptyPriceBucketsWhenNothingMatches() {
+        // Given
+        when(productFacetRepository.countFacets(any(), any())).thenReturn(List.of());
+
+        // When
+        ProductFacetsDTO facets = productFacetService.getFacets(new ProductSearchCriteria());
+
+        // Then
+        assertTrue(facets.getCategories().isEmpty());
+        assertEquals(3, facets.getPriceBuckets().size());
+        assertTrue(facets.getPriceBuckets().stream().allMatch(bucket -> bucket.getCount() == 0));
+        assertTrue(facets.getInStock().isEmpty());
+    }
+}
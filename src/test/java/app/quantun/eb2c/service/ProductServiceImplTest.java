@@ -1,27 +1,34 @@
 package app.quantun.eb2c.service;
 
+import app.quantun.eb2c.exception.InvalidCursorException;
+import app.quantun.eb2c.exception.InvalidSortFieldException;
+import app.quantun.eb2c.mapper.ProductMapper;
 import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
 import app.quantun.eb2c.model.contract.request.ProductSearchCriteria;
+import app.quantun.eb2c.model.contract.response.CursorPageResponseDTO;
 import app.quantun.eb2c.model.contract.response.ProductResponseDTO;
 import app.quantun.eb2c.model.entity.bussines.Product;
+import app.quantun.eb2c.repository.ProductReadRepository;
 import app.quantun.eb2c.repository.ProductRepository;
+import app.quantun.eb2c.util.CursorCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -36,7 +43,13 @@ class ProductServiceImplTest {
     private ProductRepository productRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private ProductReadRepository productReadRepository;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private ProductCacheService productCacheService;
 
     @InjectMocks
     private ProductServiceImpl productService;
@@ -80,25 +93,24 @@ class ProductServiceImplTest {
     @Test
     void getAllProducts() {
         // Given
-        List<Product> products = Arrays.asList(product1, product2);
-        when(productRepository.findAll()).thenReturn(products);
-        when(modelMapper.map(any(Product.class), eq(ProductResponseDTO.class)))
-                .thenReturn(productResponseDTO);
+        List<ProductResponseDTO> products = Arrays.asList(productResponseDTO, new ProductResponseDTO());
+        when(productReadRepository.findAll()).thenReturn(products);
 
         // When
         List<ProductResponseDTO> result = productService.getAllProducts();
 
         // Then
         assertEquals(2, result.size());
-        verify(productRepository).findAll();
-        verify(modelMapper, times(2)).map(any(Product.class), eq(ProductResponseDTO.class));
+        verify(productReadRepository).findAll();
+        verifyNoInteractions(productRepository, productMapper);
     }
 
     @Test
     void getProductById_whenProductExists() {
         // Given
+        passThroughCache();
         when(productRepository.findById(1L)).thenReturn(Optional.of(product1));
-        when(modelMapper.map(product1, ProductResponseDTO.class)).thenReturn(productResponseDTO);
+        when(productMapper.toProductResponseDTO(product1)).thenReturn(productResponseDTO);
 
         // When
         Optional<ProductResponseDTO> result = productService.getProductById(1L);
@@ -112,6 +124,7 @@ class ProductServiceImplTest {
     @Test
     void getProductById_whenProductDoesNotExist() {
         // Given
+        passThroughCache();
         when(productRepository.findById(99L)).thenReturn(Optional.empty());
 
         // When
@@ -125,18 +138,18 @@ class ProductServiceImplTest {
     @Test
     void createProduct() {
         // Given
-        when(modelMapper.map(productRequestDTO, Product.class)).thenReturn(product1);
+        when(productMapper.toEntity(productRequestDTO)).thenReturn(product1);
         when(productRepository.save(product1)).thenReturn(product1);
-        when(modelMapper.map(product1, ProductResponseDTO.class)).thenReturn(productResponseDTO);
+        when(productMapper.toProductResponseDTO(product1)).thenReturn(productResponseDTO);
 
         // When
         ProductResponseDTO result = productService.createProduct(productRequestDTO);
 
         // Then
         assertEquals(productResponseDTO, result);
-        verify(modelMapper).map(productRequestDTO, Product.class);
+        verify(productMapper).toEntity(productRequestDTO);
         verify(productRepository).save(product1);
-        verify(modelMapper).map(product1, ProductResponseDTO.class);
+        verify(productMapper).toProductResponseDTO(product1);
     }
 
     @Test
@@ -144,7 +157,7 @@ class ProductServiceImplTest {
         // Given
         when(productRepository.findById(1L)).thenReturn(Optional.of(product1));
         when(productRepository.save(product1)).thenReturn(product1);
-        when(modelMapper.map(product1, ProductResponseDTO.class)).thenReturn(productResponseDTO);
+        when(productMapper.toProductResponseDTO(product1)).thenReturn(productResponseDTO);
 
         // When
         ProductResponseDTO result = productService.updateProduct(1L, productRequestDTO);
@@ -153,7 +166,8 @@ class ProductServiceImplTest {
         assertEquals(productResponseDTO, result);
         verify(productRepository).findById(1L);
         verify(productRepository).save(product1);
-        verify(modelMapper).map(product1, ProductResponseDTO.class);
+        verify(productMapper).toProductResponseDTO(product1);
+        verify(productCacheService).evict(1L);
     }
 
     @Test
@@ -171,6 +185,8 @@ class ProductServiceImplTest {
     void updateProductFields() {
         // Given
         Product existingProduct = new Product();
+        existingProduct.setInStock(true);
+        existingProduct.setStock(4);
         productRequestDTO.setName("Updated Name");
         productRequestDTO.setDescription("Updated Description");
         productRequestDTO.setPrice(BigDecimal.valueOf(150.00));
@@ -179,11 +195,12 @@ class ProductServiceImplTest {
         // When
         productService.updateProductFields(existingProduct, productRequestDTO);
 
-        // Then
+        // Then the stock stays with the reservations
         assertEquals("Updated Name", existingProduct.getName());
         assertEquals("Updated Description", existingProduct.getDescription());
         assertEquals(BigDecimal.valueOf(150.00), existingProduct.getPrice());
-        assertFalse(existingProduct.isInStock());
+        assertTrue(existingProduct.isInStock());
+        assertEquals(4, existingProduct.getStock());
     }
 
     @Test
@@ -197,6 +214,7 @@ class ProductServiceImplTest {
         // Then
         verify(productRepository).findById(1L);
         verify(productRepository).delete(product1);
+        verify(productCacheService).evict(1L);
     }
 
     @Test
@@ -208,57 +226,72 @@ class ProductServiceImplTest {
         assertThrows(RuntimeException.class, () -> productService.deleteProduct(99L));
         verify(productRepository).findById(99L);
         verifyNoMoreInteractions(productRepository);
+        verifyNoInteractions(productCacheService);
     }
 
     @Test
     void searchProductsByName() {
         // Given
-        List<Product> products = Arrays.asList(product1);
-        when(productRepository.findByNameContaining("Test")).thenReturn(products);
-        when(modelMapper.map(any(Product.class), eq(ProductResponseDTO.class)))
-                .thenReturn(productResponseDTO);
+        when(productReadRepository.findByNameContaining("Test")).thenReturn(List.of(productResponseDTO));
 
         // When
         List<ProductResponseDTO> result = productService.searchProductsByName("Test");
 
         // Then
         assertEquals(1, result.size());
-        verify(productRepository).findByNameContaining("Test");
-        verify(modelMapper).map(any(Product.class), eq(ProductResponseDTO.class));
+        verify(productReadRepository).findByNameContaining("Test");
+        verifyNoInteractions(productMapper);
+    }
+
+    @Test
+    void searchProductsRanked() {
+        // Given
+        when(productReadRepository.searchRanked("phone", 100)).thenReturn(List.of(productResponseDTO));
+
+        // When
+        List<ProductResponseDTO> result = productService.searchProductsRanked("  phone ", 500);
+
+        // Then
+        assertEquals(List.of(productResponseDTO), result);
+        verify(productReadRepository).searchRanked("phone", 100);
+    }
+
+    @Test
+    void searchProductsRanked_whenQueryIsBlank() {
+        // When
+        List<ProductResponseDTO> result = productService.searchProductsRanked(" ", 20);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(productReadRepository);
     }
 
     @Test
     void getProductsUnderPrice() {
         // Given
-        List<Product> products = Arrays.asList(product1);
-        when(productRepository.findByPriceLessThan(BigDecimal.valueOf(150))).thenReturn(products);
-        when(modelMapper.map(any(Product.class), eq(ProductResponseDTO.class)))
-                .thenReturn(productResponseDTO);
+        when(productReadRepository.findByPriceLessThan(BigDecimal.valueOf(150))).thenReturn(List.of(productResponseDTO));
 
         // When
         List<ProductResponseDTO> result = productService.getProductsUnderPrice(BigDecimal.valueOf(150));
 
         // Then
         assertEquals(1, result.size());
-        verify(productRepository).findByPriceLessThan(BigDecimal.valueOf(150));
-        verify(modelMapper).map(any(Product.class), eq(ProductResponseDTO.class));
+        verify(productReadRepository).findByPriceLessThan(BigDecimal.valueOf(150));
+        verifyNoInteractions(productMapper);
     }
 
     @Test
     void getInStockProducts() {
         // Given
-        List<Product> products = Arrays.asList(product1);
-        when(productRepository.findByInStock(true)).thenReturn(products);
-        when(modelMapper.map(any(Product.class), eq(ProductResponseDTO.class)))
-                .thenReturn(productResponseDTO);
+        when(productReadRepository.findByInStock(true)).thenReturn(List.of(productResponseDTO));
 
         // When
         List<ProductResponseDTO> result = productService.getInStockProducts();
 
         // Then
         assertEquals(1, result.size());
-        verify(productRepository).findByInStock(true);
-        verify(modelMapper).map(any(Product.class), eq(ProductResponseDTO.class));
+        verify(productReadRepository).findByInStock(true);
+        verifyNoInteractions(productMapper);
     }
 
     @Test
@@ -274,8 +307,7 @@ class ProductServiceImplTest {
         Page<Product> productPage = new PageImpl<>(Arrays.asList(product1), pageable, 1);
 
         when(productRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(productPage);
-        when(modelMapper.map(any(Product.class), eq(ProductResponseDTO.class)))
-                .thenReturn(productResponseDTO);
+        when(productMapper.toProductResponseDTO(any(Product.class))).thenReturn(productResponseDTO);
 
         // When
         Page<ProductResponseDTO> result = productService.findProductsByCriteria(criteria, pageable);
@@ -283,6 +315,76 @@ class ProductServiceImplTest {
         // Then
         assertEquals(1, result.getTotalElements());
         verify(productRepository).findAll(any(Specification.class), eq(pageable));
-        verify(modelMapper).map(any(Product.class), eq(ProductResponseDTO.class));
+        verify(productMapper).toProductResponseDTO(any(Product.class));
+    }
+
+    @Test
+    void scrollProductsByCriteria_firstSliceReturnsCursorWhenMoreRowsExist() {
+        // Given
+        when(productRepository.findBy(any(Specification.class), any(Function.class)))
+                .thenReturn(Arrays.asList(product1, product2));
+        when(productMapper.toProductResponseDTO(any(Product.class))).thenReturn(productResponseDTO);
+
+        // When
+        CursorPageResponseDTO<ProductResponseDTO> result = productService.scrollProductsByCriteria(
+                new ProductSearchCriteria(), null, 1, Sort.Order.asc("price"));
+
+        // Then
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.isHasNext());
+        assertEquals(Arrays.asList("price", "ASC", "100.0", "1"), CursorCodec.decode(result.getNextCursor()));
+        verify(productRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+        verify(productRepository, never()).count(any(Specification.class));
+    }
+
+    @Test
+    void scrollProductsByCriteria_lastSliceHasNoCursor() {
+        // Given
+        String after = CursorCodec.encode("price", "ASC", "100.0", "1");
+        when(productRepository.findBy(any(Specification.class), any(Function.class)))
+                .thenReturn(List.of(product2));
+        when(productMapper.toProductResponseDTO(any(Product.class))).thenReturn(productResponseDTO);
+
+        // When
+        CursorPageResponseDTO<ProductResponseDTO> result = productService.scrollProductsByCriteria(
+                new ProductSearchCriteria(), after, 10, Sort.Order.asc("price"));
+
+        // Then
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void scrollProductsByCriteria_rejectsCursorIssuedForAnotherSort() {
+        // Given
+        String after = CursorCodec.encode("price", "ASC", "100.0", "1");
+
+        // When & Then
+        assertThrows(InvalidCursorException.class, () -> productService.scrollProductsByCriteria(
+                new ProductSearchCriteria(), after, 10, Sort.Order.desc("price")));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void scrollProductsByCriteria_rejectsMalformedCursor() {
+        // When & Then
+        assertThrows(InvalidCursorException.class, () -> productService.scrollProductsByCriteria(
+                new ProductSearchCriteria(), "not-a-cursor!", 10, Sort.Order.asc("id")));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void scrollProductsByCriteria_rejectsUnsupportedSortField() {
+        // When & Then
+        assertThrows(InvalidSortFieldException.class, () -> productService.scrollProductsByCriteria(
+                new ProductSearchCriteria(), null, 10, Sort.Order.asc("description")));
+        verifyNoInteractions(productRepository);
+    }
+
+    private void passThroughCache() {
+        when(productCacheService.get(any(), any())).thenAnswer(invocation -> invocation
+                .<Function<Long, Optional<ProductResponseDTO>>>getArgument(1)
+                .apply(invocation.getArgument(0)));
     }
-}
\ No newline at end of file
+}
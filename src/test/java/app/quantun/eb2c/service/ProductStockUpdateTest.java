@@ -0,0 +1,72 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.Eb2cApplication;
+import app.quantun.eb2c.TestConfig;
+import app.quantun.eb2c.model.contract.request.ProductRequestDTO;
+import app.quantun.eb2c.model.entity.bussines.Product;
+import app.quantun.eb2c.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = Eb2cApplication.class)
+@Import(TestConfig.class)
+@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+class ProductStockUpdateTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void updateKeepsReservationCommittedBetweenLoadAndSave() {
+        // Given
+        Long id = productRepository.save(Product.builder()
+                .name("Lamp")
+                .price(new BigDecimal("25.00"))
+                .inStock(true)
+                .stock(10)
+                .build()).getId();
+        ProductRequestDTO update = ProductRequestDTO.builder()
+                .name("Desk lamp")
+                .price(new BigDecimal("27.00"))
+                .inStock(true)
+                .stock(10)
+                .build();
+
+        // When the product is updated as updateProduct does, with a reservation committing in between
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Product loaded = productRepository.findById(id).orElseThrow();
+            CompletableFuture.runAsync(() -> stockReservationService.reserve(id, 4, null)).join();
+            productService.updateProductFields(loaded, update);
+            productRepository.save(loaded);
+        });
+
+        // Then
+        Product stored = productRepository.findById(id).orElseThrow();
+        assertEquals("Desk lamp", stored.getName());
+        assertEquals(new BigDecimal("27.00"), stored.getPrice().setScale(2));
+        assertEquals(6, stored.getStock());
+        assertTrue(stored.isInStock());
+    }
+}
@@ -0,0 +1,175 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.exception.InsufficientStockException;
+import app.quantun.eb2c.exception.ReservationStateException;
+import app.quantun.eb2c.model.contract.response.StockReservationResponseDTO;
+import app.quantun.eb2c.model.contract.response.StockReservationResponseDTO.Status;
+import app.quantun.eb2c.repository.ProductRepository;
+import app.quantun.eb2c.repository.StockReservationRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    @Mock
+    private StockReservationRepository stockReservationRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductCacheService productCacheService;
+
+    private StockReservationService stockReservationService;
+
+    private UUID reservationId;
+
+    @BeforeEach
+    void setUp() {
+        stockReservationService = new StockReservationService(stockReservationRepository, productRepository,
+                productCacheService, Duration.ofMinutes(15), Duration.ofHours(1), 2);
+        reservationId = UUID.randomUUID();
+    }
+
+    @Test
+    void reserveHoldsStockAndEvictsProduct() {
+        // Given
+        when(stockReservationRepository.reserve(any(), eq(1L), eq(3), any())).thenReturn(true);
+
+        // When
+        StockReservationResponseDTO result = stockReservationService.reserve(1L, 3, null);
+
+        // Then
+        assertEquals(Status.HELD, result.getStatus());
+        assertEquals(3, result.getQuantity());
+        assertNotNull(result.getId());
+        assertTrue(result.getExpiresAt().isAfter(LocalDateTime.now().plusMinutes(14)));
+        verify(productCacheService).evict(1L);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void reserveCapsTtlAtMaximum() {
+        // Given
+        ArgumentCaptor<LocalDateTime> expiresAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(stockReservationRepository.reserve(any(), eq(1L), eq(1), expiresAt.capture())).thenReturn(true);
+
+        // When
+        stockReservationService.reserve(1L, 1, Duration.ofDays(2));
+
+        // Then
+        assertTrue(expiresAt.getValue().isBefore(LocalDateTime.now().plusHours(1).plusSeconds(1)));
+    }
+
+    @Test
+    void reserveRejectsWhenStockIsTooLow() {
+        // Given
+        when(stockReservationRepository.reserve(any(), eq(1L), eq(5), any())).thenReturn(false);
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        // When & Then
+        assertThrows(InsufficientStockException.class, () -> stockReservationService.reserve(1L, 5, null));
+        verifyNoInteractions(productCacheService);
+    }
+
+    @Test
+    void reserveRejectsUnknownProduct() {
+        // Given
+        when(stockReservationRepository.reserve(any(), eq(99L), anyInt(), any())).thenReturn(false);
+        when(productRepository.existsById(99L)).thenReturn(false);
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> stockReservationService.reserve(99L, 1, null));
+    }
+
+    @Test
+    void confirmReturnsConfirmedReservation() {
+        // Given
+        when(stockReservationRepository.confirm(reservationId)).thenReturn(true);
+        when(stockReservationRepository.findById(reservationId)).thenReturn(Optional.of(reservation(Status.CONFIRMED)));
+
+        // When
+        StockReservationResponseDTO result = stockReservationService.confirm(reservationId);
+
+        // Then
+        assertEquals(Status.CONFIRMED, result.getStatus());
+    }
+
+    @Test
+    void confirmRejectsExpiredHold() {
+        // Given
+        when(stockReservationRepository.confirm(reservationId)).thenReturn(false);
+        when(stockReservationRepository.findById(reservationId)).thenReturn(Optional.of(reservation(Status.HELD)));
+
+        // When & Then
+        ReservationStateException exception = assertThrows(ReservationStateException.class,
+                () -> stockReservationService.confirm(reservationId));
+        assertTrue(exception.getMessage().contains("expired"));
+    }
+
+    @Test
+    void releaseReturnsStockOnce() {
+        // Given
+        when(stockReservationRepository.release(reservationId)).thenReturn(Optional.of(1L), Optional.empty());
+        when(stockReservationRepository.findById(reservationId)).thenReturn(Optional.of(reservation(Status.RELEASED)));
+
+        // When
+        stockReservationService.release(reservationId);
+
+        // Then
+        verify(productCacheService).evict(1L);
+        assertThrows(ReservationStateException.class, () -> stockReservationService.release(reservationId));
+    }
+
+    @Test
+    void releaseRejectsUnknownReservation() {
+        // Given
+        when(stockReservationRepository.release(reservationId)).thenReturn(Optional.empty());
+        when(stockReservationRepository.findById(reservationId)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> stockReservationService.release(reservationId));
+    }
+
+    @Test
+    void expireReservationsSweepsUntilNothingIsDue() {
+        // Given
+        when(stockReservationRepository.expireDue(2)).thenReturn(List.of(1L, 2L), List.of(1L), List.of());
+
+        // When
+        stockReservationService.expireReservations();
+
+        // Then
+        verify(stockReservationRepository, times(3)).expireDue(2);
+        verify(productCacheService).evictAll(List.of(1L, 2L));
+        verify(productCacheService).evictAll(List.of(1L));
+    }
+
+    private StockReservationResponseDTO reservation(Status status) {
+        return StockReservationResponseDTO.builder()
+                .id(reservationId)
+                .productId(1L)
+                .quantity(2)
+                .status(status)
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+}
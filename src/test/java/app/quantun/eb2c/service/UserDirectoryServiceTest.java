@@ -0,0 +1,256 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.model.contract.contract.request.PaginationRequest;
+import app.quantun.eb2c.model.contract.contract.response.PagedResponse;
+import app.quantun.eb2c.model.contract.contract.response.UserResponse;
+import app.quantun.eb2c.repository.UserDirectoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class UserDirectoryServiceTest {
+
+    private static final Instant MODIFIED = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Mock
+    private CognitoIdentityProviderClient cognitoClient;
+
+    @Mock
+    private UserDirectoryRepository userDirectoryRepository;
+
+    @Mock
+    private GroupMembershipIndexService membershipIndexService;
+
+    private UserDirectoryService userDirectoryService;
+
+    @BeforeEach
+    void setUp() {
+        userDirectoryService = new UserDirectoryService(cognitoClient, userDirectoryRepository, membershipIndexService,
+                "pool", true);
+        lenient().when(userDirectoryRepository.runLocked(anyLong(), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+    }
+
+    @Test
+    void syncUsersWritesOnlyChangedUsersAndDropsMissingOnes() {
+        // Given
+        when(userDirectoryRepository.findLastModifiedDates()).thenReturn(Map.of(
+                "unchanged", MODIFIED,
+                "changed", MODIFIED.minusSeconds(60),
+                "gone", MODIFIED));
+        when(cognitoClient.listUsers(any(ListUsersRequest.class))).thenAnswer(invocation -> {
+            ListUsersRequest request = invocation.getArgument(0);
+            if (request.paginationToken() == null) {
+                return ListUsersResponse.builder()
+                        .users(user("unchanged"), user("changed"))
+                        .paginationToken("next")
+                        .build();
+            }
+            return ListUsersResponse.builder().users(user("new")).build();
+        });
+        when(userDirectoryRepository.deleteSyncedBefore(eq(Set.of("gone")), any())).thenReturn(List.of("gone"));
+
+        // When
+        userDirectoryService.syncUsers();
+
+        // Then
+        ArgumentCaptor<Collection<UserResponse>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(userDirectoryRepository).upsertAll(written.capture(), any());
+        assertEquals(List.of("changed", "new"), written.getValue().stream().map(UserResponse::getUsername).toList());
+        assertEquals("changed@example.com", written.getValue().iterator().next().getEmail());
+        verify(cognitoClient, times(2)).listUsers(any(ListUsersRequest.class));
+        assertFalse(userDirectoryService.isReady());
+    }
+
+    @Test
+    void directoryIsReadyOnceUsersAndGroupsAreSynced() {
+        // Given
+        when(cognitoClient.listUsers(any(ListUsersRequest.class))).thenReturn(ListUsersResponse.builder().build());
+        when(cognitoClient.listGroups(any(ListGroupsRequest.class))).thenReturn(ListGroupsResponse.builder()
+                .groups(GroupType.builder().groupName("Admins").build())
+                .build());
+        when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenReturn(
+                ListUsersInGroupResponse.builder().users(user("alice")).build());
+
+        // When
+        userDirectoryService.syncUsers();
+        userDirectoryService.syncGroups();
+
+        // Then
+        verify(userDirectoryRepository).replaceMembers("Admins", List.of("alice"));
+        verify(userDirectoryRepository).retainGroups(Set.of("Admins"));
+        verify(membershipIndexService).rebuild(Map.of("Admins", List.of("alice")));
+        assertTrue(userDirectoryService.isReady());
+    }
+
+    @Test
+    void groupSyncRebuildsTheMembershipIndexWhenTheDirectoryIsDisabled() {
+        // Given
+        UserDirectoryService indexOnly = new UserDirectoryService(cognitoClient, userDirectoryRepository,
+                membershipIndexService, "pool", false);
+        when(membershipIndexService.isEnabled()).thenReturn(true);
+        when(cognitoClient.listGroups(any(ListGroupsRequest.class))).thenReturn(ListGroupsResponse.builder()
+                .groups(GroupType.builder().groupName("Admins").build())
+                .build());
+        when(cognitoClient.listUsersInGroup(any(ListUsersInGroupRequest.class))).thenAnswer(invocation -> {
+            ListUsersInGroupRequest request = invocation.getArgument(0);
+            if (request.nextToken() == null) {
+                return ListUsersInGroupResponse.builder().users(user("alice")).nextToken("page-2").build();
+            }
+            return ListUsersInGroupResponse.builder().users(user("bob")).build();
+        });
+
+        // When
+        indexOnly.syncGroups();
+
+        // Then the groups are listed once, for the index only
+        verify(cognitoClient, times(1)).listGroups(any(ListGroupsRequest.class));
+        verify(membershipIndexService).rebuild(Map.of("Admins", List.of("alice", "bob")));
+        verify(userDirectoryRepository, never()).replaceMembers(any(), anyCollection());
+        verify(userDirectoryRepository, never()).markSynced(any(), any());
+    }
+
+    @Test
+    void syncIsSkippedWhileAnotherReplicaHoldsTheLock() {
+        // Given
+        doReturn(false).when(userDirectoryRepository).runLocked(anyLong(), any());
+        when(userDirectoryRepository.findSyncedAt("users")).thenReturn(Optional.of(MODIFIED));
+        when(userDirectoryRepository.findSyncedAt("groups")).thenReturn(Optional.of(MODIFIED));
+
+        // When
+        userDirectoryService.syncUsers();
+        userDirectoryService.syncGroups();
+
+        // Then the directory synced by the other replica is used
+        verifyNoInteractions(cognitoClient);
+        assertTrue(userDirectoryService.isReady());
+    }
+
+    @Test
+    void skippedSyncLeavesDirectoryNotReadyUntilSomeReplicaCompletesIt() {
+        // Given
+        doReturn(false).when(userDirectoryRepository).runLocked(anyLong(), any());
+        when(userDirectoryRepository.findSyncedAt("users")).thenReturn(Optional.empty());
+
+        // When
+        userDirectoryService.syncUsers();
+
+        // Then
+        verifyNoInteractions(cognitoClient);
+        assertFalse(userDirectoryService.isReady());
+    }
+
+    @Test
+    void completedSyncsAreRecordedForTheOtherReplicas() {
+        // Given
+        when(cognitoClient.listUsers(any(ListUsersRequest.class))).thenReturn(ListUsersResponse.builder().build());
+        when(cognitoClient.listGroups(any(ListGroupsRequest.class))).thenReturn(ListGroupsResponse.builder().build());
+
+        // When
+        userDirectoryService.syncUsers();
+        userDirectoryService.syncGroups();
+
+        // Then
+        verify(userDirectoryRepository).markSynced(eq("users"), any());
+        verify(userDirectoryRepository).markSynced(eq("groups"), any());
+    }
+
+    @Test
+    void failedSyncLeavesDirectoryNotReady() {
+        // Given
+        when(userDirectoryRepository.findLastModifiedDates()).thenReturn(Map.of());
+        when(cognitoClient.listUsers(any(ListUsersRequest.class)))
+                .thenThrow(TooManyRequestsException.builder().message("Rate exceeded").build());
+
+        // When
+        userDirectoryService.syncUsers();
+
+        // Then
+        verify(userDirectoryRepository, never()).upsertAll(anyCollection(), any());
+        verify(userDirectoryRepository, never()).markSynced(any(), any());
+        assertFalse(userDirectoryService.isReady());
+    }
+
+    @Test
+    void writeThroughFailureIsNotPropagated() {
+        // Given
+        doThrow(new DataAccessResourceFailureException("down")).when(userDirectoryRepository).deleteAll(anyCollection());
+
+        // When & Then
+        assertDoesNotThrow(() -> userDirectoryService.deleteUser("alice"));
+    }
+
+    @Test
+    void disabledDirectoryDoesNothing() {
+        // Given
+        UserDirectoryService disabled = new UserDirectoryService(cognitoClient, userDirectoryRepository,
+                membershipIndexService, "pool", false);
+
+        // When
+        disabled.syncUsers();
+        disabled.syncGroups();
+        disabled.addUserToGroup("alice", "Admins");
+
+        // Then
+        verifyNoInteractions(cognitoClient, userDirectoryRepository);
+        assertFalse(disabled.isReady());
+    }
+
+    @Test
+    void listUsersReportsExactTotals() {
+        // Given
+        PaginationRequest pagination = new PaginationRequest(1, 20, "createDate", "desc", "ali");
+        when(userDirectoryRepository.count("ali")).thenReturn(45L);
+        when(userDirectoryRepository.search("ali", "createDate", false, 20, 20)).thenReturn(List.of());
+
+        // When
+        PagedResponse<UserResponse> result = userDirectoryService.listUsers(pagination);
+
+        // Then
+        assertEquals(45, result.getTotalElements());
+        assertEquals(3, result.getTotalPages());
+        assertFalse(result.isLast());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void findUserIsEmptyUntilDirectoryIsReady() {
+        // When & Then
+        assertTrue(userDirectoryService.findUser("alice").isEmpty());
+        verify(userDirectoryRepository, never()).findByUsername(any());
+    }
+
+    private UserType user(String username) {
+        return UserType.builder()
+                .username(username)
+                .enabled(true)
+                .userStatus(UserStatusType.CONFIRMED)
+                .userLastModifiedDate(MODIFIED)
+                .attributes(AttributeType.builder().name("email").value(username + "@example.com").build())
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package app.quantun.eb2c.service;
+
+import app.quantun.eb2c.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserGroupCacheServiceTest {
+
+    private UserGroupCacheService userGroupCacheService;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        userGroupCacheService = new UserGroupCacheService(new SimpleMeterRegistry(), 100, Duration.ofMinutes(5), 4,
+                Duration.ofSeconds(5));
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userGroupCacheService.shutdown();
+    }
+
+    @Test
+    void getAllLoadsOnlyMissesAndKeepsOrder() {
+        // Given
+        userGroupCacheService.get("alice", this::load);
+
+        // When
+        Map<String, List<String>> result = userGroupCacheService.getAll(List.of("bob", "alice", "carol"), this::load);
+
+        // Then
+        assertEquals(List.of("bob", "alice", "carol"), List.copyOf(result.keySet()));
+        assertEquals(List.of("group-bob"), result.get("bob"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void getAllLoadsMissesConcurrently() {
+        // Given
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        // When
+        Map<String, List<String>> result = userGroupCacheService.getAll(List.of("alice", "bob"), username -> {
+            bothStarted.countDown();
+            try {
+                // Only completes if the other load is running at the same time
+                assertTrue(bothStarted.await(2, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return load(username);
+        });
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    void evictReloadsUser() {
+        // Given
+        userGroupCacheService.get("alice", this::load);
+
+        // When
+        userGroupCacheService.evict("alice");
+        userGroupCacheService.get("alice", this::load);
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void loaderFailureIsRethrownAndNotCached() {
+        // When & Then
+        assertThrows(ResourceNotFoundException.class, () -> userGroupCacheService.get("ghost", username -> {
+            throw new ResourceNotFoundException("User not found: " + username);
+        }));
+        assertEquals(List.of("group-ghost"), userGroupCacheService.get("ghost", this::load));
+    }
+
+    private List<String> load(String username) {
+        loads.incrementAndGet();
+        return List.of("group-" + username);
+    }
+}